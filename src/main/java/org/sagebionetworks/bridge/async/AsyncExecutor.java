@@ -0,0 +1,342 @@
+package org.sagebionetworks.bridge.async;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+
+/**
+ * Runs async work in lanes (see {@link AsyncLane}). Each lane has a fixed number of worker threads and a
+ * bounded queue. When a lane's queue is full, the lane's {@link RejectionPolicy} decides whether the task runs
+ * on the caller's thread or is rejected. Tasks are queued by a fairness key (usually the app ID), and workers
+ * take tasks from each key in turn, so one app with a burst of work doesn't hold up the other apps.
+ */
+public class AsyncExecutor {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncExecutor.class);
+
+    private static final String DEFAULT_FAIRNESS_KEY = "";
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 30000L;
+
+    private final Map<AsyncLane, Lane> lanes;
+
+    /**
+     * Creates the lanes from the "async.[lane].*" properties in the config. A thread count of 0 gives the lane one
+     * thread for each core on the server.
+     */
+    public AsyncExecutor(BridgeConfig bridgeConfig) {
+        Map<AsyncLane, Lane> lanes = new EnumMap<>(AsyncLane.class);
+        for (AsyncLane lane : AsyncLane.values()) {
+            String prefix = lane.getConfigPrefix();
+            lanes.put(lane, new Lane(lane, threadCount(bridgeConfig.getPropertyAsInt(prefix + ".thread.count")),
+                    bridgeConfig.getPropertyAsInt(prefix + ".queue.capacity"),
+                    RejectionPolicy.valueOf(bridgeConfig.getProperty(prefix + ".rejection.policy"))));
+        }
+        this.lanes = lanes;
+    }
+
+    /** Creates the lanes with the given settings. Package-scoped for unit tests. */
+    AsyncExecutor(int threadCount, int queueCapacity, RejectionPolicy policy) {
+        Map<AsyncLane, Lane> lanes = new EnumMap<>(AsyncLane.class);
+        for (AsyncLane lane : AsyncLane.values()) {
+            lanes.put(lane, new Lane(lane, threadCount, queueCapacity, policy));
+        }
+        this.lanes = lanes;
+    }
+
+    static int threadCount(int configuredThreadCount) {
+        return (configuredThreadCount == 0) ? Runtime.getRuntime().availableProcessors() : configuredThreadCount;
+    }
+
+    /** Run the task in the lane, sharing the lane equally with tasks that have other fairness keys. */
+    public void execute(AsyncLane lane, String fairnessKey, Runnable task) {
+        checkNotNull(lane);
+        checkNotNull(task);
+        lanes.get(lane).execute(fairnessKey == null ? DEFAULT_FAIRNESS_KEY : fairnessKey, task);
+    }
+
+    /** Run the task in the lane. */
+    public void execute(AsyncLane lane, Runnable task) {
+        execute(lane, DEFAULT_FAIRNESS_KEY, task);
+    }
+
+    /** Queue depth, wait time, and run time of the tasks in each lane. */
+    public Map<AsyncLane, LaneStats> getStats() {
+        ImmutableMap.Builder<AsyncLane, LaneStats> builder = ImmutableMap.builder();
+        for (Map.Entry<AsyncLane, Lane> entry : lanes.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue().stats);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Stop accepting tasks, and give the worker threads time to finish the tasks that are already queued.
+     * Tasks still running after that are interrupted.
+     */
+    @PreDestroy
+    public void shutdown() {
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLIS;
+        for (Lane lane : lanes.values()) {
+            lane.shutdown();
+        }
+        for (Lane lane : lanes.values()) {
+            lane.awaitTermination(deadline);
+        }
+    }
+
+    private static final class QueuedTask {
+        private final Runnable task;
+        private final long queuedNanos = System.nanoTime();
+
+        private QueuedTask(Runnable task) {
+            this.task = task;
+        }
+    }
+
+    private static final class Lane {
+        private final AsyncLane name;
+        private final int capacity;
+        private final RejectionPolicy policy;
+        private final LaneStats stats;
+        private final List<Thread> workers = new ArrayList<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        // Guarded by lock. Keys in readyKeys are in the order their next task will be taken. A key is in
+        // readyKeys if and only if it has queued tasks.
+        private final Map<String, Deque<QueuedTask>> queuesByKey = new HashMap<>();
+        private final Deque<String> readyKeys = new ArrayDeque<>();
+        private int size;
+        private boolean shutdown;
+
+        private Lane(AsyncLane name, int threadCount, int capacity, RejectionPolicy policy) {
+            this.name = name;
+            this.capacity = capacity;
+            this.policy = policy;
+            this.stats = new LaneStats(this);
+            String threadPrefix = "async-" + name.name().toLowerCase().replace('_', '-') + "-";
+            for (int i = 0; i < threadCount; i++) {
+                Thread worker = new Thread(this::work, threadPrefix + i);
+                worker.setDaemon(true);
+                worker.start();
+                workers.add(worker);
+            }
+        }
+
+        private void execute(String fairnessKey, Runnable task) {
+            stats.submitted.increment();
+            if (offer(fairnessKey, new QueuedTask(task))) {
+                return;
+            }
+            if (policy == RejectionPolicy.CALLER_RUNS && !isShutdown()) {
+                stats.callerRuns.increment();
+                run(new QueuedTask(task));
+                return;
+            }
+            stats.rejected.increment();
+            throw new RejectedExecutionException("Async lane " + name + " is full or shut down");
+        }
+
+        private boolean offer(String fairnessKey, QueuedTask task) {
+            lock.lock();
+            try {
+                if (shutdown || size >= capacity) {
+                    return false;
+                }
+                Deque<QueuedTask> queue = queuesByKey.computeIfAbsent(fairnessKey, (key) -> new ArrayDeque<>());
+                if (queue.isEmpty()) {
+                    readyKeys.addLast(fairnessKey);
+                }
+                queue.addLast(task);
+                size++;
+                notEmpty.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Take the next task in round-robin order of fairness keys, or null if the lane is shut down and empty. */
+        private QueuedTask take() throws InterruptedException {
+            lock.lock();
+            try {
+                while (size == 0) {
+                    if (shutdown) {
+                        return null;
+                    }
+                    notEmpty.await();
+                }
+                String key = readyKeys.removeFirst();
+                Deque<QueuedTask> queue = queuesByKey.get(key);
+                QueuedTask task = queue.removeFirst();
+                if (queue.isEmpty()) {
+                    queuesByKey.remove(key);
+                } else {
+                    readyKeys.addLast(key);
+                }
+                size--;
+                return task;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void work() {
+            try {
+                QueuedTask task;
+                while ((task = take()) != null) {
+                    run(task);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void run(QueuedTask queuedTask) {
+            long startNanos = System.nanoTime();
+            stats.recordWait(startNanos - queuedTask.queuedNanos);
+            try {
+                queuedTask.task.run();
+            } catch (Throwable t) {
+                stats.failed.increment();
+                LOG.error("Error in async lane " + name + ": " + t.getMessage(), t);
+            } finally {
+                stats.recordRun(System.nanoTime() - startNanos);
+            }
+        }
+
+        private int size() {
+            lock.lock();
+            try {
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean isShutdown() {
+            lock.lock();
+            try {
+                return shutdown;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void shutdown() {
+            lock.lock();
+            try {
+                shutdown = true;
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void awaitTermination(long deadline) {
+            for (Thread worker : workers) {
+                try {
+                    worker.join(Math.max(1L, deadline - System.currentTimeMillis()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (worker.isAlive()) {
+                    LOG.warn("Interrupting async worker " + worker.getName() + " on shutdown");
+                    worker.interrupt();
+                }
+            }
+        }
+    }
+
+    /** Counters for one lane. Times are in milliseconds. */
+    public static final class LaneStats {
+        private final Lane lane;
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder callerRuns = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0L);
+        private final LongAdder totalRunNanos = new LongAdder();
+        private final LongAccumulator maxRunNanos = new LongAccumulator(Long::max, 0L);
+
+        private LaneStats(Lane lane) {
+            this.lane = lane;
+        }
+
+        private void recordWait(long nanos) {
+            totalWaitNanos.add(nanos);
+            maxWaitNanos.accumulate(nanos);
+        }
+
+        private void recordRun(long nanos) {
+            completed.increment();
+            totalRunNanos.add(nanos);
+            maxRunNanos.accumulate(nanos);
+        }
+
+        public int getThreadCount() {
+            return lane.workers.size();
+        }
+        public int getQueueCapacity() {
+            return lane.capacity;
+        }
+        public RejectionPolicy getRejectionPolicy() {
+            return lane.policy;
+        }
+        public int getQueueDepth() {
+            return lane.size();
+        }
+        public long getSubmitted() {
+            return submitted.sum();
+        }
+        public long getRejected() {
+            return rejected.sum();
+        }
+        public long getCallerRuns() {
+            return callerRuns.sum();
+        }
+        public long getCompleted() {
+            return completed.sum();
+        }
+        public long getFailed() {
+            return failed.sum();
+        }
+        public long getAverageWaitMillis() {
+            return average(totalWaitNanos.sum());
+        }
+        public long getMaxWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+        }
+        public long getAverageRunMillis() {
+            return average(totalRunNanos.sum());
+        }
+        public long getMaxRunMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxRunNanos.get());
+        }
+        private long average(long totalNanos) {
+            long count = completed.sum();
+            return (count == 0L) ? 0L : TimeUnit.NANOSECONDS.toMillis(totalNanos / count);
+        }
+    }
+}
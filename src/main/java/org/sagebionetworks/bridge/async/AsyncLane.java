@@ -0,0 +1,55 @@
+package org.sagebionetworks.bridge.async;
+
+/**
+ * Async work is divided into lanes. Each lane has its own worker threads and its own bounded queue, so work
+ * in one lane can't delay work in another.
+ */
+public enum AsyncLane {
+    /** Upload validation. Tasks are long-running and arrive in bursts. */
+    UPLOAD_VALIDATION("async.upload.validation"),
+    /** Short tasks whose results a user is waiting on, such as sending a verification email. */
+    INTERACTIVE("async.interactive"),
+    /**
+     * Parallel calls made on behalf of a request thread that waits for all of them, such as concurrent DynamoDB
+     * queries. This lane should use CALLER_RUNS, so when it's full the calls are made serially instead of failing.
+     */
+    FAN_OUT("async.fan.out"),
+    /**
+     * Attachment writes to S3 during upload validation. The validation thread waits for all of an upload's writes
+     * before saving its record, so this lane should also use CALLER_RUNS.
+     */
+    ATTACHMENT_WRITE("async.attachment.write"),
+    /**
+     * Password and secret hash checks. These are CPU-bound, so the lane should have one thread per core (a thread
+     * count of 0), and should use REJECT so that a burst of sign-ins is shed instead of running on the request
+     * threads.
+     */
+    CREDENTIAL_VERIFICATION("async.credential.verification"),
+    /**
+     * Rendering signed consent PDFs and sending them to the participant. Signing a consent doesn't wait for this, but
+     * the lane should use CALLER_RUNS, so when it's full the consent is still sent.
+     */
+    CONSENT_DELIVERY("async.consent.delivery"),
+    /**
+     * Publishes to a participant's push notification endpoints. The request thread waits for all of them, so this lane
+     * should use CALLER_RUNS. Its thread count bounds the number of SNS publishes in flight.
+     */
+    SNS_PUBLISH("async.sns.publish"),
+    /**
+     * Bringing a participant's criteria-based topic subscriptions up to date after their registrations or data groups
+     * change. Nothing waits for this, but the lane should use CALLER_RUNS, so when it's full the subscriptions are
+     * still updated.
+     */
+    SUBSCRIPTION_RECONCILIATION("async.subscription.reconciliation");
+
+    private final String configPrefix;
+
+    AsyncLane(String configPrefix) {
+        this.configPrefix = configPrefix;
+    }
+
+    /** Prefix of the thread count, queue capacity, and rejection policy properties for this lane. */
+    public String getConfigPrefix() {
+        return configPrefix;
+    }
+}
@@ -0,0 +1,9 @@
+package org.sagebionetworks.bridge.async;
+
+/** What happens to a task submitted to a lane whose queue is full. */
+public enum RejectionPolicy {
+    /** The task runs on the submitting thread, slowing the caller down until the lane catches up. */
+    CALLER_RUNS,
+    /** The task is not run, and a RejectedExecutionException is thrown to the caller. */
+    REJECT;
+}
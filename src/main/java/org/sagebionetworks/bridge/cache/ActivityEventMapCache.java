@@ -0,0 +1,198 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import org.sagebionetworks.bridge.dynamodb.DynamoActivityEventDao;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.sagebionetworks.bridge.models.activities.ActivityEvent;
+
+/**
+ * A write-through cache in Redis of each participant's activity event map, so that scheduling does not have to query
+ * all of a participant's events from DynamoDB. The map is stored as a hash of event key to timestamp. Published
+ * events are written into the hash, and the hash is dropped when the participant's events are deleted.
+ *
+ * Each participant also has a version number that every write increments. A map loaded from DynamoDB is only stored
+ * if the version has not changed since the load began, so a server that loaded the events before another server
+ * published one cannot overwrite the newer event with its older copy of the map. Published events are only written
+ * if they are later than the cached event, so two publishes that reach Redis out of order keep the later timestamp.
+ *
+ * DynamoDB is the source of truth, so if Redis can't be read, the events are loaded from DynamoDB. If a write to the
+ * cached map fails and the map can't be dropped either, the map is stale until it expires, so the expiration is kept
+ * short.
+ *
+ * These scripts reference keys that are built on the server, so they cannot be used against a Redis cluster.
+ */
+public class ActivityEventMapCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ActivityEventMapCache.class);
+
+    /** Marks a loaded map, so a participant with no events is still cached. Not a valid event key. */
+    static final String LOADED_FIELD = "*";
+
+    /**
+     * Returns the hash if it exists, or else the participant's version.
+     * KEYS[1] = map key, KEYS[2] = version key
+     */
+    private static final RedisScript GET_SCRIPT = new RedisScript(
+            "local map = redis.call('HGETALL', KEYS[1]) " +
+            "if #map > 0 then return map end " +
+            "return redis.call('GET', KEYS[2]) or '0'");
+
+    /**
+     * Stores the loaded map, unless the version has changed since the load began. Returns 1 if stored.
+     * KEYS[1] = map key, KEYS[2] = version key, ARGV[1] = expected version, ARGV[2] = expiration,
+     * ARGV[3...] = event key and timestamp pairs
+     */
+    private static final RedisScript SET_SCRIPT = new RedisScript(
+            "if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then return 0 end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "for i = 3, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i+1]) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1");
+
+    /**
+     * Increments the version and, if the map is cached and this is the latest timestamp for the event, replaces the
+     * event. An answered event is keyed by its answer, so the entry for a previous answer is removed.
+     * KEYS[1] = map key, KEYS[2] = version key, ARGV[1] = expiration, ARGV[2] = event ID, ARGV[3] = event key,
+     * ARGV[4] = timestamp
+     */
+    private static final RedisScript UPDATE_SCRIPT = new RedisScript(
+            "redis.call('INCR', KEYS[2]) " +
+            "redis.call('EXPIRE', KEYS[2], ARGV[1]) " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "local prefix = ARGV[2] .. '=' " +
+            "local previous = {} " +
+            "for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do " +
+            "  if field == ARGV[2] or string.sub(field, 1, #prefix) == prefix then " +
+            "    if tonumber(redis.call('HGET', KEYS[1], field)) >= tonumber(ARGV[4]) then return 0 end " +
+            "    table.insert(previous, field) " +
+            "  end " +
+            "end " +
+            "for _, field in ipairs(previous) do redis.call('HDEL', KEYS[1], field) end " +
+            "redis.call('HSET', KEYS[1], ARGV[3], ARGV[4]) " +
+            "return 1");
+
+    /**
+     * Increments the version and drops the map.
+     * KEYS[1] = map key, KEYS[2] = version key, ARGV[1] = expiration
+     */
+    private static final RedisScript REMOVE_SCRIPT = new RedisScript(
+            "redis.call('INCR', KEYS[2]) " +
+            "redis.call('EXPIRE', KEYS[2], ARGV[1]) " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return 1");
+
+    private final int expireInSeconds;
+    private JedisPool jedisPool;
+
+    public ActivityEventMapCache(int expireInSeconds) {
+        this.expireInSeconds = expireInSeconds;
+    }
+
+    public final void setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    /**
+     * Get the participant's map of event keys to timestamps, calling the loader if the map is not cached or Redis
+     * can't be reached. The returned map is immutable.
+     */
+    public Map<String, DateTime> getActivityEventMap(String healthCode, Supplier<Map<String, DateTime>> loader) {
+        checkNotNull(healthCode);
+        checkNotNull(loader);
+
+        Object result;
+        try (Jedis jedis = jedisPool.getResource()) {
+            result = GET_SCRIPT.eval(jedis, keys(healthCode), ImmutableList.of());
+        } catch (Throwable e) {
+            LOG.warn("Error reading cached activity events, loading them without the cache", e);
+            return loader.get();
+        }
+        if (result instanceof List) {
+            return decode(result);
+        }
+        // Not cached, so the result is the version before loading. Don't hold a connection while loading.
+        byte[] version = (byte[]) result;
+        Map<String, DateTime> eventMap = loader.get();
+        try {
+            eval(SET_SCRIPT, healthCode, encode(version, eventMap));
+        } catch (BridgeServiceException e) {
+            LOG.warn("Error caching activity events", e);
+        }
+        return eventMap;
+    }
+
+    /** Write an event that was just published to the participant's cached map. */
+    public void updateActivityEvent(ActivityEvent event) {
+        checkNotNull(event);
+        checkNotNull(event.getHealthCode());
+
+        List<byte[]> args = ImmutableList.of(bytes(Integer.toString(expireInSeconds)), bytes(event.getEventId()),
+                bytes(DynamoActivityEventDao.getEventMapKey(event)), bytes(Long.toString(event.getTimestamp())));
+        eval(UPDATE_SCRIPT, event.getHealthCode(), args);
+    }
+
+    /** Drop the participant's cached map, because their events were deleted. */
+    public void removeActivityEventMap(String healthCode) {
+        checkNotNull(healthCode);
+        eval(REMOVE_SCRIPT, healthCode, ImmutableList.of(bytes(Integer.toString(expireInSeconds))));
+    }
+
+    private void eval(RedisScript script, String healthCode, List<byte[]> args) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            script.eval(jedis, keys(healthCode), args);
+        } catch (Throwable e) {
+            throw new BridgeServiceException(e);
+        }
+    }
+
+    private List<byte[]> encode(byte[] version, Map<String, DateTime> eventMap) {
+        ImmutableList.Builder<byte[]> builder = ImmutableList.builder();
+        builder.add(version);
+        builder.add(bytes(Integer.toString(expireInSeconds)));
+        builder.add(bytes(LOADED_FIELD));
+        builder.add(bytes("0"));
+        for (Map.Entry<String, DateTime> entry : eventMap.entrySet()) {
+            builder.add(bytes(entry.getKey()));
+            builder.add(bytes(Long.toString(entry.getValue().getMillis())));
+        }
+        return builder.build();
+    }
+
+    private static Map<String, DateTime> decode(Object result) {
+        List<?> fieldsAndValues = (List<?>) result;
+        ImmutableMap.Builder<String, DateTime> builder = ImmutableMap.builder();
+        for (int i = 0; i < fieldsAndValues.size(); i += 2) {
+            String field = new String((byte[]) fieldsAndValues.get(i), UTF_8);
+            if (!LOADED_FIELD.equals(field)) {
+                long timestamp = Long.parseLong(new String((byte[]) fieldsAndValues.get(i + 1), UTF_8));
+                builder.put(field, new DateTime(timestamp, DateTimeZone.UTC));
+            }
+        }
+        return builder.build();
+    }
+
+    private static List<byte[]> keys(String healthCode) {
+        return ImmutableList.of(bytes(CacheKey.activityEventMap(healthCode).toString()),
+                bytes(CacheKey.activityEventMapVersion(healthCode).toString()));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(UTF_8);
+    }
+}
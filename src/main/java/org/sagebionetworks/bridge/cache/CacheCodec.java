@@ -0,0 +1,116 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+
+/**
+ * Serializes the large objects that are read from the cache on nearly every request (sessions and apps)
+ * to Smile, a binary encoding of JSON, compressing values above a size threshold. Each binary value
+ * starts with a format byte. JSON values written by older servers never start with one of these bytes,
+ * so this codec reads both formats. Writing binary values is off by default (cache.binary.format.enabled),
+ * and should only be turned on once no servers that can only read JSON are running.
+ */
+@Component
+public class CacheCodec {
+    /** Smile-encoded value. */
+    static final byte SMILE_FORMAT = 1;
+    /** Smile-encoded value, compressed with deflate. */
+    static final byte DEFLATED_SMILE_FORMAT = 2;
+
+    // The "type" property added by BridgeObjectMapper relies on duplicate detection.
+    static final ObjectMapper SMILE_MAPPER = new BridgeObjectMapper(
+            new SmileFactory().enable(JsonGenerator.Feature.STRICT_DUPLICATE_DETECTION));
+    private static final ObjectWriter SMILE_SESSION_WRITER = SMILE_MAPPER
+            .writer(StudyParticipant.CACHE_WRITER.getConfig().getFilterProvider());
+
+    private boolean binaryFormatEnabled;
+    private int compressionThresholdBytes = Integer.MAX_VALUE;
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.binaryFormatEnabled = Boolean.parseBoolean(bridgeConfig.getProperty("cache.binary.format.enabled"));
+        this.compressionThresholdBytes = bridgeConfig.getPropertyAsInt("cache.compression.threshold.bytes");
+    }
+
+    final void setBinaryFormatEnabled(boolean binaryFormatEnabled) {
+        this.binaryFormatEnabled = binaryFormatEnabled;
+    }
+
+    final void setCompressionThresholdBytes(int compressionThresholdBytes) {
+        this.compressionThresholdBytes = compressionThresholdBytes;
+    }
+
+    /** Serialize a session, including the fields that are only written to the cache. */
+    public byte[] writeSession(UserSession session) throws IOException {
+        checkNotNull(session);
+        if (!binaryFormatEnabled) {
+            return StudyParticipant.CACHE_WRITER.writeValueAsBytes(session);
+        }
+        return encode(SMILE_SESSION_WRITER.writeValueAsBytes(session));
+    }
+
+    public byte[] write(Object object) throws IOException {
+        checkNotNull(object);
+        if (!binaryFormatEnabled) {
+            return BridgeObjectMapper.get().writeValueAsBytes(object);
+        }
+        return encode(SMILE_MAPPER.writeValueAsBytes(object));
+    }
+
+    /** Deserialize a value in any of the formats this codec can write, including JSON. */
+    public <T> T read(byte[] ser, Class<T> clazz) throws IOException {
+        checkNotNull(ser);
+        checkNotNull(clazz);
+        if (ser.length > 0 && ser[0] == SMILE_FORMAT) {
+            return SMILE_MAPPER.readValue(ser, 1, ser.length-1, clazz);
+        } else if (ser.length > 0 && ser[0] == DEFLATED_SMILE_FORMAT) {
+            try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(ser, 1, ser.length-1))) {
+                return SMILE_MAPPER.readValue(in, clazz);
+            }
+        }
+        return BridgeObjectMapper.get().readValue(ser, clazz);
+    }
+
+    /** True if the value was written in one of the binary formats, false if it is JSON. */
+    public boolean isBinary(byte[] ser) {
+        checkNotNull(ser);
+        return ser.length > 0 && (ser[0] == SMILE_FORMAT || ser[0] == DEFLATED_SMILE_FORMAT);
+    }
+
+    private byte[] encode(byte[] smile) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(smile.length + 1);
+        if (smile.length < compressionThresholdBytes) {
+            out.write(SMILE_FORMAT);
+            out.write(smile);
+            return out.toByteArray();
+        }
+        out.write(DEFLATED_SMILE_FORMAT);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater)) {
+            deflaterOut.write(smile);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+}
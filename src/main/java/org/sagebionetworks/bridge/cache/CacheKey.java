@@ -18,6 +18,9 @@ import com.google.common.collect.Lists;
  */
 public final class CacheKey {
     
+    /** Appended to a user ID to form the user ID to session key, for lookups that are done in Redis. */
+    static final String USER_ID_TO_SESSION_SUFFIX = ":session2:user";
+    
     private static final String[] PUBLIC_KEYS = new String[] { "emailVerificationStatus", "AppConfigList",
             "channel-throttling", "lock", "App", "Subpopulation", "SubpopulationList", "view" };
     
@@ -30,6 +33,12 @@ public final class CacheKey {
         return false;
     }
     
+    public static final CacheKey activityEventMap(String healthCode) {
+        return new CacheKey(healthCode, "ActivityEventMap");
+    }
+    public static final CacheKey activityEventMapVersion(String healthCode) {
+        return new CacheKey(healthCode, "ActivityEventMapVersion");
+    }
     public static final CacheKey tagList() {
         return new CacheKey("TagList");
     }
@@ -39,6 +48,15 @@ public final class CacheKey {
     public static final CacheKey shortenUrl(String token) {
         return new CacheKey(token, "ShortenedUrl");
     }
+    public static final CacheKey appCriteria(String appId) {
+        return new CacheKey(appId, "Criteria");
+    }
+    public static final CacheKey appCriteriaVersion(String appId) {
+        return new CacheKey(appId, "CriteriaVersion");
+    }
+    public static final CacheKey schedulePlanSnapshot(String appId) {
+        return new CacheKey(appId, "SchedulePlanSnapshot");
+    }
     public static final CacheKey appConfigList(String appId) {
         return new CacheKey(appId, "AppConfigList");
     }
@@ -93,8 +111,11 @@ public final class CacheKey {
     public static final CacheKey subpopList(String appId) {
         return new CacheKey(appId, "SubpopulationList");
     }
+    public static final CacheKey subpopMatcher(String appId) {
+        return new CacheKey(appId, "SubpopulationMatcher");
+    }
     public static final CacheKey userIdToSession(String userId) {
-        return new CacheKey(userId, "session2", "user");
+        return new CacheKey(userId + USER_ID_TO_SESSION_SUFFIX);
     }
     public static final CacheKey tokenToUserId(String sessionToken) {
         return new CacheKey(sessionToken, "session2");
@@ -1,8 +1,9 @@
 package org.sagebionetworks.bridge.cache;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
-import java.util.List;
+import java.io.IOException;
 import java.util.Set;
 
 import javax.annotation.Resource;
@@ -12,17 +13,21 @@ import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.models.RequestInfo;
-import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
 import org.sagebionetworks.bridge.models.accounts.UserSession;
 import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.redis.JedisOps;
 import org.sagebionetworks.bridge.redis.JedisTransaction;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
 
 /**
  * A wrapper around our use of Redis.
@@ -30,7 +35,33 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 @Component
 public class CacheProvider {
     private static final String LOCAL_SERVICE_ERROR = "Cannot find cache service, have you started Redis? (original message: %s)";
+    
+    /**
+     * Resolves session token --> user ID --> session in one round trip. The user ID to session key is 
+     * built on the server, so this script cannot be used against a Redis cluster.
+     * KEYS[1] = token to user ID key, ARGV[1] = suffix of the user ID to session key
+     */
+    private static final RedisScript GET_SESSION_SCRIPT = new RedisScript(
+            "local userId = redis.call('GET', KEYS[1]) " +
+            "if not userId then return false end " +
+            "return redis.call('GET', userId .. ARGV[1])");
+    
+    /**
+     * Writes both session keys, keeping the remaining time to expiration of an existing session.
+     * KEYS[1] = token to user ID key, KEYS[2] = user ID to session key, ARGV[1] = default expiration, 
+     * ARGV[2] = user ID, ARGV[3] = serialized session
+     */
+    private static final RedisScript SET_SESSION_SCRIPT = new RedisScript(
+            "local ttl = redis.call('TTL', KEYS[2]) " +
+            "if ttl <= 0 then ttl = tonumber(ARGV[1]) end " +
+            "redis.call('SETEX', KEYS[1], ttl, ARGV[2]) " +
+            "redis.call('SETEX', KEYS[2], ttl, ARGV[3]) " +
+            "return ttl");
+    
     private JedisOps jedisOps;
+    private JedisPool jedisPool;
+    private NearCache nearCache;
+    private CacheCodec cacheCodec;
     private int sessionExpireInSeconds;
 
     @Resource(name = "jedisOps")
@@ -38,6 +69,21 @@ public class CacheProvider {
         this.jedisOps = jedisOps;
     }
 
+    @Resource(name = "jedisPool")
+    final void setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    @Resource(name = "nearCache")
+    final void setNearCache(NearCache nearCache) {
+        this.nearCache = nearCache;
+    }
+
+    @Autowired
+    final void setCacheCodec(CacheCodec cacheCodec) {
+        this.cacheCodec = cacheCodec;
+    }
+
     @Resource(name = "sessionExpireInSeconds")
     final void setSessionExpireInSeconds(@SuppressWarnings("SameParameterValue") int sessionExpireInSeconds) {
         this.sessionExpireInSeconds = sessionExpireInSeconds;
@@ -90,27 +136,16 @@ public class CacheProvider {
         CacheKey tokenToUserIdKey = CacheKey.tokenToUserId(session.getSessionToken());
         CacheKey userIdToSessionKey = CacheKey.userIdToSession(session.getId());
         
-        try (JedisTransaction transaction = jedisOps.getTransaction()) {
-            // If the key exists, get the remaining time to expiration. If it doesn't exist
-            // then save with the full expiration period.
-            Long ttl = jedisOps.ttl(userIdToSessionKey.toString());
-            int expiration = (ttl != null && ttl > 0L) ? ttl.intValue() : sessionExpireInSeconds;
-                   
-            String ser = StudyParticipant.CACHE_WRITER.writeValueAsString(session);
+        try (Jedis jedis = jedisPool.getResource()) {
+            byte[] ser = cacheCodec.writeSession(session);
             
-            List<Object> results = transaction
-                .setex(tokenToUserIdKey.toString(), expiration, session.getId())
-                .setex(userIdToSessionKey.toString(), expiration, ser)
-                .exec();
+            Object result = SET_SESSION_SCRIPT.eval(jedis,
+                    ImmutableList.of(bytes(tokenToUserIdKey.toString()), bytes(userIdToSessionKey.toString())),
+                    ImmutableList.of(bytes(Integer.toString(sessionExpireInSeconds)), bytes(session.getId()), ser));
             
-            if (results == null) {
+            if (result == null) {
                 throw new BridgeServiceException("Session storage error.");
             }
-            for (Object result : results) {
-                if (!"OK".equals(result)) {
-                    throw new BridgeServiceException("Session storage error.");
-                }
-            }
         } catch (Throwable e) {
             promptToStartRedisIfLocal(e);
             throw new BridgeServiceException(e);
@@ -122,25 +157,24 @@ public class CacheProvider {
         checkNotNull(sessionToken);
         try {
             CacheKey tokenToUserIdKey = CacheKey.tokenToUserId(sessionToken);
-            String userId = jedisOps.get(tokenToUserIdKey.toString());
-            if (userId != null) {
-                CacheKey userIdToSessionKey = CacheKey.userIdToSession(userId);
-                String ser = jedisOps.get(userIdToSessionKey.toString());
-                if (ser != null) {
-                    JsonNode node = adjustJsonWithStudyIdentifier(ser);
-                    UserSession session = BridgeObjectMapper.get().treeToValue(node,  UserSession.class);
-                    
-                    // The token --> userId look up is not replaced on session invalidation. 
-                    // Check here and only return if the sessionToken is valid. It is possible 
-                    // to successfully sign in and then have this fail due to concurrent requests.
-                    // The client needs to manage concurrent requests if it doesn't want to 
-                    // invalidate its own session.
-                    if (session.getSessionToken().equals(sessionToken)) {
-                        return session;
-                    }
-                    // Otherwise, delete the key sessionToken key (it's known to be invalid)
-                    removeObject(tokenToUserIdKey);
+            byte[] ser;
+            try (Jedis jedis = jedisPool.getResource()) {
+                ser = (byte[])GET_SESSION_SCRIPT.eval(jedis, ImmutableList.of(bytes(tokenToUserIdKey.toString())),
+                        ImmutableList.of(bytes(CacheKey.USER_ID_TO_SESSION_SUFFIX)));
+            }
+            if (ser != null) {
+                UserSession session = readSession(ser);
+                
+                // The token --> userId look up is not replaced on session invalidation. 
+                // Check here and only return if the sessionToken is valid. It is possible 
+                // to successfully sign in and then have this fail due to concurrent requests.
+                // The client needs to manage concurrent requests if it doesn't want to 
+                // invalidate its own session.
+                if (session.getSessionToken().equals(sessionToken)) {
+                    return session;
                 }
+                // Otherwise, delete the key sessionToken key (it's known to be invalid)
+                removeObject(tokenToUserIdKey);
             }
             return null;
         } catch (Throwable e) {
@@ -154,18 +188,37 @@ public class CacheProvider {
         
         try {
             CacheKey userIdToSessionKey = CacheKey.userIdToSession(userId);
-            String ser = jedisOps.get(userIdToSessionKey.toString());
+            byte[] ser;
+            try (Jedis jedis = jedisPool.getResource()) {
+                ser = jedis.get(bytes(userIdToSessionKey.toString()));
+            }
             if (ser == null) {
                 return null;
             }
-            JsonNode node = adjustJsonWithStudyIdentifier(ser);
-            return BridgeObjectMapper.get().treeToValue(node,  UserSession.class);
+            return readSession(ser);
         } catch(Throwable e) {
             promptToStartRedisIfLocal(e);
             throw new BridgeServiceException(e);
         }
     }
 
+    /**
+     * Sessions are deserialized directly. Only JSON sessions that were persisted before the move to appId 
+     * (they have no appId) go through the slower migration of the JSON tree.
+     */
+    private UserSession readSession(byte[] ser) throws IOException {
+        UserSession session = cacheCodec.read(ser, UserSession.class);
+        if (session.getAppId() == null && !cacheCodec.isBinary(ser)) {
+            JsonNode node = adjustJsonWithStudyIdentifier(new String(ser, UTF_8));
+            session = BridgeObjectMapper.get().treeToValue(node, UserSession.class);
+        }
+        return session;
+    }
+    
+    private static byte[] bytes(String value) {
+        return value.getBytes(UTF_8);
+    }
+
     /**
      * During a transition period away from appId, we will need special handling to
      * ensure persisted sessions, subpopulations, and subpopulation lists are deserialized 
@@ -239,13 +292,51 @@ public class CacheProvider {
     public void setApp(App app) {
         checkNotNull(app);
         CacheKey redisKey = CacheKey.app(app.getIdentifier());
-        setObject(redisKey, app, BridgeConstants.BRIDGE_SESSION_EXPIRE_IN_SECONDS);
+        try {
+            byte[] ser = cacheCodec.write(app);
+            String result;
+            try (Jedis jedis = jedisPool.getResource()) {
+                result = jedis.setex(bytes(redisKey.toString()), BridgeConstants.BRIDGE_SESSION_EXPIRE_IN_SECONDS,
+                        ser);
+            }
+            if (!"OK".equals(result)) {
+                throw new BridgeServiceException("App storage error");
+            }
+            nearCache.update(redisKey, ser);
+        } catch (Throwable e) {
+            promptToStartRedisIfLocal(e);
+            throw new BridgeServiceException(e);
+        }
     }
 
     public App getApp(String appId) {
         checkNotNull(appId);
         CacheKey redisKey = CacheKey.app(appId);
-        return getObject(redisKey, App.class, BridgeConstants.BRIDGE_SESSION_EXPIRE_IN_SECONDS);
+        try {
+            // The near cache holds the serialized app, so each caller gets its own copy to modify.
+            Object cached = nearCache.get(redisKey);
+            if (cached instanceof byte[]) {
+                return cacheCodec.read((byte[])cached, App.class);
+            }
+            long nearCacheVersion = nearCache.getVersion();
+            byte[] key = bytes(redisKey.toString());
+            byte[] ser;
+            try (Jedis jedis = jedisPool.getResource()) {
+                ser = jedis.get(key);
+                if (ser != null) {
+                    jedis.expire(key, BridgeConstants.BRIDGE_SESSION_EXPIRE_IN_SECONDS);
+                }
+            }
+            if (ser != null) {
+                App app = cacheCodec.read(ser, App.class);
+                nearCache.put(redisKey, ser, nearCacheVersion);
+                return app;
+            }
+        } catch (Throwable e) {
+            promptToStartRedisIfLocal(e);
+            throw new BridgeServiceException(e);
+        }
+        return null;
     }
 
     public void removeApp(String appId) {
@@ -258,7 +349,7 @@ public class CacheProvider {
         checkNotNull(cacheKey);
         checkNotNull(clazz);
         try {
-            String ser = jedisOps.get(cacheKey.toString());
+            String ser = getSerialized(cacheKey);
             if (ser != null) {
                 JsonNode node = adjustJsonWithStudyIdentifier(ser);                
                 return BridgeObjectMapper.get().treeToValue(node, clazz);
@@ -274,7 +365,7 @@ public class CacheProvider {
         checkNotNull(cacheKey);
         checkNotNull(typeRef);
         try {
-            String ser = jedisOps.get(cacheKey.toString());
+            String ser = getSerialized(cacheKey);
             if (ser != null) {
                 JsonNode node = adjustJsonWithStudyIdentifier(ser);
                 return BridgeObjectMapper.get().readValue(node.toString(), typeRef);
@@ -287,15 +378,22 @@ public class CacheProvider {
     }
     
     /**
-     * Get the object, resetting its expiration period.
+     * Get the object, resetting its expiration period. If the object is served from the near cache, 
+     * the expiration period in Redis is not reset.
      */
     public <T> T getObject(CacheKey cacheKey, Class<T> clazz, int expireInSeconds) {
         checkNotNull(cacheKey);
         checkNotNull(clazz);
         try {
+            Object cached = nearCache.get(cacheKey);
+            if (cached instanceof String) {
+                return BridgeObjectMapper.get().readValue((String)cached, clazz);
+            }
+            long nearCacheVersion = nearCache.getVersion();
             String ser = jedisOps.get(cacheKey.toString());
             if (ser != null) {
                 jedisOps.expire(cacheKey.toString(), expireInSeconds);
+                nearCache.put(cacheKey, ser, nearCacheVersion);
                 return BridgeObjectMapper.get().readValue(ser, clazz);
             }
         } catch (Throwable e) {
@@ -305,6 +403,23 @@ public class CacheProvider {
         return null;
     }
 
+    /**
+     * Get the JSON stored under the key, from the near cache if it is there. The near cache holds the JSON rather than
+     * the object, so each caller gets its own copy to modify.
+     */
+    private String getSerialized(CacheKey cacheKey) {
+        Object cached = nearCache.get(cacheKey);
+        if (cached instanceof String) {
+            return (String)cached;
+        }
+        long nearCacheVersion = nearCache.getVersion();
+        String ser = jedisOps.get(cacheKey.toString());
+        if (ser != null) {
+            nearCache.put(cacheKey, ser, nearCacheVersion);
+        }
+        return ser;
+    }
+
     /** Sets the expiration on the given cache object. */
     public void setExpiration(CacheKey cacheKey, int expireInSeconds) {
         checkNotNull(cacheKey);
@@ -328,6 +443,7 @@ public class CacheProvider {
             if (!"OK".equals(result)) {
                 throw new BridgeServiceException(object.getClass().getSimpleName() + " storage error");
             }
+            nearCache.update(cacheKey, ser);
         } catch (Throwable e) {
             promptToStartRedisIfLocal(e);
             throw new BridgeServiceException(e);
@@ -346,6 +462,7 @@ public class CacheProvider {
             if (!"OK".equals(result)) {
                 throw new BridgeServiceException(object.getClass().getSimpleName() + " storage error");
             }
+            nearCache.update(cacheKey, ser);
         } catch (Throwable e) {
             promptToStartRedisIfLocal(e);
             throw new BridgeServiceException(e);
@@ -359,6 +476,7 @@ public class CacheProvider {
         checkNotNull(cacheKey);
         try {
             jedisOps.del(cacheKey.toString());
+            nearCache.invalidate(cacheKey);
         } catch(Throwable e) {
             promptToStartRedisIfLocal(e);
             throw new BridgeServiceException(e);
@@ -389,6 +507,9 @@ public class CacheProvider {
                     transaction.del(cacheKeyOfSet.toString());
                     transaction.exec();
                 }
+                for (String oneMember : members) {
+                    nearCache.invalidate(oneMember);
+                }
             }
         } catch(Throwable e) {
             promptToStartRedisIfLocal(e);
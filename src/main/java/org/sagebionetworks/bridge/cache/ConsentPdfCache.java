@@ -0,0 +1,51 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+
+/**
+ * An in-process cache of rendered consent PDFs, keyed by a digest of the signed document they were rendered from.
+ * Rendering a PDF takes hundreds of milliseconds, so a consent that is sent again (or sent to several channels at
+ * once) is rendered only once. If two threads ask for the same PDF at the same time, one renders it and the other
+ * waits for the result. The cache is bounded by the total size of the PDFs it holds.
+ */
+public class ConsentPdfCache {
+
+    private final Cache<String, byte[]> cache;
+
+    public ConsentPdfCache(long maxBytes, int expireInSeconds) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, byte[] value) -> value.length)
+                .expireAfterWrite(expireInSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /** The PDF rendered from the document with this digest, calling the renderer if it hasn't been rendered. */
+    public byte[] getBytes(String contentHash, Supplier<byte[]> renderer) {
+        checkNotNull(contentHash);
+        checkNotNull(renderer);
+        try {
+            return cache.get(contentHash, renderer::get);
+        } catch (UncheckedExecutionException | ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BridgeServiceException(e.getCause());
+        }
+    }
+
+    /** Number of entries, for tests. */
+    long size() {
+        return cache.size();
+    }
+}
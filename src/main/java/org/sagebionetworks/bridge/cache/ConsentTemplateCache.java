@@ -0,0 +1,69 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
+import org.sagebionetworks.bridge.services.ConsentTemplate;
+
+/**
+ * An in-process cache of compiled consent documents, keyed by subpopulation and consent createdOn. Consents aren't
+ * changed once they're saved, so entries don't need to be refreshed; the time-to-live only lets documents that are
+ * no longer published leave the cache.
+ */
+public class ConsentTemplateCache {
+
+    private final Cache<String, ConsentTemplate> cache;
+
+    public ConsentTemplateCache(long maxSize, int expireInSeconds) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireInSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /** The compiled consent document, calling the compiler if it hasn't been compiled on this server. */
+    public ConsentTemplate get(SubpopulationGuid subpopGuid, long createdOn, Supplier<ConsentTemplate> compiler) {
+        checkNotNull(subpopGuid);
+        checkNotNull(compiler);
+        try {
+            return cache.get(key(subpopGuid, createdOn), compiler::get);
+        } catch (UncheckedExecutionException | ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BridgeServiceException(e.getCause());
+        }
+    }
+
+    /** Cache a document that was just compiled, for example because it was published. */
+    public void put(SubpopulationGuid subpopGuid, long createdOn, ConsentTemplate template) {
+        checkNotNull(subpopGuid);
+        checkNotNull(template);
+        cache.put(key(subpopGuid, createdOn), template);
+    }
+
+    /** Drop every document of the subpopulation, because its consents were deleted. */
+    public void invalidateSubpopulation(SubpopulationGuid subpopGuid) {
+        checkNotNull(subpopGuid);
+        String keyPrefix = subpopGuid.getGuid() + ":";
+        cache.asMap().keySet().removeIf(key -> key.startsWith(keyPrefix));
+    }
+
+    /** Number of entries, for tests. */
+    long size() {
+        return cache.size();
+    }
+
+    private static String key(SubpopulationGuid subpopGuid, long createdOn) {
+        return subpopGuid.getGuid() + ":" + createdOn;
+    }
+}
@@ -0,0 +1,175 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.models.Criteria;
+
+/**
+ * A cache in Redis of each app's criteria, so that listing an app's templates, subpopulations, schedule plans,
+ * notification topics or app configs reads all of their criteria in one round trip. Each app's criteria are stored as
+ * a hash of criteria key to JSON, with an empty value for a key that has no criteria (most notification topics). A
+ * key is dropped from the hash when its criteria are saved or deleted.
+ *
+ * Each app also has a version number that every save or delete increments. Criteria loaded from DynamoDB are only
+ * stored if the version has not changed since the load began, so a server that loaded criteria before another server
+ * changed them cannot cache its older copy.
+ *
+ * These scripts reference keys that are built on the server, so they cannot be used against a Redis cluster.
+ */
+public class CriteriaCache {
+
+    /**
+     * Returns the app's version, followed by the cached value of each criteria key (nil if not cached).
+     * KEYS[1] = hash key, KEYS[2] = version key, ARGV = criteria keys
+     */
+    private static final RedisScript GET_SCRIPT = new RedisScript(
+            "local result = redis.call('HMGET', KEYS[1], unpack(ARGV)) " +
+            "table.insert(result, 1, redis.call('GET', KEYS[2]) or '0') " +
+            "return result");
+
+    /**
+     * Stores the loaded criteria, unless the version has changed since the load began. Returns 1 if stored.
+     * KEYS[1] = hash key, KEYS[2] = version key, ARGV[1] = expected version, ARGV[2] = expiration,
+     * ARGV[3...] = criteria key and value pairs
+     */
+    private static final RedisScript SET_SCRIPT = new RedisScript(
+            "if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then return 0 end " +
+            "for i = 3, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i+1]) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1");
+
+    /**
+     * Increments the version and drops the criteria key.
+     * KEYS[1] = hash key, KEYS[2] = version key, ARGV[1] = expiration, ARGV[2] = criteria key
+     */
+    private static final RedisScript REMOVE_SCRIPT = new RedisScript(
+            "redis.call('INCR', KEYS[2]) " +
+            "redis.call('EXPIRE', KEYS[2], ARGV[1]) " +
+            "redis.call('HDEL', KEYS[1], ARGV[2]) " +
+            "return 1");
+
+    private static final byte[] NO_CRITERIA = new byte[0];
+
+    private final int expireInSeconds;
+    private JedisPool jedisPool;
+
+    public CriteriaCache(int expireInSeconds) {
+        this.expireInSeconds = expireInSeconds;
+    }
+
+    public final void setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    /**
+     * Get the app's criteria for the given keys, calling the loader with any keys that are not cached. The loader
+     * returns the criteria that exist; keys without criteria are omitted from the loader's result and from the result
+     * of this method.
+     */
+    public Map<String, Criteria> getCriteria(String appId, Set<String> keys,
+            Function<Set<String>, Map<String, Criteria>> loader) {
+        checkNotNull(appId);
+        checkNotNull(keys);
+        checkNotNull(loader);
+
+        if (keys.isEmpty()) {
+            return ImmutableMap.of();
+        }
+        List<String> keyList = ImmutableList.copyOf(keys);
+        List<byte[]> args = new ArrayList<>(keyList.size());
+        for (String key : keyList) {
+            args.add(bytes(key));
+        }
+        List<?> result = (List<?>) eval(GET_SCRIPT, appId, args);
+
+        Map<String, Criteria> criteriaMap = new HashMap<>();
+        Set<String> missingKeys = new LinkedHashSet<>();
+        for (int i = 0; i < keyList.size(); i++) {
+            String key = keyList.get(i);
+            byte[] value = (byte[]) result.get(i + 1);
+            if (value == null) {
+                missingKeys.add(key);
+            } else if (value.length > 0) {
+                criteriaMap.put(key, decode(key, value));
+            }
+        }
+        if (missingKeys.isEmpty()) {
+            return criteriaMap;
+        }
+        // Don't hold a connection while loading.
+        byte[] version = (byte[]) result.get(0);
+        Map<String, Criteria> loaded = loader.apply(missingKeys);
+        eval(SET_SCRIPT, appId, encode(version, missingKeys, loaded));
+        criteriaMap.putAll(loaded);
+        return criteriaMap;
+    }
+
+    /** Drop the criteria with this key from the app's cached criteria, because they were saved or deleted. */
+    public void removeCriteria(String appId, String key) {
+        checkNotNull(appId);
+        checkNotNull(key);
+        eval(REMOVE_SCRIPT, appId, ImmutableList.of(bytes(Integer.toString(expireInSeconds)), bytes(key)));
+    }
+
+    private Object eval(RedisScript script, String appId, List<byte[]> args) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            return script.eval(jedis, keys(appId), args);
+        } catch (Throwable e) {
+            throw new BridgeServiceException(e);
+        }
+    }
+
+    private List<byte[]> encode(byte[] version, Set<String> keys, Map<String, Criteria> loaded) {
+        ImmutableList.Builder<byte[]> builder = ImmutableList.builder();
+        builder.add(version);
+        builder.add(bytes(Integer.toString(expireInSeconds)));
+        for (String key : keys) {
+            Criteria criteria = loaded.get(key);
+            builder.add(bytes(key));
+            try {
+                builder.add(criteria == null ? NO_CRITERIA : BridgeObjectMapper.get().writeValueAsBytes(criteria));
+            } catch (IOException e) {
+                throw new BridgeServiceException(e);
+            }
+        }
+        return builder.build();
+    }
+
+    private static Criteria decode(String key, byte[] value) {
+        try {
+            // The key isn't part of the JSON.
+            Criteria criteria = BridgeObjectMapper.get().readValue(value, Criteria.class);
+            criteria.setKey(key);
+            return criteria;
+        } catch (IOException e) {
+            throw new BridgeServiceException(e);
+        }
+    }
+
+    private static List<byte[]> keys(String appId) {
+        return ImmutableList.of(bytes(CacheKey.appCriteria(appId).toString()),
+                bytes(CacheKey.appCriteriaVersion(appId).toString()));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(UTF_8);
+    }
+}
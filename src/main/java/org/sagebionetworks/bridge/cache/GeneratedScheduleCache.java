@@ -0,0 +1,177 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+
+import org.sagebionetworks.bridge.dynamodb.DynamoScheduledActivity;
+import org.sagebionetworks.bridge.models.schedules.ScheduleContext;
+import org.sagebionetworks.bridge.models.schedules.SchedulePlan;
+import org.sagebionetworks.bridge.models.schedules.ScheduledActivity;
+
+/**
+ * An in-process cache of the activities the scheduler generates for a participant. The key holds everything the
+ * scheduler reads: the GUID and version of each schedule plan, the participant's activity events, the requested
+ * time window, and the rest of the schedule context. Because a new event or a changed plan produces a new key, a
+ * stale entry is never returned, even when the change was made on another server. Invalidation only frees the
+ * entries that can no longer be used. The keys are also indexed by health code, so a participant's entries can be
+ * dropped without scanning the whole cache.
+ *
+ * The cached activities are never handed out. Callers get copies, which they are free to modify.
+ */
+public class GeneratedScheduleCache {
+
+    private final Cache<Key, List<ScheduledActivity>> cache;
+    // The keys in the cache for each participant. Entries leave the index when they leave the cache.
+    private final ConcurrentMap<String, Set<Key>> keysByHealthCode = new ConcurrentHashMap<>();
+
+    public GeneratedScheduleCache(long maxSize, int expireInSeconds) {
+        this.cache = CacheBuilder.newBuilder()
+                .removalListener(this::onRemoval)
+                .maximumSize(maxSize)
+                .expireAfterAccess(expireInSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Get copies of the activities generated for this context and these plans, calling the generator if they are not
+     * in the cache. The context must already include the participant's events. The returned list can be modified.
+     */
+    public List<ScheduledActivity> getScheduledActivities(ScheduleContext context, List<SchedulePlan> plans,
+            Supplier<List<ScheduledActivity>> generator) {
+        checkNotNull(context);
+        checkNotNull(plans);
+        checkNotNull(generator);
+
+        Key key = new Key(context, plans);
+        List<ScheduledActivity> activities = cache.getIfPresent(key);
+        if (activities == null) {
+            activities = copy(generator.get());
+            // Index the key before adding the entry, so the entry can't be removed before it is indexed.
+            index(key);
+            cache.put(key, activities);
+        }
+        return copy(activities);
+    }
+
+    /** Drop the entries for a participant, for example because one of their activity events has changed. */
+    public void invalidateParticipant(String healthCode) {
+        checkNotNull(healthCode);
+        Set<Key> keys = keysByHealthCode.remove(healthCode);
+        if (keys != null) {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    /** Drop the entries for all participants in an app, for example because a schedule plan has changed. */
+    public void invalidateApp(String appId) {
+        checkNotNull(appId);
+        cache.asMap().keySet().removeIf(key -> appId.equals(key.appId));
+    }
+
+    /** Number of entries, for tests. */
+    long size() {
+        return cache.size();
+    }
+
+    /** Number of participants with keys in the index, for tests. */
+    int indexedParticipants() {
+        return keysByHealthCode.size();
+    }
+
+    private void index(Key key) {
+        if (key.healthCode != null) {
+            keysByHealthCode.compute(key.healthCode, (healthCode, keys) -> {
+                Set<Key> indexed = (keys != null) ? keys : ConcurrentHashMap.newKeySet();
+                indexed.add(key);
+                return indexed;
+            });
+        }
+    }
+
+    private void onRemoval(RemovalNotification<Key, List<ScheduledActivity>> notification) {
+        Key key = notification.getKey();
+        // A replaced entry has been put again under the same key, which stays in the index.
+        if (notification.getCause() == RemovalCause.REPLACED || key == null || key.healthCode == null) {
+            return;
+        }
+        keysByHealthCode.computeIfPresent(key.healthCode, (healthCode, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private static List<ScheduledActivity> copy(List<ScheduledActivity> activities) {
+        List<ScheduledActivity> copies = new ArrayList<>(activities.size());
+        for (ScheduledActivity activity : activities) {
+            copies.add(copy(activity));
+        }
+        return copies;
+    }
+
+    // The scheduler only creates DynamoScheduledActivity instances (see ScheduledActivity.create()).
+    private static ScheduledActivity copy(ScheduledActivity activity) {
+        DynamoScheduledActivity source = (DynamoScheduledActivity) activity;
+        DynamoScheduledActivity copy = new DynamoScheduledActivity();
+        copy.setTimeZone(source.getTimeZone());
+        copy.setSchedulePlanGuid(source.getSchedulePlanGuid());
+        copy.setGuid(source.getGuid());
+        copy.setHealthCode(source.getHealthCode());
+        copy.setActivity(source.getActivity());
+        copy.setLocalScheduledOn(source.getLocalScheduledOn());
+        copy.setLocalExpiresOn(source.getLocalExpiresOn());
+        copy.setStartedOn(source.getStartedOn());
+        copy.setFinishedOn(source.getFinishedOn());
+        copy.setClientData(source.getClientData() == null ? null : source.getClientData().deepCopy());
+        copy.setPersistent(source.getPersistent());
+        copy.setReferentGuid(source.getReferentGuid());
+        return copy;
+    }
+
+    static final class Key {
+        private final String appId;
+        private final String healthCode;
+        private final List<String> planVersions;
+        private final ScheduleContext context;
+
+        Key(ScheduleContext context, List<SchedulePlan> plans) {
+            this.appId = context.getCriteriaContext().getAppId();
+            this.healthCode = context.getCriteriaContext().getHealthCode();
+            ImmutableList.Builder<String> builder = ImmutableList.builder();
+            for (SchedulePlan plan : plans) {
+                builder.add(plan.getGuid() + ":" + plan.getVersion() + ":" + plan.getModifiedOn());
+            }
+            this.planVersions = builder.build();
+            this.context = context;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(appId, healthCode, planVersions, context);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            Key other = (Key) obj;
+            return Objects.equals(appId, other.appId) && Objects.equals(healthCode, other.healthCode)
+                    && Objects.equals(planVersions, other.planVersions) && Objects.equals(context, other.context);
+        }
+    }
+}
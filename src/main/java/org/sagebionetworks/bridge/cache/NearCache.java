@@ -0,0 +1,190 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import redis.clients.jedis.JedisPool;
+
+/**
+ * An in-process cache that sits in front of Redis for a small set of objects that are read on nearly
+ * every request (apps, subpopulations, and cached views). Entries are bounded by size and by a short
+ * time-to-live. When a node changes or removes one of these keys, it publishes the key on a Redis
+ * channel so every other node drops its local copy. Compiled schedule plan snapshots and subpopulation
+ * matchers are only held here (they are never written to Redis), but are invalidated across nodes in
+ * the same way.
+ *
+ * Objects returned from this cache are shared between requests. The CacheProvider stores apps,
+ * subpopulations and views here in their serialized form and deserializes them on each read, so
+ * every caller gets its own copy to modify. Anything else stored here must be immutable.
+ */
+public class NearCache {
+    static final String INVALIDATION_CHANNEL = "near-cache-invalidation";
+    static final Set<String> CACHEABLE_NAMESPACES = ImmutableSet.of("App", "Subpopulation", "SubpopulationList",
+            "view", "SchedulePlanSnapshot", "SubpopulationMatcher");
+
+    private final Cache<String, Object> cache;
+    private final Map<String, NamespaceStats> statsByNamespace = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    // Any invalidations sent while we were not subscribed have been lost, so drop everything.
+    private final RedisChannel channel = new RedisChannel(INVALIDATION_CHANNEL, this::invalidateLocally,
+            this::invalidateAllLocally);
+
+    public NearCache(long maxSize, int expireInSeconds) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireInSeconds, TimeUnit.SECONDS)
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+    public final void setJedisPool(JedisPool jedisPool) {
+        channel.setJedisPool(jedisPool);
+    }
+
+    /** The channel for invalidation messages from other nodes, to register with the server's subscriber. */
+    public RedisChannel getChannel() {
+        return channel;
+    }
+
+    /** True if keys of this kind are held in the near cache. */
+    public boolean isCacheable(CacheKey cacheKey) {
+        return isCacheable(cacheKey.toString());
+    }
+
+    boolean isCacheable(String key) {
+        return CACHEABLE_NAMESPACES.contains(getNamespace(key));
+    }
+
+    /**
+     * A counter that changes every time a key is invalidated. Read it before loading a value from
+     * Redis, and pass it to {@link #put(CacheKey, Object, long)}, so that a value loaded before a
+     * concurrent invalidation is not cached.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /** Get the object if it is in the near cache, or null (a miss) if it is not. */
+    public Object get(CacheKey cacheKey) {
+        checkNotNull(cacheKey);
+        String key = cacheKey.toString();
+        if (!isCacheable(key)) {
+            return null;
+        }
+        Object value = cache.getIfPresent(key);
+        NamespaceStats stats = getStats(key);
+        if (value != null) {
+            stats.hits.increment();
+        } else {
+            stats.misses.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Cache a value that was loaded from Redis. If any key was invalidated since the version was
+     * read, the value may be stale and it is not cached.
+     */
+    public void put(CacheKey cacheKey, Object value, long expectedVersion) {
+        checkNotNull(cacheKey);
+        checkNotNull(value);
+        String key = cacheKey.toString();
+        if (isCacheable(key) && version.get() == expectedVersion) {
+            cache.put(key, value);
+        }
+    }
+
+    /**
+     * Cache a value that this node has just written to Redis, and tell all other nodes to drop
+     * their copy.
+     */
+    public void update(CacheKey cacheKey, Object value) {
+        checkNotNull(cacheKey);
+        checkNotNull(value);
+        String key = cacheKey.toString();
+        if (isCacheable(key)) {
+            invalidateLocally(key);
+            cache.put(key, value);
+            channel.publish(key);
+        }
+    }
+
+    /** Drop the key on this node and tell all other nodes to drop it as well. */
+    public void invalidate(CacheKey cacheKey) {
+        checkNotNull(cacheKey);
+        invalidate(cacheKey.toString());
+    }
+
+    /** Drop the key on this node and tell all other nodes to drop it as well. */
+    public void invalidate(String key) {
+        checkNotNull(key);
+        if (isCacheable(key)) {
+            invalidateLocally(key);
+            channel.publish(key);
+        }
+    }
+
+    /** Hit, miss, eviction, and invalidation counts for each namespace of cache key. */
+    public Map<String, NamespaceStats> getStats() {
+        return ImmutableMap.copyOf(statsByNamespace);
+    }
+
+    void invalidateLocally(String key) {
+        version.incrementAndGet();
+        if (cache.asMap().remove(key) != null) {
+            getStats(key).invalidations.increment();
+        }
+    }
+
+    void invalidateAllLocally() {
+        version.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private void onRemoval(RemovalNotification<String, Object> notification) {
+        if (notification.wasEvicted()) {
+            getStats(notification.getKey()).evictions.increment();
+        }
+    }
+
+    private NamespaceStats getStats(String key) {
+        return statsByNamespace.computeIfAbsent(getNamespace(key), (ns) -> new NamespaceStats());
+    }
+
+    private static String getNamespace(String key) {
+        int index = key.lastIndexOf(':');
+        return (index < 0) ? key : key.substring(index + 1);
+    }
+
+    public static final class NamespaceStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder invalidations = new LongAdder();
+
+        public long getHits() {
+            return hits.sum();
+        }
+        public long getMisses() {
+            return misses.sum();
+        }
+        public long getEvictions() {
+            return evictions.sum();
+        }
+        public long getInvalidations() {
+            return invalidations.sum();
+        }
+    }
+}
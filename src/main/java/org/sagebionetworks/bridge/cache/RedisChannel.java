@@ -0,0 +1,80 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * A Redis pub/sub channel used to send short messages (a cache key, an upload ID) to every node. Messages are tagged
+ * with the ID of the node that sent them, and a node ignores its own messages, since it has already acted on them
+ * locally.
+ *
+ * Messages are received through the server's {@link RedisSubscriber}, which listens on all channels over one
+ * connection. Redis doesn't keep messages for a subscriber that isn't connected, so every time the subscription
+ * drops, the owner is told that messages may have been lost.
+ */
+public class RedisChannel {
+    private static final Logger LOG = LoggerFactory.getLogger(RedisChannel.class);
+
+    private static final String MESSAGE_DELIMITER = "|";
+
+    private final String name;
+    private final Consumer<String> onMessage;
+    private final Runnable onMessagesLost;
+    private final String nodeId = UUID.randomUUID().toString();
+    private JedisPool jedisPool;
+
+    /**
+     * @param name the Redis channel name
+     * @param onMessage called with each message sent by another node
+     * @param onMessagesLost called when the subscription is dropped and messages may have been missed
+     */
+    public RedisChannel(String name, Consumer<String> onMessage, Runnable onMessagesLost) {
+        this.name = checkNotNull(name);
+        this.onMessage = checkNotNull(onMessage);
+        this.onMessagesLost = checkNotNull(onMessagesLost);
+    }
+
+    public final void setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Send the message to all other nodes. Failures are logged and not thrown, so callers should only publish
+     * messages that other nodes can do without (for example, because their copy of a value will also expire).
+     */
+    public void publish(String message) {
+        checkNotNull(message);
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.publish(name, nodeId + MESSAGE_DELIMITER + message);
+        } catch (Throwable e) {
+            LOG.warn("Could not publish message " + message + " to channel " + name, e);
+        }
+    }
+
+    void receive(String taggedMessage) {
+        int index = taggedMessage.indexOf(MESSAGE_DELIMITER);
+        if (index < 0) {
+            return;
+        }
+        String senderId = taggedMessage.substring(0, index);
+        if (!nodeId.equals(senderId)) {
+            onMessage.accept(taggedMessage.substring(index + 1));
+        }
+    }
+
+    void messagesLost() {
+        onMessagesLost.run();
+    }
+}
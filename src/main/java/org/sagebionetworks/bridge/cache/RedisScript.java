@@ -0,0 +1,38 @@
+package org.sagebionetworks.bridge.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.List;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * A Lua script that executes on the Redis server in a single round trip. The script is invoked by its
+ * SHA1 digest, and is only sent in full if Redis has not seen it yet (e.g. after a restart or failover).
+ */
+final class RedisScript {
+    private static final String NO_SCRIPT_ERROR = "NOSCRIPT";
+
+    private final byte[] script;
+    private final byte[] sha1;
+
+    RedisScript(String script) {
+        this.script = script.getBytes(UTF_8);
+        this.sha1 = DigestUtils.sha1Hex(this.script).getBytes(UTF_8);
+    }
+
+    Object eval(Jedis jedis, List<byte[]> keys, List<byte[]> args) {
+        try {
+            return jedis.evalsha(sha1, keys, args);
+        } catch(JedisDataException e) {
+            if (e.getMessage() != null && e.getMessage().startsWith(NO_SCRIPT_ERROR)) {
+                // EVAL also caches the script, so subsequent EVALSHA calls will succeed.
+                return jedis.eval(script, keys, args);
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+
+/**
+ * Listens on all of the server's {@link RedisChannel}s. Subscribing blocks a connection for as long as it is open, so
+ * the server holds one subscription to all of its channels, on one daemon thread, and re-subscribes if the connection
+ * is dropped. When the subscription drops, every channel is told that messages may have been lost.
+ *
+ * Channels are registered when the server starts, before the subscription is opened.
+ */
+public class RedisSubscriber {
+    private static final Logger LOG = LoggerFactory.getLogger(RedisSubscriber.class);
+
+    static final String THREAD_NAME = "redis-channel-listener";
+    private static final long RESUBSCRIBE_DELAY_MILLIS = 5000L;
+
+    // Only changed before the listener thread is started, so it is safe for that thread to read.
+    private final Map<String, RedisChannel> channels = new LinkedHashMap<>();
+    private JedisPool jedisPool;
+    private volatile boolean running;
+    private volatile JedisPubSub subscriber;
+
+    public final void setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    /** Receive the channel's messages once the subscription is opened. */
+    public void register(RedisChannel channel) {
+        checkNotNull(channel);
+        checkState(!running, "Channels must be registered before subscribing");
+        checkArgument(channels.putIfAbsent(channel.getName(), channel) == null,
+                "Channel " + channel.getName() + " is already registered");
+    }
+
+    /** Start listening for messages from other nodes. */
+    @PostConstruct
+    public void subscribe() {
+        if (channels.isEmpty()) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::listen, THREAD_NAME);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        running = false;
+        JedisPubSub current = subscriber;
+        if (current != null && current.isSubscribed()) {
+            current.unsubscribe();
+        }
+    }
+
+    /** Subscribe and block until the subscription ends. Package-scoped for unit tests. */
+    void subscribeOnce() {
+        subscriber = new JedisPubSub() {
+            @Override
+            public void onMessage(String channelName, String message) {
+                receive(channelName, message);
+            }
+        };
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.subscribe(subscriber, channels.keySet().toArray(new String[0]));
+        } catch (Throwable e) {
+            LOG.warn("Subscription to Redis channels dropped, re-subscribing", e);
+        }
+        for (RedisChannel channel : channels.values()) {
+            try {
+                channel.messagesLost();
+            } catch (Throwable e) {
+                LOG.error("Could not reset channel " + channel.getName() + " after lost messages", e);
+            }
+        }
+    }
+
+    // An error thrown from here would drop the subscription for every channel, so it is logged instead.
+    private void receive(String channelName, String message) {
+        RedisChannel channel = channels.get(channelName);
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.receive(message);
+        } catch (Throwable e) {
+            LOG.error("Could not handle message " + message + " on channel " + channelName, e);
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            subscribeOnce();
+            if (running) {
+                try {
+                    Thread.sleep(RESUBSCRIBE_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
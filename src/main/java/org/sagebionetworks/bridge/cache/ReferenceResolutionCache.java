@@ -0,0 +1,200 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import redis.clients.jedis.JedisPool;
+
+import org.sagebionetworks.bridge.models.ClientInfo;
+import org.sagebionetworks.bridge.models.schedules.CompoundActivity;
+import org.sagebionetworks.bridge.models.schedules.SchemaReference;
+import org.sagebionetworks.bridge.models.schedules.SurveyReference;
+
+/**
+ * An in-process cache of the references that scheduled activities are resolved to: the most recently published
+ * version of a survey, the latest revision of a schema for a client's OS and app version, and the compound activity
+ * in a compound activity definition. These are read for every activity of every participant, and they change only
+ * when a survey is published or a schema or definition is saved, so they are shared by all requests in an app.
+ *
+ * Saving one of these drops its entries here, and publishes the change on a Redis channel so every other server drops
+ * its entries as well. Messages sent while a server's subscription is down are lost, so when the subscription drops,
+ * the server drops all of its entries. The time-to-live bounds how long a server serves a stale copy if it can't
+ * reach Redis at all.
+ */
+public class ReferenceResolutionCache {
+
+    static final String INVALIDATION_CHANNEL = "reference-cache-invalidation";
+    private static final String MESSAGE_DELIMITER = "|";
+    // Message type for invalidateApp(), which isn't one of the entry types.
+    private static final String APP_MESSAGE_TYPE = "APP";
+
+    enum Type {
+        SURVEY,
+        SCHEMA,
+        COMPOUND_ACTIVITY
+    }
+
+    private final Cache<Key, Object> cache;
+    private final AtomicLong version = new AtomicLong();
+    private final RedisChannel channel = new RedisChannel(INVALIDATION_CHANNEL, this::onMessage,
+            this::invalidateAllLocally);
+
+    public ReferenceResolutionCache(long maxSize, int expireInSeconds) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireInSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    public final void setJedisPool(JedisPool jedisPool) {
+        channel.setJedisPool(jedisPool);
+    }
+
+    /** The channel for invalidation messages from other servers, to register with the server's subscriber. */
+    public RedisChannel getChannel() {
+        return channel;
+    }
+
+    /** The most recently published version of the survey. The loader may return null if there is no such survey. */
+    public SurveyReference getSurveyReference(String appId, String surveyGuid, Supplier<SurveyReference> loader) {
+        return get(new Key(Type.SURVEY, appId, surveyGuid, null, null), loader);
+    }
+
+    /**
+     * The latest revision of the schema that is available to this client. The loader may return null if there is no
+     * such schema.
+     */
+    public SchemaReference getSchemaReference(String appId, String schemaId, ClientInfo clientInfo,
+            Supplier<SchemaReference> loader) {
+        checkNotNull(clientInfo);
+        return get(new Key(Type.SCHEMA, appId, schemaId, clientInfo.getOsName(), clientInfo.getAppVersion()), loader);
+    }
+
+    /**
+     * The compound activity in the definition for this task. The loader may return null if there is no such
+     * definition. Survey and schema references in the compound activity are not resolved.
+     */
+    public CompoundActivity getCompoundActivity(String appId, String taskId, Supplier<CompoundActivity> loader) {
+        return get(new Key(Type.COMPOUND_ACTIVITY, appId, taskId, null, null), loader);
+    }
+
+    /** Drop the survey, because a version was published, deleted or restored. */
+    public void invalidateSurvey(String appId, String surveyGuid) {
+        invalidate(Type.SURVEY, appId, surveyGuid);
+    }
+
+    /** Drop the schema for all clients, because a revision was created, updated or deleted. */
+    public void invalidateSchema(String appId, String schemaId) {
+        invalidate(Type.SCHEMA, appId, schemaId);
+    }
+
+    /** Drop the compound activity, because its definition was created, updated or deleted. */
+    public void invalidateCompoundActivity(String appId, String taskId) {
+        invalidate(Type.COMPOUND_ACTIVITY, appId, taskId);
+    }
+
+    /** Drop every entry in the app. */
+    public void invalidateApp(String appId) {
+        checkNotNull(appId);
+        invalidateAppLocally(appId);
+        channel.publish(APP_MESSAGE_TYPE + MESSAGE_DELIMITER + appId);
+    }
+
+    /** Number of entries, for tests. */
+    long size() {
+        return cache.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Key key, Supplier<T> loader) {
+        checkNotNull(key.appId);
+        checkNotNull(key.id);
+        checkNotNull(loader);
+
+        T value = (T) cache.getIfPresent(key);
+        if (value == null) {
+            // If an entry is invalidated while we load, what we loaded may be stale, so return it but don't cache it.
+            long expectedVersion = version.get();
+            value = loader.get();
+            if (value != null && version.get() == expectedVersion) {
+                cache.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    private void invalidate(Type type, String appId, String id) {
+        checkNotNull(appId);
+        checkNotNull(id);
+        invalidateLocally(type, appId, id);
+        channel.publish(type.name() + MESSAGE_DELIMITER + appId + MESSAGE_DELIMITER + id);
+    }
+
+    void invalidateLocally(Type type, String appId, String id) {
+        version.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> key.type == type && appId.equals(key.appId) && id.equals(key.id));
+    }
+
+    void invalidateAppLocally(String appId) {
+        version.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> appId.equals(key.appId));
+    }
+
+    void invalidateAllLocally() {
+        version.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    // Messages are "APP|appId" or "TYPE|appId|id". IDs may contain the delimiter, so they come last.
+    void onMessage(String message) {
+        String[] parts = message.split("\\" + MESSAGE_DELIMITER, 3);
+        if (parts.length == 2 && APP_MESSAGE_TYPE.equals(parts[0])) {
+            invalidateAppLocally(parts[1]);
+        } else if (parts.length == 3) {
+            for (Type type : Type.values()) {
+                if (type.name().equals(parts[0])) {
+                    invalidateLocally(type, parts[1], parts[2]);
+                }
+            }
+        }
+    }
+
+    static final class Key {
+        private final Type type;
+        private final String appId;
+        private final String id;
+        private final String osName;
+        private final Integer appVersion;
+
+        Key(Type type, String appId, String id, String osName, Integer appVersion) {
+            this.type = type;
+            this.appId = appId;
+            this.id = id;
+            this.osName = osName;
+            this.appVersion = appVersion;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, appId, id, osName, appVersion);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            Key other = (Key) obj;
+            return type == other.type && Objects.equals(appId, other.appId) && Objects.equals(id, other.id)
+                    && Objects.equals(osName, other.osName) && Objects.equals(appVersion, other.appVersion);
+        }
+    }
+}
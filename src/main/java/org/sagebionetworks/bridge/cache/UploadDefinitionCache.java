@@ -0,0 +1,219 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableMap;
+
+import redis.clients.jedis.JedisPool;
+
+import org.sagebionetworks.bridge.models.surveys.Survey;
+import org.sagebionetworks.bridge.models.upload.UploadSchema;
+
+/**
+ * An in-process cache of the upload schema revisions and survey versions that uploads are validated against. Every
+ * upload reads a schema revision (and often a survey version) by its identity, and once published these almost never
+ * change, so they are shared by all uploads on this server instead of being read from DynamoDB for each one.
+ *
+ * A schema revision can still be updated in place, and a survey version can be edited until it's published, so saving
+ * or deleting one drops every cached revision or version of it, and publishes the change on a Redis channel so every
+ * other server drops its copies as well. Messages sent while a server's subscription is down are lost, so when the
+ * subscription drops, the server drops all of its entries.
+ */
+public class UploadDefinitionCache {
+
+    static final String INVALIDATION_CHANNEL = "upload-definition-cache-invalidation";
+    private static final String MESSAGE_DELIMITER = "|";
+
+    public enum Type {
+        SCHEMA,
+        SURVEY
+    }
+
+    private final Cache<Key, Object> cache;
+    private final AtomicLong version = new AtomicLong();
+    private final Map<Type, TypeStats> statsByType;
+    private final RedisChannel channel = new RedisChannel(INVALIDATION_CHANNEL, this::onMessage,
+            this::invalidateAllLocally);
+
+    public UploadDefinitionCache(long maxSize, int expireInSeconds) {
+        Map<Type, TypeStats> statsByType = new EnumMap<>(Type.class);
+        for (Type type : Type.values()) {
+            statsByType.put(type, new TypeStats());
+        }
+        this.statsByType = statsByType;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireInSeconds, TimeUnit.SECONDS)
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+    public final void setJedisPool(JedisPool jedisPool) {
+        channel.setJedisPool(jedisPool);
+    }
+
+    /** The channel for invalidation messages from other servers, to register with the server's subscriber. */
+    public RedisChannel getChannel() {
+        return channel;
+    }
+
+    /** The schema revision. The loader may return null if there is no such schema. */
+    public UploadSchema getUploadSchema(String appId, String schemaId, int revision, Supplier<UploadSchema> loader) {
+        return get(new Key(Type.SCHEMA, appId, schemaId, revision), loader);
+    }
+
+    /** The survey version, without its elements. The loader may return null if there is no such survey. */
+    public Survey getSurvey(String appId, String surveyGuid, long createdOn, Supplier<Survey> loader) {
+        return get(new Key(Type.SURVEY, appId, surveyGuid, createdOn), loader);
+    }
+
+    /** Drop all revisions of the schema, because one was created, updated or deleted. */
+    public void invalidateSchema(String appId, String schemaId) {
+        invalidate(Type.SCHEMA, appId, schemaId);
+    }
+
+    /** Drop all versions of the survey, because one was updated, published or deleted. */
+    public void invalidateSurvey(String appId, String surveyGuid) {
+        invalidate(Type.SURVEY, appId, surveyGuid);
+    }
+
+    /** Hit, miss, eviction, and invalidation counts for schemas and surveys. */
+    public Map<Type, TypeStats> getStats() {
+        return ImmutableMap.copyOf(statsByType);
+    }
+
+    /** Number of entries, for tests. */
+    long size() {
+        return cache.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Key key, Supplier<T> loader) {
+        checkNotNull(key.appId);
+        checkNotNull(key.id);
+        checkNotNull(loader);
+
+        TypeStats stats = statsByType.get(key.type);
+        T value = (T) cache.getIfPresent(key);
+        if (value != null) {
+            stats.hits.increment();
+            return value;
+        }
+        stats.misses.increment();
+
+        // If an entry is invalidated while we load, what we loaded may be stale, so return it but don't cache it.
+        long expectedVersion = version.get();
+        value = loader.get();
+        if (value != null && version.get() == expectedVersion) {
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    private void invalidate(Type type, String appId, String id) {
+        checkNotNull(appId);
+        checkNotNull(id);
+        invalidateLocally(type, appId, id);
+        channel.publish(type.name() + MESSAGE_DELIMITER + appId + MESSAGE_DELIMITER + id);
+    }
+
+    void invalidateLocally(Type type, String appId, String id) {
+        version.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> key.type == type && appId.equals(key.appId) && id.equals(key.id));
+    }
+
+    void invalidateAllLocally() {
+        version.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    // Messages are "TYPE|appId|id". IDs may contain the delimiter, so they come last.
+    void onMessage(String message) {
+        String[] parts = message.split("\\" + MESSAGE_DELIMITER, 3);
+        if (parts.length == 3) {
+            for (Type type : Type.values()) {
+                if (type.name().equals(parts[0])) {
+                    invalidateLocally(type, parts[1], parts[2]);
+                }
+            }
+        }
+    }
+
+    private void onRemoval(RemovalNotification<Key, Object> notification) {
+        TypeStats stats = statsByType.get(notification.getKey().type);
+        if (notification.wasEvicted()) {
+            stats.evictions.increment();
+        } else if (notification.getCause() == RemovalCause.EXPLICIT) {
+            stats.invalidations.increment();
+        }
+    }
+
+    public static final class TypeStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder invalidations = new LongAdder();
+
+        public long getHits() {
+            return hits.sum();
+        }
+        public long getMisses() {
+            return misses.sum();
+        }
+        /** Fraction of reads that were served from the cache, or 0 if there have been no reads. */
+        public double getHitRate() {
+            long hitCount = getHits();
+            long total = hitCount + getMisses();
+            return (total == 0L) ? 0.0 : (double) hitCount / total;
+        }
+        public long getEvictions() {
+            return evictions.sum();
+        }
+        public long getInvalidations() {
+            return invalidations.sum();
+        }
+    }
+
+    static final class Key {
+        private final Type type;
+        private final String appId;
+        private final String id;
+        // Schema revision or survey createdOn.
+        private final long revision;
+
+        Key(Type type, String appId, String id, long revision) {
+            this.type = type;
+            this.appId = appId;
+            this.id = id;
+            this.revision = revision;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, appId, id, revision);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            Key other = (Key) obj;
+            return type == other.type && Objects.equals(appId, other.appId) && Objects.equals(id, other.id)
+                    && revision == other.revision;
+        }
+    }
+}
@@ -13,8 +13,8 @@ import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.annotation.Resource;
 import javax.servlet.Filter;
@@ -31,6 +31,8 @@ import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClient;
 import com.amazonaws.services.simpleemail.AmazonSimpleEmailServiceClient;
 import com.amazonaws.services.sns.AmazonSNSClient;
@@ -40,6 +42,7 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mchange.v2.c3p0.DriverManagerDataSource;
 
 import org.apache.commons.codec.digest.DigestUtils;
@@ -62,10 +65,21 @@ import org.springframework.core.annotation.Order;
 
 import org.sagebionetworks.bridge.BridgeConstants;
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.cache.ActivityEventMapCache;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.cache.ConsentPdfCache;
+import org.sagebionetworks.bridge.cache.ConsentTemplateCache;
+import org.sagebionetworks.bridge.cache.CriteriaCache;
+import org.sagebionetworks.bridge.cache.GeneratedScheduleCache;
+import org.sagebionetworks.bridge.cache.NearCache;
+import org.sagebionetworks.bridge.cache.RedisSubscriber;
+import org.sagebionetworks.bridge.cache.ReferenceResolutionCache;
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache;
 import org.sagebionetworks.bridge.cache.ViewCache;
 import org.sagebionetworks.bridge.crypto.CmsEncryptor;
 import org.sagebionetworks.bridge.crypto.CmsEncryptorCacheLoader;
+import org.sagebionetworks.bridge.dao.RequestInfoDao;
 import org.sagebionetworks.bridge.dynamodb.AnnotationBasedTableCreator;
 import org.sagebionetworks.bridge.dynamodb.DynamoActivityEvent;
 import org.sagebionetworks.bridge.dynamodb.DynamoAppConfig;
@@ -114,6 +128,7 @@ import org.sagebionetworks.bridge.hibernate.SponsorPersistenceExceptionConverter
 import org.sagebionetworks.bridge.hibernate.StudyPersistenceExceptionConverter;
 import org.sagebionetworks.bridge.hibernate.TagEventListener;
 import org.sagebionetworks.bridge.hibernate.BasicPersistenceExceptionConverter;
+import org.sagebionetworks.bridge.http.OutboundHttpClient;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.models.RequestInfo;
 import org.sagebionetworks.bridge.models.Tag;
@@ -125,16 +140,19 @@ import org.sagebionetworks.bridge.models.files.FileRevision;
 import org.sagebionetworks.bridge.models.organizations.HibernateOrganization;
 import org.sagebionetworks.bridge.redis.JedisOps;
 import org.sagebionetworks.bridge.s3.S3Helper;
+import org.sagebionetworks.bridge.services.RequestInfoBuffer;
 import org.sagebionetworks.bridge.spring.filters.MetricsFilter;
 import org.sagebionetworks.bridge.spring.filters.RequestFilter;
 import org.sagebionetworks.bridge.spring.filters.StaticHeadersFilter;
 import org.sagebionetworks.bridge.upload.DecryptHandler;
 import org.sagebionetworks.bridge.upload.InitRecordHandler;
 import org.sagebionetworks.bridge.upload.S3DownloadHandler;
+import org.sagebionetworks.bridge.upload.StreamingUnpackHandler;
 import org.sagebionetworks.bridge.upload.StrictValidationHandler;
 import org.sagebionetworks.bridge.upload.TranscribeConsentHandler;
 import org.sagebionetworks.bridge.upload.UnzipHandler;
 import org.sagebionetworks.bridge.upload.UploadArtifactsHandler;
+import org.sagebionetworks.bridge.upload.UploadCompletionNotifier;
 import org.sagebionetworks.bridge.upload.UploadFormatHandler;
 import org.sagebionetworks.bridge.upload.UploadRawZipHandler;
 import org.sagebionetworks.bridge.upload.UploadValidationHandler;
@@ -305,6 +323,19 @@ public class SpringConfig {
         return s3Helper;
     }
 
+    // Large attachments are written as multipart uploads, with the parts written in parallel. The threads are daemons
+    // and the transfer manager is never shut down, because shutting it down would also shut down the shared s3Client.
+    @Bean(name = "attachmentTransferManager", destroyMethod = "")
+    @Autowired
+    public TransferManager attachmentTransferManager(AmazonS3Client s3Client, BridgeConfig bridgeConfig) {
+        int threadCount = bridgeConfig.getPropertyAsInt("attachment.multipart.thread.count");
+        long thresholdBytes = bridgeConfig.getPropertyAsInt("attachment.multipart.threshold.mb") * 1024L * 1024L;
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("attachment-transfer-%d")
+                .setDaemon(true).build();
+        return TransferManagerBuilder.standard().withS3Client(s3Client).withMultipartUploadThreshold(thresholdBytes)
+                .withExecutorFactory(() -> Executors.newFixedThreadPool(threadCount, threadFactory)).build();
+    }
+
     @Bean(name = "s3ConsentsCredentials")
     @Resource(name = "bridgeConfig")
     public BasicAWSCredentials s3ConsentsCredentials(BridgeConfig bridgeConfig) {
@@ -338,10 +369,16 @@ public class SpringConfig {
         return new AmazonSQSClient(awsCredentials);
     }
 
-    @Bean(name = "asyncExecutorService")
+    @Bean(name = "asyncExecutor")
+    @Resource(name = "bridgeConfig")
+    public AsyncExecutor asyncExecutor(BridgeConfig bridgeConfig) {
+        return new AsyncExecutor(bridgeConfig);
+    }
+
+    @Bean(name = "outboundHttpClient")
     @Resource(name = "bridgeConfig")
-    public ExecutorService asyncExecutorService(BridgeConfig bridgeConfig) {
-        return Executors.newFixedThreadPool(bridgeConfig.getPropertyAsInt("async.worker.thread.count"));
+    public OutboundHttpClient outboundHttpClient(BridgeConfig bridgeConfig) {
+        return new OutboundHttpClient(bridgeConfig);
     }
 
     @Bean(name = "supportEmail")
@@ -586,13 +623,18 @@ public class SpringConfig {
     @Bean(name = "uploadValidationHandlerList")
     @Autowired
     public List<UploadValidationHandler> uploadValidationHandlerList(S3DownloadHandler s3DownloadHandler,
-            DecryptHandler decryptHandler, UnzipHandler unzipHandler,
+            DecryptHandler decryptHandler, UnzipHandler unzipHandler, StreamingUnpackHandler streamingUnpackHandler,
             InitRecordHandler initRecordHandler, UploadFormatHandler uploadFormatHandler,
             StrictValidationHandler strictValidationHandler, TranscribeConsentHandler transcribeConsentHandler,
             UploadRawZipHandler uploadRawZipHandler, UploadArtifactsHandler uploadArtifactsHandler) {
-        return ImmutableList.of(s3DownloadHandler, decryptHandler, unzipHandler,
-                initRecordHandler, uploadFormatHandler, strictValidationHandler, transcribeConsentHandler,
-                uploadRawZipHandler, uploadArtifactsHandler);
+        ImmutableList.Builder<UploadValidationHandler> builder = ImmutableList.builder();
+        if (Boolean.parseBoolean(bridgeConfig().getProperty("upload.validation.streaming.enabled"))) {
+            builder.add(streamingUnpackHandler);
+        } else {
+            builder.add(s3DownloadHandler, decryptHandler, unzipHandler);
+        }
+        return builder.add(initRecordHandler, uploadFormatHandler, strictValidationHandler,
+                transcribeConsentHandler, uploadRawZipHandler, uploadArtifactsHandler).build();
     }
 
     @Bean(name = "uploadSchemaDdbMapper")
@@ -777,6 +819,103 @@ public class SpringConfig {
         return cache;
     }
     
+    @Bean(name = "nearCache")
+    @Autowired
+    public NearCache nearCache(JedisPool jedisPool) {
+        NearCache nearCache = new NearCache(bridgeConfig().getPropertyAsInt("near.cache.max.size"),
+                bridgeConfig().getPropertyAsInt("near.cache.expire.seconds"));
+        nearCache.setJedisPool(jedisPool);
+        return nearCache;
+    }
+    
+    @Bean(name = "activityEventMapCache")
+    @Autowired
+    public ActivityEventMapCache activityEventMapCache(JedisPool jedisPool) {
+        ActivityEventMapCache cache = new ActivityEventMapCache(
+                bridgeConfig().getPropertyAsInt("activity.event.cache.expire.seconds"));
+        cache.setJedisPool(jedisPool);
+        return cache;
+    }
+    
+    @Bean(name = "criteriaCache")
+    @Autowired
+    public CriteriaCache criteriaCache(JedisPool jedisPool) {
+        CriteriaCache cache = new CriteriaCache(bridgeConfig().getPropertyAsInt("criteria.cache.expire.seconds"));
+        cache.setJedisPool(jedisPool);
+        return cache;
+    }
+    
+    @Bean(name = "requestInfoBuffer")
+    @Autowired
+    public RequestInfoBuffer requestInfoBuffer(RequestInfoDao requestInfoDao) {
+        RequestInfoBuffer buffer = new RequestInfoBuffer(
+                bridgeConfig().getPropertyAsInt("request.info.buffer.max.size"),
+                bridgeConfig().getPropertyAsInt("request.info.buffer.flush.seconds"));
+        buffer.setRequestInfoDao(requestInfoDao);
+        return buffer;
+    }
+    
+    @Bean(name = "uploadCompletionNotifier")
+    @Autowired
+    public UploadCompletionNotifier uploadCompletionNotifier(JedisPool jedisPool) {
+        UploadCompletionNotifier notifier = new UploadCompletionNotifier();
+        notifier.setJedisPool(jedisPool);
+        return notifier;
+    }
+    
+    @Bean(name = "generatedScheduleCache")
+    public GeneratedScheduleCache generatedScheduleCache() {
+        return new GeneratedScheduleCache(bridgeConfig().getPropertyAsInt("schedule.cache.max.size"),
+                bridgeConfig().getPropertyAsInt("schedule.cache.expire.seconds"));
+    }
+    
+    @Bean(name = "referenceResolutionCache")
+    @Autowired
+    public ReferenceResolutionCache referenceResolutionCache(JedisPool jedisPool) {
+        ReferenceResolutionCache cache = new ReferenceResolutionCache(
+                bridgeConfig().getPropertyAsInt("reference.cache.max.size"),
+                bridgeConfig().getPropertyAsInt("reference.cache.expire.seconds"));
+        cache.setJedisPool(jedisPool);
+        return cache;
+    }
+    
+    // The server's one subscription to Redis pub/sub, for all of the channels registered here.
+    @Bean(name = "redisSubscriber")
+    @Autowired
+    public RedisSubscriber redisSubscriber(JedisPool jedisPool, NearCache nearCache,
+            ReferenceResolutionCache referenceResolutionCache, UploadDefinitionCache uploadDefinitionCache,
+            UploadCompletionNotifier uploadCompletionNotifier) {
+        RedisSubscriber subscriber = new RedisSubscriber();
+        subscriber.setJedisPool(jedisPool);
+        subscriber.register(nearCache.getChannel());
+        subscriber.register(referenceResolutionCache.getChannel());
+        subscriber.register(uploadDefinitionCache.getChannel());
+        subscriber.register(uploadCompletionNotifier.getChannel());
+        return subscriber;
+    }
+    
+    @Bean(name = "uploadDefinitionCache")
+    @Autowired
+    public UploadDefinitionCache uploadDefinitionCache(JedisPool jedisPool) {
+        UploadDefinitionCache cache = new UploadDefinitionCache(
+                bridgeConfig().getPropertyAsInt("upload.definition.cache.max.size"),
+                bridgeConfig().getPropertyAsInt("upload.definition.cache.expire.seconds"));
+        cache.setJedisPool(jedisPool);
+        return cache;
+    }
+    
+    @Bean(name = "consentPdfCache")
+    public ConsentPdfCache consentPdfCache() {
+        return new ConsentPdfCache(bridgeConfig().getPropertyAsInt("consent.pdf.cache.max.bytes"),
+                bridgeConfig().getPropertyAsInt("consent.pdf.cache.expire.seconds"));
+    }
+    
+    @Bean(name = "consentTemplateCache")
+    public ConsentTemplateCache consentTemplateCache() {
+        return new ConsentTemplateCache(bridgeConfig().getPropertyAsInt("consent.template.cache.max.size"),
+                bridgeConfig().getPropertyAsInt("consent.template.cache.expire.seconds"));
+    }
+    
     // From BridgeProductionSpringConfig in BridgePF
 
     @Bean(name = "jedisOps")
@@ -0,0 +1,109 @@
+package org.sagebionetworks.bridge.crypto;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Resource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
+
+/**
+ * Runs password and secret hash checks on the CREDENTIAL_VERIFICATION async lane. Each check is a full PBKDF2 run, so
+ * a burst of sign-ins could otherwise take every core away from the other requests on the server. The lane has a
+ * fixed number of threads and a bounded queue. When the queue is full, or a check has waited in the queue too long,
+ * the request fails with a 503 and a Retry-After header. The timeout only applies to the wait in the queue: once a
+ * check starts, the caller waits for it to finish. Queue wait and hashing times are reported in the lane's stats.
+ */
+@Component
+public class CredentialVerifier {
+    private static final Logger LOG = LoggerFactory.getLogger(CredentialVerifier.class);
+
+    static final String OVERLOADED_MESSAGE = "Too many sign in requests, please try again later.";
+
+    private AsyncExecutor asyncExecutor;
+    private int timeoutMillis;
+    private int retryAfterSeconds;
+
+    @Resource(name = "asyncExecutor")
+    final void setAsyncExecutor(AsyncExecutor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.timeoutMillis = bridgeConfig.getPropertyAsInt("credential.verification.timeout.millis");
+        this.retryAfterSeconds = bridgeConfig.getPropertyAsInt("credential.verification.retry.after.seconds");
+    }
+
+    final void setTimeoutMillis(int timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    final void setRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Run the verification on the lane and wait for its result. Runtime exceptions thrown by the verification are
+     * rethrown as is. Throws ServiceUnavailableException if the lane is full or the verification didn't start within
+     * the timeout.
+     */
+    public <T> T verify(Callable<T> verification) {
+        checkNotNull(verification);
+
+        // Whichever of the worker (starting the check) and the caller (giving up on it) claims the task first wins, so
+        // a check that has timed out never starts, and a check that has started is never abandoned.
+        AtomicBoolean claimed = new AtomicBoolean();
+        CountDownLatch started = new CountDownLatch(1);
+        FutureTask<T> task = new FutureTask<>(() -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+            started.countDown();
+            return verification.call();
+        });
+        try {
+            asyncExecutor.execute(AsyncLane.CREDENTIAL_VERIFICATION, task);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Shedding credential verification, async lane is full");
+            throw new ServiceUnavailableException(OVERLOADED_MESSAGE, retryAfterSeconds);
+        }
+        try {
+            if (!started.await(timeoutMillis, TimeUnit.MILLISECONDS) && claimed.compareAndSet(false, true)) {
+                // Don't let a check that hasn't started yet take a thread from a request that can still be served.
+                LOG.warn("Credential verification didn't start within " + timeoutMillis + " ms");
+                throw new ServiceUnavailableException(OVERLOADED_MESSAGE, retryAfterSeconds);
+            }
+            // The check has started. It's one hash, so its run time is bounded.
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            claimed.set(true);
+            throw new BridgeServiceException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new BridgeServiceException("Error verifying credential: " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.sagebionetworks.bridge.dao;
 
+import java.util.List;
 import java.util.Map;
 
 import org.joda.time.DateTime;
@@ -13,6 +14,12 @@ public interface ActivityEventDao {
      */
     boolean publishEvent(ActivityEvent event);
     
+    /**
+     * Publish several events into the event stream(s), with the same rules as publishEvent(). Returns the events 
+     * that were recorded.
+     */
+    List<ActivityEvent> publishEvents(List<ActivityEvent> events);
+    
     /**
      * Get a map of events, where the string key is an event identifier, and the value 
      * is the timestamp of the event.
@@ -1,25 +1,38 @@
 package org.sagebionetworks.bridge.dao;
 
+import java.util.Map;
+import java.util.Set;
+
 import org.sagebionetworks.bridge.models.Criteria;
 
+/**
+ * Criteria are stored separately from the models they filter. Each app's criteria are cached, so every method takes 
+ * the ID of the app that owns the criteria.
+ */
 public interface CriteriaDao {
 
     /**
      * Create the criteria object, or update it if the supplied criteria object (as 
      * defined by its key) exists. Cannot throw an EntityNotFoundException.
      */
-    Criteria createOrUpdateCriteria(Criteria criteria);
+    Criteria createOrUpdateCriteria(String appId, Criteria criteria);
     
     /**
      * Get the criteria object, or return null if it does not exist (does not throw 
      * an EntityNotFoundException).
      */
-    Criteria getCriteria(String key);
+    Criteria getCriteria(String appId, String key);
+
+    /**
+     * Get the criteria objects for a set of keys in one call, as a map of key to criteria. Keys for which criteria do 
+     * not exist are not included in the map.
+     */
+    Map<String, Criteria> getCriteria(String appId, Set<String> keys);
 
     /**
      * Delete the criteria if it exists (if criteria does not exist, does not throw
      * EntityNotFoundException).
      */
-    void deleteCriteria(String key);
+    void deleteCriteria(String appId, String key);
 
 }
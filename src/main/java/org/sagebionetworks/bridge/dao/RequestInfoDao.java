@@ -1,5 +1,7 @@
 package org.sagebionetworks.bridge.dao;
 
+import java.util.List;
+
 import org.sagebionetworks.bridge.models.RequestInfo;
 
 public interface RequestInfoDao {
@@ -11,6 +13,12 @@ public interface RequestInfoDao {
      */    
     public void updateRequestInfo(RequestInfo requestInfo);
     
+    /**
+     * Update a batch of request info objects, for different users, in one statement. Each is merged into the 
+     * persisted request info as in updateRequestInfo(), or created if it does not exist.
+     */
+    public void updateRequestInfos(List<RequestInfo> requestInfos);
+    
     public RequestInfo getRequestInfo(String userId);
     
     public void removeRequestInfo(String userId);
@@ -34,6 +34,15 @@ public interface ScheduledActivityDao {
      */
     List<ScheduledActivity> getActivities(DateTimeZone timeZone, List<ScheduledActivity> activities);
     
+    /**
+     * Get the persisted activities that correspond to a list of activities generated by the scheduler. This returns 
+     * every persisted activity between scheduledOnStart and scheduledOnEnd that has the same activity GUID as one of 
+     * the scheduled activities, plus every scheduled activity that has been persisted but falls outside that window. 
+     * Activities are returned in the time zone of scheduledOnStart.
+     */
+    List<ScheduledActivity> getPersistedActivities(String healthCode, DateTime scheduledOnStart,
+            DateTime scheduledOnEnd, List<ScheduledActivity> scheduledActivities);
+    
     /**
      * Save activities (activities will only be saved if they are not in the database).
      */
@@ -1,5 +1,7 @@
 package org.sagebionetworks.bridge.dynamodb;
 
+import static com.amazonaws.services.dynamodbv2.model.ComparisonOperator.LT;
+import static com.amazonaws.services.dynamodbv2.model.ConditionalOperator.OR;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.List;
@@ -20,8 +22,12 @@ import org.springframework.stereotype.Component;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedQueryList;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper.FailedBatch;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
 import com.google.common.collect.ImmutableSet;
@@ -30,10 +36,14 @@ import com.google.common.collect.Lists;
 @Component
 public class DynamoActivityEventDao implements ActivityEventDao {
 
+    private static final String EVENT_ID = "eventId";
+    private static final String TIMESTAMP = "timestamp";
     private static final String ANSWERED_EVENT_POSTFIX = ":"+ActivityEventType.ANSWERED.name().toLowerCase();
     private static final Set<String> IMMUTABLE_EVENTS = ImmutableSet.of(
             ActivityEventObjectType.ENROLLMENT.name().toLowerCase(),
             ActivityEventObjectType.ACTIVITIES_RETRIEVED.name().toLowerCase());
+    private static final DynamoDBSaveExpression IMMUTABLE_EVENT_EXPRESSION = new DynamoDBSaveExpression()
+            .withExpected(ImmutableMap.of(EVENT_ID, new ExpectedAttributeValue(false)));
     private DynamoDBMapper mapper;
 
     @Resource(name = "activityEventDdbMapper")
@@ -45,16 +55,27 @@ public class DynamoActivityEventDao implements ActivityEventDao {
     public boolean publishEvent(ActivityEvent event) {
         checkNotNull(event);
         
-        DynamoActivityEvent hashKey = new DynamoActivityEvent();
-        hashKey.setHealthCode(event.getHealthCode());
-        hashKey.setEventId(event.getEventId());
-        
-        ActivityEvent savedEvent = mapper.load(hashKey);
-        if (isNewOrMutable(savedEvent, event) && isLater(savedEvent, event)) {
-            mapper.save(event);
+        try {
+            mapper.save(event, getPublishExpression(event));
             return true;
+        } catch(ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+    
+    @Override
+    public List<ActivityEvent> publishEvents(List<ActivityEvent> events) {
+        checkNotNull(events);
+        
+        // BatchWriteItem does not support conditions, and a transaction would fail all the events if any one of 
+        // them is rejected, so each event is a single conditional write.
+        List<ActivityEvent> published = Lists.newArrayListWithCapacity(events.size());
+        for (ActivityEvent event : events) {
+            if (publishEvent(event)) {
+                published.add(event);
+            }
         }
-        return false;
+        return published;
     }
 
     @Override
@@ -95,21 +116,21 @@ public class DynamoActivityEventDao implements ActivityEventDao {
         }
     }
     
-    // Some events can only be recorded once. 
-    private boolean isNewOrMutable(ActivityEvent savedEvent, ActivityEvent event) {
-        if (savedEvent == null) {
-            return true;
-        }
-        return (!IMMUTABLE_EVENTS.contains(event.getEventId()));
-    }
-    
-    // Events cannot be recorded unless the timestamp submitted is later than the currently
-    // recorded timestamp.
-    private boolean isLater(ActivityEvent savedEvent, ActivityEvent event) {
-        if (savedEvent == null) {
-            return true;
+    /**
+     * Some events can only be recorded once. Other events cannot be recorded unless the timestamp submitted is 
+     * later than the currently recorded timestamp. Both are checked by DynamoDB as part of the write, so concurrent 
+     * publishers cannot overwrite a later event with an earlier one.
+     */
+    private DynamoDBSaveExpression getPublishExpression(ActivityEvent event) {
+        if (IMMUTABLE_EVENTS.contains(event.getEventId())) {
+            return IMMUTABLE_EVENT_EXPRESSION;
         }
-        return event.getTimestamp() > savedEvent.getTimestamp();
+        AttributeValue timestamp = new AttributeValue().withN(Long.toString(event.getTimestamp()));
+        Map<String, ExpectedAttributeValue> map = ImmutableMap.of(
+                EVENT_ID, new ExpectedAttributeValue(false),
+                TIMESTAMP, new ExpectedAttributeValue().withComparisonOperator(LT).withAttributeValueList(timestamp));
+        
+        return new DynamoDBSaveExpression().withExpected(map).withConditionalOperator(OR);
     }
 
     /**
@@ -118,7 +139,7 @@ public class DynamoActivityEventDao implements ActivityEventDao {
      * @param event
      * @return
      */
-    private String getEventMapKey(DynamoActivityEvent event) {
+    public static String getEventMapKey(ActivityEvent event) {
         if (event.getEventId().endsWith(ANSWERED_EVENT_POSTFIX)) {
             return event.getEventId()+"="+event.getAnswerValue();
         }
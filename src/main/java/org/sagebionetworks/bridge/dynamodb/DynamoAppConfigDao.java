@@ -1,8 +1,11 @@
 package org.sagebionetworks.bridge.dynamodb;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toSet;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Resource;
 
@@ -48,7 +51,7 @@ public class DynamoAppConfigDao implements AppConfigDao {
         
         DynamoAppConfig config = mapper.load(key);
         if (config != null) {
-            loadCriteria(config);
+            setCriteria(config, criteriaDao.getCriteria(appId, getKey(config)));
         }
         return config;
     }
@@ -70,9 +73,14 @@ public class DynamoAppConfigDao implements AppConfigDao {
         
         List<AppConfig> list = Lists.newArrayListWithCapacity(results.size());
         for (DynamoAppConfig appConfig : results) {
-            loadCriteria(appConfig);
             list.add(appConfig);
         }
+        // Load criteria in one batch.
+        Set<String> keys = list.stream().map(this::getKey).collect(toSet());
+        Map<String, Criteria> criteriaMap = criteriaDao.getCriteria(appId, keys);
+        for (AppConfig appConfig : list) {
+            setCriteria(appConfig, criteriaMap.get(getKey(appConfig)));
+        }
         return list;
     }
     
@@ -132,7 +140,7 @@ public class DynamoAppConfigDao implements AppConfigDao {
             throw new EntityNotFoundException(AppConfig.class);
         }
         mapper.delete(appConfig);
-        criteriaDao.deleteCriteria(appConfig.getCriteria().getKey());
+        criteriaDao.deleteCriteria(appId, appConfig.getCriteria().getKey());
     }
     
     private String getKey(AppConfig appConfig) {
@@ -142,11 +150,10 @@ public class DynamoAppConfigDao implements AppConfigDao {
     private Criteria persistCriteria(AppConfig config) {
         Criteria criteria = config.getCriteria();
         criteria.setKey(getKey(config));
-        return criteriaDao.createOrUpdateCriteria(criteria);
+        return criteriaDao.createOrUpdateCriteria(config.getAppId(), criteria);
     }
 
-    private void loadCriteria(AppConfig config) {
-        Criteria criteria = criteriaDao.getCriteria(getKey(config));
+    private void setCriteria(AppConfig config, Criteria criteria) {
         if (criteria == null) {
             criteria = Criteria.create();
         }
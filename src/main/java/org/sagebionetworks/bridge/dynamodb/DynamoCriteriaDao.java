@@ -4,50 +4,75 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import javax.annotation.Resource;
 
 import org.springframework.stereotype.Component;
 
+import org.sagebionetworks.bridge.cache.CriteriaCache;
 import org.sagebionetworks.bridge.dao.CriteriaDao;
 import org.sagebionetworks.bridge.models.Criteria;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 
 /**
  * The DAO for managing criteria, which are optionally associated with models that can be filtered by Criteria 
- * parameters. 
+ * parameters. Criteria are read through a cache of each app's criteria, and are loaded from DynamoDB in batches.
  */
 @Component
 public class DynamoCriteriaDao implements CriteriaDao {
 
     private DynamoDBMapper criteriaMapper;
     
+    private CriteriaCache criteriaCache;
+    
     @Resource(name = "criteriaMapper")
     final void setCriteriaMapper(DynamoDBMapper criteriaMapper) {
         this.criteriaMapper = criteriaMapper;
     }
     
+    @Resource(name = "criteriaCache")
+    final void setCriteriaCache(CriteriaCache criteriaCache) {
+        this.criteriaCache = criteriaCache;
+    }
+    
     @Override
-    public Criteria createOrUpdateCriteria(Criteria criteria) {
+    public Criteria createOrUpdateCriteria(String appId, Criteria criteria) {
+        checkNotNull(appId);
         checkNotNull(criteria);
         checkArgument(isNotBlank(criteria.getKey()));
 
         criteriaMapper.save(criteria);
+        // Drop the cached copy after saving, so a concurrent load of the old criteria is not cached.
+        criteriaCache.removeCriteria(appId, criteria.getKey());
         return criteria;
     }
     
     @Override
-    public Criteria getCriteria(String key) {
+    public Criteria getCriteria(String appId, String key) {
+        checkNotNull(appId);
         checkArgument(isNotBlank(key));
         
-        DynamoCriteria hashKey = new DynamoCriteria();
-        hashKey.setKey(key);
+        return getCriteria(appId, ImmutableSet.of(key)).get(key);
+    }
 
-        return criteriaMapper.load(hashKey);
+    @Override
+    public Map<String, Criteria> getCriteria(String appId, Set<String> keys) {
+        checkNotNull(appId);
+        checkNotNull(keys);
+        
+        return criteriaCache.getCriteria(appId, keys, this::loadCriteria);
     }
 
     @Override
-    public void deleteCriteria(String key) {
+    public void deleteCriteria(String appId, String key) {
+        checkNotNull(appId);
         checkArgument(isNotBlank(key));
         
         DynamoCriteria hashKey = new DynamoCriteria();
@@ -57,6 +82,24 @@ public class DynamoCriteriaDao implements CriteriaDao {
         if (criteria != null) {
             criteriaMapper.delete(hashKey);
         }
+        criteriaCache.removeCriteria(appId, key);
     }
 
+    // Loads the criteria with a BatchGetItem request. The mapper splits large batches and retries unprocessed keys.
+    private Map<String, Criteria> loadCriteria(Set<String> keys) {
+        List<DynamoCriteria> hashKeys = Lists.newArrayListWithCapacity(keys.size());
+        for (String key : keys) {
+            DynamoCriteria hashKey = new DynamoCriteria();
+            hashKey.setKey(key);
+            hashKeys.add(hashKey);
+        }
+        Map<String, Criteria> criteriaMap = new HashMap<>();
+        for (List<Object> results : criteriaMapper.batchLoad(hashKeys).values()) {
+            for (Object result : results) {
+                Criteria criteria = (Criteria) result;
+                criteriaMap.put(criteria.getKey(), criteria);
+            }
+        }
+        return criteriaMap;
+    }
 }
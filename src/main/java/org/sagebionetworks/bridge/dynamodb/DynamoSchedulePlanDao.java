@@ -6,7 +6,10 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 
 import javax.annotation.Resource;
@@ -30,6 +33,7 @@ import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
 import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
 @Component
@@ -73,11 +77,8 @@ public class DynamoSchedulePlanDao implements SchedulePlanDao {
         
         List<DynamoSchedulePlan> dynamoPlans = mapper.queryPage(DynamoSchedulePlan.class, query).getResults();
         
-        ArrayList<SchedulePlan> plans = Lists.newArrayListWithCapacity(dynamoPlans.size());
-        for(DynamoSchedulePlan dynamoPlan : dynamoPlans) {
-            plans.add(dynamoPlan);
-            forEachCriteria(dynamoPlan, scheduleCriteria -> loadCriteria(scheduleCriteria));
-        }
+        ArrayList<SchedulePlan> plans = Lists.newArrayList(dynamoPlans);
+        loadCriteria(appId, plans);
         return plans;
     }
     
@@ -104,7 +105,7 @@ public class DynamoSchedulePlanDao implements SchedulePlanDao {
         plan.setDeleted(false);
         plan.setVersion(null);
         
-        forEachCriteria(plan, scheduleCriteria -> persistCriteria(scheduleCriteria));
+        forEachCriteria(plan, scheduleCriteria -> persistCriteria(appId, scheduleCriteria));
         mapper.save(plan);
         return plan;
     }
@@ -122,7 +123,7 @@ public class DynamoSchedulePlanDao implements SchedulePlanDao {
         plan.setAppId(appId);
         plan.setModifiedOn(DateUtils.getCurrentMillisFromEpoch());
         
-        forEachCriteria(plan, scheduleCriteria -> persistCriteria(scheduleCriteria));
+        forEachCriteria(plan, scheduleCriteria -> persistCriteria(appId, scheduleCriteria));
         mapper.save(plan);
         return plan;
     }
@@ -143,7 +144,7 @@ public class DynamoSchedulePlanDao implements SchedulePlanDao {
         if (plan == null) {
             throw new EntityNotFoundException(SchedulePlan.class);
         }
-        forEachCriteria(plan, scheduleCriteria -> deleteCriteria(scheduleCriteria));
+        forEachCriteria(plan, scheduleCriteria -> deleteCriteria(appId, scheduleCriteria));
         mapper.delete(plan);
     }
 
@@ -169,7 +170,7 @@ public class DynamoSchedulePlanDao implements SchedulePlanDao {
         }
         
         plan = plans.get(0);
-        forEachCriteria(plan, scheduleCriteria -> loadCriteria(scheduleCriteria));
+        loadCriteria(appId, ImmutableList.of(plan));
         return plan;
     }
     
@@ -201,21 +202,31 @@ public class DynamoSchedulePlanDao implements SchedulePlanDao {
      * Save the criteria object if it exists. If not, return an empty criteria object which will return the 
      * criteria stubbed out in the JSON representation of the schedule plan.
      */
-    private Criteria persistCriteria(ScheduleCriteria scheduleCriteria) {
+    private Criteria persistCriteria(String appId, ScheduleCriteria scheduleCriteria) {
         Criteria criteria = scheduleCriteria.getCriteria();
-        return criteriaDao.createOrUpdateCriteria(criteria);
+        return criteriaDao.createOrUpdateCriteria(appId, criteria);
     }
 
     /**
-     * Load criteria. If the criteria object doesn't exist, create and return one as part of the schedule plan.
+     * Load the criteria of all the plans in one batch. If a criteria object doesn't exist, the plan keeps the empty 
+     * criteria object it was deserialized with.
      */
-    private Criteria loadCriteria(ScheduleCriteria scheduleCriteria) {
-        String key = scheduleCriteria.getCriteria().getKey();
-        return criteriaDao.getCriteria(key);
+    private void loadCriteria(String appId, List<? extends SchedulePlan> plans) {
+        Set<String> keys = new HashSet<>();
+        for (SchedulePlan plan : plans) {
+            forEachCriteria(plan, scheduleCriteria -> {
+                keys.add(scheduleCriteria.getCriteria().getKey());
+                return null;
+            });
+        }
+        Map<String, Criteria> criteriaMap = criteriaDao.getCriteria(appId, keys);
+        for (SchedulePlan plan : plans) {
+            forEachCriteria(plan, scheduleCriteria -> criteriaMap.get(scheduleCriteria.getCriteria().getKey()));
+        }
     }
     
-    private Criteria deleteCriteria(ScheduleCriteria scheduleCriteria) {
-        criteriaDao.deleteCriteria(scheduleCriteria.getCriteria().getKey());
+    private Criteria deleteCriteria(String appId, ScheduleCriteria scheduleCriteria) {
+        criteriaDao.deleteCriteria(appId, scheduleCriteria.getCriteria().getKey());
         return null;
     }
 
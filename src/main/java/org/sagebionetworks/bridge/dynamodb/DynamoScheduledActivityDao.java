@@ -7,15 +7,22 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.annotation.Resource;
 
 import org.sagebionetworks.bridge.BridgeConstants;
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
 import org.sagebionetworks.bridge.dao.ScheduledActivityDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.ResourceList;
@@ -57,6 +64,8 @@ public class DynamoScheduledActivityDao implements ScheduledActivityDao {
     
     private DynamoIndexHelper referentIndex;
     
+    private AsyncExecutor asyncExecutor;
+    
     @Resource(name = "activityDdbMapper")
     final void setDdbMapper(DynamoDBMapper mapper) {
         this.mapper = mapper;
@@ -67,6 +76,12 @@ public class DynamoScheduledActivityDao implements ScheduledActivityDao {
         this.referentIndex = index;
     }
     
+    /** Used to run the activity history queries of {@link #getPersistedActivities} concurrently. */
+    @Resource(name = "asyncExecutor")
+    final void setAsyncExecutor(AsyncExecutor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+    
     @Override
     public ForwardCursorPagedResourceList<ScheduledActivity> getActivityHistoryV2(String healthCode,
             String activityGuid, DateTime scheduledOnStart, DateTime scheduledOnEnd, String offsetKey, int pageSize) {
@@ -288,6 +303,75 @@ public class DynamoScheduledActivityDao implements ScheduledActivityDao {
         return results;
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public List<ScheduledActivity> getPersistedActivities(String healthCode, DateTime scheduledOnStart,
+            DateTime scheduledOnEnd, List<ScheduledActivity> scheduledActivities) {
+        checkNotNull(healthCode);
+        checkNotNull(scheduledOnStart);
+        checkNotNull(scheduledOnEnd);
+        checkNotNull(scheduledActivities);
+        
+        if (scheduledActivities.isEmpty()) {
+            return ImmutableList.of();
+        }
+        Set<String> activityGuids = new LinkedHashSet<>();
+        for (ScheduledActivity activity : scheduledActivities) {
+            activityGuids.add(activity.getGuid().split(":")[0]);
+        }
+        
+        // Query the history of each activity GUID concurrently. The FAN_OUT lane runs a query on this thread 
+        // if the lane is full, so this degrades to serial queries rather than failing.
+        List<FutureTask<ForwardCursorPagedResourceList<ScheduledActivity>>> queries = new ArrayList<>();
+        for (String activityGuid : activityGuids) {
+            FutureTask<ForwardCursorPagedResourceList<ScheduledActivity>> query = new FutureTask<>(
+                    () -> getActivityHistoryV2(healthCode, activityGuid, scheduledOnStart, scheduledOnEnd, null,
+                            API_MAXIMUM_PAGE_SIZE));
+            asyncExecutor.execute(AsyncLane.FAN_OUT, healthCode, query);
+            queries.add(query);
+        }
+        Map<String, ScheduledActivity> dbMap = Maps.newHashMap();
+        for (FutureTask<ForwardCursorPagedResourceList<ScheduledActivity>> query : queries) {
+            for (ScheduledActivity activity : getQueryResult(query).getItems()) {
+                dbMap.put(activity.getGuid(), activity);
+            }
+        }
+        
+        // A one-time activity scheduled outside the time window isn't returned by the queries above (IA-587). 
+        // Load any remaining activities by key in one batch.
+        Set<String> remainingGuids = new LinkedHashSet<>();
+        for (ScheduledActivity activity : scheduledActivities) {
+            if (!dbMap.containsKey(activity.getGuid())) {
+                remainingGuids.add(activity.getGuid());
+            }
+        }
+        List<ScheduledActivity> keys = Lists.newArrayListWithCapacity(remainingGuids.size());
+        for (String guid : remainingGuids) {
+            DynamoScheduledActivity key = new DynamoScheduledActivity();
+            key.setHealthCode(healthCode);
+            key.setGuid(guid);
+            keys.add(key);
+        }
+        for (ScheduledActivity activity : getActivities(scheduledOnStart.getZone(), keys)) {
+            dbMap.put(activity.getGuid(), activity);
+        }
+        return new ArrayList<>(dbMap.values());
+    }
+    
+    private <T> T getQueryResult(FutureTask<T> query) {
+        try {
+            return query.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BridgeServiceException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new BridgeServiceException(ex.getCause());
+        }
+    }
+    
     /** {@inheritDoc} */
     @Override
     public void saveActivities(List<ScheduledActivity> activities) {
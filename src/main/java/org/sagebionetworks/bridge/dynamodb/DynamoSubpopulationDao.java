@@ -1,11 +1,14 @@
 package org.sagebionetworks.bridge.dynamodb;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toSet;
 import static org.sagebionetworks.bridge.util.BridgeCollectors.toImmutableList;
 import static org.sagebionetworks.bridge.models.OperatingSystem.ANDROID;
 import static org.sagebionetworks.bridge.models.OperatingSystem.IOS;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Resource;
 
@@ -111,8 +114,10 @@ public class DynamoSubpopulationDao implements SubpopulationDao {
                 .filter(subpop -> includeDeleted || !subpop.isDeleted())
                 .collect(toImmutableList());
         
+        Set<String> keys = subpopulations.stream().map(this::getKey).collect(toSet());
+        Map<String, Criteria> criteriaMap = criteriaDao.getCriteria(appId, keys);
         for (Subpopulation subpop : subpopulations) {
-            loadCriteria(subpop);
+            setCriteria(subpop, criteriaMap.get(getKey(subpop)));
         }
         return subpopulations;
     }
@@ -132,7 +137,7 @@ public class DynamoSubpopulationDao implements SubpopulationDao {
         criteria.setMinAppVersion(ANDROID, 0);
         criteria.setMinAppVersion(IOS, 0);
 
-        criteria = criteriaDao.createOrUpdateCriteria(criteria);
+        criteria = criteriaDao.createOrUpdateCriteria(appId, criteria);
         subpop.setCriteria(criteria);
         
         mapper.save(subpop);
@@ -149,7 +154,7 @@ public class DynamoSubpopulationDao implements SubpopulationDao {
         if (subpop == null) {
             throw new EntityNotFoundException(Subpopulation.class);
         }
-        loadCriteria(subpop);
+        setCriteria(subpop, criteriaDao.getCriteria(appId, getKey(subpop)));
         
         return subpop;
     }
@@ -172,7 +177,7 @@ public class DynamoSubpopulationDao implements SubpopulationDao {
     public void deleteSubpopulationPermanently(String appId, SubpopulationGuid subpopGuid) {
         Subpopulation subpop = getSubpopulation(appId, subpopGuid);
 
-        criteriaDao.deleteCriteria(subpop.getCriteria().getKey());
+        criteriaDao.deleteCriteria(appId, subpop.getCriteria().getKey());
         mapper.delete(subpop);
     }
     
@@ -183,11 +188,10 @@ public class DynamoSubpopulationDao implements SubpopulationDao {
     private Criteria persistCriteria(Subpopulation subpop) {
         Criteria criteria = subpop.getCriteria();
         criteria.setKey(getKey(subpop));
-        return criteriaDao.createOrUpdateCriteria(criteria);
+        return criteriaDao.createOrUpdateCriteria(subpop.getAppId(), criteria);
     }
 
-    private void loadCriteria(Subpopulation subpop) {
-        Criteria criteria = criteriaDao.getCriteria(getKey(subpop));
+    private void setCriteria(Subpopulation subpop, Criteria criteria) {
         // Not sure this is even possible at this point. But if the original save did not completely succeed, 
         // this will prevent errors and the user will be able to redo criteria (if any).
         if (criteria == null) {
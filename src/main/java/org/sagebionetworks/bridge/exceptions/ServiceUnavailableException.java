@@ -3,12 +3,26 @@ package org.sagebionetworks.bridge.exceptions;
 @SuppressWarnings("serial")
 public class ServiceUnavailableException extends BridgeServiceException {
 
+    private final int retryAfterSeconds;
+    
     public ServiceUnavailableException(String message) {
+        this(message, 0);
+    }
+    
+    /** The server is overloaded. The response tells the client how long to wait before retrying. */
+    public ServiceUnavailableException(String message, int retryAfterSeconds) {
         super(message, 503);
+        this.retryAfterSeconds = retryAfterSeconds;
     }
     
     public ServiceUnavailableException(Exception e) {
         super(e, 503);
+        this.retryAfterSeconds = 0;
+    }
+    
+    /** Seconds the client should wait before retrying, or 0 if there is no suggested delay. */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
     }
     
 }
@@ -3,7 +3,9 @@ package org.sagebionetworks.bridge.hibernate;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -18,6 +20,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.BridgeUtils.StudyAssociations;
@@ -29,7 +32,9 @@ import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.ResourceList;
 import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.AccountId;
+import org.sagebionetworks.bridge.models.accounts.AccountStatus;
 import org.sagebionetworks.bridge.models.accounts.AccountSummary;
+import org.sagebionetworks.bridge.models.accounts.Phone;
 import org.sagebionetworks.bridge.models.apps.App;
 
 /** Hibernate implementation of Account Dao. */
@@ -38,12 +43,20 @@ public class HibernateAccountDao implements AccountDao {
     
     private static final Logger LOG = LoggerFactory.getLogger(HibernateAccountDao.class);
 
-    static final String ID_QUERY = "SELECT acct.id FROM HibernateAccount AS acct";
-    
     static final String FULL_QUERY = "SELECT acct FROM HibernateAccount AS acct";
     
     static final String COUNT_QUERY = "SELECT COUNT(DISTINCT acct.id) FROM HibernateAccount AS acct";
     
+    static final String SUMMARY_QUERY = "SELECT acct.id, acct.appId, acct.firstName, acct.lastName, acct.email, "
+            + "acct.phone, acct.createdOn, acct.status, acct.synapseUserId, acct.orgMembership "
+            + "FROM HibernateAccount AS acct";
+    
+    static final String SUMMARY_ENROLLMENTS_QUERY = "SELECT enrollment FROM HibernateEnrollment AS enrollment "
+            + "WHERE enrollment.accountId IN (:accountIds)";
+    
+    static final String SUMMARY_ATTRIBUTES_QUERY = "SELECT acct.id, KEY(attribute), VALUE(attribute) "
+            + "FROM HibernateAccount AS acct JOIN acct.attributes AS attribute WHERE acct.id IN (:accountIds)";
+    
     private HibernateHelper hibernateHelper;
 
     /** This makes interfacing with Hibernate easier. */
@@ -181,24 +194,30 @@ public class HibernateAccountDao implements AccountDao {
     /** {@inheritDoc} */
     @Override
     public PagedResourceList<AccountSummary> getPagedAccountSummaries(String appId, AccountSummarySearch search) {
-        // Getting the IDs and loading the records individually leads to N+1 queries (one id query and a 
-        // query for each object), whereas querying for a constructor of a subset of columns leads to 
-        // (N*Y)+1 queries as we must load each collection individually... Y=1 in the prior code to load
-        // studies, and Y=2 once we add attributes. On the downside, this approach loads all 
-        // HibernateAccount fields, like clientData, though it is not returned.
-        QueryBuilder builder = makeQuery(ID_QUERY, appId, null, search, false);
+        // Loading each account by ID leads to a query for the account and one for each of its eager collections.
+        // Instead, select only the columns in a summary, then load the enrollments and attributes of the whole 
+        // page with one query each. The other collections (consents, roles, data groups, languages) are not 
+        // needed and are never loaded.
+        QueryBuilder builder = makeQuery(SUMMARY_QUERY, appId, null, search, false);
+        List<Object[]> rows = hibernateHelper.queryGet(builder.getQuery(), builder.getParameters(),
+                search.getOffsetBy(), search.getPageSize(), Object[].class);
         
-        List<String> ids = hibernateHelper.queryGet(builder.getQuery(), builder.getParameters(),
-                search.getOffsetBy(), search.getPageSize(), String.class);
+        List<HibernateAccount> accounts = rows.stream().map(this::summaryRowToAccount).collect(Collectors.toList());
+        loadSummaryCollections(accounts);
         
-        List<AccountSummary>accountSummaryList = ids.stream()
-                .map(id -> hibernateHelper.getById(HibernateAccount.class, id))
+        List<AccountSummary> accountSummaryList = accounts.stream()
                 .map(this::unmarshallAccountSummary)
                 .collect(Collectors.toList());
 
-        // Get count of accounts.
-        builder = makeQuery(COUNT_QUERY, appId, null, search, true);
-        int count = hibernateHelper.queryCount(builder.getQuery(), builder.getParameters());
+        // A short page is the last page, so the total is known without counting. Otherwise, get count of accounts.
+        int count;
+        if (accountSummaryList.size() < search.getPageSize() 
+                && (!accountSummaryList.isEmpty() || search.getOffsetBy() == 0)) {
+            count = search.getOffsetBy() + accountSummaryList.size();
+        } else {
+            builder = makeQuery(COUNT_QUERY, appId, null, search, true);
+            count = hibernateHelper.queryCount(builder.getQuery(), builder.getParameters());
+        }
         
         // Package results and return.
         return new PagedResourceList<>(accountSummaryList, count)
@@ -231,6 +250,51 @@ public class HibernateAccountDao implements AccountDao {
         return false;
     }
 
+    // Creates an account holding only the summary columns selected by SUMMARY_QUERY. The account is never saved.
+    private HibernateAccount summaryRowToAccount(Object[] row) {
+        HibernateAccount account = new HibernateAccount();
+        account.setId((String) row[0]);
+        account.setAppId((String) row[1]);
+        account.setFirstName((String) row[2]);
+        account.setLastName((String) row[3]);
+        account.setEmail((String) row[4]);
+        account.setPhone((Phone) row[5]);
+        account.setCreatedOn((DateTime) row[6]);
+        account.setStatus((AccountStatus) row[7]);
+        account.setSynapseUserId((String) row[8]);
+        account.setOrgMembership((String) row[9]);
+        return account;
+    }
+    
+    // Loads the enrollments and attributes of all the accounts with a single query for each collection.
+    private void loadSummaryCollections(List<HibernateAccount> accounts) {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        Map<String, HibernateAccount> accountsById = new HashMap<>();
+        for (HibernateAccount account : accounts) {
+            accountsById.put(account.getId(), account);
+        }
+        Map<String, Object> parameters = ImmutableMap.of("accountIds", accountsById.keySet());
+        
+        List<HibernateEnrollment> enrollments = hibernateHelper.queryGet(SUMMARY_ENROLLMENTS_QUERY, parameters, 
+                null, null, HibernateEnrollment.class);
+        for (HibernateEnrollment enrollment : enrollments) {
+            HibernateAccount account = accountsById.get(enrollment.getAccountId());
+            if (account != null) {
+                account.getEnrollments().add(enrollment);
+            }
+        }
+        List<Object[]> attributes = hibernateHelper.queryGet(SUMMARY_ATTRIBUTES_QUERY, parameters, 
+                null, null, Object[].class);
+        for (Object[] attribute : attributes) {
+            HibernateAccount account = accountsById.get((String) attribute[0]);
+            if (account != null) {
+                account.getAttributes().put((String) attribute[1], (String) attribute[2]);
+            }
+        }
+    }
+
     // Helper method to unmarshall a HibernateAccount into an AccountSummary.
     // Package-scoped to facilitate unit tests.
     AccountSummary unmarshallAccountSummary(HibernateAccount acct) {
@@ -1,6 +1,7 @@
 package org.sagebionetworks.bridge.hibernate;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -12,10 +13,13 @@ import java.util.Optional;
 
 import javax.annotation.Resource;
 
+import com.google.common.hash.Hashing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import org.sagebionetworks.bridge.crypto.CredentialVerifier;
 import org.sagebionetworks.bridge.dao.AccountSecretDao;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.models.accounts.AccountSecret;
@@ -31,16 +35,27 @@ public class HibernateAccountSecretDao implements AccountSecretDao {
     static final String GET_QUERY = "SELECT secret FROM HibernateAccountSecret as secret " + 
             "WHERE accountId = :accountId AND type = :type ORDER BY createdOn DESC";
     
+    static final String MIGRATE_QUERY = "UPDATE HibernateAccountSecret SET lookupKey = :lookupKey " + 
+            "WHERE accountId = :accountId AND hash = :hash";
+    
     static final String DELETE_QUERY = "DELETE FROM HibernateAccountSecret WHERE " + 
             "accountId = :accountId AND type = :type";
     
+    static final int LOOKUP_KEY_LENGTH = 16;
+    
     private HibernateHelper hibernateHelper;
+    private CredentialVerifier credentialVerifier;
     
     @Resource(name = "basicHibernateHelper")
     final void setHibernateHelper(HibernateHelper hibernateHelper) {
         this.hibernateHelper = hibernateHelper;
     }
     
+    @Autowired
+    final void setCredentialVerifier(CredentialVerifier credentialVerifier) {
+        this.credentialVerifier = credentialVerifier;
+    }
+    
     protected String generateHash(PasswordAlgorithm algorithm, String plaintext) {
         try {
             return algorithm.generateHash(plaintext);
@@ -49,6 +64,15 @@ public class HibernateAccountSecretDao implements AccountSecretDao {
         }
     }
     
+    /**
+     * A short digest of the plaintext that is stored with the secret, so verification only has to hash the plaintext 
+     * against the one secret it could match. Secrets are generated with enough entropy that this prefix of a SHA-256 
+     * digest can't be used to recover them, and it is too short to verify a secret without the salted hash.
+     */
+    static String lookupKey(String plaintext) {
+        return Hashing.sha256().hashString(plaintext, UTF_8).toString().substring(0, LOOKUP_KEY_LENGTH);
+    }
+    
     @Override
     public void createSecret(AccountSecretType type, String accountId, String plaintext) {
         checkNotNull(type);
@@ -60,6 +84,7 @@ public class HibernateAccountSecretDao implements AccountSecretDao {
         secret.setAlgorithm(PasswordAlgorithm.DEFAULT_PASSWORD_ALGORITHM);
         secret.setHash(generateHash(PasswordAlgorithm.DEFAULT_PASSWORD_ALGORITHM, plaintext));
         secret.setType(type);
+        secret.setLookupKey(lookupKey(plaintext));
         secret.setCreatedOn(DateUtils.getCurrentDateTime());
 
         hibernateHelper.create(secret, null); 
@@ -78,19 +103,50 @@ public class HibernateAccountSecretDao implements AccountSecretDao {
         
         List<HibernateAccountSecret> secrets = hibernateHelper.queryGet(
                 GET_QUERY, params, 0, rotations, HibernateAccountSecret.class);
-        for (HibernateAccountSecret accountSecret : secrets) {
-            try {
-                // It's not possible to cache the hashed plaintext, as it is being compared to a hash
-                // that has been seeded with a random salt (in the default algorithm's case). So we
-                // must extract and use that salt + iterations to compare the hashes.
-                if (accountSecret.getAlgorithm().checkHash(accountSecret.getHash(), plaintext)) {
-                    return Optional.of(accountSecret);
+        String lookupKey = lookupKey(plaintext);
+        
+        // Secrets are checked newest first, and the check stops at the first match, all as one task on the
+        // credential verification lane. A secret with a lookup key can only match a plaintext with the same key, so
+        // only that secret and any secrets created before there were lookup keys are hashed.
+        Optional<AccountSecret> match = credentialVerifier.verify(() -> {
+            for (HibernateAccountSecret accountSecret : secrets) {
+                if (accountSecret.getLookupKey() != null && !accountSecret.getLookupKey().equals(lookupKey)) {
+                    continue;
+                }
+                try {
+                    // It's not possible to cache the hashed plaintext, as it is being compared to a hash
+                    // that has been seeded with a random salt (in the default algorithm's case). So we
+                    // must extract and use that salt + iterations to compare the hashes.
+                    if (accountSecret.getAlgorithm().checkHash(accountSecret.getHash(), plaintext)) {
+                        return Optional.of(accountSecret);
+                    }
+                } catch (InvalidKeyException | InvalidKeySpecException | NoSuchAlgorithmException e) {
+                    LOG.error("Error checking reauthentication token", e);
                 }
-            } catch (InvalidKeyException | InvalidKeySpecException | NoSuchAlgorithmException e) {
-                LOG.error("Error checking reauthentication token", e);
             }
+            return Optional.empty();
+        });
+        if (match.isPresent() && match.get().getLookupKey() == null) {
+            migrateSecret(match.get(), lookupKey);
+        }
+        return match;
+    }
+    
+    /**
+     * Add the lookup key to a secret that was created without one. The secret has already been verified, so if this
+     * fails, it is logged and the secret will be hashed again the next time it is used.
+     */
+    private void migrateSecret(AccountSecret secret, String lookupKey) {
+        Map<String,Object> params = new HashMap<>();
+        params.put("lookupKey", lookupKey);
+        params.put("accountId", secret.getAccountId());
+        params.put("hash", secret.getHash());
+        try {
+            hibernateHelper.queryUpdate(MIGRATE_QUERY, params);
+            secret.setLookupKey(lookupKey);
+        } catch (RuntimeException e) {
+            LOG.warn("Error adding lookup key to account secret", e);
         }
-        return Optional.empty();
     }
     
     @Override
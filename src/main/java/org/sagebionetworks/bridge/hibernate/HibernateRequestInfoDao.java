@@ -2,15 +2,34 @@ package org.sagebionetworks.bridge.hibernate;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import javax.annotation.Resource;
 
+import org.hibernate.jpa.TypedParameterValue;
+import org.hibernate.type.StringType;
 import org.springframework.stereotype.Component;
 
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
 import org.sagebionetworks.bridge.dao.RequestInfoDao;
 import org.sagebionetworks.bridge.models.RequestInfo;
 
 @Component
 public class HibernateRequestInfoDao implements RequestInfoDao {
+    static final List<String> COLUMNS = ImmutableList.of("userId", "clientInfo", "userAgent", "languages",
+            "userDataGroups", "userSubstudyIds", "activitiesAccessedOn", "signedInOn", "uploadedOn", "timeZone",
+            "studyIdentifier");
+    
+    private static final ClientInfoConverter CLIENT_INFO_CONVERTER = new ClientInfoConverter();
+    private static final StringListConverter STRING_LIST_CONVERTER = new StringListConverter();
+    private static final StringSetConverter STRING_SET_CONVERTER = new StringSetConverter();
+    private static final DateTimeToLongAttributeConverter DATE_TIME_CONVERTER = new DateTimeToLongAttributeConverter();
+    private static final DateTimeZoneAttributeConverter TIME_ZONE_CONVERTER = new DateTimeZoneAttributeConverter();
+    
     private HibernateHelper hibernateHelper;
     
     @Resource(name = "basicHibernateHelper")
@@ -31,6 +50,52 @@ public class HibernateRequestInfoDao implements RequestInfoDao {
         }        
     }
 
+    /**
+     * Inserts all the rows in one statement. Where a row exists, each column is only replaced if the new value is not 
+     * null, which is the same merge as RequestInfo.Builder.copyOf(). Values are written as they are by the entity's 
+     * attribute converters.
+     */
+    @Override
+    public void updateRequestInfos(List<RequestInfo> requestInfos) {
+        checkNotNull(requestInfos);
+        if (requestInfos.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder("INSERT INTO RequestInfos (");
+        sql.append(Joiner.on(", ").join(COLUMNS)).append(") VALUES ");
+        Map<String, Object> parameters = new HashMap<>();
+        for (int i = 0; i < requestInfos.size(); i++) {
+            RequestInfo info = requestInfos.get(i);
+            checkNotNull(info.getUserId());
+            String timeZone = (info.getTimeZone() == null) ? null :
+                    TIME_ZONE_CONVERTER.convertToDatabaseColumn(info.getTimeZone());
+            Object[] values = { info.getUserId(), CLIENT_INFO_CONVERTER.convertToDatabaseColumn(info.getClientInfo()),
+                    info.getUserAgent(), STRING_LIST_CONVERTER.convertToDatabaseColumn(info.getLanguages()),
+                    STRING_SET_CONVERTER.convertToDatabaseColumn(info.getUserDataGroups()),
+                    STRING_SET_CONVERTER.convertToDatabaseColumn(info.getUserStudyIds()),
+                    DATE_TIME_CONVERTER.convertToDatabaseColumn(info.getActivitiesAccessedOn()),
+                    DATE_TIME_CONVERTER.convertToDatabaseColumn(info.getSignedInOn()),
+                    DATE_TIME_CONVERTER.convertToDatabaseColumn(info.getUploadedOn()),
+                    timeZone, info.getAppId() };
+            sql.append((i == 0) ? "(" : ", (");
+            for (int j = 0; j < COLUMNS.size(); j++) {
+                String name = COLUMNS.get(j) + i;
+                sql.append((j == 0) ? ":" : ", :").append(name);
+                // The columns are all strings. Typing the parameters allows null values to be bound.
+                String value = (values[j] == null) ? null : values[j].toString();
+                parameters.put(name, new TypedParameterValue(StringType.INSTANCE, value));
+            }
+            sql.append(")");
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE ");
+        for (int j = 1; j < COLUMNS.size(); j++) {
+            String column = COLUMNS.get(j);
+            sql.append((j == 1) ? "" : ", ").append(column).append(" = COALESCE(VALUES(").append(column)
+                    .append("), ").append(column).append(")");
+        }
+        hibernateHelper.nativeQueryUpdate(sql.toString(), parameters);
+    }
+
     @Override
     public RequestInfo getRequestInfo(String userId) {
         checkNotNull(userId);
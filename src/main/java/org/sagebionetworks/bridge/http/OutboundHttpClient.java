@@ -0,0 +1,176 @@
+package org.sagebionetworks.bridge.http;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.StandardHttpRequestRetryHandler;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.params.HttpParams;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.util.LatencyHistogram;
+
+/**
+ * The HTTP client for calls from the server to other services (OAuth providers, CUIMC). All calls share one pool of
+ * keep-alive connections, so a call to a host we've called recently doesn't pay for a new TCP connection and TLS
+ * handshake. Each host can have at most a fixed number of connections open; a call that can't get a connection
+ * within the connection request timeout fails rather than waiting on a slow host.
+ *
+ * A request whose connection fails before it has been sent in full is retried, whatever its method. A request that has
+ * been sent is only retried if its method is idempotent (GET, HEAD, PUT, DELETE, OPTIONS, TRACE), so a POST or PATCH
+ * that may have reached the host is never sent twice. Timeouts, unknown hosts, refused connections and SSL errors are
+ * not retried.
+ *
+ * Calls are timed per host, from sending the request until the response headers arrive, in latency histograms kept
+ * in memory on each server.
+ */
+public class OutboundHttpClient extends CloseableHttpClient {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+    private final Map<String, HostStats> hostStats = new ConcurrentHashMap<>();
+
+    /** Creates the client from the "http.client.*" properties in the config. */
+    public OutboundHttpClient(BridgeConfig bridgeConfig) {
+        this(bridgeConfig.getPropertyAsInt("http.client.max.total"),
+                bridgeConfig.getPropertyAsInt("http.client.max.per.host"),
+                bridgeConfig.getPropertyAsInt("http.client.connect.timeout.millis"),
+                bridgeConfig.getPropertyAsInt("http.client.connection.request.timeout.millis"),
+                bridgeConfig.getPropertyAsInt("http.client.socket.timeout.millis"),
+                bridgeConfig.getPropertyAsInt("http.client.retry.count"),
+                bridgeConfig.getPropertyAsInt("http.client.idle.timeout.seconds"));
+    }
+
+    /** Creates the client with the given settings. Package-scoped for unit tests. */
+    OutboundHttpClient(int maxTotal, int maxPerHost, int connectTimeoutMillis, int connectionRequestTimeoutMillis,
+            int socketTimeoutMillis, int retryCount, int idleTimeoutSeconds) {
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerHost);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setConnectionRequestTimeout(connectionRequestTimeoutMillis)
+                .setSocketTimeout(socketTimeoutMillis).build();
+
+        // Unlike the default retry handler, which treats any request without a body as idempotent, this one decides
+        // by method (RFC 2616), so PUTs and DELETEs are retried and POSTs aren't.
+        this.client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setRetryHandler(new StandardHttpRequestRetryHandler(retryCount, false))
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeoutSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+            throws IOException {
+        HostStats stats = hostStats.computeIfAbsent(hostKey(target), (key) -> new HostStats());
+        long startNanos = System.nanoTime();
+        try {
+            CloseableHttpResponse response = client.execute(target, request, context);
+            stats.latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            if (response.getStatusLine().getStatusCode() >= 500) {
+                stats.serverErrors.increment();
+            }
+            stats.responses.increment();
+            return response;
+        } catch (ConnectionPoolTimeoutException e) {
+            stats.poolTimeouts.increment();
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            stats.latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            stats.failures.increment();
+            throw e;
+        }
+    }
+
+    /** Call stats keyed by host (and port, if the URL has one). */
+    public Map<String, HostStats> getHostStats() {
+        return ImmutableMap.copyOf(hostStats);
+    }
+
+    /** The leased, pending and available connections for each host with connections in the pool. */
+    public Map<String, PoolStats> getPoolStats() {
+        ImmutableMap.Builder<String, PoolStats> builder = ImmutableMap.builder();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            builder.put(hostKey(route.getTargetHost()), connectionManager.getStats(route));
+        }
+        return builder.build();
+    }
+
+    /** The leased, pending and available connections across all hosts. */
+    public PoolStats getTotalPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    @PreDestroy
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public HttpParams getParams() {
+        return client.getParams();
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public ClientConnectionManager getConnectionManager() {
+        return client.getConnectionManager();
+    }
+
+    private static String hostKey(HttpHost target) {
+        return (target == null) ? "unknown" : target.toHostString();
+    }
+
+    public static final class HostStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder responses = new LongAdder();
+        private final LongAdder serverErrors = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder poolTimeouts = new LongAdder();
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+        /** Calls that returned a response, including error responses. */
+        public long getResponses() {
+            return responses.sum();
+        }
+        /** Responses with a 5xx status. */
+        public long getServerErrors() {
+            return serverErrors.sum();
+        }
+        /** Calls that failed without a response, after any retries. */
+        public long getFailures() {
+            return failures.sum();
+        }
+        /** Calls that failed because the host had no free connection within the connection request timeout. */
+        public long getPoolTimeouts() {
+            return poolTimeouts.sum();
+        }
+    }
+}
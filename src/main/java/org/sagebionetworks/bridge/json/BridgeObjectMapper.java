@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.lang.reflect.Method;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.BeanDescription;
@@ -56,7 +57,15 @@ public class BridgeObjectMapper extends ObjectMapper {
     }
 
     public BridgeObjectMapper() {
-        super();
+        this(null);
+    }
+    
+    /**
+     * Create a mapper with the same configuration that reads and writes another data format, such 
+     * as a binary format for objects stored in the cache.
+     */
+    public BridgeObjectMapper(JsonFactory factory) {
+        super(factory);
         this.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         // This is a default, but I wanted to note explicitly
         this.configure(DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES, false);
@@ -131,7 +140,10 @@ public class BridgeObjectMapper extends ObjectMapper {
                     // for duplicates, but this is a "try and throw exception" feature... you can't test ahead
                     // of time. Not ideal but only filtered objects have this duplication problem.
                     try {
-                        jgen.configure(JsonGenerator.Feature.STRICT_DUPLICATE_DETECTION, true);
+                        // Binary generators can only detect duplicates if it is enabled on their factory.
+                        if (!jgen.isEnabled(JsonGenerator.Feature.STRICT_DUPLICATE_DETECTION)) {
+                            jgen.configure(JsonGenerator.Feature.STRICT_DUPLICATE_DETECTION, true);
+                        }
                         jgen.writeStringField("type", typeName);
                     } catch(JsonGenerationException e) {
                         if (!e.getMessage().equals("Duplicate field 'type'")) {
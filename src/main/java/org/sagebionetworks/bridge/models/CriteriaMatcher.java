@@ -0,0 +1,271 @@
+package org.sagebionetworks.bridge.models;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A list of entities with criteria, compiled so that it can be matched against many users' criteria contexts. The
+ * data groups and study IDs named in the criteria are numbered and each criteria's required and prohibited sets are
+ * stored as bit sets, the app version ranges are grouped by operating system, and the distinct languages are
+ * collected. Matching a user looks up the user's data groups and study IDs once, rather than once for each entity.
+ *
+ * Matching returns the same entities, in the same order, as {@link CriteriaUtils#filterByCriteria}. The entities and
+ * their criteria must not change after the matcher is compiled.
+ */
+public final class CriteriaMatcher<T extends HasCriteria> {
+
+    private final List<T> candidates;
+    private final Comparator<T> secondComparator;
+
+    private final Map<String, Integer> dataGroupBits;
+    private final Map<String, Integer> studyIdBits;
+    // The values, in order of their bits.
+    private final String[] dataGroups;
+    private final String[] studyIds;
+    private final int dataGroupWords;
+    private final int studyIdWords;
+    // The bit sets of all the candidates, one after another.
+    private final long[] allOfGroups;
+    private final long[] noneOfGroups;
+    private final long[] allOfStudyIds;
+    private final long[] noneOfStudyIds;
+
+    // By operating system, the min and max app version of each candidate.
+    private final Map<String, int[]> minAppVersions;
+    private final Map<String, int[]> maxAppVersions;
+
+    private final List<String> languages;
+    // The index of each candidate's language in languages, or -1 if it does not declare a language.
+    private final int[] languageIndexes;
+
+    private CriteriaMatcher(List<T> candidates, Comparator<T> secondComparator) {
+        this.candidates = candidates;
+        this.secondComparator = secondComparator;
+
+        this.dataGroupBits = new HashMap<>();
+        this.studyIdBits = new HashMap<>();
+        this.minAppVersions = new HashMap<>();
+        this.maxAppVersions = new HashMap<>();
+        List<String> languages = new ArrayList<>();
+        this.languageIndexes = new int[candidates.size()];
+
+        for (int i = 0; i < candidates.size(); i++) {
+            Criteria criteria = candidates.get(i).getCriteria();
+            checkNotNull(criteria);
+            numberAll(dataGroupBits, checkNotNull(criteria.getAllOfGroups()));
+            numberAll(dataGroupBits, checkNotNull(criteria.getNoneOfGroups()));
+            numberAll(studyIdBits, checkNotNull(criteria.getAllOfStudyIds()));
+            numberAll(studyIdBits, checkNotNull(criteria.getNoneOfStudyIds()));
+
+            for (String osName : criteria.getAppVersionOperatingSystems()) {
+                Integer min = criteria.getMinAppVersion(osName);
+                Integer max = criteria.getMaxAppVersion(osName);
+                if (min != null) {
+                    versions(minAppVersions, osName, Integer.MIN_VALUE)[i] = min;
+                }
+                if (max != null) {
+                    versions(maxAppVersions, osName, Integer.MAX_VALUE)[i] = max;
+                }
+            }
+
+            String language = criteria.getLanguage();
+            if (language != null && !languages.contains(language)) {
+                languages.add(language);
+            }
+            languageIndexes[i] = languages.indexOf(language);
+        }
+        this.languages = ImmutableList.copyOf(languages);
+        this.dataGroups = values(dataGroupBits);
+        this.studyIds = values(studyIdBits);
+
+        this.dataGroupWords = words(dataGroupBits.size());
+        this.studyIdWords = words(studyIdBits.size());
+        this.allOfGroups = new long[candidates.size() * dataGroupWords];
+        this.noneOfGroups = new long[candidates.size() * dataGroupWords];
+        this.allOfStudyIds = new long[candidates.size() * studyIdWords];
+        this.noneOfStudyIds = new long[candidates.size() * studyIdWords];
+        for (int i = 0; i < candidates.size(); i++) {
+            Criteria criteria = candidates.get(i).getCriteria();
+            setBits(allOfGroups, i * dataGroupWords, dataGroupBits, criteria.getAllOfGroups());
+            setBits(noneOfGroups, i * dataGroupWords, dataGroupBits, criteria.getNoneOfGroups());
+            setBits(allOfStudyIds, i * studyIdWords, studyIdBits, criteria.getAllOfStudyIds());
+            setBits(noneOfStudyIds, i * studyIdWords, studyIdBits, criteria.getNoneOfStudyIds());
+        }
+    }
+
+    /**
+     * Compile the entities for matching. The second comparator orders entities that match the user's languages
+     * equally (see {@link CriteriaUtils#filterByCriteria}), and can be null.
+     */
+    public static <T extends HasCriteria> CriteriaMatcher<T> compile(Collection<T> candidates,
+            Comparator<T> secondComparator) {
+        checkNotNull(candidates);
+        return new CriteriaMatcher<>(ImmutableList.copyOf(candidates), secondComparator);
+    }
+
+    public List<T> getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Get the entities whose criteria match the context, sorted by the user's language preferences and then by the
+     * second comparator.
+     */
+    public List<T> filter(CriteriaContext context) {
+        checkNotNull(context);
+        checkNotNull(context.getLanguages());
+        checkNotNull(context.getClientInfo());
+        checkNotNull(context.getUserDataGroups());
+
+        long[] userGroups = userBits(dataGroupBits, dataGroups, dataGroupWords, context.getUserDataGroups());
+        long[] userStudyIds = userBits(studyIdBits, studyIds, studyIdWords, context.getUserStudyIds());
+
+        int[] minVersions = null;
+        int[] maxVersions = null;
+        Integer appVersion = context.getClientInfo().getAppVersion();
+        String appOs = context.getClientInfo().getOsName();
+        if (appVersion != null && appOs != null) {
+            minVersions = minAppVersions.get(appOs);
+            maxVersions = maxAppVersions.get(appOs);
+        }
+
+        List<String> userLanguages = context.getLanguages();
+        boolean[] languageMatches = new boolean[languages.size()];
+        int[] languageRanks = new int[languages.size()];
+        for (int j = 0; j < languages.size(); j++) {
+            String language = languages.get(j);
+            for (String userLanguage : userLanguages) {
+                if (language.equalsIgnoreCase(userLanguage)) {
+                    languageMatches[j] = true;
+                    break;
+                }
+            }
+            languageRanks[j] = userLanguages.indexOf(language);
+        }
+
+        int[] matches = new int[candidates.size()];
+        int matchCount = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            if ((minVersions != null && appVersion < minVersions[i]) ||
+                (maxVersions != null && appVersion > maxVersions[i])) {
+                continue;
+            }
+            if (!containsAll(userGroups, allOfGroups, i * dataGroupWords) ||
+                intersects(userGroups, noneOfGroups, i * dataGroupWords)) {
+                continue;
+            }
+            if (!containsAll(userStudyIds, allOfStudyIds, i * studyIdWords) ||
+                intersects(userStudyIds, noneOfStudyIds, i * studyIdWords)) {
+                continue;
+            }
+            int languageIndex = languageIndexes[i];
+            if (languageIndex >= 0 && !languageMatches[languageIndex]) {
+                continue;
+            }
+            matches[matchCount++] = i;
+        }
+
+        List<T> results = new ArrayList<>(matchCount);
+        for (int j = 0; j < matchCount; j++) {
+            results.add(candidates.get(matches[j]));
+        }
+        // Candidates without a language rank ahead of all others (as in List.indexOf(null)), and the sort is stable.
+        if (matchCount > 1 && (!languages.isEmpty() || secondComparator != null)) {
+            Map<T, Integer> ranks = new IdentityHashMap<>();
+            for (int j = 0; j < matchCount; j++) {
+                int languageIndex = languageIndexes[matches[j]];
+                ranks.put(candidates.get(matches[j]), (languageIndex < 0) ? -1 : languageRanks[languageIndex]);
+            }
+            Comparator<T> comparator = Comparator.comparingInt(ranks::get);
+            if (secondComparator != null) {
+                comparator = comparator.thenComparing(secondComparator);
+            }
+            results.sort(comparator);
+        }
+        return results;
+    }
+
+    private static void numberAll(Map<String, Integer> bits, Set<String> values) {
+        for (String value : values) {
+            bits.putIfAbsent(value, bits.size());
+        }
+    }
+
+    private int[] versions(Map<String, int[]> versionsByOs, String osName, int noLimit) {
+        return versionsByOs.computeIfAbsent(osName, key -> {
+            int[] versions = new int[candidates.size()];
+            Arrays.fill(versions, noLimit);
+            return versions;
+        });
+    }
+
+    private static String[] values(Map<String, Integer> bits) {
+        String[] values = new String[bits.size()];
+        for (Map.Entry<String, Integer> entry : bits.entrySet()) {
+            values[entry.getValue()] = entry.getKey();
+        }
+        return values;
+    }
+
+    private static int words(int bitCount) {
+        return (bitCount + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    private static void setBits(long[] words, int offset, Map<String, Integer> bits, Set<String> values) {
+        for (String value : values) {
+            int bit = bits.get(value);
+            words[offset + bit / Long.SIZE] |= 1L << (bit % Long.SIZE);
+        }
+    }
+
+    // Values that no criteria mention can't change whether a criteria matches, so they aren't included. Whichever
+    // of the user's values or the compiled values is the smaller set is the one that is iterated.
+    private static long[] userBits(Map<String, Integer> bits, String[] compiledValues, int wordCount,
+            Set<String> values) {
+        long[] words = new long[wordCount];
+        if (compiledValues.length <= values.size()) {
+            for (int bit = 0; bit < compiledValues.length; bit++) {
+                if (values.contains(compiledValues[bit])) {
+                    words[bit / Long.SIZE] |= 1L << (bit % Long.SIZE);
+                }
+            }
+        } else {
+            for (String value : values) {
+                Integer bit = bits.get(value);
+                if (bit != null) {
+                    words[bit / Long.SIZE] |= 1L << (bit % Long.SIZE);
+                }
+            }
+        }
+        return words;
+    }
+
+    private static boolean containsAll(long[] user, long[] required, int offset) {
+        for (int w = 0; w < user.length; w++) {
+            if ((required[offset + w] & ~user[w]) != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean intersects(long[] user, long[] prohibited, int offset) {
+        for (int w = 0; w < user.length; w++) {
+            if ((prohibited[offset + w] & user[w]) != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -27,6 +27,10 @@ import com.google.common.collect.Sets;
  */
 public class CriteriaUtils {
     
+    /**
+     * Filter the entities by their criteria, sorted by the user's language preferences and then by the optional second
+     * comparator. To match the same entities against many users, compile them with {@link CriteriaMatcher}.
+     */
     public static <T extends HasCriteria> List<T> filterByCriteria(
             CriteriaContext context, Collection<T> coll, Comparator<T> secondComparator) {
         checkNotNull(context);
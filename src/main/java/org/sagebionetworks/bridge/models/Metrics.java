@@ -121,6 +121,26 @@ public class Metrics {
         json.put("upload_size", uploadSize);
     }
 
+    /** Total uncompressed size of the files in the upload, used for upload validation metrics. */
+    public void setUploadUnzippedSize(long uploadUnzippedSize) {
+        json.put("upload_unzipped_size", uploadUnzippedSize);
+    }
+
+    /** Upload validation status, used for upload validation metrics. */
+    public void setUploadStatus(String uploadStatus) {
+        put("upload_status", uploadStatus);
+    }
+
+    /** Elapsed time of one upload validation handler, used for upload validation metrics. */
+    public void setHandlerElapsedMillis(String handlerName, long elapsedMillis) {
+        checkArgument(isNotBlank(handlerName), "Handler name cannot be blank.");
+        ObjectNode handlerJson = (ObjectNode) json.get("handler_elapsed_millis");
+        if (handlerJson == null) {
+            handlerJson = json.putObject("handler_elapsed_millis");
+        }
+        handlerJson.put(handlerName, elapsedMillis);
+    }
+
     /**
      * Set the query params from the url request to json.
      *
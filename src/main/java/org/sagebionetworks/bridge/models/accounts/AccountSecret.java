@@ -29,4 +29,11 @@ public interface AccountSecret {
     
     DateTime getCreatedOn();
     void setCreatedOn(DateTime createdOn);
+    
+    /**
+     * A short digest of the plaintext, used to find the secret that a plaintext could match without hashing it 
+     * against every secret. Null for secrets created before lookup keys were added.
+     */
+    String getLookupKey();
+    void setLookupKey(String lookupKey);
 }
@@ -0,0 +1,79 @@
+package org.sagebionetworks.bridge.models.schedules;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+
+import org.sagebionetworks.bridge.models.CriteriaMatcher;
+
+/**
+ * An app's active schedule plans, compiled for scheduling activities. The plans are loaded with their criteria, and
+ * the scheduler for each of their schedules is created (parsing any cron expression) and the schedule criteria of each
+ * criteria-based plan are compiled into a matcher when the snapshot is compiled, rather than on every request. A
+ * snapshot is shared by all the requests in an app until one of its plans changes, so neither the plans nor their
+ * schedules may be modified.
+ */
+public final class SchedulePlanSnapshot {
+
+    private final List<SchedulePlan> plans;
+    // Schedules are compared by identity; equals() compares every field of the schedule.
+    private final Map<Schedule, ActivityScheduler> schedulers;
+    private final Map<SchedulePlan, CriteriaMatcher<ScheduleCriteria>> matchers;
+
+    private SchedulePlanSnapshot(List<SchedulePlan> plans, Map<Schedule, ActivityScheduler> schedulers,
+            Map<SchedulePlan, CriteriaMatcher<ScheduleCriteria>> matchers) {
+        this.plans = plans;
+        this.schedulers = schedulers;
+        this.matchers = matchers;
+    }
+
+    public static SchedulePlanSnapshot compile(List<SchedulePlan> plans) {
+        checkNotNull(plans);
+
+        Map<Schedule, ActivityScheduler> schedulers = new IdentityHashMap<>();
+        Map<SchedulePlan, CriteriaMatcher<ScheduleCriteria>> matchers = new IdentityHashMap<>();
+        for (SchedulePlan plan : plans) {
+            if (plan.getStrategy() instanceof CriteriaScheduleStrategy) {
+                CriteriaScheduleStrategy strategy = (CriteriaScheduleStrategy) plan.getStrategy();
+                matchers.put(plan, CriteriaMatcher.compile(strategy.getScheduleCriteria(), null));
+            }
+            for (Schedule schedule : plan.getStrategy().getAllPossibleSchedules()) {
+                if (schedule != null) {
+                    schedulers.put(schedule, schedule.getScheduler());
+                }
+            }
+        }
+        return new SchedulePlanSnapshot(ImmutableList.copyOf(plans), schedulers, matchers);
+    }
+
+    public List<SchedulePlan> getPlans() {
+        return plans;
+    }
+
+    /**
+     * The schedule of a plan in this snapshot that applies to the user, or null if none applies. Criteria-based plans
+     * are matched with their compiled matcher, and return the same schedule as
+     * {@link CriteriaScheduleStrategy#getScheduleForUser}.
+     */
+    public Schedule getScheduleForUser(SchedulePlan plan, ScheduleContext context) {
+        checkNotNull(plan);
+        checkNotNull(context);
+        CriteriaMatcher<ScheduleCriteria> matcher = matchers.get(plan);
+        if (matcher == null) {
+            return plan.getStrategy().getScheduleForUser(plan, context);
+        }
+        List<ScheduleCriteria> found = matcher.filter(context.getCriteriaContext());
+        return (found.isEmpty()) ? null : found.get(0).getSchedule();
+    }
+
+    /** The compiled scheduler for a schedule of one of the plans in this snapshot. */
+    public ActivityScheduler getScheduler(Schedule schedule) {
+        checkNotNull(schedule);
+        ActivityScheduler scheduler = schedulers.get(schedule);
+        return (scheduler != null) ? scheduler : schedule.getScheduler();
+    }
+}
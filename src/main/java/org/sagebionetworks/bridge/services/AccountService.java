@@ -27,6 +27,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.crypto.CredentialVerifier;
 import org.sagebionetworks.bridge.dao.AccountDao;
 import org.sagebionetworks.bridge.dao.AccountSecretDao;
 import org.sagebionetworks.bridge.exceptions.AccountDisabledException;
@@ -53,6 +54,7 @@ public class AccountService {
     
     private AccountDao accountDao;
     private AccountSecretDao accountSecretDao;
+    private CredentialVerifier credentialVerifier;
 
     @Autowired
     public final void setAccountDao(AccountDao accountDao) {
@@ -64,6 +66,11 @@ public class AccountService {
         this.accountSecretDao = accountSecretDao;
     }
     
+    @Autowired
+    public final void setCredentialVerifier(CredentialVerifier credentialVerifier) {
+        this.credentialVerifier = credentialVerifier;
+    }
+    
     // Provided to override in tests
     protected String generateGUID() {
         return BridgeUtils.generateGuid();
@@ -341,14 +348,17 @@ public class AccountService {
             LOG.warn("Account " + account.getId() + " is enabled but has no password.");
             throw new EntityNotFoundException(Account.class);
         }
-        try {
-            if (!account.getPasswordAlgorithm().checkHash(account.getPasswordHash(), plaintext)) {
-                // To prevent enumeration attacks, if the credential doesn't match, throw 404 account not found.
-                throw new EntityNotFoundException(Account.class);
+        boolean matches = credentialVerifier.verify(() -> {
+            try {
+                return account.getPasswordAlgorithm().checkHash(account.getPasswordHash(), plaintext);
+            } catch (InvalidKeyException | InvalidKeySpecException | NoSuchAlgorithmException ex) {
+                throw new BridgeServiceException("Error validating password: " + ex.getMessage(), ex);
             }
-        } catch (InvalidKeyException | InvalidKeySpecException | NoSuchAlgorithmException ex) {
-            throw new BridgeServiceException("Error validating password: " + ex.getMessage(), ex);
-        }        
+        });
+        if (!matches) {
+            // To prevent enumeration attacks, if the credential doesn't match, throw 404 account not found.
+            throw new EntityNotFoundException(Account.class);
+        }
     }
     
     protected String hashCredential(PasswordAlgorithm algorithm, String type, String value) {
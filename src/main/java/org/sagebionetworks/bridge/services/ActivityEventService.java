@@ -6,6 +6,8 @@ import static org.sagebionetworks.bridge.BridgeUtils.COMMA_JOINER;
 import java.util.List;
 import java.util.Map;
 
+import javax.annotation.Resource;
+
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.ImmutableMap.Builder;
@@ -13,9 +15,13 @@ import com.google.common.collect.ImmutableMap.Builder;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Period;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.cache.ActivityEventMapCache;
+import org.sagebionetworks.bridge.cache.GeneratedScheduleCache;
 import org.sagebionetworks.bridge.dao.ActivityEventDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoActivityEvent;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
@@ -31,10 +37,13 @@ import org.sagebionetworks.bridge.models.surveys.SurveyAnswer;
 
 @Component
 public class ActivityEventService {
+    private static final Logger LOG = LoggerFactory.getLogger(ActivityEventService.class);
 
     private ActivityEventDao activityEventDao;
     private ParticipantService participantService;
     private AppService appService;
+    private GeneratedScheduleCache generatedScheduleCache;
+    private ActivityEventMapCache activityEventMapCache;
     
     @Autowired
     final void setActivityEventDao(ActivityEventDao activityEventDao) {
@@ -51,6 +60,16 @@ public class ActivityEventService {
         this.appService = appService;
     }
     
+    @Resource(name = "generatedScheduleCache")
+    final void setGeneratedScheduleCache(GeneratedScheduleCache generatedScheduleCache) {
+        this.generatedScheduleCache = generatedScheduleCache;
+    }
+    
+    @Resource(name = "activityEventMapCache")
+    final void setActivityEventMapCache(ActivityEventMapCache activityEventMapCache) {
+        this.activityEventMapCache = activityEventMapCache;
+    }
+    
     /**
      * Publishes a custom event. Note that this automatically prepends "custom:" to the event key to form the event ID
      * (eg, event key "studyBurstStart" becomes event ID "custom:studyBurstStart"). Also note that the event key must
@@ -71,7 +90,7 @@ public class ActivityEventService {
                 .withObjectId(eventKey)
                 .withTimestamp(timestamp).build();
         
-        if (activityEventDao.publishEvent(event)) {
+        if (publishEvent(event)) {
             // Create automatic events, as defined in the app
             createAutomaticCustomEvents(app, healthCode, event);
         }
@@ -92,7 +111,7 @@ public class ActivityEventService {
             .withTimestamp(enrollment)
             .withObjectType(ActivityEventObjectType.ENROLLMENT).build();
         
-        if (activityEventDao.publishEvent(event)) {
+        if (publishEvent(event)) {
             // Create automatic events, as defined in the app
             createAutomaticCustomEvents(app, healthCode, event);
         }
@@ -107,7 +126,7 @@ public class ActivityEventService {
             .withTimestamp(timestamp)
             .withObjectType(ActivityEventObjectType.ACTIVITIES_RETRIEVED).build();
         
-        if (activityEventDao.publishEvent(event)) {
+        if (publishEvent(event)) {
             // Create automatic events, as defined in the app
             createAutomaticCustomEvents(app, healthCode, event);
         }
@@ -124,7 +143,7 @@ public class ActivityEventService {
             .withObjectId(answer.getQuestionGuid())
             .withEventType(ActivityEventType.ANSWERED)
             .withAnswerValue(COMMA_JOINER.join(answer.getAnswers())).build();
-        activityEventDao.publishEvent(event);
+        publishEvent(event);
     }
     
     public void publishActivityFinishedEvent(ScheduledActivity schActivity) {
@@ -143,7 +162,7 @@ public class ActivityEventService {
                 .withTimestamp(schActivity.getFinishedOn())
                 .build();
 
-            activityEventDao.publishEvent(event);
+            publishEvent(event);
         }
     }
     
@@ -154,7 +173,7 @@ public class ActivityEventService {
                 .withHealthCode(healthCode)
                 .withTimestamp(createdOn)
                 .withObjectType(ActivityEventObjectType.CREATED_ON).build();
-        activityEventDao.publishEvent(event);
+        publishEvent(event);
     }
     
     /**
@@ -165,7 +184,7 @@ public class ActivityEventService {
      */
     public void publishActivityEvent(ActivityEvent event) {
         checkNotNull(event);
-        activityEventDao.publishEvent(event);
+        publishEvent(event);
     }
     
     /**
@@ -173,7 +192,8 @@ public class ActivityEventService {
     */
     public Map<String, DateTime> getActivityEventMap(String appId, String healthCode) {
         checkNotNull(healthCode);
-        Map<String, DateTime> activityMap = activityEventDao.getActivityEventMap(healthCode);
+        Map<String, DateTime> activityMap = activityEventMapCache.getActivityEventMap(healthCode,
+                () -> activityEventDao.getActivityEventMap(healthCode));
         Builder<String, DateTime> builder = ImmutableMap.<String, DateTime>builder();
         
         DateTime activitiesRetrieved = activityMap.get(ActivityEventObjectType.ACTIVITIES_RETRIEVED.name().toLowerCase());
@@ -218,9 +238,43 @@ public class ActivityEventService {
     public void deleteActivityEvents(String healthCode) {
         checkNotNull(healthCode);
         activityEventDao.deleteActivityEvents(healthCode);
+        activityEventMapCache.removeActivityEventMap(healthCode);
+        generatedScheduleCache.invalidateParticipant(healthCode);
+    }
+
+    /**
+     * Publish the event, write it to the participant's cached events, and drop the participant's generated 
+     * schedules, which were calculated from the old events. Returns true if the event was published.
+     */
+    private boolean publishEvent(ActivityEvent event) {
+        boolean published = activityEventDao.publishEvent(event);
+        if (published) {
+            updateCachedEvent(event);
+            generatedScheduleCache.invalidateParticipant(event.getHealthCode());
+        }
+        return published;
+    }
+
+    /**
+     * The event is already saved in DynamoDB, so a Redis error shouldn't fail the call. If the cached map can't be
+     * updated, drop it so the next read loads the events from DynamoDB.
+     */
+    private void updateCachedEvent(ActivityEvent event) {
+        try {
+            activityEventMapCache.updateActivityEvent(event);
+        } catch (RuntimeException e) {
+            LOG.warn("Error updating cached activity events, removing them from the cache", e);
+            try {
+                activityEventMapCache.removeActivityEventMap(event.getHealthCode());
+            } catch (RuntimeException removeException) {
+                LOG.error("Error removing cached activity events, cache may be stale until it expires",
+                        removeException);
+            }
+        }
     }
 
     private void createAutomaticCustomEvents(App app, String healthCode, ActivityEvent event) {
+        List<ActivityEvent> automaticEvents = Lists.newArrayList();
         for (Map.Entry<String, String> oneAutomaticEvent : app.getAutomaticCustomEvents().entrySet()) {
             String automaticEventKey = oneAutomaticEvent.getKey(); // new event key
             Tuple<String> autoEventSpec = BridgeUtils.parseAutoEventValue(oneAutomaticEvent.getValue()); // originEventId:Period
@@ -237,8 +291,17 @@ public class ActivityEventService {
                         .withObjectType(ActivityEventObjectType.CUSTOM)
                         .withObjectId(automaticEventKey)
                         .withTimestamp(automaticEventTime).build();
-                activityEventDao.publishEvent(automaticEvent);
+                automaticEvents.add(automaticEvent);
+            }
+        }
+        if (!automaticEvents.isEmpty()) {
+            List<ActivityEvent> publishedEvents = activityEventDao.publishEvents(automaticEvents);
+            for (ActivityEvent publishedEvent : publishedEvents) {
+                updateCachedEvent(publishedEvent);
             }
-        }        
+            if (!publishedEvents.isEmpty()) {
+                generatedScheduleCache.invalidateParticipant(healthCode);
+            }
+        }
     }
 }
@@ -3,11 +3,14 @@ package org.sagebionetworks.bridge.services;
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.Resource;
 
 import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.NearCache;
+import org.sagebionetworks.bridge.cache.NearCache.NamespaceStats;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.springframework.stereotype.Component;
 
@@ -20,11 +23,18 @@ import com.google.common.collect.Sets;
 public class CacheAdminService {
     
     private JedisPool jedisPool;
+    
+    private NearCache nearCache;
 
     @Resource(name = "jedisPool")
     public void setJedisPool(JedisPool jedisPool) {
         this.jedisPool = jedisPool;
     }
+    
+    @Resource(name = "nearCache")
+    public void setNearCache(NearCache nearCache) {
+        this.nearCache = nearCache;
+    }
 
     /**
      * Returns all keys in the cache that are not user session keys.
@@ -55,10 +65,18 @@ public class CacheAdminService {
             try (Jedis jedis = jedisPool.getResource()) {
                 removed = jedis.del(cacheKey);
             }
+            nearCache.invalidate(cacheKey);
         }
         if (removed == null || removed == 0) {
             throw new BridgeServiceException("Item could not be removed from cache: does key '"+cacheKey+"' exist?"); 
         }
     }
     
+    /**
+     * Hit, miss, and eviction counts of the in-process near cache on this node, by type of cache key.
+     */
+    public Map<String, NamespaceStats> getNearCacheStats() {
+        return nearCache.getStats();
+    }
+    
 }
@@ -1,11 +1,13 @@
 package org.sagebionetworks.bridge.services;
 
 import java.util.List;
+import javax.annotation.Resource;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import org.sagebionetworks.bridge.cache.ReferenceResolutionCache;
 import org.sagebionetworks.bridge.dao.CompoundActivityDefinitionDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.ConstraintViolationException;
@@ -24,6 +26,8 @@ public class CompoundActivityDefinitionService {
     private SchedulePlanService schedulePlanService;
     
     private CompoundActivityDefinitionDao compoundActivityDefDao;
+    
+    private ReferenceResolutionCache referenceResolutionCache;
 
     @Autowired
     public final void setSchedulePlanService(SchedulePlanService schedulePlanService) {
@@ -35,6 +39,12 @@ public class CompoundActivityDefinitionService {
     public final void setCompoundActivityDefDao(CompoundActivityDefinitionDao compoundActivityDefDao) {
         this.compoundActivityDefDao = compoundActivityDefDao;
     }
+    
+    /** Cache of resolved compound activities, which is invalidated when a definition changes. */
+    @Resource(name = "referenceResolutionCache")
+    public final void setReferenceResolutionCache(ReferenceResolutionCache referenceResolutionCache) {
+        this.referenceResolutionCache = referenceResolutionCache;
+    }
 
     /** Creates a compound activity definition. */
     public CompoundActivityDefinition createCompoundActivityDefinition(String appId,
@@ -46,7 +56,10 @@ public class CompoundActivityDefinitionService {
         Validate.entityThrowingException(CompoundActivityDefinitionValidator.INSTANCE, compoundActivityDefinition);
 
         // call through to dao
-        return compoundActivityDefDao.createCompoundActivityDefinition(compoundActivityDefinition);
+        CompoundActivityDefinition created = compoundActivityDefDao.createCompoundActivityDefinition(
+                compoundActivityDefinition);
+        referenceResolutionCache.invalidateCompoundActivity(appId, compoundActivityDefinition.getTaskId());
+        return created;
     }
 
     /** Deletes a compound activity definition. */
@@ -59,6 +72,7 @@ public class CompoundActivityDefinitionService {
         
         // call through to dao
         compoundActivityDefDao.deleteCompoundActivityDefinition(appId, taskId);
+        referenceResolutionCache.invalidateCompoundActivity(appId, taskId);
     }
 
     /** Deletes all compound activity definitions in the specified app. Used when we physically delete an app. */
@@ -67,6 +81,7 @@ public class CompoundActivityDefinitionService {
 
         // call through to dao
         compoundActivityDefDao.deleteAllCompoundActivityDefinitionsInApp(appId);
+        referenceResolutionCache.invalidateApp(appId);
     }
 
     /** List all compound activity definitions in an app. */
@@ -105,7 +120,10 @@ public class CompoundActivityDefinitionService {
         Validate.entityThrowingException(CompoundActivityDefinitionValidator.INSTANCE, compoundActivityDefinition);
 
         // call through to dao
-        return compoundActivityDefDao.updateCompoundActivityDefinition(compoundActivityDefinition);
+        CompoundActivityDefinition updated = compoundActivityDefDao.updateCompoundActivityDefinition(
+                compoundActivityDefinition);
+        referenceResolutionCache.invalidateCompoundActivity(appId, taskId);
+        return updated;
     }
     
     private void checkConstraintViolations(String appId, String taskId) {
@@ -3,6 +3,7 @@ package org.sagebionetworks.bridge.services;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.Boolean.TRUE;
 import static java.nio.charset.Charset.defaultCharset;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.util.Map;
 
@@ -22,6 +23,7 @@ import org.sagebionetworks.bridge.models.subpopulations.ConsentSignature;
 import org.xhtmlrenderer.pdf.ITextRenderer;
 
 import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.google.common.hash.Hashing;
 import com.google.common.net.MediaType;
 import com.lowagie.text.DocumentException;
 
@@ -37,46 +39,63 @@ public final class ConsentPdf {
     private final StudyParticipant signer;
     private final ConsentSignature consentSignature;
     private final SharingScope sharingScope;
-    private final String studyConsentAgreement;
-    private final String xmlTemplateWithSignatureBlock;
+    private final ConsentTemplate consentTemplate;
     private String formattedConsentDocument;
+    private byte[] bytes;
 
     public ConsentPdf(App app, StudyParticipant signer, ConsentSignature consentSignature,
             SharingScope sharingScope, String studyConsentAgreement, String xmlTemplateWithSignatureBlock) {
+        this(app, signer, consentSignature, sharingScope,
+                ConsentTemplate.compile(xmlTemplateWithSignatureBlock, studyConsentAgreement));
+    }
+    
+    public ConsentPdf(App app, StudyParticipant signer, ConsentSignature consentSignature,
+            SharingScope sharingScope, ConsentTemplate consentTemplate) {
         this.app = checkNotNull(app);
         this.signer = signer;
         this.consentSignature = checkNotNull(consentSignature);
         this.sharingScope = checkNotNull(sharingScope);
-        this.studyConsentAgreement = checkNotNull(studyConsentAgreement);
-        this.xmlTemplateWithSignatureBlock = checkNotNull(xmlTemplateWithSignatureBlock);
+        this.consentTemplate = checkNotNull(consentTemplate);
     }
     
     /**
-     * Get the final, formatted string we supply to the PDF renderer. For unit tests. 
+     * Get the final, formatted string we supply to the PDF renderer. 
      */
     protected String getFormattedConsentDocument() { 
         if (formattedConsentDocument == null) {
-            getBytes();
+            formattedConsentDocument = formatConsentDocument();
         }
         return formattedConsentDocument;
     }
+    
+    /**
+     * A SHA-256 digest of the formatted document. PDFs with the same digest render to the same bytes, so this is 
+     * used to look up PDFs that have already been rendered.
+     */
+    public String getContentHash() {
+        return Hashing.sha256().hashString(getFormattedConsentDocument(), UTF_8).toString();
+    }
 
+    /** Render the PDF. It is only rendered the first time this is called. */
     public byte[] getBytes() {
+        if (bytes == null) {
+            bytes = createPdf(getFormattedConsentDocument());
+        }
+        return bytes;
+    }
+
+    private String formatConsentDocument() {
         final String consentDoc = createSignedDocument();
 
         String imageMimeType = consentSignature.getImageMimeType();
         String imageData = consentSignature.getImageData();
         boolean validConsentSigImage = isImageMimeType(imageMimeType) && isBase64(imageData);
 
-        // Save this final non-binary output so we can test it is correct.
-        formattedConsentDocument = consentDoc;
         if (validConsentSigImage) {
             // Embed the signature image
-            formattedConsentDocument = consentDoc.replace("cid:consentSignature",
-                    "data:" + imageMimeType + ";base64," + imageData);
+            return consentDoc.replace("cid:consentSignature", "data:" + imageMimeType + ";base64," + imageData);
         }
-
-        return createPdf(formattedConsentDocument);
+        return consentDoc;
     }
 
     private byte[] createPdf(final String consentDoc) {
@@ -129,10 +148,7 @@ public final class ConsentPdf {
         map.put("participant.contactInfo", contactInfo);
         map.put("participant.contactLabel", contactLabel);
         map.put("participant.sharing", sharingLabel);
-        String resolvedStudyConsentAgreement = BridgeUtils.resolveTemplate(studyConsentAgreement, map);
-        
-        map.put("consent.body", resolvedStudyConsentAgreement);
-        return BridgeUtils.resolveTemplate(xmlTemplateWithSignatureBlock, map);
+        return consentTemplate.resolve(map);
     }
 
     // Helper method to check if the given string is a valid Base64 string. Returns false for null or blank strings.
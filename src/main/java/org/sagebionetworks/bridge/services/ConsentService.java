@@ -11,7 +11,6 @@ import static org.sagebionetworks.bridge.BridgeConstants.SIGNED_CONSENT_DOWNLOAD
 
 import java.io.IOException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -19,10 +18,15 @@ import java.util.Set;
 
 import javax.annotation.Resource;
 
-import org.apache.commons.io.IOUtils;
 import org.joda.time.DateTime;
 import org.sagebionetworks.bridge.BridgeConstants;
+import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.SecureTokenGenerator;
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncHandler;
+import org.sagebionetworks.bridge.async.AsyncLane;
+import org.sagebionetworks.bridge.cache.ConsentPdfCache;
 import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
@@ -40,7 +44,6 @@ import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.apps.MimeType;
 import org.sagebionetworks.bridge.models.studies.Enrollment;
 import org.sagebionetworks.bridge.models.subpopulations.ConsentSignature;
-import org.sagebionetworks.bridge.models.subpopulations.StudyConsentView;
 import org.sagebionetworks.bridge.models.subpopulations.Subpopulation;
 import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
 import org.sagebionetworks.bridge.models.templates.TemplateRevision;
@@ -59,7 +62,6 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
@@ -78,15 +80,12 @@ public class ConsentService {
     private StudyConsentService studyConsentService;
     private ActivityEventService activityEventService;
     private SubpopulationService subpopService;
-    private String xmlTemplateWithSignatureBlock;
     private S3Helper s3Helper;
     private UrlShortenerService urlShortenerService;
     private TemplateService templateService;
+    private AsyncExecutor asyncExecutor;
+    private ConsentPdfCache consentPdfCache;
     
-    @Value("classpath:conf/app-defaults/consent-page.xhtml")
-    final void setConsentTemplate(org.springframework.core.io.Resource resource) throws IOException {
-        this.xmlTemplateWithSignatureBlock = IOUtils.toString(resource.getInputStream(), StandardCharsets.UTF_8);
-    }
     @Autowired
     final void setAccountService(AccountService accountService) {
         this.accountService = accountService;
@@ -130,6 +129,14 @@ public class ConsentService {
     final void setTemplateService(TemplateService templateService) {
         this.templateService = templateService;
     }
+    @Resource(name = "asyncExecutor")
+    final void setAsyncExecutor(AsyncExecutor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+    @Resource(name = "consentPdfCache")
+    final void setConsentPdfCache(ConsentPdfCache consentPdfCache) {
+        this.consentPdfCache = consentPdfCache;
+    }
     
     /**
      * Get the user's active consent signature (a signature that has not been withdrawn).
@@ -155,7 +162,8 @@ public class ConsentService {
      * Consent this user to research. User will be updated to reflect consent. This method will ensure the 
      * user is not already consented to this subpopulation, but it does not validate that the user is a 
      * validate member of this subpopulation (that is checked in the controller). Will optionally send 
-     * a signed copy of the consent to the user via email or phone (whichever is verified).
+     * a signed copy of the consent to the user via email or phone (whichever is verified). The signed copy is
+     * rendered and sent in the background, after the user's account has been updated.
      * 
      * @param sendSignedConsent
      *      if true, send the consent document to the user's email address
@@ -178,13 +186,15 @@ public class ConsentService {
         Validate.entityThrowingException(validator, consentSignature);
 
         Subpopulation subpop = subpopService.getSubpopulation(app.getIdentifier(), subpopGuid);
-        StudyConsentView studyConsent = studyConsentService.getActiveConsent(subpop);
+        // Throws EntityNotFoundException if the subpopulation has no published consent.
+        ConsentTemplate consentTemplate = studyConsentService.getActiveConsentTemplate(subpop);
+        long consentCreatedOn = subpop.getPublishedConsentCreatedOn();
         
         // If there's a signature to the current and active consent, user cannot consent again. They can sign
         // any other consent, including more recent consents.
         Account account = accountService.getAccount(AccountId.forId(app.getIdentifier(), participant.getId()));
         ConsentSignature active = account.getActiveConsentSignature(subpopGuid);
-        if (active != null && active.getConsentCreatedOn() == studyConsent.getCreatedOn()) {
+        if (active != null && active.getConsentCreatedOn() == consentCreatedOn) {
             throw new EntityAlreadyExistsException(ConsentSignature.class, null);
         }
 
@@ -192,7 +202,7 @@ public class ConsentService {
         // that contain this. As with all builders, order of with* calls matters here.
         ConsentSignature withConsentCreatedOnSignature = new ConsentSignature.Builder()
                 .withConsentSignature(consentSignature).withWithdrewOn(null)
-                .withConsentCreatedOn(studyConsent.getCreatedOn()).build();
+                .withConsentCreatedOn(consentCreatedOn).build();
         
         // Add consent signature to the list of signatures, save account.
         List<ConsentSignature> consentListCopy = new ArrayList<>(account.getConsentSignatureHistory(subpopGuid));
@@ -215,7 +225,7 @@ public class ConsentService {
         // Administrative actions, almost exclusively for testing, will send no consent documents
         if (sendSignedConsent) {
             ConsentPdf consentPdf = new ConsentPdf(app, participant, withConsentCreatedOnSignature, sharingScope,
-                    studyConsent.getDocumentContent(), xmlTemplateWithSignatureBlock);
+                    consentTemplate);
             
             boolean verifiedEmail = (participant.getEmail() != null
                     && Boolean.TRUE.equals(participant.getEmailVerified()));
@@ -229,22 +239,25 @@ public class ConsentService {
                 recipientEmails.add(participant.getEmail());    
             }
             addStudyConsentRecipients(app, recipientEmails);
+            BasicEmailProvider.Builder consentEmailBuilder = null;
             if (!recipientEmails.isEmpty()) {
                 TemplateRevision revision = templateService.getRevisionForUser(app, EMAIL_SIGNED_CONSENT);
                 
-                BasicEmailProvider.Builder consentEmailBuilder = new BasicEmailProvider.Builder()
+                consentEmailBuilder = new BasicEmailProvider.Builder()
                         .withApp(app)
                         .withTemplateRevision(revision)
-                        .withBinaryAttachment("consent.pdf", MimeType.PDF, consentPdf.getBytes())
                         .withType(EmailType.SIGN_CONSENT);
                 for (String recipientEmail : recipientEmails) {
                     consentEmailBuilder.withRecipientEmail(recipientEmail);
                 }
-                sendMailService.sendEmail(consentEmailBuilder.build());
             }
             // Otherwise if there's no verified email but there is a phone and we're not suppressing, send it there
+            TemplateRevision smsRevision = null;
             if (!subpop.isAutoSendConsentSuppressed() && !verifiedEmail && verifiedPhone) {
-                sendConsentViaSMS(app, subpop, participant, consentPdf);    
+                smsRevision = templateService.getRevisionForUser(app, SMS_SIGNED_CONSENT);
+            }
+            if (consentEmailBuilder != null || smsRevision != null) {
+                deliverConsent(app, participant, consentPdf, consentEmailBuilder, smsRevision);
             }
         }
     }
@@ -391,35 +404,90 @@ public class ConsentService {
         ConsentSignature consentSignature = getConsentSignature(app, subpopGuid, participant.getId());
         SharingScope sharingScope = participant.getSharingScope();
         Subpopulation subpop = subpopService.getSubpopulation(app.getIdentifier(), subpopGuid);
-        String studyConsentDocument = studyConsentService.getActiveConsent(subpop).getDocumentContent();
+        ConsentTemplate consentTemplate = studyConsentService.getActiveConsentTemplate(subpop);
 
         boolean verifiedEmail = (participant.getEmail() != null
                 && Boolean.TRUE.equals(participant.getEmailVerified()));
         boolean verifiedPhone = (participant.getPhone() != null
                 && Boolean.TRUE.equals(participant.getPhoneVerified()));
         
-        ConsentPdf consentPdf = new ConsentPdf(app, participant, consentSignature, sharingScope, studyConsentDocument,
-                xmlTemplateWithSignatureBlock);
+        ConsentPdf consentPdf = new ConsentPdf(app, participant, consentSignature, sharingScope, consentTemplate);
         
         if (verifiedEmail) {
             TemplateRevision revision = templateService.getRevisionForUser(app, EMAIL_SIGNED_CONSENT);
             
-            BasicEmailProvider provider = new BasicEmailProvider.Builder()
+            BasicEmailProvider.Builder consentEmailBuilder = new BasicEmailProvider.Builder()
                     .withApp(app)
                     .withTemplateRevision(revision)
-                    .withBinaryAttachment("consent.pdf", MimeType.PDF, consentPdf.getBytes())
                     .withRecipientEmail(participant.getEmail())
-                    .withType(EmailType.RESEND_CONSENT).build();
-            sendMailService.sendEmail(provider);
+                    .withType(EmailType.RESEND_CONSENT);
+            deliverConsent(app, participant, consentPdf, consentEmailBuilder, null);
         } else if (verifiedPhone) {
-            sendConsentViaSMS(app, subpop, participant, consentPdf);
+            TemplateRevision smsRevision = templateService.getRevisionForUser(app, SMS_SIGNED_CONSENT);
+            deliverConsent(app, participant, consentPdf, null, smsRevision);
         } else {
             throw new BadRequestException("Participant does not have a valid email address or phone number");
         }
     }
     
-    private void sendConsentViaSMS(App app, Subpopulation subpop, StudyParticipant participant,
-            ConsentPdf consentPdf) {
+    /**
+     * Render the consent PDF and send it on the CONSENT_DELIVERY lane, so the caller doesn't wait for it to render.
+     * The PDF is rendered once for all the channels it's sent to, and a PDF that was rendered recently from the same
+     * signed document is reused. The email builder or the SMS template revision may be null if the consent isn't sent
+     * to that channel.
+     */
+    private void deliverConsent(App app, StudyParticipant participant, ConsentPdf consentPdf,
+            BasicEmailProvider.Builder consentEmailBuilder, TemplateRevision smsRevision) {
+        ConsentDeliveryHandler handler = new ConsentDeliveryHandler(app, participant, consentPdf,
+                consentEmailBuilder, smsRevision, BridgeUtils.getRequestContext());
+        asyncExecutor.execute(AsyncLane.CONSENT_DELIVERY, app.getIdentifier(), handler);
+    }
+    
+    /**
+     * Async handler that renders a consent PDF and sends it by email and/or SMS. Runs with the request context of the
+     * request that signed or resent the consent. Package-scoped for unit tests.
+     */
+    class ConsentDeliveryHandler extends AsyncHandler {
+        private final App app;
+        private final StudyParticipant participant;
+        private final ConsentPdf consentPdf;
+        private final BasicEmailProvider.Builder consentEmailBuilder;
+        private final TemplateRevision smsRevision;
+        private final RequestContext requestContext;
+        
+        ConsentDeliveryHandler(App app, StudyParticipant participant, ConsentPdf consentPdf,
+                BasicEmailProvider.Builder consentEmailBuilder, TemplateRevision smsRevision,
+                RequestContext requestContext) {
+            this.app = app;
+            this.participant = participant;
+            this.consentPdf = consentPdf;
+            this.consentEmailBuilder = consentEmailBuilder;
+            this.smsRevision = smsRevision;
+            this.requestContext = requestContext;
+        }
+        
+        @Override
+        protected void handle() {
+            // With CALLER_RUNS this may run on the request thread, so restore its context afterwards.
+            RequestContext previousContext = BridgeUtils.getRequestContext();
+            BridgeUtils.setRequestContext(requestContext);
+            try {
+                byte[] pdfBytes = consentPdfCache.getBytes(consentPdf.getContentHash(), consentPdf::getBytes);
+                if (consentEmailBuilder != null) {
+                    consentEmailBuilder.withBinaryAttachment("consent.pdf", MimeType.PDF, pdfBytes);
+                    sendMailService.sendEmail(consentEmailBuilder.build());
+                }
+                if (smsRevision != null) {
+                    sendConsentViaSMS(app, participant, pdfBytes, smsRevision);
+                }
+            } finally {
+                BridgeUtils.setRequestContext(previousContext);
+            }
+        }
+    }
+    
+    private void sendConsentViaSMS(App app, StudyParticipant participant, byte[] pdfBytes,
+            TemplateRevision revision) {
         String shortUrl;
         try {
             ObjectMetadata metadata = new ObjectMetadata();
@@ -427,13 +495,12 @@ public class ConsentService {
             
             String fileName = getSignedConsentUrl();
             DateTime expiresOn = getDownloadExpiration();
-            s3Helper.writeBytesToS3(USERSIGNED_CONSENTS_BUCKET, fileName, consentPdf.getBytes(), metadata);
+            s3Helper.writeBytesToS3(USERSIGNED_CONSENTS_BUCKET, fileName, pdfBytes, metadata);
             URL url = s3Helper.generatePresignedUrl(USERSIGNED_CONSENTS_BUCKET, fileName, expiresOn, HttpMethod.GET);
             shortUrl = urlShortenerService.shortenUrl(url.toString(), SIGNED_CONSENT_DOWNLOAD_EXPIRE_IN_SECONDS);
         } catch(IOException e) {
             throw new BridgeServiceException(e);
         }
-        TemplateRevision revision = templateService.getRevisionForUser(app, SMS_SIGNED_CONSENT);
 
         SmsMessageProvider provider = new SmsMessageProvider.Builder()
                 .withApp(app)
@@ -0,0 +1,71 @@
+package org.sagebionetworks.bridge.services;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A consent document, assembled into the full page template and split into its literal text and its
+ * <code>${variableName}</code> references. A study consent revision can't be changed once it is saved, so it is
+ * compiled once and each signature only has to fill in the variables. Resolving the template gives the same result as
+ * resolving the consent body and then the page with {@link org.sagebionetworks.bridge.BridgeUtils#resolveTemplate},
+ * except that values are never themselves searched for variables.
+ */
+public final class ConsentTemplate {
+
+    private static final String CONSENT_BODY_VAR = "${consent.body}";
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{([^}]+)\\}");
+
+    // Alternating literal text and variable names, starting and ending with literal text (which may be empty).
+    private final List<String> parts;
+    private final int length;
+
+    private ConsentTemplate(List<String> parts, int length) {
+        this.parts = parts;
+        this.length = length;
+    }
+
+    /** Compile the consent body into the page template, in place of the <code>${consent.body}</code> variable. */
+    public static ConsentTemplate compile(String pageTemplate, String consentBody) {
+        checkNotNull(pageTemplate);
+        checkNotNull(consentBody);
+
+        String document = pageTemplate.replace(CONSENT_BODY_VAR, consentBody);
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        Matcher matcher = VARIABLE_PATTERN.matcher(document);
+        int literalStart = 0;
+        while (matcher.find()) {
+            builder.add(document.substring(literalStart, matcher.start()));
+            builder.add(matcher.group(1));
+            literalStart = matcher.end();
+        }
+        builder.add(document.substring(literalStart));
+        return new ConsentTemplate(builder.build(), document.length());
+    }
+
+    /** Fill in the variables. Variables that have no value are left in the document as is. */
+    public String resolve(Map<String, String> values) {
+        checkNotNull(values);
+
+        StringBuilder sb = new StringBuilder(length + 256);
+        for (int i = 0; i < parts.size(); i++) {
+            String part = parts.get(i);
+            if (i % 2 == 0) {
+                sb.append(part);
+            } else {
+                String value = values.get(part);
+                if (value != null) {
+                    sb.append(value);
+                } else {
+                    sb.append("${").append(part).append("}");
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -5,7 +5,7 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.annotation.Resource;
 
@@ -21,7 +21,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import org.sagebionetworks.bridge.async.AsyncExecutor;
 import org.sagebionetworks.bridge.async.AsyncHandler;
+import org.sagebionetworks.bridge.async.AsyncLane;
 import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.cache.CacheKey;
 import org.sagebionetworks.bridge.config.BridgeConfig;
@@ -50,7 +52,7 @@ public class EmailVerificationService {
     private String notificationTopicArn;
 
     // dependent services
-    private ExecutorService asyncExecutorService;
+    private AsyncExecutor asyncExecutor;
     private AmazonSimpleEmailServiceClient sesClient;
     private CacheProvider cacheProvider;
 
@@ -61,9 +63,9 @@ public class EmailVerificationService {
     private int maxSesTries = 5;
 
     /** Async thread pool. This is configured by Spring. */
-    @Resource(name = "asyncExecutorService")
-    public final void setAsyncExecutorService(ExecutorService asyncExecutorService) {
-        this.asyncExecutorService = asyncExecutorService;
+    @Resource(name = "asyncExecutor")
+    public final void setAsyncExecutor(AsyncExecutor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
     }
 
     /** Sets parameters from the specified Bridge config. */
@@ -153,7 +155,13 @@ public class EmailVerificationService {
             // SES administrative requests (verify email, set notification topics) are throttled at a rate of 1 per
             // second. To avoid really slow calls, we kick off an async thread to handle this.
             AsyncSnsTopicHandler handler = new AsyncSnsTopicHandler(emailAddress);
-            asyncExecutorService.execute(handler);
+            try {
+                asyncExecutor.execute(AsyncLane.INTERACTIVE, handler);
+            } catch (RejectedExecutionException e) {
+                // The address is still unverified, so the next call will try again.
+                LOG.warn("Could not start verification of email address, async lane is full");
+                return status;
+            }
             return cacheAndReturn(emailAddress, EmailVerificationStatus.PENDING);
         }
         return status;
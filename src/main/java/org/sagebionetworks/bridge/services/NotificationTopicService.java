@@ -8,8 +8,14 @@ import static org.sagebionetworks.bridge.models.CriteriaUtils.filterByCriteria;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 
 import com.google.common.collect.ImmutableList;
@@ -18,6 +24,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncHandler;
+import org.sagebionetworks.bridge.async.AsyncLane;
 import org.sagebionetworks.bridge.dao.NotificationRegistrationDao;
 import org.sagebionetworks.bridge.dao.NotificationTopicDao;
 import org.sagebionetworks.bridge.dao.TopicSubscriptionDao;
@@ -43,6 +52,12 @@ public class NotificationTopicService {
 
     private static final Logger LOG = LoggerFactory.getLogger(NotificationTopicService.class);
     
+    /** Number of times we try to reconcile a participant's criteria-based subscriptions before giving up. */
+    static final int MAX_RECONCILIATION_ATTEMPTS = 3;
+    
+    /** Delay before the first retry of a failed reconciliation. The delay doubles with each further retry. */
+    static final long RECONCILIATION_RETRY_DELAY_MILLIS = 5000L;
+    
     private NotificationRegistrationDao registrationDao;
     
     private NotificationTopicDao topicDao;
@@ -51,6 +66,17 @@ public class NotificationTopicService {
     
     private AmazonSNSClient snsClient;
     
+    private AsyncExecutor asyncExecutor;
+    
+    // Reconciliations that are queued but not yet started, keyed by health code. At most one is queued per participant.
+    private final ConcurrentMap<String, PendingReconciliation> pendingReconciliations = new ConcurrentHashMap<>();
+    
+    private ScheduledExecutorService retryTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "subscription-reconciliation-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
     @Autowired
     final void setNotificationRegistrationDao(NotificationRegistrationDao registrationDao) {
         this.registrationDao = registrationDao;
@@ -71,6 +97,22 @@ public class NotificationTopicService {
         this.snsClient = snsClient;
     }
     
+    /** Used to reconcile criteria-based subscriptions in the background. */
+    @Resource(name = "asyncExecutor")
+    final void setAsyncExecutor(AsyncExecutor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+    
+    /** Schedules retries of failed reconciliations. Package-scoped for unit tests. */
+    final void setRetryTimer(ScheduledExecutorService retryTimer) {
+        this.retryTimer = retryTimer;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        retryTimer.shutdownNow();
+    }
+    
     public List<NotificationTopic> listTopics(String appId, boolean includeDeleted) {
         checkNotNull(appId);
         
@@ -163,6 +205,11 @@ public class NotificationTopicService {
      * Manages criteria-based subscriptions for the given participant with the given criteria context. All topics that
      * match the criteria context will be subscribed. All other topics will be unsubscribed. This only considers
      * criteria-managed subscriptions. Manually-managed subscriptions will be untouched.
+     * 
+     * The subscriptions are updated in the background. If the participant's subscriptions are already queued to be
+     * updated, that update uses this criteria context instead, so a burst of changes results in one update. An update
+     * that fails to subscribe or unsubscribe is retried after a delay that doubles with each attempt, up to 
+     * {@link #MAX_RECONCILIATION_ATTEMPTS} attempts in all.
      */
     public void manageCriteriaBasedSubscriptions(String appId, CriteriaContext context, String healthCode) {
         checkNotNull(appId);
@@ -170,6 +217,30 @@ public class NotificationTopicService {
         checkNotNull(healthCode);
         checkArgument(isNotBlank(healthCode));
 
+        PendingReconciliation reconciliation = new PendingReconciliation(appId, context, 1);
+        if (pendingReconciliations.put(healthCode, reconciliation) == null) {
+            asyncExecutor.execute(AsyncLane.SUBSCRIPTION_RECONCILIATION, appId,
+                    new SubscriptionReconciliationHandler(healthCode));
+        }
+    }
+    
+    // Queue another attempt after a delay, unless a newer reconciliation has been queued in the meantime. A newer
+    // reconciliation queued during the delay replaces this one, and runs when the delay ends.
+    private void retryReconciliation(String healthCode, PendingReconciliation failed) {
+        PendingReconciliation retry = new PendingReconciliation(failed.appId, failed.context, failed.attempt + 1);
+        if (pendingReconciliations.putIfAbsent(healthCode, retry) == null) {
+            long delayMillis = RECONCILIATION_RETRY_DELAY_MILLIS << (failed.attempt - 1);
+            retryTimer.schedule(() -> asyncExecutor.execute(AsyncLane.SUBSCRIPTION_RECONCILIATION, failed.appId,
+                    new SubscriptionReconciliationHandler(healthCode)), delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Subscribes the participant's registrations to the criteria-based topics that match the criteria context, and
+     * unsubscribes them from the rest. Returns false if any of the subscribe or unsubscribe calls failed. 
+     * Package-scoped for unit tests.
+     */
+    boolean reconcileCriteriaBasedSubscriptions(String appId, CriteriaContext context, String healthCode) {
         // Check app for topics. Only consider topics with criteria. Include logically deleted topics 
         // so that if they are undeleted, the user's subscription state is correct
         List<NotificationTopic> allTopicList = topicDao.listTopics(appId, true);
@@ -177,14 +248,14 @@ public class NotificationTopicService {
                 .filter(topic -> topic.getCriteria() != null).collect(Collectors.toList());
         if (criteriaTopicList.isEmpty()) {
             // Short cut: No topics in the app means nothing to manage.
-            return;
+            return true;
         }
 
         // Check participant for notification registrations.
         List<NotificationRegistration> registrationList = registrationDao.listRegistrations(healthCode);
         if (registrationList.isEmpty()) {
             // Short cut: No registrations means nothing to manage.
-            return;
+            return true;
         }
 
         // Determine topics to subscribe to based on criteria.
@@ -192,8 +263,65 @@ public class NotificationTopicService {
                 .map(NotificationTopic::getGuid).collect(Collectors.toSet());
 
         // Subscribe user to topics.
+        boolean reconciled = true;
         for (NotificationRegistration oneRegistration : registrationList) {
-            setSubscriptionsForRegistration(oneRegistration, criteriaTopicList, desiredTopicGuidSet);
+            List<SubscriptionStatus> statuses = setSubscriptionsForRegistration(oneRegistration, criteriaTopicList,
+                    desiredTopicGuidSet);
+            for (SubscriptionStatus status : statuses) {
+                if (status.isSubscribed() != desiredTopicGuidSet.contains(status.getTopicGuid())) {
+                    reconciled = false;
+                }
+            }
+        }
+        return reconciled;
+    }
+    
+    private static final class PendingReconciliation {
+        private final String appId;
+        private final CriteriaContext context;
+        private final int attempt;
+        
+        PendingReconciliation(String appId, CriteriaContext context, int attempt) {
+            this.appId = appId;
+            this.context = context;
+            this.attempt = attempt;
+        }
+    }
+    
+    /**
+     * Async handler that reconciles the criteria-based subscriptions of one participant, using the latest criteria 
+     * context queued for them. Package-scoped for unit tests.
+     */
+    class SubscriptionReconciliationHandler extends AsyncHandler {
+        private final String healthCode;
+        
+        SubscriptionReconciliationHandler(String healthCode) {
+            this.healthCode = healthCode;
+        }
+        
+        @Override
+        protected void handle() {
+            PendingReconciliation reconciliation = pendingReconciliations.remove(healthCode);
+            if (reconciliation == null) {
+                return;
+            }
+            boolean reconciled;
+            try {
+                reconciled = reconcileCriteriaBasedSubscriptions(reconciliation.appId, reconciliation.context,
+                        healthCode);
+            } catch (RuntimeException ex) {
+                LOG.warn("Error reconciling topic subscriptions for user " + reconciliation.context.getUserId() +
+                        ", appId=" + reconciliation.appId + ": " + ex.getMessage(), ex);
+                reconciled = false;
+            }
+            if (!reconciled) {
+                if (reconciliation.attempt < MAX_RECONCILIATION_ATTEMPTS) {
+                    retryReconciliation(healthCode, reconciliation);
+                } else {
+                    LOG.error("Could not reconcile topic subscriptions for user " + reconciliation.context.getUserId()
+                            + ", appId=" + reconciliation.appId + " after " + reconciliation.attempt + " attempts");
+                }
+            }
         }
     }
 
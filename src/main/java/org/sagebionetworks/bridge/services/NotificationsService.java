@@ -6,6 +6,8 @@ import static org.sagebionetworks.bridge.BridgeUtils.SEMICOLON_SPACE_JOINER;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.annotation.Resource;
 
@@ -15,8 +17,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
 import org.sagebionetworks.bridge.dao.NotificationRegistrationDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.NotImplementedException;
 import org.sagebionetworks.bridge.models.CriteriaContext;
 import org.sagebionetworks.bridge.models.OperatingSystem;
@@ -33,6 +38,7 @@ import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.sns.AmazonSNSClient;
 import com.amazonaws.services.sns.model.PublishRequest;
 import com.amazonaws.services.sns.model.PublishResult;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 /**
@@ -48,6 +54,7 @@ public class NotificationsService {
     private NotificationRegistrationDao notificationRegistrationDao;
     private NotificationTopicService notificationTopicService;
     private AmazonSNSClient snsClient;
+    private AsyncExecutor asyncExecutor;
 
     /** Participant service, if we need to get the participant. */
     @Autowired
@@ -79,6 +86,12 @@ public class NotificationsService {
         this.snsClient = snsClient;
     }
 
+    /** Used to publish to a participant's registrations concurrently. */
+    @Resource(name = "asyncExecutor")
+    final void setAsyncExecutor(AsyncExecutor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
     /**
      * Return all the registrations for this user. There may be more than one, if a user installs 
      * the application on different devices. It is possible there may be multiple registrations on 
@@ -218,15 +231,24 @@ public class NotificationsService {
             throw new BadRequestException("Participant has not registered to receive push notifications.");
         }
         
-        Set<String> erroredRegistrations = Sets.newHashSet();
+        // Publish to each registration concurrently. The SNS_PUBLISH lane runs a publish on this thread if the lane is 
+        // full, so this degrades to serial publishes rather than failing.
+        List<FutureTask<PublishResult>> publishes = Lists.newArrayListWithCapacity(registrations.size());
         for (NotificationRegistration registration : registrations) {
             String endpointARN = registration.getEndpoint();
             
             PublishRequest request = new PublishRequest().withTargetArn(endpointARN)
                     .withSubject(message.getSubject()).withMessage(message.getMessage());
 
+            FutureTask<PublishResult> publish = new FutureTask<>(() -> snsClient.publish(request));
+            asyncExecutor.execute(AsyncLane.SNS_PUBLISH, appId, publish);
+            publishes.add(publish);
+        }
+        Set<String> erroredRegistrations = Sets.newHashSet();
+        for (int i = 0; i < registrations.size(); i++) {
+            NotificationRegistration registration = registrations.get(i);
             try {
-                PublishResult result = snsClient.publish(request);
+                PublishResult result = getPublishResult(publishes.get(i));
                 LOG.debug("Sent message to participant registration=" + registration.getGuid() + ", appId=" +
                         appId + ", message ID=" + result.getMessageId());
             } catch(AmazonServiceException e) {
@@ -242,6 +264,20 @@ public class NotificationsService {
         return erroredRegistrations;
     }
 
+    private PublishResult getPublishResult(FutureTask<PublishResult> publish) {
+        try {
+            return publish.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BridgeServiceException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new BridgeServiceException(ex.getCause());
+        }
+    }
+
     private String getPlatformARN(App app, NotificationRegistration registration) {
         String platformARN = app.getPushNotificationARNs().get(registration.getOsName());
         if (StringUtils.isBlank(platformARN)) {
@@ -24,6 +24,8 @@ import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+import javax.annotation.Resource;
+
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.node.NullNode;
 import org.apache.commons.codec.binary.Base64;
@@ -33,7 +35,6 @@ import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicNameValuePair;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -113,6 +114,7 @@ class OAuthProviderService {
     private String synapseOauthURL;
     private String synapseClientID;
     private String synapseClientSecret;
+    private CloseableHttpClient httpClient;
 
     @Autowired
     final void setBridgeConfig(BridgeConfig config) {
@@ -121,6 +123,12 @@ class OAuthProviderService {
         this.synapseClientSecret = config.get(SYNAPSE_OAUTH_CLIENT_SECRET);
     }
     
+    /** The shared, pooled client, so calls to the same provider reuse connections. */
+    @Resource(name = "outboundHttpClient")
+    final void setHttpClient(CloseableHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+    
     /**
      * Simple container for the response, parsed before closing the stream.
      */
@@ -158,8 +166,8 @@ class OAuthProviderService {
     }
 
     private OAuthProviderService.Response executeInternal(HttpPost client) {
-        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
-            CloseableHttpResponse response = httpclient.execute(client);
+        // Closing the response returns the connection to the pool.
+        try (CloseableHttpResponse response = httpClient.execute(client)) {
             int statusCode = response.getStatusLine().getStatusCode();
 
             JsonNode body;
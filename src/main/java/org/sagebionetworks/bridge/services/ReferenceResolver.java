@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.joda.time.DateTime;
+import org.sagebionetworks.bridge.cache.ReferenceResolutionCache;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.models.ClientInfo;
 import org.sagebionetworks.bridge.models.schedules.Activity;
@@ -28,6 +29,9 @@ import org.slf4j.LoggerFactory;
  * recently published survey. In compound activities we resolve all references in the schema and survey 
  * lists. Finally, if a compound activity only contains a taskIdentifier, we load the full compound 
  * activity, resolve it, and return that in the scheduled activity. 
+ * 
+ * Resolved surveys, schemas and compound activity definitions are kept in the app-wide 
+ * {@link ReferenceResolutionCache}, so they are shared with other requests.
  */
 class ReferenceResolver {
     private static final Logger LOG = LoggerFactory.getLogger(ReferenceResolver.class);
@@ -35,23 +39,24 @@ class ReferenceResolver {
     private final CompoundActivityDefinitionService compoundActivityDefinitionService;
     private final UploadSchemaService schemaService;
     private final SurveyService surveyService;
+    private final ReferenceResolutionCache referenceCache;
     private final ClientInfo clientInfo;
     private final String appId;
     
     private final Map<String,SurveyReference> surveyReferences;
     private final Map<String,SchemaReference> schemaReferences;
     
+    // Compound activities with their survey and schema lists resolved for this client.
     private final Map<String, CompoundActivity> compoundActivityCache = new HashMap<>();
-    private final Map<String, SchemaReference> schemaCache = new HashMap<>();
-    private final Map<String, SurveyReference> surveyCache = new HashMap<>();
     
     ReferenceResolver(CompoundActivityDefinitionService compoundActivityDefinitionService,
-            UploadSchemaService schemaService, SurveyService surveyService,
+            UploadSchemaService schemaService, SurveyService surveyService, ReferenceResolutionCache referenceCache,
             Map<String, SurveyReference> surveyReferences, Map<String, SchemaReference> schemaReferences,
             ClientInfo clientInfo, String appId) {
         this.compoundActivityDefinitionService = compoundActivityDefinitionService;
         this.schemaService = schemaService;
         this.surveyService = surveyService;
+        this.referenceCache = referenceCache;
         this.surveyReferences = surveyReferences;
         this.schemaReferences = schemaReferences;
         this.clientInfo = clientInfo;
@@ -108,15 +113,11 @@ class ReferenceResolver {
         if (resolvedCompoundActivity == null) {
             if (compoundActivity.isReference()) {
                 // Compound activity has no schemas or surveys defined. Resolve it with its definition.
-                CompoundActivityDefinition compoundActivityDef;
-                try {
-                    compoundActivityDef = compoundActivityDefinitionService.getCompoundActivityDefinition(appId,
-                            taskId);
-                } catch (EntityNotFoundException ex) {
-                    LOG.error("Schedule references non-existent compound activity " + taskId);
+                resolvedCompoundActivity = referenceCache.getCompoundActivity(appId, taskId,
+                        () -> loadCompoundActivity(taskId));
+                if (resolvedCompoundActivity == null) {
                     return null;
                 }
-                resolvedCompoundActivity = compoundActivityDef.getCompoundActivity();
             } else {
                 // Compound activity has schemas and surveys defined. Use the schemas and surveys from the lists, but
                 // we may need to resolve individual schema and survey refs at a later step.
@@ -168,20 +169,10 @@ class ReferenceResolver {
         }
 
         String schemaId = schemaRef.getId();
-        SchemaReference resolvedSchemaRef = schemaCache.get(schemaId);
+        SchemaReference resolvedSchemaRef = schemaReferences.get(schemaId);
         if (resolvedSchemaRef == null) {
-            resolvedSchemaRef = schemaReferences.get(schemaId);
-        }
-        if (resolvedSchemaRef == null) {
-            UploadSchema schema;
-            try {
-                schema = schemaService.getLatestUploadSchemaRevisionForAppVersion(appId, schemaId, clientInfo);
-            } catch (EntityNotFoundException ex) {
-                LOG.error("Schedule references non-existent schema " + schemaId);
-                return null;
-            }
-            resolvedSchemaRef = new SchemaReference(schemaId, schema.getRevision());
-            schemaCache.put(schemaId, resolvedSchemaRef);
+            resolvedSchemaRef = referenceCache.getSchemaReference(appId, schemaId, clientInfo,
+                    () -> loadSchema(schemaId));
         }
         return resolvedSchemaRef;
     }
@@ -193,23 +184,46 @@ class ReferenceResolver {
         }
 
         String surveyGuid = surveyRef.getGuid();
-        SurveyReference resolvedSurveyRef = surveyCache.get(surveyGuid);
-        if (resolvedSurveyRef == null) {
-            resolvedSurveyRef = surveyReferences.get(surveyGuid);
-        }
+        SurveyReference resolvedSurveyRef = surveyReferences.get(surveyGuid);
         if (resolvedSurveyRef == null) {
-            Survey survey;
-            try {
-                survey = surveyService.getSurveyMostRecentlyPublishedVersion(appId, surveyGuid, false);
-            } catch (EntityNotFoundException ex) {
-                LOG.error("Schedule references non-existent survey " + surveyGuid);
-                return null;
-            }
-            resolvedSurveyRef = new SurveyReference(survey.getIdentifier(), surveyGuid,
-                    new DateTime(survey.getCreatedOn()));
-            surveyCache.put(surveyGuid, resolvedSurveyRef);
+            resolvedSurveyRef = referenceCache.getSurveyReference(appId, surveyGuid, () -> loadSurvey(surveyGuid));
         }
         return resolvedSurveyRef;
     }
     
+    // Helper methods to load a reference when it is not in the cache. These return null if the reference doesn't
+    // exist, and nulls are not cached.
+    private CompoundActivity loadCompoundActivity(String taskId) {
+        CompoundActivityDefinition compoundActivityDef;
+        try {
+            compoundActivityDef = compoundActivityDefinitionService.getCompoundActivityDefinition(appId, taskId);
+        } catch (EntityNotFoundException ex) {
+            LOG.error("Schedule references non-existent compound activity " + taskId);
+            return null;
+        }
+        return compoundActivityDef.getCompoundActivity();
+    }
+    
+    private SchemaReference loadSchema(String schemaId) {
+        UploadSchema schema;
+        try {
+            schema = schemaService.getLatestUploadSchemaRevisionForAppVersion(appId, schemaId, clientInfo);
+        } catch (EntityNotFoundException ex) {
+            LOG.error("Schedule references non-existent schema " + schemaId);
+            return null;
+        }
+        return new SchemaReference(schemaId, schema.getRevision());
+    }
+    
+    private SurveyReference loadSurvey(String surveyGuid) {
+        Survey survey;
+        try {
+            survey = surveyService.getSurveyMostRecentlyPublishedVersion(appId, surveyGuid, false);
+        } catch (EntityNotFoundException ex) {
+            LOG.error("Schedule references non-existent survey " + surveyGuid);
+            return null;
+        }
+        return new SurveyReference(survey.getIdentifier(), surveyGuid, new DateTime(survey.getCreatedOn()));
+    }
+    
 }
@@ -0,0 +1,178 @@
+package org.sagebionetworks.bridge.services;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import org.sagebionetworks.bridge.dao.RequestInfoDao;
+import org.sagebionetworks.bridge.models.RequestInfo;
+
+/**
+ * Holds request info updates in memory and writes them to the database behind the request. Updates for the same user
+ * are merged (as RequestInfo.Builder.copyOf() merges them), and the buffer is written every few seconds in batches,
+ * one statement per batch. If the buffer holds its maximum number of users, it is written right away on the timer
+ * thread, so the request that fills it doesn't wait on the database. The buffer is also written when the server shuts
+ * down.
+ *
+ * Request info is only used to report on participants, so updates that are lost if a server stops abruptly, or that
+ * fail to write, are logged and dropped rather than retried.
+ */
+public class RequestInfoBuffer {
+    private static final Logger LOG = LoggerFactory.getLogger(RequestInfoBuffer.class);
+
+    static final int BATCH_SIZE = 100;
+
+    private final int maxSize;
+    private final int flushIntervalSeconds;
+    private final Map<String, RequestInfo> pending = new ConcurrentHashMap<>();
+    // Updates that are being written, so they can still be read until they are in the database.
+    private volatile Map<String, RequestInfo> flushing = ImmutableMap.of();
+    private final Object flushLock = new Object();
+    // Set while a write of the full buffer is waiting on the timer thread, so callers don't queue one each.
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "request-info-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private RequestInfoDao requestInfoDao;
+
+    public RequestInfoBuffer(int maxSize, int flushIntervalSeconds) {
+        this.maxSize = maxSize;
+        this.flushIntervalSeconds = flushIntervalSeconds;
+    }
+
+    public final void setRequestInfoDao(RequestInfoDao requestInfoDao) {
+        this.requestInfoDao = requestInfoDao;
+    }
+
+    @PostConstruct
+    public void start() {
+        timer.scheduleWithFixedDelay(this::flushQuietly, flushIntervalSeconds, flushIntervalSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        timer.shutdown();
+        flush();
+    }
+
+    /** Merge the update into any update for the same user that has not yet been written. */
+    public void add(RequestInfo requestInfo) {
+        checkNotNull(requestInfo);
+        checkNotNull(requestInfo.getUserId());
+
+        pending.merge(requestInfo.getUserId(), requestInfo, RequestInfoBuffer::merge);
+        if (pending.size() >= maxSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                timer.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // The server is shutting down, and stop() writes the buffer.
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /** The updates for the user that have not yet been written, merged into one, or null if there are none. */
+    public RequestInfo get(String userId) {
+        checkNotNull(userId);
+
+        // Read pending first. Updates are published as being written before they are removed from pending, and are
+        // only unpublished once they are in the database.
+        RequestInfo waiting = pending.get(userId);
+        RequestInfo writing = flushing.get(userId);
+        if (writing == null || waiting == null) {
+            return (waiting != null) ? waiting : writing;
+        }
+        return merge(writing, waiting);
+    }
+
+    /**
+     * Drop the user's updates. If the buffer is being written, this waits until it has been written, so that the
+     * caller can delete the user's request info without it being written again.
+     */
+    public void remove(String userId) {
+        checkNotNull(userId);
+
+        synchronized (flushLock) {
+            pending.remove(userId);
+        }
+    }
+
+    /** Write all the updates to the database. */
+    public void flush() {
+        synchronized (flushLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            // Publish the batch for readers before removing it from pending. An update merged in the meantime stays
+            // in pending, and includes the value being written.
+            Map<String, RequestInfo> batch = ImmutableMap.copyOf(pending);
+            flushing = batch;
+            for (Map.Entry<String, RequestInfo> entry : batch.entrySet()) {
+                pending.remove(entry.getKey(), entry.getValue());
+            }
+            try {
+                for (List<RequestInfo> requestInfos : Lists.partition(new ArrayList<>(batch.values()), BATCH_SIZE)) {
+                    write(requestInfos);
+                }
+            } finally {
+                flushing = ImmutableMap.of();
+            }
+        }
+    }
+
+    /** Number of users with updates that have not yet been written, for tests. */
+    int size() {
+        return pending.size();
+    }
+
+    private void write(List<RequestInfo> requestInfos) {
+        try {
+            requestInfoDao.updateRequestInfos(requestInfos);
+        } catch (RuntimeException e) {
+            // One row can fail the whole statement (for example, if the account was deleted), so write each row on
+            // its own.
+            for (RequestInfo requestInfo : requestInfos) {
+                try {
+                    requestInfoDao.updateRequestInfos(ImmutableList.of(requestInfo));
+                } catch (RuntimeException rowException) {
+                    LOG.warn("Could not write request info for user " + requestInfo.getUserId(), rowException);
+                }
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        flushRequested.set(false);
+        try {
+            flush();
+        } catch (Throwable e) {
+            // Don't let an error cancel the scheduled writes.
+            LOG.error("Could not write buffered request info", e);
+        }
+    }
+
+    private static RequestInfo merge(RequestInfo existing, RequestInfo update) {
+        return new RequestInfo.Builder().copyOf(existing).copyOf(update).build();
+    }
+}
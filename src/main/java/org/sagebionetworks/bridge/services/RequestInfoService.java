@@ -3,6 +3,8 @@ package org.sagebionetworks.bridge.services;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import javax.annotation.Resource;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -15,6 +17,7 @@ public class RequestInfoService {
     
     private CacheProvider cacheProvider;
     private RequestInfoDao requestInfoDao;
+    private RequestInfoBuffer requestInfoBuffer;
     
     @Autowired
     final void setCacheProvider(CacheProvider cacheProvider) {
@@ -24,11 +27,19 @@ public class RequestInfoService {
     final void setRequestInfoDao(RequestInfoDao requestInfoDao) {
         this.requestInfoDao = requestInfoDao;
     }
+    @Resource(name = "requestInfoBuffer")
+    final void setRequestInfoBuffer(RequestInfoBuffer requestInfoBuffer) {
+        this.requestInfoBuffer = requestInfoBuffer;
+    }
     
+    /**
+     * Request info is written to the database in the background (see RequestInfoBuffer), but is visible to 
+     * getRequestInfo() immediately.
+     */
     public void updateRequestInfo(RequestInfo requestInfo) {
         checkNotNull(requestInfo);
         
-        requestInfoDao.updateRequestInfo(requestInfo);
+        requestInfoBuffer.add(requestInfo);
     }
     
     public RequestInfo getRequestInfo(String userId) {
@@ -38,15 +49,21 @@ public class RequestInfoService {
         if (requestInfo == null) {
             requestInfo = cacheProvider.getRequestInfo(userId);
             if (requestInfo != null) {
-                requestInfoDao.updateRequestInfo(requestInfo);
+                requestInfoBuffer.add(requestInfo);
             }
         }
+        // Overlay any updates that haven't been written yet.
+        RequestInfo buffered = requestInfoBuffer.get(userId);
+        if (buffered != null) {
+            requestInfo = new RequestInfo.Builder().copyOf(requestInfo).copyOf(buffered).build();
+        }
         return requestInfo;
     }
     
     public void removeRequestInfo(String userId) {
         isNotBlank(userId);
         
+        requestInfoBuffer.remove(userId);
         requestInfoDao.removeRequestInfo(userId);
         cacheProvider.removeRequestInfo(userId);
     }
@@ -6,7 +6,12 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import java.util.List;
 import java.util.Set;
 
+import javax.annotation.Resource;
+
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.GeneratedScheduleCache;
+import org.sagebionetworks.bridge.cache.NearCache;
 import org.sagebionetworks.bridge.dao.SchedulePlanDao;
 import org.sagebionetworks.bridge.models.ClientInfo;
 import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolder;
@@ -15,6 +20,7 @@ import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.schedules.Activity;
 import org.sagebionetworks.bridge.models.schedules.Schedule;
 import org.sagebionetworks.bridge.models.schedules.SchedulePlan;
+import org.sagebionetworks.bridge.models.schedules.SchedulePlanSnapshot;
 import org.sagebionetworks.bridge.models.schedules.SurveyReference;
 import org.sagebionetworks.bridge.models.surveys.Survey;
 import org.sagebionetworks.bridge.validators.SchedulePlanValidator;
@@ -32,6 +38,8 @@ public class SchedulePlanService {
     private SchedulePlanDao schedulePlanDao;
     private SurveyService surveyService;
     private StudyService studyService;
+    private GeneratedScheduleCache generatedScheduleCache;
+    private NearCache nearCache;
 
     @Autowired
     public final void setSchedulePlanDao(SchedulePlanDao schedulePlanDao) {
@@ -45,12 +53,39 @@ public class SchedulePlanService {
     public final void setStudyService(StudyService studyService) {
         this.studyService = studyService;
     }
+    @Resource(name = "generatedScheduleCache")
+    public final void setGeneratedScheduleCache(GeneratedScheduleCache generatedScheduleCache) {
+        this.generatedScheduleCache = generatedScheduleCache;
+    }
+    @Resource(name = "nearCache")
+    public final void setNearCache(NearCache nearCache) {
+        this.nearCache = nearCache;
+    }
 
     public List<SchedulePlan> getSchedulePlans(ClientInfo clientInfo, String appId,
             boolean includeDeleted) {
         return schedulePlanDao.getSchedulePlans(clientInfo, appId, includeDeleted);
     }
 
+    /**
+     * The app's active schedule plans, compiled for scheduling activities. The snapshot is cached on each server and
+     * dropped on all servers when a plan is created, updated or deleted.
+     */
+    public SchedulePlanSnapshot getSchedulePlanSnapshot(String appId) {
+        checkNotNull(appId);
+        
+        CacheKey cacheKey = CacheKey.schedulePlanSnapshot(appId);
+        SchedulePlanSnapshot snapshot = (SchedulePlanSnapshot) nearCache.get(cacheKey);
+        if (snapshot == null) {
+            // If a plan changes while we load, what we loaded may be stale, so use it but don't cache it.
+            long nearCacheVersion = nearCache.getVersion();
+            List<SchedulePlan> plans = schedulePlanDao.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, appId, false);
+            snapshot = SchedulePlanSnapshot.compile(plans);
+            nearCache.put(cacheKey, snapshot, nearCacheVersion);
+        }
+        return snapshot;
+    }
+
     public SchedulePlan getSchedulePlan(String appId, String guid) {
         return schedulePlanDao.getSchedulePlan(appId, guid);
     }
@@ -83,7 +118,10 @@ public class SchedulePlanService {
                 new SchedulePlanValidator(app.getDataGroups(), studyIds, app.getTaskIdentifiers()), plan);
 
         lookupSurveyReferenceIdentifiers(app.getIdentifier(), plan);
-        return schedulePlanDao.createSchedulePlan(app.getIdentifier(), plan);
+        SchedulePlan created = schedulePlanDao.createSchedulePlan(app.getIdentifier(), plan);
+        generatedScheduleCache.invalidateApp(app.getIdentifier());
+        nearCache.invalidate(CacheKey.schedulePlanSnapshot(app.getIdentifier()));
+        return created;
     }
     
     public SchedulePlan updateSchedulePlan(App app, SchedulePlan plan) {
@@ -117,7 +155,10 @@ public class SchedulePlanService {
                 new SchedulePlanValidator(app.getDataGroups(), studyIds, app.getTaskIdentifiers()), plan);
         
         lookupSurveyReferenceIdentifiers(plan.getAppId(), plan);
-        return schedulePlanDao.updateSchedulePlan(plan.getAppId(), plan);
+        SchedulePlan updated = schedulePlanDao.updateSchedulePlan(plan.getAppId(), plan);
+        generatedScheduleCache.invalidateApp(plan.getAppId());
+        nearCache.invalidate(CacheKey.schedulePlanSnapshot(plan.getAppId()));
+        return updated;
     }
 
     public void deleteSchedulePlan(String appId, String guid) {
@@ -125,6 +166,8 @@ public class SchedulePlanService {
         checkNotNull(isNotBlank(guid));
         
         schedulePlanDao.deleteSchedulePlan(appId, guid);
+        generatedScheduleCache.invalidateApp(appId);
+        nearCache.invalidate(CacheKey.schedulePlanSnapshot(appId));
     }
     
     public void deleteSchedulePlanPermanently(String appId, String guid) {
@@ -132,6 +175,8 @@ public class SchedulePlanService {
         checkNotNull(isNotBlank(guid));
         
         schedulePlanDao.deleteSchedulePlanPermanently(appId, guid);
+        generatedScheduleCache.invalidateApp(appId);
+        nearCache.invalidate(CacheKey.schedulePlanSnapshot(appId));
     }
     
     /**
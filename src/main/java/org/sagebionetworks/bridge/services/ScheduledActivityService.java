@@ -20,7 +20,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
+
+import javax.annotation.Resource;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.ImmutableMap;
@@ -33,6 +34,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import org.sagebionetworks.bridge.BridgeConstants;
+import org.sagebionetworks.bridge.cache.GeneratedScheduleCache;
+import org.sagebionetworks.bridge.cache.ReferenceResolutionCache;
 import org.sagebionetworks.bridge.dao.ScheduledActivityDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
@@ -43,6 +46,7 @@ import org.sagebionetworks.bridge.models.schedules.ActivityType;
 import org.sagebionetworks.bridge.models.schedules.Schedule;
 import org.sagebionetworks.bridge.models.schedules.ScheduleContext;
 import org.sagebionetworks.bridge.models.schedules.SchedulePlan;
+import org.sagebionetworks.bridge.models.schedules.SchedulePlanSnapshot;
 import org.sagebionetworks.bridge.models.schedules.ScheduledActivity;
 import org.sagebionetworks.bridge.models.schedules.ScheduledActivityStatus;
 import org.sagebionetworks.bridge.models.schedules.SchemaReference;
@@ -87,6 +91,10 @@ public class ScheduledActivityService {
     
     private AppConfigService appConfigService;
     
+    private GeneratedScheduleCache generatedScheduleCache;
+    
+    private ReferenceResolutionCache referenceResolutionCache;
+    
     @Autowired
     final void setScheduledActivityDao(ScheduledActivityDao activityDao) {
         this.activityDao = activityDao;
@@ -125,6 +133,16 @@ public class ScheduledActivityService {
     final void setAppConfigService(AppConfigService appConfigService) {
         this.appConfigService = appConfigService;
     }
+    
+    @Resource(name = "generatedScheduleCache")
+    final void setGeneratedScheduleCache(GeneratedScheduleCache generatedScheduleCache) {
+        this.generatedScheduleCache = generatedScheduleCache;
+    }
+    
+    @Resource(name = "referenceResolutionCache")
+    final void setReferenceResolutionCache(ReferenceResolutionCache referenceResolutionCache) {
+        this.referenceResolutionCache = referenceResolutionCache;
+    }
 
     public ForwardCursorPagedResourceList<ScheduledActivity> getActivityHistory(String healthCode,
             String activityGuid, DateTime scheduledOnStart, DateTime scheduledOnEnd, String offsetKey,
@@ -221,7 +239,9 @@ public class ScheduledActivityService {
         Map<String, DateTime> events = createEventsMap(context);
         ScheduleContext updatedContext = new ScheduleContext.Builder().withContext(context).withEvents(events).build();
 
-        List<ScheduledActivity> scheduledActivities = scheduleActivitiesForPlans(updatedContext);
+        // Clients request the same window (usually aligned to days) each time the app is opened, so the activities 
+        // generated for this window are cached until the plans or the participant's events change.
+        List<ScheduledActivity> scheduledActivities = scheduleActivitiesForPlans(updatedContext, true);
 
         // Get all persisted activities within the time frame, not just those found by the scheduler (as in v3).
         Map<String, ScheduledActivity> dbMap = retrieveAllPersistedActivitiesIntoMap(updatedContext, scheduledActivities);
@@ -265,36 +285,17 @@ public class ScheduledActivityService {
     
     private Map<String, ScheduledActivity> retrieveAllPersistedActivitiesIntoMap(ScheduleContext context,
             List<ScheduledActivity> scheduledActivities) {
-        
-        Set<String> activityGuids = scheduledActivities.stream().map((activity) -> {
-            return activity.getGuid().split(":")[0];
-        }).collect(Collectors.toSet());
+        // IA-545: If a schedule has an identical activity but a new GUID (say if we change the schedule on the user), 
+        // the user can lose existing activities. So during the time window the user is looking at, we will return any 
+        // activities that exist. IA-587: When a one-time task falls outside the schedule window, it would be recreated 
+        // and lose its finished state, so the DAO also loads any remaining scheduled activities.
+        List<ScheduledActivity> dbActivities = activityDao.getPersistedActivities(
+                context.getCriteriaContext().getHealthCode(), context.getStartsOn(), context.getEndsOn(),
+                scheduledActivities);
         
         Map<String,ScheduledActivity> dbMap = Maps.newHashMap();
-        // IA-545: If a schedule has an identical activity but a new GUID (say if we change the schedule on the user), the user can 
-        // lose existing activities. So during the time window the user is looking at, we will return any activities that exist.
-        for (String activityGuid : activityGuids) {
-            ForwardCursorPagedResourceList<ScheduledActivity> list = activityDao.getActivityHistoryV2(
-                    context.getCriteriaContext().getHealthCode(), activityGuid,
-                    context.getStartsOn(), context.getEndsOn(), null,
-                    API_MAXIMUM_PAGE_SIZE);
-            if (list != null) {
-                for(ScheduledActivity activity : list.getItems()) {
-                    dbMap.put(activity.getGuid(), activity);
-                }
-            }
-        }
-        // IA-587: When a one-time task falls outside the schedule window, it's not returned by the 
-        // query above, so it is recreated, and it loses its finished state. Load all remaining scheduled activities.
-        String healthCode = context.getCriteriaContext().getHealthCode();
-        for (ScheduledActivity activity : scheduledActivities) {
-            if (!dbMap.containsKey(activity.getGuid())) {
-                ScheduledActivity dbActivity = activityDao.getActivity(context.getStartsOn().getZone(), healthCode,
-                        activity.getGuid(), false);
-                if (dbActivity != null) {
-                    dbMap.put(dbActivity.getGuid(), dbActivity);    
-                }
-            }
+        for (ScheduledActivity dbActivity : dbActivities) {
+            dbMap.put(dbActivity.getGuid(), dbActivity);
         }
         return dbMap;
     }
@@ -405,10 +406,20 @@ public class ScheduledActivityService {
     }
 
     protected List<ScheduledActivity> scheduleActivitiesForPlans(ScheduleContext context) {
-        List<ScheduledActivity> scheduledActivities = new ArrayList<>();
-
-        List<SchedulePlan> plans = schedulePlanService.getSchedulePlans(context.getCriteriaContext().getClientInfo(),
-                context.getCriteriaContext().getAppId(), false);
+        return scheduleActivitiesForPlans(context, false);
+    }
+    
+    private List<ScheduledActivity> scheduleActivitiesForPlans(ScheduleContext context, boolean useCache) {
+        SchedulePlanSnapshot snapshot = schedulePlanService.getSchedulePlanSnapshot(
+                context.getCriteriaContext().getAppId());
+        
+        List<ScheduledActivity> scheduledActivities;
+        if (useCache) {
+            scheduledActivities = generatedScheduleCache.getScheduledActivities(context, snapshot.getPlans(),
+                    () -> generateActivities(context, snapshot));
+        } else {
+            scheduledActivities = generateActivities(context, snapshot);
+        }
         
         AppConfig appConfig = appConfigService.getAppConfigForUser(context.getCriteriaContext(), false);
         Map<String, SurveyReference> surveyReferences = (appConfig == null) ? ImmutableMap.of()
@@ -417,17 +428,23 @@ public class ScheduledActivityService {
                 : Maps.uniqueIndex(appConfig.getSchemaReferences(), SchemaReference::getId);
 
         ReferenceResolver resolver = new ReferenceResolver(compoundActivityDefinitionService, schemaService,
-                surveyService, surveyReferences, schemaReferences, context.getCriteriaContext().getClientInfo(),
-                context.getCriteriaContext().getAppId());
+                surveyService, referenceResolutionCache, surveyReferences, schemaReferences,
+                context.getCriteriaContext().getClientInfo(), context.getCriteriaContext().getAppId());
         
-        for (SchedulePlan plan : plans) {
-            Schedule schedule = plan.getStrategy().getScheduleForUser(plan, context);
+        // Survey, schema and compound activity references are resolved on every call, since they can change 
+        // without changing the schedule plans.
+        for (ScheduledActivity schActivity : scheduledActivities) {
+            resolver.resolve(schActivity);
+        }
+        return scheduledActivities;
+    }
+    
+    private List<ScheduledActivity> generateActivities(ScheduleContext context, SchedulePlanSnapshot snapshot) {
+        List<ScheduledActivity> scheduledActivities = new ArrayList<>();
+        for (SchedulePlan plan : snapshot.getPlans()) {
+            Schedule schedule = snapshot.getScheduleForUser(plan, context);
             if (schedule != null) {
-                List<ScheduledActivity> activities = schedule.getScheduler().getScheduledActivities(plan, context);
-                for (ScheduledActivity schActivity : activities) {
-                    resolver.resolve(schActivity);
-                }
-                scheduledActivities.addAll(activities);
+                scheduledActivities.addAll(snapshot.getScheduler(schedule).getScheduledActivities(plan, context));
             }
         }
         return scheduledActivities;
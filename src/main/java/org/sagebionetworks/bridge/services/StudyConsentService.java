@@ -29,6 +29,7 @@ import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.text.translate.CharSequenceTranslator;
 
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.cache.ConsentTemplateCache;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.dao.StudyConsentDao;
@@ -100,6 +101,7 @@ public class StudyConsentService {
     private String consentsBucket = BridgeConfigFactory.getConfig().getConsentsBucket();
     private String publicationsBucket = BridgeConfigFactory.getConfig().getHostnameWithPostfix("docs");
     private String fullPageTemplate;
+    private ConsentTemplateCache consentTemplateCache;
     
     @Value("classpath:conf/app-defaults/consent-page.xhtml")
     final void setConsentTemplate(org.springframework.core.io.Resource resource) throws IOException {
@@ -122,6 +124,10 @@ public class StudyConsentService {
         this.consentsBucket = bridgeConfig.getConsentsBucket();
         this.publicationsBucket = bridgeConfig.getHostnameWithPostfix("docs");
     }
+    @Resource(name = "consentTemplateCache")
+    final void setConsentTemplateCache(ConsentTemplateCache consentTemplateCache) {
+        this.consentTemplateCache = consentTemplateCache;
+    }
     /**
      * S3 client. We need to use the S3 client to call writeBytesToPublicS3(), which wasn't migrated to bridge-base
      * because it references BridgePF-specific classes.
@@ -186,6 +192,8 @@ public class StudyConsentService {
         // We need to delete from the publications bucket.
         s3Client.deleteObject(publicationsBucket, subpopulationGuid.getGuid() + CONSENT_HTML_SUFFIX);
         s3Client.deleteObject(publicationsBucket, subpopulationGuid.getGuid() + CONSENT_PDF_SUFFIX);
+        
+        consentTemplateCache.invalidateSubpopulation(subpopulationGuid);
     }
 
     /**
@@ -201,6 +209,22 @@ public class StudyConsentService {
         return getConsent(subpop.getGuid(), subpop.getPublishedConsentCreatedOn());
     }
     
+    /**
+     * Gets the currently active consent document for this subpopulation, compiled into the consent page so that it
+     * only needs the signature to be filled in. The document is compiled when it is published, or the first time it
+     * is needed on this server.
+     * 
+     * @param subpop
+     *          the subpopulation associated with this consent
+     * @return the compiled consent document
+     */
+    public ConsentTemplate getActiveConsentTemplate(Subpopulation subpop) {
+        checkNotNull(subpop);
+        
+        return consentTemplateCache.get(subpop.getGuid(), subpop.getPublishedConsentCreatedOn(),
+                () -> ConsentTemplate.compile(fullPageTemplate, getActiveConsent(subpop).getDocumentContent()));
+    }
+    
     /**
      * Gets the most recently created consent document for the study.
      *
@@ -282,6 +306,10 @@ public class StudyConsentService {
             
             subpop.setPublishedConsentCreatedOn(timestamp);
             subpopService.updateSubpopulation(app, subpop);
+            
+            // Compile the document now, so the first participants to sign it don't have to.
+            consentTemplateCache.put(subpop.getGuid(), timestamp,
+                    ConsentTemplate.compile(fullPageTemplate, documentContent));
 
         } catch(IOException | DocumentException | XRRuntimeException e) {
             throw new BridgeServiceException(e.getMessage());
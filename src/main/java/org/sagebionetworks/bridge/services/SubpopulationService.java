@@ -7,6 +7,8 @@ import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Set;
 
+import javax.annotation.Resource;
+
 import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,11 +20,12 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.NearCache;
 import org.sagebionetworks.bridge.dao.StudyConsentDao;
 import org.sagebionetworks.bridge.dao.SubpopulationDao;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.models.CriteriaContext;
-import org.sagebionetworks.bridge.models.CriteriaUtils;
+import org.sagebionetworks.bridge.models.CriteriaMatcher;
 import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.subpopulations.StudyConsent;
 import org.sagebionetworks.bridge.models.subpopulations.StudyConsentForm;
@@ -43,6 +46,7 @@ public class SubpopulationService {
     private StudyService studyService;
     private StudyConsentForm defaultConsentDocument;
     private CacheProvider cacheProvider;
+    private NearCache nearCache;
     
     @Autowired
     final void setSubpopulationDao(SubpopulationDao subpopDao) {
@@ -60,6 +64,10 @@ public class SubpopulationService {
     final void setCacheProvider(CacheProvider cacheProvider) {
         this.cacheProvider = cacheProvider;
     }
+    @Resource(name = "nearCache")
+    final void setNearCache(NearCache nearCache) {
+        this.nearCache = nearCache;
+    }
     @Autowired
     final void setStudyService(StudyService studyService) {
         this.studyService = studyService;
@@ -97,7 +105,7 @@ public class SubpopulationService {
         StudyConsentView view = studyConsentService.addConsent(subpop.getGuid(), defaultConsentDocument);
         studyConsentService.publishConsent(app, subpop, view.getCreatedOn());
         
-        cacheProvider.removeObject(CacheKey.subpopList(app.getIdentifier()));
+        removeSubpopulationList(app.getIdentifier());
         return created;
     }
     
@@ -116,7 +124,7 @@ public class SubpopulationService {
             studyConsentService.publishConsent(app, created, view.getCreatedOn());
         }
         
-        cacheProvider.removeObject(CacheKey.subpopList(app.getIdentifier()));
+        removeSubpopulationList(app.getIdentifier());
         return created;
     }
     
@@ -152,7 +160,7 @@ public class SubpopulationService {
         
         Subpopulation updated = subpopDao.updateSubpopulation(subpop);
         cacheProvider.removeObject(CacheKey.subpop(updated.getGuid(), app.getIdentifier()));
-        cacheProvider.removeObject(CacheKey.subpopList(app.getIdentifier()));
+        removeSubpopulationList(app.getIdentifier());
         return updated;
     }
     
@@ -199,14 +207,30 @@ public class SubpopulationService {
     
     /**
      * Get all subpopulations for a user that match the provided CriteriaContext information. 
-     * Returns an empty list if no subpopulations match.
+     * Returns an empty list if no subpopulations match. The subpopulations are shared with 
+     * other requests and should not be modified.
      */
     public List<Subpopulation> getSubpopulationsForUser(CriteriaContext context) {
         checkNotNull(context);
         
-        List<Subpopulation> subpops = getSubpopulations(context.getAppId(), false);
-        
-        return CriteriaUtils.filterByCriteria(context, subpops, null);
+        return getSubpopulationMatcher(context.getAppId()).filter(context);
+    }
+    
+    /**
+     * The app's undeleted subpopulations, compiled for matching. The matcher is cached on each 
+     * server and dropped on all servers along with the cached list of subpopulations.
+     */
+    @SuppressWarnings("unchecked")
+    CriteriaMatcher<Subpopulation> getSubpopulationMatcher(String appId) {
+        CacheKey cacheKey = CacheKey.subpopMatcher(appId);
+        CriteriaMatcher<Subpopulation> matcher = (CriteriaMatcher<Subpopulation>) nearCache.get(cacheKey);
+        if (matcher == null) {
+            // If the list changes while we load, what we loaded may be stale, so use it but don't cache it.
+            long nearCacheVersion = nearCache.getVersion();
+            matcher = CriteriaMatcher.compile(getSubpopulations(appId, false), null);
+            nearCache.put(cacheKey, matcher, nearCacheVersion);
+        }
+        return matcher;
     }
 
     /**
@@ -218,7 +242,7 @@ public class SubpopulationService {
         
         subpopDao.deleteSubpopulation(appId, subpopGuid);
         cacheProvider.removeObject(CacheKey.subpop(subpopGuid, appId));
-        cacheProvider.removeObject(CacheKey.subpopList(appId));
+        removeSubpopulationList(appId);
     }
     
     /**
@@ -231,7 +255,7 @@ public class SubpopulationService {
         subpopDao.deleteSubpopulationPermanently(appId, subpopGuid);
         studyConsentService.deleteAllConsentsPermanently(subpopGuid);
         cacheProvider.removeObject(CacheKey.subpop(subpopGuid, appId));
-        cacheProvider.removeObject(CacheKey.subpopList(appId));
+        removeSubpopulationList(appId);
     }
     
     /**
@@ -249,5 +273,9 @@ public class SubpopulationService {
             }
         }
     }
-
+    
+    private void removeSubpopulationList(String appId) {
+        cacheProvider.removeObject(CacheKey.subpopList(appId));
+        nearCache.invalidate(CacheKey.subpopMatcher(appId));
+    }
 }
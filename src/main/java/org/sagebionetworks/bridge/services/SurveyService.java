@@ -12,7 +12,11 @@ import java.util.Set;
 import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 
+import javax.annotation.Resource;
+
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.cache.ReferenceResolutionCache;
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache;
 import org.sagebionetworks.bridge.dao.SurveyDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.ConstraintViolationException;
@@ -49,6 +53,8 @@ public class SurveyService {
     private SchedulePlanService schedulePlanService;
     private SharedModuleMetadataService sharedModuleMetadataService;
     private AppService appService;
+    private ReferenceResolutionCache referenceResolutionCache;
+    private UploadDefinitionCache uploadDefinitionCache;
 
     @Autowired
     final void setSurveyDao(SurveyDao surveyDao) {
@@ -74,6 +80,16 @@ public class SurveyService {
     public final void setAppService(AppService appService) {
         this.appService = appService;
     }
+
+    @Resource(name = "referenceResolutionCache")
+    final void setReferenceResolutionCache(ReferenceResolutionCache referenceResolutionCache) {
+        this.referenceResolutionCache = referenceResolutionCache;
+    }
+
+    @Resource(name = "uploadDefinitionCache")
+    final void setUploadDefinitionCache(UploadDefinitionCache uploadDefinitionCache) {
+        this.uploadDefinitionCache = uploadDefinitionCache;
+    }
     
     public Survey getSurvey(String appId, GuidCreatedOnVersionHolder keys, boolean includeElements, boolean throwException) {
         Survey survey = surveyDao.getSurvey(appId, keys, includeElements);
@@ -137,7 +153,10 @@ public class SurveyService {
             if (existing.isDeleted() && !survey.isDeleted()) {
                 existing = surveyDao.getSurvey(appId, survey, true); // get all the children for the update
                 existing.setDeleted(false);
-                return surveyDao.updateSurvey(appId, existing);
+                Survey updated = surveyDao.updateSurvey(appId, existing);
+                referenceResolutionCache.invalidateSurvey(appId, survey.getGuid());
+                uploadDefinitionCache.invalidateSurvey(appId, survey.getGuid());
+                return updated;
             } else {
                 throw new PublishedSurveyException(survey);
             }
@@ -150,7 +169,9 @@ public class SurveyService {
         }
         Validate.entityThrowingException(new SurveySaveValidator(dataGroups), survey);
         
-        return surveyDao.updateSurvey(appId, survey);
+        Survey updated = surveyDao.updateSurvey(appId, survey);
+        uploadDefinitionCache.invalidateSurvey(appId, survey.getGuid());
+        return updated;
     }
 
     /**
@@ -168,7 +189,10 @@ public class SurveyService {
         }
         Validate.entityThrowingException(publishValidator, existing);
 
-        return surveyDao.publishSurvey(appId, existing, newSchemaRev);
+        Survey published = surveyDao.publishSurvey(appId, existing, newSchemaRev);
+        referenceResolutionCache.invalidateSurvey(appId, keys.getGuid());
+        uploadDefinitionCache.invalidateSurvey(appId, keys.getGuid());
+        return published;
     }
 
     /**
@@ -204,6 +228,8 @@ public class SurveyService {
         verifySharedModuleExistence(keys);
 
         surveyDao.deleteSurvey(existing);
+        referenceResolutionCache.invalidateSurvey(appId, keys.getGuid());
+        uploadDefinitionCache.invalidateSurvey(appId, keys.getGuid());
     }
 
     /**
@@ -227,6 +253,8 @@ public class SurveyService {
         }
         checkConstraintsBeforePhysicalDelete(appId, keys);
         surveyDao.deleteSurveyPermanently(appId, keys);
+        referenceResolutionCache.invalidateSurvey(appId, keys.getGuid());
+        uploadDefinitionCache.invalidateSurvey(appId, keys.getGuid());
     }
 
     // Helper method to verify if there is any shared module related to specified survey
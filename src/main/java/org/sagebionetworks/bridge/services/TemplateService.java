@@ -1,6 +1,7 @@
     package org.sagebionetworks.bridge.services;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toSet;
 import static org.joda.time.DateTimeZone.UTC;
 import static org.sagebionetworks.bridge.BridgeConstants.API_DEFAULT_PAGE_SIZE;
 import static org.sagebionetworks.bridge.BridgeConstants.API_MAXIMUM_PAGE_SIZE;
@@ -229,9 +230,7 @@ public class TemplateService {
 
         ResourceList<Template> results = (ResourceList<Template>)templateDao.getTemplates(
                 context.getAppId(), type, null, null, false);
-        for (Template template : results.getItems()) {
-            loadCriteria(template);
-        }
+        loadCriteria(context.getAppId(), results.getItems());
 
         List<Template> templateMatches = CriteriaUtils.filterByCriteria(context, results.getItems(), null);
         
@@ -281,9 +280,7 @@ public class TemplateService {
         }
         
         PagedResourceList<? extends Template> templates = templateDao.getTemplates(appId, type, offset, pageSize, includeDeleted);
-        for (Template template : templates.getItems()) {
-            loadCriteria(template);
-        }
+        loadCriteria(appId, templates.getItems());
         return templates;
     }
     
@@ -297,7 +294,7 @@ public class TemplateService {
         Template template = templateDao.getTemplate(appId, guid)
                 .orElseThrow(() -> new EntityNotFoundException(Template.class));
         
-        loadCriteria(template);
+        setCriteria(template, criteriaDao.getCriteria(appId, getKey(template)));
         return template;
     }
 
@@ -395,7 +392,7 @@ public class TemplateService {
         Template template = getTemplate(appId, guid);
 
         templateDao.deleteTemplatePermanently(appId, guid);
-        criteriaDao.deleteCriteria(getKey(template));
+        criteriaDao.deleteCriteria(appId, getKey(template));
     }
     
     public void deleteTemplatesForApp(String appId) {
@@ -419,11 +416,19 @@ public class TemplateService {
             criteria = Criteria.create();
         }
         criteria.setKey(getKey(template));
-        return criteriaDao.createOrUpdateCriteria(criteria);
+        return criteriaDao.createOrUpdateCriteria(template.getAppId(), criteria);
     }
 
-    private void loadCriteria(Template template) {
-        Criteria criteria = criteriaDao.getCriteria(getKey(template));
+    // Load the criteria of all the templates in one batch.
+    private void loadCriteria(String appId, List<? extends Template> templates) {
+        Set<String> keys = templates.stream().map(this::getKey).collect(toSet());
+        Map<String, Criteria> criteriaMap = criteriaDao.getCriteria(appId, keys);
+        for (Template template : templates) {
+            setCriteria(template, criteriaMap.get(getKey(template)));
+        }
+    }
+    
+    private void setCriteria(Template template, Criteria criteria) {
         if (criteria == null) {
             criteria = Criteria.create();
         }
@@ -10,6 +10,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import javax.annotation.Resource;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
@@ -19,6 +20,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.cache.ReferenceResolutionCache;
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache;
 import org.sagebionetworks.bridge.dao.UploadSchemaDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
@@ -41,6 +44,8 @@ import org.sagebionetworks.bridge.validators.Validate;
 public class UploadSchemaService {
     private SharedModuleMetadataService sharedModuleMetadataService;
     private UploadSchemaDao uploadSchemaDao;
+    private ReferenceResolutionCache referenceResolutionCache;
+    private UploadDefinitionCache uploadDefinitionCache;
 
     /** DAO for upload schemas. This is configured by Spring. */
     @Autowired
@@ -53,6 +58,18 @@ public class UploadSchemaService {
         this.sharedModuleMetadataService = sharedModuleMetadataService;
     }
 
+    /** Cache of resolved schema references, which is invalidated when a schema changes. */
+    @Resource(name = "referenceResolutionCache")
+    public final void setReferenceResolutionCache(ReferenceResolutionCache referenceResolutionCache) {
+        this.referenceResolutionCache = referenceResolutionCache;
+    }
+
+    /** Cache of the schema revisions that uploads are validated against, which is invalidated when a schema changes. */
+    @Resource(name = "uploadDefinitionCache")
+    public final void setUploadDefinitionCache(UploadDefinitionCache uploadDefinitionCache) {
+        this.uploadDefinitionCache = uploadDefinitionCache;
+    }
+
     /**
      * Creates a schema revision using the new V4 semantics. The schema ID and revision will be taken from the
      * UploadSchema object. If the revision isn't specified, we'll get the latest schema rev for the schema ID and use
@@ -78,7 +95,10 @@ public class UploadSchemaService {
         Validate.entityThrowingException(UploadSchemaValidator.INSTANCE, schema);
 
         // call through to DAO
-        return uploadSchemaDao.createSchemaRevision(schema);
+        UploadSchema created = uploadSchemaDao.createSchemaRevision(schema);
+        referenceResolutionCache.invalidateSchema(appId, schema.getSchemaId());
+        uploadDefinitionCache.invalidateSchema(appId, schema.getSchemaId());
+        return created;
     }
 
     /**
@@ -114,7 +134,10 @@ public class UploadSchemaService {
         Validate.entityThrowingException(UploadSchemaValidator.INSTANCE, schema);
 
         // call through to DAO
-        return uploadSchemaDao.createSchemaRevision(schema);
+        UploadSchema created = uploadSchemaDao.createSchemaRevision(schema);
+        referenceResolutionCache.invalidateSchema(appId, schema.getSchemaId());
+        uploadDefinitionCache.invalidateSchema(appId, schema.getSchemaId());
+        return created;
     }
 
     /**
@@ -219,6 +242,8 @@ public class UploadSchemaService {
 
         List<UploadSchema> schemaList = getSchemaRevisionsForDelete(appId, schemaId);
         uploadSchemaDao.deleteUploadSchemas(schemaList);
+        referenceResolutionCache.invalidateSchema(appId, schemaId);
+        uploadDefinitionCache.invalidateSchema(appId, schemaId);
     }
 
     public void deleteUploadSchemaByIdPermanently(String appId, String schemaId) {
@@ -226,6 +251,8 @@ public class UploadSchemaService {
 
         List<UploadSchema> schemaList = getSchemaRevisionsForDelete(appId, schemaId);
         uploadSchemaDao.deleteUploadSchemasPermanently(schemaList);
+        referenceResolutionCache.invalidateSchema(appId, schemaId);
+        uploadDefinitionCache.invalidateSchema(appId, schemaId);
     }
 
     protected List<UploadSchema> getSchemaRevisionsForDelete(String appId, String schemaId) {
@@ -259,7 +286,9 @@ public class UploadSchemaService {
         if (schema == null || schema.isDeleted()) {
             throw new EntityNotFoundException(UploadSchema.class);
         }
-        uploadSchemaDao.deleteUploadSchemas(ImmutableList.of(schema));    
+        uploadSchemaDao.deleteUploadSchemas(ImmutableList.of(schema));
+        referenceResolutionCache.invalidateSchema(appId, schemaId);
+        uploadDefinitionCache.invalidateSchema(appId, schemaId);
     }
     
     public void deleteUploadSchemaByIdAndRevisionPermanently(String appId, String schemaId, int rev) {
@@ -269,7 +298,9 @@ public class UploadSchemaService {
         if (schema == null) {
             throw new EntityNotFoundException(UploadSchema.class);
         }
-        uploadSchemaDao.deleteUploadSchemasPermanently(ImmutableList.of(schema));    
+        uploadSchemaDao.deleteUploadSchemasPermanently(ImmutableList.of(schema));
+        referenceResolutionCache.invalidateSchema(appId, schemaId);
+        uploadDefinitionCache.invalidateSchema(appId, schemaId);
     }
 
     /** Returns all revisions of all schemas. */
@@ -512,7 +543,10 @@ public class UploadSchemaService {
         }
 
         // Call through to the DAO
-        return uploadSchemaDao.updateSchemaRevision(schemaToUpdate);
+        UploadSchema updated = uploadSchemaDao.updateSchemaRevision(schemaToUpdate);
+        referenceResolutionCache.invalidateSchema(appId, schemaId);
+        uploadDefinitionCache.invalidateSchema(appId, schemaId);
+        return updated;
     }
 
     // Helper method to get a map of fields by name for an Upload Schema. Returns a TreeMap so our error messaging has
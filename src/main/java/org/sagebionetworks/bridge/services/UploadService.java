@@ -12,6 +12,8 @@ import java.net.URL;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
@@ -34,6 +36,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.Validator;
 
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.UploadDao;
 import org.sagebionetworks.bridge.dao.UploadDedupeDao;
@@ -41,6 +45,7 @@ import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
 import org.sagebionetworks.bridge.exceptions.NotFoundException;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
 import org.sagebionetworks.bridge.time.DateUtils;
 import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
@@ -52,6 +57,7 @@ import org.sagebionetworks.bridge.models.upload.UploadSession;
 import org.sagebionetworks.bridge.models.upload.UploadStatus;
 import org.sagebionetworks.bridge.models.upload.UploadValidationStatus;
 import org.sagebionetworks.bridge.models.upload.UploadView;
+import org.sagebionetworks.bridge.upload.UploadCompletionNotifier;
 import org.sagebionetworks.bridge.validators.UploadValidator;
 import org.sagebionetworks.bridge.validators.Validate;
 
@@ -64,6 +70,8 @@ public class UploadService {
     
     // package-scoped to be available in unit tests
     static final String CONFIG_KEY_UPLOAD_BUCKET = "upload.bucket";
+    static final String STATUS_READ_OVERLOADED_MESSAGE = "Too many requests are waiting for upload validation, "
+            + "please check the upload's status later.";
 
     private HealthDataService healthDataService;
     private AmazonS3 s3UploadClient;
@@ -75,11 +83,11 @@ public class UploadService {
     private UploadValidationService uploadValidationService;
     private Validator validator;
 
-    // These parameters can be overriden to facilitate testing.
-    // By default, we sleep 5 seconds, including right at the start and end. This means on our 7th iteration,
-    // 30 seconds will have passed.
-    private int pollValidationStatusMaxIterations = 7;
-    private long pollValidationStatusSleepMillis = 5000;
+    private AsyncExecutor asyncExecutor;
+    private UploadCompletionNotifier uploadCompletionNotifier;
+
+    // This can be overriden to facilitate testing.
+    private long validationStatusTimeoutMillis = 30000;
 
     /** Sets parameters from the specified Bridge config. */
     @Autowired
@@ -131,20 +139,24 @@ public class UploadService {
         this.validator = validator;
     }
 
-    /**
-     * Number of iterations while polling for validation status before we time out. This is used primarily by tests to
-     * reduce the amount of wait time during tests.
-     */
-    public final void setPollValidationStatusMaxIterations(int pollValidationStatusMaxIterations) {
-        this.pollValidationStatusMaxIterations = pollValidationStatusMaxIterations;
+    /** Async executor, to read the validation status again once validation has finished. */
+    @Resource(name = "asyncExecutor")
+    public final void setAsyncExecutor(AsyncExecutor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    /** Signals when upload validation has finished. This is configured by Spring. */
+    @Resource(name = "uploadCompletionNotifier")
+    public final void setUploadCompletionNotifier(UploadCompletionNotifier uploadCompletionNotifier) {
+        this.uploadCompletionNotifier = uploadCompletionNotifier;
     }
 
     /**
-     * Milliseconds to sleep per iterations while polling for validation status. This is used primarily by tests to
-     * reduce the amount of wait time during tests.
+     * Milliseconds to wait for validation to finish before we time out. This is used primarily by tests to reduce the
+     * amount of wait time during tests.
      */
-    public final void setPollValidationStatusSleepMillis(long pollValidationStatusSleepMillis) {
-        this.pollValidationStatusSleepMillis = pollValidationStatusSleepMillis;
+    public final void setValidationStatusTimeoutMillis(long validationStatusTimeoutMillis) {
+        this.validationStatusTimeoutMillis = validationStatusTimeoutMillis;
     }
 
     public UploadSession createUpload(String appId, StudyParticipant participant, UploadRequest uploadRequest) {
@@ -366,35 +378,61 @@ public class UploadService {
     }
 
     /**
-     * Polls for validation status for a given upload ID. Polls until validation is complete or otherwise is in a state
-     * where further polling won't get any results (like validation failed, or upload is requested but not yet
-     * uploaded), or until it times out. See getUploadValidationStatus() for more details.
+     * Gets the validation status for a given upload ID once validation is complete or otherwise is in a state where
+     * further waiting won't get any results (like validation failed, or upload is requested but not yet uploaded).
+     * No thread is held while waiting: the status is read again when the validation task signals that it has
+     * finished, or when the wait times out. See getUploadValidationStatus() for more details.
      */
-    public UploadValidationStatus pollUploadValidationStatusUntilComplete(String uploadId) {
-        // Loop logic is a little wonky. (Loop-and-a-half problem.) Use an infinite loop here and rely on tests to make
-        // sure we don't go infinite.
-        int numIters = 0;
-        while (true) {
-            UploadValidationStatus validationStatus = getUploadValidationStatus(uploadId);
-            if (validationStatus.getStatus() != UploadStatus.VALIDATION_IN_PROGRESS) {
-                // Validation is either finished processing, or otherwise in a state where it's pointless to wait.
-                // Return the answer we have now.
-                return validationStatus;
-            }
+    public CompletableFuture<UploadValidationStatus> getUploadValidationStatusWhenComplete(String uploadId) {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(validationStatusTimeoutMillis);
+        return waitForUploadValidationStatus(uploadId, deadlineNanos);
+    }
 
-            // Short-circuit: If we've elapsed our timeout, just exit now. Don't wait for a sleep.
-            numIters++;
-            if (numIters >= pollValidationStatusMaxIterations) {
-                throw new BridgeServiceException("Timeout polling validation status for upload " + uploadId);
-            }
+    private CompletableFuture<UploadValidationStatus> waitForUploadValidationStatus(String uploadId,
+            long deadlineNanos) {
+        // Start waiting before reading the status, so we don't miss a signal sent in between.
+        long remainingMillis = Math.max(0L, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+        CompletableFuture<Void> completion = uploadCompletionNotifier.awaitCompletion(uploadId, remainingMillis);
 
-            // Sleep and try again.
-            try {
-                Thread.sleep(pollValidationStatusSleepMillis);
-            } catch (InterruptedException ex) {
-                logger.error("Interrupted while polling for validation status: " + ex.getMessage());
-            }
+        UploadValidationStatus validationStatus;
+        try {
+            validationStatus = getUploadValidationStatus(uploadId);
+        } catch (RuntimeException ex) {
+            completion.cancel(false);
+            return failedFuture(ex);
+        }
+        if (validationStatus.getStatus() != UploadStatus.VALIDATION_IN_PROGRESS) {
+            // Validation is either finished processing, or otherwise in a state where it's pointless to wait.
+            // Return the answer we have now.
+            completion.cancel(false);
+            return CompletableFuture.completedFuture(validationStatus);
+        }
+        if (remainingMillis == 0L) {
+            completion.cancel(false);
+            return failedFuture(new BridgeServiceException("Timeout polling validation status for upload "
+                    + uploadId));
         }
+        // The signal arrives on the validation or Redis listener thread, so read the status in the interactive lane.
+        return completion.thenComposeAsync((v) -> waitForUploadValidationStatus(uploadId, deadlineNanos),
+                this::executeStatusRead);
+    }
+
+    private void executeStatusRead(Runnable task) {
+        try {
+            asyncExecutor.execute(AsyncLane.INTERACTIVE, task);
+        } catch (RejectedExecutionException e) {
+            // The interactive lane is full. The signalling thread (the completion timer or the Redis listener) wakes
+            // every waiting call, so it must never do I/O. Fail this call instead; the future completes with this
+            // exception, and the client can read the status later.
+            logger.warn("Interactive lane is full, not reading validation status for upload");
+            throw new ServiceUnavailableException(STATUS_READ_OVERLOADED_MESSAGE);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable ex) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(ex);
+        return future;
     }
 
     public void uploadComplete(String appId, UploadCompletionClient completedBy, Upload upload,
@@ -3,10 +3,11 @@ package org.sagebionetworks.bridge.services;
 import javax.annotation.Nonnull;
 import javax.annotation.Resource;
 
-import java.util.concurrent.ExecutorService;
-
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
 import org.sagebionetworks.bridge.models.upload.Upload;
 import org.sagebionetworks.bridge.upload.UploadValidationTask;
 import org.sagebionetworks.bridge.upload.UploadValidationTaskFactory;
@@ -14,13 +15,13 @@ import org.sagebionetworks.bridge.upload.UploadValidationTaskFactory;
 /** Service handler for upload validation. */
 @Component
 public class UploadValidationService {
-    private ExecutorService asyncExecutorService;
+    private AsyncExecutor asyncExecutor;
     private UploadValidationTaskFactory taskFactory;
 
     /** Async thread pool. This is configured by Spring. */
-    @Resource(name = "asyncExecutorService")
-    public void setAsyncExecutorService(ExecutorService asyncExecutorService) {
-        this.asyncExecutorService = asyncExecutorService;
+    @Resource(name = "asyncExecutor")
+    public void setAsyncExecutor(AsyncExecutor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
     }
 
     /** Task factory. This is configured by Spring. */
@@ -35,6 +36,10 @@ public class UploadValidationService {
      * method returns immediately. Call UploadService.getUpload() to check for validation status and messages.
      * </p>
      * <p>
+     * Validation runs in its own lane, shared fairly between apps. If the lane is backed up, validation runs on the
+     * calling thread.
+     * </p>
+     * <p>
      * App and user comes from the controller and upload comes from UploadService.getUpload(), so none of the fields
      * are user input, so validation is not needed.
      * </p>
@@ -46,6 +51,6 @@ public class UploadValidationService {
      */
     public void validateUpload(@Nonnull String appId, @Nonnull Upload upload) {
         UploadValidationTask task = taskFactory.newTask(appId, upload);
-        asyncExecutorService.execute(task);
+        asyncExecutor.execute(AsyncLane.UPLOAD_VALIDATION, appId, task);
     }
 }
@@ -28,6 +28,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.Resource;
+
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
@@ -41,7 +43,9 @@ import com.google.common.net.HttpHeaders;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.fluent.Executor;
 import org.apache.http.client.fluent.Request;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.message.BasicHeader;
 import org.hl7.fhir.dstu3.model.Address;
 import org.hl7.fhir.dstu3.model.Appointment;
@@ -157,6 +161,8 @@ public class CRCController extends BaseController {
 
     private HealthDataService healthDataService;
 
+    private Executor httpExecutor;
+
     @Autowired
     final void setParticipantService(ParticipantService participantService) {
         this.participantService = participantService;
@@ -172,6 +178,12 @@ public class CRCController extends BaseController {
         this.healthDataService = healthDataService;
     }
 
+    /** Requests to CUIMC are executed on the shared, pooled client, so they reuse connections. */
+    @Resource(name = "outboundHttpClient")
+    final void setHttpClient(CloseableHttpClient httpClient) {
+        this.httpExecutor = Executor.newInstance(httpClient);
+    }
+
     DateTime getTimestamp() {
         return DateTime.now().withZone(DateTimeZone.UTC);
     }
@@ -433,23 +445,23 @@ public class CRCController extends BaseController {
     HttpResponse put(String url, String bodyJson, Account account) throws IOException {
         Request request = Request.Put(url).bodyString(bodyJson, APPLICATION_JSON);
         request = addAuthorizationHeader(request, account);
-        return request.execute().returnResponse();
+        return httpExecutor.execute(request).returnResponse();
     }
     
     HttpResponse get(String url) throws IOException {
-        return Request.Get(url).execute().returnResponse();
+        return httpExecutor.execute(Request.Get(url)).returnResponse();
     }
 
 //    HttpResponse get(String url, Account account) throws IOException {
 //        Request request = Request.Get(url);
 //        request = addAuthorizationHeader(request, account);
-//        return request.execute().returnResponse();
+//        return httpExecutor.execute(request).returnResponse();
 //    }
     
     HttpResponse post(String url, Account account, String body) throws IOException {
         Request request = Request.Post(url).bodyString(body, APPLICATION_FORM_URLENCODED);
         request = addAuthorizationHeader(request, account);
-        return request.execute().returnResponse();
+        return httpExecutor.execute(request).returnResponse();
     }
 
     private Request addAuthorizationHeader(Request request, Account account) {
@@ -0,0 +1,79 @@
+package org.sagebionetworks.bridge.spring.controllers;
+
+import static org.sagebionetworks.bridge.Roles.SUPERADMIN;
+
+import java.util.Map;
+
+import javax.annotation.Resource;
+
+import com.google.common.collect.ImmutableMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncExecutor.LaneStats;
+import org.sagebionetworks.bridge.async.AsyncLane;
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache;
+import org.sagebionetworks.bridge.http.OutboundHttpClient;
+import org.sagebionetworks.bridge.upload.UploadValidationMetrics;
+
+/** Counters and timings of this server's internal subsystems, for operators. */
+@CrossOrigin
+@RestController
+public class ServerMetricsController extends BaseController {
+    
+    private AsyncExecutor asyncExecutor;
+    
+    private UploadValidationMetrics uploadValidationMetrics;
+    
+    private UploadDefinitionCache uploadDefinitionCache;
+    
+    private OutboundHttpClient outboundHttpClient;
+    
+    @Resource(name = "asyncExecutor")
+    final void setAsyncExecutor(AsyncExecutor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+    
+    @Autowired
+    final void setUploadValidationMetrics(UploadValidationMetrics uploadValidationMetrics) {
+        this.uploadValidationMetrics = uploadValidationMetrics;
+    }
+    
+    @Resource(name = "uploadDefinitionCache")
+    final void setUploadDefinitionCache(UploadDefinitionCache uploadDefinitionCache) {
+        this.uploadDefinitionCache = uploadDefinitionCache;
+    }
+    
+    @Resource(name = "outboundHttpClient")
+    final void setOutboundHttpClient(OutboundHttpClient outboundHttpClient) {
+        this.outboundHttpClient = outboundHttpClient;
+    }
+    
+    @GetMapping("/v1/admin/metrics/async")
+    public Map<AsyncLane, LaneStats> getAsyncExecutorStats() {
+        getAuthenticatedSession(SUPERADMIN);
+        
+        return asyncExecutor.getStats();
+    }
+    
+    @GetMapping("/v1/admin/metrics/uploadvalidation")
+    public Map<String, Object> getUploadValidationStats() {
+        getAuthenticatedSession(SUPERADMIN);
+        
+        return ImmutableMap.of("handlers", uploadValidationMetrics.getHandlerStats(),
+                "uploads", uploadValidationMetrics.getUploadStats(),
+                "definitionCache", uploadDefinitionCache.getStats());
+    }
+    
+    @GetMapping("/v1/admin/metrics/http")
+    public Map<String, Object> getOutboundHttpStats() {
+        getAuthenticatedSession(SUPERADMIN);
+        
+        return ImmutableMap.of("hosts", outboundHttpClient.getHostStats(),
+                "pools", outboundHttpClient.getPoolStats(),
+                "totalPool", outboundHttpClient.getTotalPoolStats());
+    }
+}
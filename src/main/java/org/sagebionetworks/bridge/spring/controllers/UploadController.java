@@ -7,6 +7,7 @@ import static org.sagebionetworks.bridge.Roles.WORKER;
 import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
 
 import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
@@ -20,6 +21,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import org.sagebionetworks.bridge.Roles;
 import org.sagebionetworks.bridge.dao.HealthCodeDao;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
 import org.sagebionetworks.bridge.models.Metrics;
@@ -108,7 +110,8 @@ public class UploadController extends BaseController {
      * <p>
      * If synchronous is set to "true", we will wait until upload validation is complete, then return the upload
      * validation status. This is generally recommended only for App Development, as some large uploads might take
-     * several seconds to complete.
+     * several seconds to complete. The request thread is released while we wait, and the response is written when
+     * validation signals that it has finished.
      * </p>
      * <p>
      * If synchronous is set to anything else, we will return a validation status immediately (which will often be in
@@ -120,7 +123,7 @@ public class UploadController extends BaseController {
      * </p>
      */
     @PostMapping(path={"/v3/uploads/{uploadId}/complete", "/api/v1/upload/{uploadId}/complete"}, produces={APPLICATION_JSON_UTF8_VALUE})
-    public String uploadComplete(@PathVariable String uploadId,
+    public CompletableFuture<String> uploadComplete(@PathVariable String uploadId,
             @RequestParam(defaultValue = "false") boolean synchronous,
             @RequestParam(defaultValue = "false") boolean redrive) throws Exception {
         final Metrics metrics = getMetrics();
@@ -153,16 +156,22 @@ public class UploadController extends BaseController {
         uploadService.uploadComplete(appId, uploadCompletionClient, upload, redrive);
 
         // In async mode, we get the validation status (probably in validation_in_progress) and return immediately.
-        // In sync mode, we poll until the validation status is complete (or failed or another non-transient status).
-        UploadValidationStatus validationStatus;
+        // In sync mode, we wait until the validation status is complete (or failed or another non-transient status).
         if (synchronous) {
-            validationStatus = uploadService.pollUploadValidationStatusUntilComplete(uploadId);
-        } else {
-            validationStatus = uploadService.getUploadValidationStatus(uploadId);
+            return uploadService.getUploadValidationStatusWhenComplete(uploadId)
+                    .thenApply(UploadController::writeValidationStatus);
+        }
+        UploadValidationStatus validationStatus = uploadService.getUploadValidationStatus(uploadId);
+        return CompletableFuture.completedFuture(writeValidationStatus(validationStatus));
+    }
+    
+    // Upload validation status may contain the health data record. Use the filter to filter out health code.
+    private static String writeValidationStatus(UploadValidationStatus validationStatus) {
+        try {
+            return HealthDataRecord.PUBLIC_RECORD_WRITER.writeValueAsString(validationStatus);
+        } catch (JsonProcessingException ex) {
+            throw new BridgeServiceException(ex);
         }
-
-        // Upload validation status may contain the health data record. Use the filter to filter out health code.
-        return HealthDataRecord.PUBLIC_RECORD_WRITER.writeValueAsString(validationStatus);
     }
     
     @GetMapping("/v3/uploads/{uploadId}")
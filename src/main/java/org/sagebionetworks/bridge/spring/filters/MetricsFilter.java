@@ -7,6 +7,8 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -62,22 +64,51 @@ public class MetricsFilter implements Filter {
 
         metrics.setQueryParams(paramsMap);
 
+        boolean asyncStarted = false;
         try {
             chain.doFilter(req, res);
-            metrics.setStatus(response.getStatus());
-        } finally {
-            // Log session info when a session is present
-            UserSession session = (UserSession) request.getAttribute("CreatedUserSession");
-            if (session != null) {
-                // Record UserSession to Metrics.
-                writeSessionInfoToMetrics(metrics, session);
+            asyncStarted = request.isAsyncStarted();
+            if (!asyncStarted) {
+                metrics.setStatus(response.getStatus());
             }
-            if (response.getHeader(X_PASSTHROUGH) == null) {
-                metrics.end();
-                LOG.info(metrics.toJsonString());
+        } finally {
+            if (asyncStarted) {
+                // The controller returned before the response was written (e.g. a synchronous upload complete call 
+                // waiting on validation). Log the metrics when the response is finished.
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        metrics.setStatus(response.getStatus());
+                        logMetrics(request, response, metrics);
+                    }
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                logMetrics(request, response, metrics);
             }
         }
     }
+    
+    private static void logMetrics(HttpServletRequest request, HttpServletResponse response, Metrics metrics) {
+        // Log session info when a session is present
+        UserSession session = (UserSession) request.getAttribute("CreatedUserSession");
+        if (session != null) {
+            // Record UserSession to Metrics.
+            writeSessionInfoToMetrics(metrics, session);
+        }
+        if (response.getHeader(X_PASSTHROUGH) == null) {
+            metrics.end();
+            LOG.info(metrics.toJsonString());
+        }
+    }
 
     private String header(HttpServletRequest request, String name, String defaultVal) {
         final String value = request.getHeader(name);
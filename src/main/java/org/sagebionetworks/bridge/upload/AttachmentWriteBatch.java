@@ -0,0 +1,118 @@
+package org.sagebionetworks.bridge.upload;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The attachment writes started while validating a single upload. Writes run on the given executor, at most
+ * maxConcurrentWrites at a time, so that an upload with many attachment fields doesn't wait on one S3 write after
+ * another, but also can't take every connection from the other uploads. The health data record refers to the
+ * attachments by name, so it must not be saved until {@link #join} returns.
+ *
+ * This is not thread-safe. Writes should be submitted and joined by the thread validating the upload.
+ */
+public class AttachmentWriteBatch {
+    /** A single attachment write. */
+    @FunctionalInterface
+    public interface Write {
+        void run() throws IOException;
+    }
+
+    private final Executor executor;
+    private final Semaphore permits;
+    private final List<PendingWrite> pendingWrites = new ArrayList<>();
+
+    /** Creates a batch that writes each attachment on the calling thread, when it's submitted. */
+    public AttachmentWriteBatch() {
+        this(Runnable::run, 1);
+    }
+
+    /** Creates a batch that runs writes on the executor, at most maxConcurrentWrites at a time. */
+    public AttachmentWriteBatch(Executor executor, int maxConcurrentWrites) {
+        checkNotNull(executor);
+        checkArgument(maxConcurrentWrites > 0);
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrentWrites);
+    }
+
+    /**
+     * Starts the write. If the batch already has maxConcurrentWrites in progress, this blocks until one of them
+     * finishes. If the write fails, {@link #join} throws an UploadValidationException with the given error message.
+     */
+    public void submit(String errorMessage, Write write) throws UploadValidationException {
+        checkNotNull(write);
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new UploadValidationException(errorMessage, ex);
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    write.run();
+                    future.complete(null);
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException ex) {
+            // The executor rejected the write.
+            permits.release();
+            future.completeExceptionally(ex);
+        }
+        pendingWrites.add(new PendingWrite(errorMessage, future));
+    }
+
+    /**
+     * Waits for all submitted writes to finish. If any failed, this throws for the first one that failed, after the
+     * rest have finished.
+     */
+    public void join() throws UploadValidationException {
+        UploadValidationException firstError = null;
+        for (PendingWrite pendingWrite : pendingWrites) {
+            try {
+                pendingWrite.future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new UploadValidationException(pendingWrite.errorMessage, ex);
+            } catch (ExecutionException ex) {
+                if (firstError == null) {
+                    firstError = new UploadValidationException(pendingWrite.errorMessage, ex.getCause());
+                }
+            }
+        }
+        pendingWrites.clear();
+
+        if (firstError != null) {
+            throw firstError;
+        }
+    }
+
+    /** Number of writes that have been submitted and not yet joined. */
+    int getPendingWriteCount() {
+        return pendingWrites.size();
+    }
+
+    private static final class PendingWrite {
+        private final String errorMessage;
+        private final CompletableFuture<Void> future;
+
+        private PendingWrite(String errorMessage, CompletableFuture<Void> future) {
+            this.errorMessage = errorMessage;
+            this.future = future;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nonnull;
+import javax.annotation.Resource;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.NullNode;
@@ -17,6 +18,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache;
 import org.sagebionetworks.bridge.file.FileHelper;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.time.DateUtils;
@@ -54,6 +56,7 @@ public class GenericUploadFormatHandler implements UploadValidationHandler {
     private int dataFileSizeLimit = UploadUtil.FILE_SIZE_LIMIT_DATA_FILE;
     private FileHelper fileHelper;
     private SurveyService surveyService;
+    private UploadDefinitionCache uploadDefinitionCache;
     private UploadFileHelper uploadFileHelper;
     private UploadSchemaService uploadSchemaService;
 
@@ -68,6 +71,12 @@ public class GenericUploadFormatHandler implements UploadValidationHandler {
         this.fileHelper = fileHelper;
     }
 
+    /** Cache of the schema revisions and survey versions that uploads are validated against. */
+    @Resource(name = "uploadDefinitionCache")
+    public final void setUploadDefinitionCache(UploadDefinitionCache uploadDefinitionCache) {
+        this.uploadDefinitionCache = uploadDefinitionCache;
+    }
+
     /**
      * Upload file helper, used to find upload fields in a list of files, and parse files and upload attachments as
      * needed.
@@ -125,8 +134,7 @@ public class GenericUploadFormatHandler implements UploadValidationHandler {
 
             // Get survey. We use the survey identifier as the schema ID and the schema revision. Both of these must be
             // specified.
-            GuidCreatedOnVersionHolder surveyKeys = new GuidCreatedOnVersionHolderImpl(surveyGuid, surveyCreatedOnMillis);
-            Survey survey = surveyService.getSurvey(appId, surveyKeys, false, true);
+            Survey survey = getSurvey(appId, surveyGuid, surveyCreatedOnMillis);
             String surveySchemaId = survey.getIdentifier();
             Integer surveySchemaRev = survey.getSchemaRevision();
             if (StringUtils.isBlank(surveySchemaId) || surveySchemaRev == null) {
@@ -136,7 +144,7 @@ public class GenericUploadFormatHandler implements UploadValidationHandler {
 
             // Get the schema with the schema ID and rev.
             // Note that if there's no schema, we treat this like schemaless.
-            return uploadSchemaService.getUploadSchemaByIdAndRevNoThrow(appId, surveySchemaId, surveySchemaRev);
+            return getUploadSchemaByIdAndRev(appId, surveySchemaId, surveySchemaRev);
         }
 
         // Fall back to getting by schema.
@@ -144,7 +152,7 @@ public class GenericUploadFormatHandler implements UploadValidationHandler {
         Integer schemaRev = JsonUtils.asInt(infoJson, UploadUtil.FIELD_SCHEMA_REV);
         if (StringUtils.isNotBlank(schemaId) && schemaRev != null) {
             // Note that if there's no schema, we treat this like schemaless.
-            return uploadSchemaService.getUploadSchemaByIdAndRevNoThrow(appId, schemaId, schemaRev);
+            return getUploadSchemaByIdAndRev(appId, schemaId, schemaRev);
         } else {
             // Schemaless.
             return null;
@@ -180,6 +188,19 @@ public class GenericUploadFormatHandler implements UploadValidationHandler {
         }
     }
 
+    // Helper method to get a survey version, which is cached between uploads.
+    private Survey getSurvey(String appId, String surveyGuid, long surveyCreatedOnMillis) {
+        GuidCreatedOnVersionHolder surveyKeys = new GuidCreatedOnVersionHolderImpl(surveyGuid, surveyCreatedOnMillis);
+        return uploadDefinitionCache.getSurvey(appId, surveyGuid, surveyCreatedOnMillis,
+                () -> surveyService.getSurvey(appId, surveyKeys, false, true));
+    }
+
+    // Helper method to get a schema revision, which is cached between uploads. Returns null if there's no schema.
+    private UploadSchema getUploadSchemaByIdAndRev(String appId, String schemaId, int schemaRev) {
+        return uploadDefinitionCache.getUploadSchema(appId, schemaId, schemaRev,
+                () -> uploadSchemaService.getUploadSchemaByIdAndRevNoThrow(appId, schemaId, schemaRev));
+    }
+
     // Helper method that, copies health data from the jsonDataMap and unzippedData maps to the dataMap or
     // attachmentMap, based on a schema. Also handles flattening and sanitization.
     private void handleData(UploadValidationContext context, String dataFilename,
@@ -220,13 +241,13 @@ public class GenericUploadFormatHandler implements UploadValidationHandler {
 
                 if (UploadFieldType.ATTACHMENT_TYPE_SET.contains(oneFieldDef.getType())) {
                     fieldNode = uploadFileHelper.uploadJsonNodeAsAttachment(fieldNodeFromDataFile, uploadId,
-                            fieldName);
+                            fieldName, context.getAttachmentWrites());
                 } else {
                     fieldNode = fieldNodeFromDataFile;
                 }
             } else {
                 fieldNode = uploadFileHelper.findValueForField(uploadId, sanitizedUnzippedDataFileMap, oneFieldDef,
-                        parsedSanitizedJsonFileCache);
+                        parsedSanitizedJsonFileCache, context.getAttachmentWrites());
             }
 
             if (fieldNode != null && !fieldNode.isNull()) {
@@ -235,7 +256,8 @@ public class GenericUploadFormatHandler implements UploadValidationHandler {
                 // Special case: This is the auto-generated "answers" field for surveys. Since surveys are usually
                 // submitted using the dataFile, this should be populated by just copying over the dataFile.
                 if (UploadFieldType.ATTACHMENT_TYPE_SET.contains(oneFieldDef.getType())) {
-                    fieldNode = uploadFileHelper.uploadJsonNodeAsAttachment(dataFileNode, uploadId, fieldName);
+                    fieldNode = uploadFileHelper.uploadJsonNodeAsAttachment(dataFileNode, uploadId, fieldName,
+                            context.getAttachmentWrites());
                 } else {
                     fieldNode = dataFileNode;
                 }
@@ -24,6 +24,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache;
 import org.sagebionetworks.bridge.file.FileHelper;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.time.DateUtils;
@@ -85,6 +86,7 @@ public class IosSchemaValidationHandler2 implements UploadValidationHandler {
     private Map<String, Map<String, Integer>> defaultSchemaRevisionMap;
     private FileHelper fileHelper;
     private SurveyService surveyService;
+    private UploadDefinitionCache uploadDefinitionCache;
     private UploadFileHelper uploadFileHelper;
     private UploadSchemaService uploadSchemaService;
 
@@ -105,6 +107,12 @@ public class IosSchemaValidationHandler2 implements UploadValidationHandler {
         this.surveyService = surveyService;
     }
 
+    /** Cache of the schema revisions and survey versions that uploads are validated against. */
+    @Resource(name = "uploadDefinitionCache")
+    public final void setUploadDefinitionCache(UploadDefinitionCache uploadDefinitionCache) {
+        this.uploadDefinitionCache = uploadDefinitionCache;
+    }
+
     /**
      * Upload file helper, used to find upload fields in a list of files, and parse files and upload attachments as
      * needed.
@@ -198,8 +206,7 @@ public class IosSchemaValidationHandler2 implements UploadValidationHandler {
 
         // Get survey. We use the survey identifier as the schema ID and the schema revision. Both of these must be
         // specified.
-        GuidCreatedOnVersionHolder surveyKeys = new GuidCreatedOnVersionHolderImpl(surveyGuid, surveyCreatedOnMillis);
-        Survey survey = surveyService.getSurvey(appId, surveyKeys, false, true);
+        Survey survey = getSurvey(appId, surveyGuid, surveyCreatedOnMillis);
         String schemaId = survey.getIdentifier();
         Integer schemaRev = survey.getSchemaRevision();
         if (StringUtils.isBlank(schemaId) || schemaRev == null) {
@@ -209,7 +216,7 @@ public class IosSchemaValidationHandler2 implements UploadValidationHandler {
 
         // Get the schema with the schema ID and rev.
         // Note that if there's no schema, we treat this like schemaless.
-        return uploadSchemaService.getUploadSchemaByIdAndRevNoThrow(appId, schemaId, schemaRev);
+        return getUploadSchemaByIdAndRev(appId, schemaId, schemaRev);
     }
 
     private UploadSchema getUploadSchemaByItemAndRev(String appId, String item, Integer schemaRev) {
@@ -229,7 +236,20 @@ public class IosSchemaValidationHandler2 implements UploadValidationHandler {
 
         // get schema
         // Note that if there's no schema, we treat this like schemaless.
-        return uploadSchemaService.getUploadSchemaByIdAndRevNoThrow(appId, item, schemaRev);
+        return getUploadSchemaByIdAndRev(appId, item, schemaRev);
+    }
+
+    // Helper method to get a survey version, which is cached between uploads.
+    private Survey getSurvey(String appId, String surveyGuid, long surveyCreatedOnMillis) {
+        GuidCreatedOnVersionHolder surveyKeys = new GuidCreatedOnVersionHolderImpl(surveyGuid, surveyCreatedOnMillis);
+        return uploadDefinitionCache.getSurvey(appId, surveyGuid, surveyCreatedOnMillis,
+                () -> surveyService.getSurvey(appId, surveyKeys, false, true));
+    }
+
+    // Helper method to get a schema revision, which is cached between uploads. Returns null if there's no schema.
+    private UploadSchema getUploadSchemaByIdAndRev(String appId, String schemaId, int schemaRev) {
+        return uploadDefinitionCache.getUploadSchema(appId, schemaId, schemaRev,
+                () -> uploadSchemaService.getUploadSchemaByIdAndRevNoThrow(appId, schemaId, schemaRev));
     }
 
     private static void validateInfoJsonFileList(UploadValidationContext context, String uploadId,
@@ -440,13 +460,14 @@ public class IosSchemaValidationHandler2 implements UploadValidationHandler {
                 if (UploadFieldType.ATTACHMENT_TYPE_SET.contains(oneFieldDef.getType())) {
                     // Attachments in a survey. This is unusual, but there's nothing in our schema system that prevents
                     // this. We should handle it just to be safe.
-                    fieldNode = uploadFileHelper.uploadJsonNodeAsAttachment(surveyAnswerNode, uploadId, fieldName);
+                    fieldNode = uploadFileHelper.uploadJsonNodeAsAttachment(surveyAnswerNode, uploadId, fieldName,
+                            context.getAttachmentWrites());
                 } else {
                     fieldNode = surveyAnswerNode;
                 }
             } else {
                 fieldNode = uploadFileHelper.findValueForField(uploadId, sanitizedUnzippedDataFileMap, oneFieldDef,
-                        parsedSanitizedJsonFileCache);
+                        parsedSanitizedJsonFileCache, context.getAttachmentWrites());
             }
 
             // Copy the field to the record.
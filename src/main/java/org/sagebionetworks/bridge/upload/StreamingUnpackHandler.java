@@ -0,0 +1,148 @@
+package org.sagebionetworks.bridge.upload;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Resource;
+
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.S3Object;
+import com.google.common.base.Stopwatch;
+import com.google.common.io.ByteStreams;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.TeeInputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import org.sagebionetworks.bridge.config.BridgeConfigFactory;
+import org.sagebionetworks.bridge.file.FileHelper;
+import org.sagebionetworks.bridge.models.upload.Upload;
+import org.sagebionetworks.bridge.services.UploadArchiveService;
+
+/**
+ * Validation handler that does the work of {@link S3DownloadHandler}, {@link DecryptHandler}, and
+ * {@link UnzipHandler} in a single pass. The S3 object is decrypted and unzipped as it is read, so the encrypted
+ * upload is never written to disk and the decrypted archive is never read back from disk. The decrypted archive is
+ * still written to {@link UploadValidationContext#setDecryptedDataFile}, since it is saved as the raw data of the
+ * health data record, and the unzipped entries are written to
+ * {@link UploadValidationContext#setUnzippedDataFileMap}.
+ *
+ * The three stages run interleaved, so their times are measured from the streams: download is the time spent reading
+ * from S3, decrypt is the time spent reading from the decrypting stream less the S3 reads it made, and unzip is the
+ * rest (unzipping, and writing the decrypted and unzipped files). These are reported in
+ * {@link UploadValidationContext#setStageElapsedMillis} under the names of the handlers that do each stage on its
+ * own, so the same timings are kept whichever way uploads are unpacked.
+ */
+@Component
+public class StreamingUnpackHandler implements UploadValidationHandler {
+    private static final String UPLOAD_BUCKET = BridgeConfigFactory.getConfig().getProperty("upload.bucket");
+
+    private FileHelper fileHelper;
+    private AmazonS3Client s3Client;
+    private UploadArchiveService uploadArchiveService;
+
+    /** File helper, used to create the decrypted file and the unzipped files. */
+    @Autowired
+    public final void setFileHelper(FileHelper fileHelper) {
+        this.fileHelper = fileHelper;
+    }
+
+    /** S3 client, for streaming the upload from S3. This is configured by Spring. */
+    @Resource(name = "s3Client")
+    public final void setS3Client(AmazonS3Client s3Client) {
+        this.s3Client = s3Client;
+    }
+
+    /** Upload archive service, which handles decrypting and unzipping of files. This is configured by Spring. */
+    @Autowired
+    public final void setUploadArchiveService(UploadArchiveService uploadArchiveService) {
+        this.uploadArchiveService = uploadArchiveService;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void handle(@Nonnull UploadValidationContext context) throws UploadValidationException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        Upload upload = context.getUpload();
+        Map<String, File> unzippedDataFileMap = new HashMap<>();
+
+        // Temp file name in the form "[uploadId].zip", same as the DecryptHandler. If the upload isn't zipped, this
+        // file is the only entry in the unzipped map, same as the UnzipHandler.
+        File decryptedFile = fileHelper.newFile(context.getTempDir(), context.getUploadId() + ".zip");
+
+        long downloadNanos;
+        long decryptNanos = 0L;
+        // Note: Neither FileHelper nor CmsEncryptor introduce any buffering. Since we're creating and closing streams,
+        // it's our responsibility to add the buffered streams.
+        try (S3Object s3Object = s3Client.getObject(UPLOAD_BUCKET, upload.getObjectId());
+             TimedInputStream s3Stream = new TimedInputStream(new BufferedInputStream(s3Object.getObjectContent()));
+             TimedInputStream decryptedStream = upload.isEncrypted() ?
+                     new TimedInputStream(uploadArchiveService.decrypt(context.getAppId(), s3Stream)) : s3Stream;
+             OutputStream decryptedFileStream = new BufferedOutputStream(fileHelper.getOutputStream(decryptedFile));
+             InputStream teeStream = new TeeInputStream(decryptedStream, decryptedFileStream)) {
+            // Setting up decryption may have read the start of the upload, outside of the decrypting stream's reads.
+            long setupDownloadNanos = s3Stream.getElapsedNanos();
+            if (upload.isZipped()) {
+                // The unzipper closes its input stream, but we still need the tee to write the rest of the archive.
+                uploadArchiveService.unzip(new CloseShieldInputStream(teeStream),
+                        entryName -> newEntryOutputStream(context, unzippedDataFileMap, entryName),
+                        (entryName, outputStream) -> {
+                            try {
+                                outputStream.close();
+                            } catch (IOException ex) {
+                                // BiConsumer doesn't throw, so wrap this in a RuntimeException.
+                                throw new RuntimeException(ex);
+                            }
+                        });
+            } else {
+                unzippedDataFileMap.put(upload.getFilename(), decryptedFile);
+            }
+
+            // Read whatever is left (for zip files, the zip's central directory), so the decrypted file is complete.
+            ByteStreams.exhaust(teeStream);
+
+            downloadNanos = s3Stream.getElapsedNanos();
+            if (decryptedStream != s3Stream) {
+                decryptNanos = Math.max(0L,
+                        decryptedStream.getElapsedNanos() - (downloadNanos - setupDownloadNanos));
+            }
+        } catch (IOException ex) {
+            throw new UploadValidationException("Error downloading and unpacking file: " + ex.getMessage(), ex);
+        }
+
+        context.setDecryptedDataFile(decryptedFile);
+        context.setUnzippedDataFileMap(unzippedDataFileMap);
+
+        long totalNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+        context.setStageElapsedMillis(S3DownloadHandler.class.getSimpleName(),
+                TimeUnit.NANOSECONDS.toMillis(downloadNanos));
+        if (upload.isEncrypted()) {
+            context.setStageElapsedMillis(DecryptHandler.class.getSimpleName(),
+                    TimeUnit.NANOSECONDS.toMillis(decryptNanos));
+        }
+        if (upload.isZipped()) {
+            context.setStageElapsedMillis(UnzipHandler.class.getSimpleName(),
+                    TimeUnit.NANOSECONDS.toMillis(Math.max(0L, totalNanos - downloadNanos - decryptNanos)));
+        }
+    }
+
+    private OutputStream newEntryOutputStream(UploadValidationContext context, Map<String, File> unzippedDataFileMap,
+            String entryName) {
+        File unzippedFile = fileHelper.newFile(context.getTempDir(), entryName);
+        unzippedDataFileMap.put(entryName, unzippedFile);
+        try {
+            return new BufferedOutputStream(fileHelper.getOutputStream(unzippedFile));
+        } catch (FileNotFoundException ex) {
+            // Function doesn't throw, so wrap this in a RuntimeException.
+            throw new RuntimeException(ex);
+        }
+    }
+}
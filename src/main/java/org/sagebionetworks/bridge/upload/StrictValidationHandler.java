@@ -1,6 +1,7 @@
 package org.sagebionetworks.bridge.upload;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Resource;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -15,6 +16,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache;
 import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.healthdata.HealthDataRecord;
 import org.sagebionetworks.bridge.models.upload.UploadFieldDefinition;
@@ -54,6 +56,7 @@ public class StrictValidationHandler implements UploadValidationHandler {
     private static final Joiner ERROR_MESSAGE_JOINER = Joiner.on("; ");
 
     private AppService appService;
+    private UploadDefinitionCache uploadDefinitionCache;
     private UploadSchemaService uploadSchemaService;
 
     /** App service, used to fetch configuration for if strict validation is enabled for the given app. */
@@ -62,6 +65,12 @@ public class StrictValidationHandler implements UploadValidationHandler {
         this.appService = appService;
     }
 
+    /** Cache of the schema revisions that uploads are validated against. */
+    @Resource(name = "uploadDefinitionCache")
+    public final void setUploadDefinitionCache(UploadDefinitionCache uploadDefinitionCache) {
+        this.uploadDefinitionCache = uploadDefinitionCache;
+    }
+
     /** Upload Schema Service, used to get the schema to validate against the upload. */
     @Autowired
     public final void setUploadSchemaService(UploadSchemaService uploadSchemaService) {
@@ -83,7 +92,9 @@ public class StrictValidationHandler implements UploadValidationHandler {
         int schemaRev = record.getSchemaRevision();
 
         // get schema
-        UploadSchema schema = uploadSchemaService.getUploadSchemaByIdAndRev(context.getAppId(), schemaId, schemaRev);
+        String appId = context.getAppId();
+        UploadSchema schema = uploadDefinitionCache.getUploadSchema(appId, schemaId, schemaRev,
+                () -> uploadSchemaService.getUploadSchemaByIdAndRev(appId, schemaId, schemaRev));
         List<UploadFieldDefinition> fieldDefList = schema.getFieldDefinitions();
 
         List<String> errorList = validateAllFields(fieldDefList, recordDataNode);
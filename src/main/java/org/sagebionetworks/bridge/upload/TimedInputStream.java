@@ -0,0 +1,53 @@
+package org.sagebionetworks.bridge.upload;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that adds up the time spent reading from the stream it wraps. When streams are layered, the time of a
+ * layer is its own time minus the time of the layer it reads from.
+ */
+class TimedInputStream extends FilterInputStream {
+    private long elapsedNanos;
+
+    TimedInputStream(InputStream in) {
+        super(in);
+    }
+
+    /** Time spent in read() and skip() so far. */
+    long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long startNanos = System.nanoTime();
+        try {
+            return super.read();
+        } finally {
+            elapsedNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    // FilterInputStream.read(byte[]) calls this method.
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        long startNanos = System.nanoTime();
+        try {
+            return super.read(b, off, len);
+        } finally {
+            elapsedNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long startNanos = System.nanoTime();
+        try {
+            return super.skip(n);
+        } finally {
+            elapsedNanos += System.nanoTime() - startNanos;
+        }
+    }
+}
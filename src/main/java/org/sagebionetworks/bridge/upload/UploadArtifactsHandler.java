@@ -22,9 +22,13 @@ public class UploadArtifactsHandler implements UploadValidationHandler {
 
     /** {@inheritDoc} */
     @Override
-    public void handle(UploadValidationContext context) {
+    public void handle(UploadValidationContext context) throws UploadValidationException {
         String uploadId = context.getUploadId();
 
+        // The record refers to attachments that may still be writing. Wait for them, so we never save a record that
+        // points to a missing attachment.
+        context.getAttachmentWrites().join();
+
         // Upload health data record. Set record ID to be the same as upload ID.
         HealthDataRecord record = context.getHealthDataRecord();
         record.setId(uploadId);
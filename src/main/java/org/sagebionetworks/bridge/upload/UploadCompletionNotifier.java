@@ -0,0 +1,114 @@
+package org.sagebionetworks.bridge.upload;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import redis.clients.jedis.JedisPool;
+
+import org.sagebionetworks.bridge.cache.RedisChannel;
+
+/**
+ * Tells callers waiting on an upload when its validation has finished, so synchronous upload completion doesn't have
+ * to hold a request thread and poll DynamoDB. Validation usually runs on the node that received the upload complete
+ * call, but it can run elsewhere (for example when the S3 worker completed the upload), so a finished validation is
+ * also published on a Redis channel that every node listens to.
+ *
+ * A signal only means the caller should read the upload's status again. Waits also end when their timeout elapses,
+ * and all waits end if the Redis subscription is dropped, since signals may have been lost.
+ */
+public class UploadCompletionNotifier {
+    static final String COMPLETION_CHANNEL = "upload-validation-completed";
+
+    private final Map<String, Set<CompletableFuture<Void>>> waitersByUploadId = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "upload-completion-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Any signals sent while we were not subscribed have been lost, so wake everyone to read their status.
+    private final RedisChannel channel = new RedisChannel(COMPLETION_CHANNEL, this::completeLocally,
+            this::completeAllLocally);
+
+    public final void setJedisPool(JedisPool jedisPool) {
+        channel.setJedisPool(jedisPool);
+    }
+
+    /** The channel for completed validations on other nodes, to register with the server's subscriber. */
+    public RedisChannel getChannel() {
+        return channel;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * Returns a future that completes when validation of the upload finishes, or when the timeout elapses, whichever
+     * is first. Callers should wait before reading the upload's status, so a signal sent in between isn't missed.
+     * Cancel the future if it is no longer needed.
+     */
+    public CompletableFuture<Void> awaitCompletion(String uploadId, long timeoutMillis) {
+        checkNotNull(uploadId);
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        // Add inside compute(), so the set can't be removed by removeWaiter() before the waiter is in it.
+        waitersByUploadId.compute(uploadId, (id, waiters) -> {
+            Set<CompletableFuture<Void>> set = (waiters != null) ? waiters : ConcurrentHashMap.newKeySet();
+            set.add(waiter);
+            return set;
+        });
+
+        ScheduledFuture<?> timeout = timer.schedule(() -> waiter.complete(null), timeoutMillis,
+                TimeUnit.MILLISECONDS);
+        waiter.whenComplete((result, ex) -> {
+            timeout.cancel(false);
+            removeWaiter(uploadId, waiter);
+        });
+        return waiter;
+    }
+
+    /** Signal that validation of the upload has finished, on this node and all other nodes. */
+    public void notifyCompleted(String uploadId) {
+        checkNotNull(uploadId);
+        completeLocally(uploadId);
+        // If this fails, callers waiting on other nodes will read the status again when their wait times out.
+        channel.publish(uploadId);
+    }
+
+    /** Number of uploads with callers waiting, for tests. */
+    int getWaitingUploadCount() {
+        return waitersByUploadId.size();
+    }
+
+    void completeLocally(String uploadId) {
+        Set<CompletableFuture<Void>> waiters = waitersByUploadId.remove(uploadId);
+        if (waiters != null) {
+            for (CompletableFuture<Void> waiter : waiters) {
+                waiter.complete(null);
+            }
+        }
+    }
+
+    void completeAllLocally() {
+        for (String uploadId : waitersByUploadId.keySet()) {
+            completeLocally(uploadId);
+        }
+    }
+
+    private void removeWaiter(String uploadId, CompletableFuture<Void> waiter) {
+        waitersByUploadId.computeIfPresent(uploadId, (id, waiters) -> {
+            waiters.remove(waiter);
+            return waiters.isEmpty() ? null : waiters;
+        });
+    }
+}
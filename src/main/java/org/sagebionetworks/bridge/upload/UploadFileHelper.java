@@ -9,6 +9,8 @@ import java.util.Map;
 import javax.annotation.Resource;
 
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.transfer.TransferManager;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.TextNode;
 import com.google.common.base.Charsets;
@@ -19,6 +21,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
 import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.file.FileHelper;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
@@ -39,12 +43,24 @@ public class UploadFileHelper {
     static final String ATTACHMENT_BUCKET = BridgeConfigFactory.getConfig().getProperty("attachment.bucket");
     static final String KEY_CUSTOM_CONTENT_MD5 = "Custom-Content-MD5";
 
+    private AsyncExecutor asyncExecutor;
     private FileHelper fileHelper;
     private int inlineFileSizeLimit = UploadUtil.FILE_SIZE_LIMIT_INLINE_FIELD;
+    private int maxConcurrentWritesPerUpload = BridgeConfigFactory.getConfig().getPropertyAsInt(
+            "attachment.max.concurrent.writes.per.upload");
     private DigestUtils md5DigestUtils;
+    private long multipartThresholdBytes = BridgeConfigFactory.getConfig().getPropertyAsInt(
+            "attachment.multipart.threshold.mb") * 1024L * 1024L;
     private int parsedJsonFileSizeLimit = UploadUtil.FILE_SIZE_LIMIT_PARSED_JSON;
     private int parsedJsonWarningLimit = UploadUtil.WARNING_LIMIT_PARSED_JSON;
     private S3Helper s3Helper;
+    private TransferManager transferManager;
+
+    /** Async executor, used to write attachments concurrently. */
+    @Resource(name = "asyncExecutor")
+    public final void setAsyncExecutor(AsyncExecutor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
 
     /** File helper, used to check file sizes before parsing them into memory. */
     @Autowired
@@ -57,12 +73,26 @@ public class UploadFileHelper {
         this.inlineFileSizeLimit = inlineFileSizeLimit;
     }
 
+    /** Sets the number of attachments an upload can write at a time. This setter is to allow unit tests to override. */
+    final void setMaxConcurrentWritesPerUpload(
+            @SuppressWarnings("SameParameterValue") int maxConcurrentWritesPerUpload) {
+        this.maxConcurrentWritesPerUpload = maxConcurrentWritesPerUpload;
+    }
+
     /** Used to calculate the MD5 hash, used to submit S3 file metadata. */
     @Resource(name = "md5DigestUtils")
     public final void setMd5DigestUtils(DigestUtils md5DigestUtils) {
         this.md5DigestUtils = md5DigestUtils;
     }
 
+    /**
+     * Sets the file size at which attachments are written with a multipart upload. This setter is to allow unit tests
+     * to override.
+     */
+    final void setMultipartThresholdBytes(@SuppressWarnings("SameParameterValue") long multipartThresholdBytes) {
+        this.multipartThresholdBytes = multipartThresholdBytes;
+    }
+
     /** Sets the file size limit for parsed JSON files. This setter is to allow unit tests to override. */
     final void setParsedJsonFileSizeLimit(@SuppressWarnings("SameParameterValue") int parsedJsonFileSizeLimit) {
         this.parsedJsonFileSizeLimit = parsedJsonFileSizeLimit;
@@ -81,6 +111,21 @@ public class UploadFileHelper {
         this.s3Helper = s3Helper;
     }
 
+    /** Transfer manager, used to write large attachments as multipart uploads. */
+    @Resource(name = "attachmentTransferManager")
+    public final void setTransferManager(TransferManager transferManager) {
+        this.transferManager = transferManager;
+    }
+
+    /**
+     * Creates the batch for writing an upload's attachments. Writes run in the attachment write lane, shared fairly
+     * between apps, and each upload can only have a few writes in progress at a time.
+     */
+    public AttachmentWriteBatch newAttachmentWriteBatch(String appId) {
+        return new AttachmentWriteBatch(task -> asyncExecutor.execute(AsyncLane.ATTACHMENT_WRITE, appId, task),
+                maxConcurrentWritesPerUpload);
+    }
+
     /**
      * Given some upload parameters and a list of files, find the value that matches the given upload schema field. The
      * field definition could refer to a file, or it can refer to the top-level key within a JSON file.
@@ -95,13 +140,16 @@ public class UploadFileHelper {
      *         a cache of parsed sanitized JSON nodes, so that we don't have to parse and sanitize any JSON file more
      *         than once; the caller should initially pass in an empty writable map and reuse the same map for
      *         subsequent calls in a single upload
+     * @param attachmentWrites
+     *         batch that attachments are written in; the attachment ID is returned before the attachment is written,
+     *         so the caller must join the batch before saving the record
      * @return the JSON node that matches field, or a TextNode with the attachment ID if it's an attachment
      * @throws UploadValidationException
-     *         if parsing JSON files or uploading attachments fails
+     *         if parsing JSON files fails
      */
     public JsonNode findValueForField(String uploadId, Map<String, File> sanitizedUnzippedDataFileMap,
-            UploadFieldDefinition fieldDef, Map<String, Map<String, JsonNode>> parsedSanitizedJsonFileCache)
-            throws UploadValidationException {
+            UploadFieldDefinition fieldDef, Map<String, Map<String, JsonNode>> parsedSanitizedJsonFileCache,
+            AttachmentWriteBatch attachmentWrites) throws UploadValidationException {
         String fieldName = fieldDef.getName();
         boolean isAttachment = UploadFieldType.ATTACHMENT_TYPE_SET.contains(fieldDef.getType());
         JsonNode fieldNode;
@@ -116,12 +164,8 @@ public class UploadFileHelper {
                     String attachmentFilename = uploadId + '-' + fieldName;
                     fieldNode = TextNode.valueOf(attachmentFilename);
 
-                    try {
-                        uploadFileAsAttachment(attachmentFilename, fieldFile);
-                    } catch (IOException ex) {
-                        throw new UploadValidationException("Error uploading file as attachment, uploadId=" +
-                                uploadId + ", fieldName=" + fieldName, ex);
-                    }
+                    attachmentWrites.submit("Error uploading file as attachment, uploadId=" + uploadId +
+                            ", fieldName=" + fieldName, () -> uploadFileAsAttachment(attachmentFilename, fieldFile));
                 } else {
                     // Case 1b: The file is an empty attachment. Skip and return null.
                     fieldNode = null;
@@ -212,7 +256,7 @@ public class UploadFileHelper {
                 fieldNode = null;
             } else if (isAttachment) {
                 // Case 2b: This is an attachment. Write the found value as bytes and upload it.
-                fieldNode = uploadJsonNodeAsAttachment(foundValue, uploadId, fieldName);
+                fieldNode = uploadJsonNodeAsAttachment(foundValue, uploadId, fieldName, attachmentWrites);
             } else {
                 // Case 2c: Not an attachment. The field value is just the value we found.
                 fieldNode = foundValue;
@@ -228,15 +272,23 @@ public class UploadFileHelper {
      */
     public JsonNode uploadJsonNodeAsAttachment(JsonNode node, String uploadId, String fieldName)
             throws UploadValidationException {
+        AttachmentWriteBatch attachmentWrites = new AttachmentWriteBatch();
+        JsonNode attachmentNode = uploadJsonNodeAsAttachment(node, uploadId, fieldName, attachmentWrites);
+        attachmentWrites.join();
+        return attachmentNode;
+    }
+
+    /**
+     * Starts uploading a JSON node as an upload attachment in the given batch, then returns a JsonNode containing the
+     * attachment's filename in S3. The caller must join the batch before saving the record.
+     */
+    public JsonNode uploadJsonNodeAsAttachment(JsonNode node, String uploadId, String fieldName,
+            AttachmentWriteBatch attachmentWrites) throws UploadValidationException {
         String filename = uploadId + '-' + fieldName;
-        String jsonText = node.toString();
-        
-        try {
-            uploadBytesAsAttachment(filename, jsonText.getBytes(Charsets.UTF_8));
-        } catch (IOException ex) {
-            throw new UploadValidationException("Error writing attachment to S3, uploadId=" + uploadId +
-                    ", fieldName=" + fieldName, ex);
-        }
+        byte[] bytes = node.toString().getBytes(Charsets.UTF_8);
+
+        attachmentWrites.submit("Error writing attachment to S3, uploadId=" + uploadId + ", fieldName=" + fieldName,
+                () -> uploadBytesAsAttachment(filename, bytes));
         return TextNode.valueOf(filename);
     }
 
@@ -254,7 +306,10 @@ public class UploadFileHelper {
         s3Helper.writeBytesToS3(ATTACHMENT_BUCKET, filename, bytes, metadata);
     }
 
-    /** Upload a file to the attachment bucket and apply the correct metadata. */
+    /**
+     * Upload a file to the attachment bucket and apply the correct metadata. Files at or above the multipart threshold
+     * are written in parts, in parallel.
+     */
     public void uploadFileAsAttachment(String filename, File file) throws IOException {
         // Calculate MD5 (hex-encoded).
         byte[] md5 = md5DigestUtils.digest(file);
@@ -266,6 +321,17 @@ public class UploadFileHelper {
         LOG.info("Writing MD5 for attachment " + filename + ": " + md5HexEncoded);
         metadata.addUserMetadata(KEY_CUSTOM_CONTENT_MD5, md5HexEncoded);
         metadata.setSSEAlgorithm(ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
-        s3Helper.writeFileToS3(ATTACHMENT_BUCKET, filename, file, metadata);
+        if (fileHelper.fileSize(file) >= multipartThresholdBytes) {
+            PutObjectRequest request = new PutObjectRequest(ATTACHMENT_BUCKET, filename, file)
+                    .withMetadata(metadata);
+            try {
+                transferManager.upload(request).waitForCompletion();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted writing attachment " + filename, ex);
+            }
+        } else {
+            s3Helper.writeFileToS3(ATTACHMENT_BUCKET, filename, file, metadata);
+        }
     }
 }
@@ -1,6 +1,6 @@
 package org.sagebionetworks.bridge.upload;
 
-import java.io.IOException;
+import java.io.File;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -36,12 +36,12 @@ public class UploadRawZipHandler implements UploadValidationHandler {
             rawDataAttachmentId += '-' + upload.getFilename();
         }
 
-        // Upload raw data as an attachment.
-        try {
-            uploadFileHelper.uploadFileAsAttachment(rawDataAttachmentId, context.getDecryptedDataFile());
-        } catch (IOException ex) {
-            throw new UploadValidationException("Error upload raw data zip for upload " + context.getUploadId());
-        }
+        // Upload raw data as an attachment. This is written with the upload's other attachments, and is joined by
+        // UploadArtifactsHandler.
+        String attachmentId = rawDataAttachmentId;
+        File decryptedDataFile = context.getDecryptedDataFile();
+        context.getAttachmentWrites().submit("Error upload raw data zip for upload " + context.getUploadId(),
+                () -> uploadFileHelper.uploadFileAsAttachment(attachmentId, decryptedDataFile));
 
         HealthDataRecord record = context.getHealthDataRecord();
         record.setRawDataAttachmentId(rawDataAttachmentId);
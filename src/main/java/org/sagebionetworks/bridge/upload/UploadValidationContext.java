@@ -2,6 +2,7 @@ package org.sagebionetworks.bridge.upload;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +26,8 @@ public class UploadValidationContext {
     private JsonNode infoJsonNode;
     private HealthDataRecord healthDataRecord;
     private String recordId;
+    private AttachmentWriteBatch attachmentWrites = new AttachmentWriteBatch();
+    private Map<String, Long> stageElapsedMillis = new LinkedHashMap<>();
 
     /** Health code of the user contributing the health data. */
     public String getHealthCode() {
@@ -179,6 +182,33 @@ public class UploadValidationContext {
         this.recordId = recordId;
     }
 
+    /**
+     * Attachment writes started by the handlers, which UploadArtifactsHandler waits for before saving the record. This
+     * is set by the upload validation task factory. By default, attachments are written when they're submitted.
+     */
+    public AttachmentWriteBatch getAttachmentWrites() {
+        return attachmentWrites;
+    }
+
+    /** @see #getAttachmentWrites */
+    public void setAttachmentWrites(AttachmentWriteBatch attachmentWrites) {
+        this.attachmentWrites = attachmentWrites;
+    }
+
+    /**
+     * Time spent in each stage of a handler that does the work of several handlers in one pass (like the
+     * StreamingUnpackHandler), keyed by the name of the handler that does that stage on its own. The upload validation
+     * task records these along with the handler's own time, then clears them.
+     */
+    public Map<String, Long> getStageElapsedMillis() {
+        return stageElapsedMillis;
+    }
+
+    /** @see #getStageElapsedMillis */
+    public void setStageElapsedMillis(String stageName, long elapsedMillis) {
+        stageElapsedMillis.put(stageName, elapsedMillis);
+    }
+
     /**
      * <p>
      * Makes a shallow copy of this object. The fields of the returned copy can be get and set without affecting the
@@ -208,6 +238,8 @@ public class UploadValidationContext {
         copy.infoJsonNode = this.infoJsonNode;
         copy.healthDataRecord = this.healthDataRecord;
         copy.recordId = this.recordId;
+        copy.attachmentWrites = this.attachmentWrites;
+        copy.stageElapsedMillis = this.stageElapsedMillis;
 
         // messageList is the only field that gets deep copied
         copy.messageList = new ArrayList<>(this.messageList);
@@ -0,0 +1,92 @@
+package org.sagebionetworks.bridge.upload;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.collect.ImmutableMap;
+import org.springframework.stereotype.Component;
+
+import org.sagebionetworks.bridge.util.LatencyHistogram;
+
+/**
+ * Counters and latency histograms for upload validation, kept in memory on each server since it started. Handler
+ * timings are kept per handler and per app, so we can tell whether a validation backlog is in S3 download, CMS
+ * decryption, schema validation, or writing the record.
+ */
+@Component
+public class UploadValidationMetrics {
+    private final Map<String, Map<String, HandlerStats>> handlerStats = new ConcurrentHashMap<>();
+    private final Map<String, UploadStats> uploadStats = new ConcurrentHashMap<>();
+
+    /** Record one run of one handler. */
+    public void recordHandler(String handlerName, String appId, long elapsedMillis, boolean success) {
+        checkNotNull(handlerName);
+        checkNotNull(appId);
+        HandlerStats stats = handlerStats.computeIfAbsent(handlerName, (name) -> new ConcurrentHashMap<>())
+                .computeIfAbsent(appId, (id) -> new HandlerStats());
+        stats.latency.record(elapsedMillis);
+        (success ? stats.succeeded : stats.failed).increment();
+    }
+
+    /** Record the outcome and size of one upload, after all handlers have run. */
+    public void recordUpload(String appId, boolean success, long bytesDownloaded, long bytesUnzipped) {
+        checkNotNull(appId);
+        UploadStats stats = uploadStats.computeIfAbsent(appId, (id) -> new UploadStats());
+        (success ? stats.succeeded : stats.failed).increment();
+        stats.bytesDownloaded.add(bytesDownloaded);
+        stats.bytesUnzipped.add(bytesUnzipped);
+    }
+
+    /** Handler stats keyed by handler name, then app ID. */
+    public Map<String, Map<String, HandlerStats>> getHandlerStats() {
+        ImmutableMap.Builder<String, Map<String, HandlerStats>> builder = ImmutableMap.builder();
+        for (Map.Entry<String, Map<String, HandlerStats>> entry : handlerStats.entrySet()) {
+            builder.put(entry.getKey(), ImmutableMap.copyOf(entry.getValue()));
+        }
+        return builder.build();
+    }
+
+    /** Upload stats keyed by app ID. */
+    public Map<String, UploadStats> getUploadStats() {
+        return ImmutableMap.copyOf(uploadStats);
+    }
+
+    public static final class HandlerStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+        public long getSucceeded() {
+            return succeeded.sum();
+        }
+        public long getFailed() {
+            return failed.sum();
+        }
+    }
+
+    public static final class UploadStats {
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder bytesDownloaded = new LongAdder();
+        private final LongAdder bytesUnzipped = new LongAdder();
+
+        public long getSucceeded() {
+            return succeeded.sum();
+        }
+        public long getFailed() {
+            return failed.sum();
+        }
+        public long getBytesDownloaded() {
+            return bytesDownloaded.sum();
+        }
+        public long getBytesUnzipped() {
+            return bytesUnzipped.sum();
+        }
+    }
+}
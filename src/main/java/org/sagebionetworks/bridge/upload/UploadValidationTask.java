@@ -4,6 +4,7 @@ import javax.annotation.Nonnull;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Stopwatch;
@@ -14,6 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.sagebionetworks.bridge.dao.UploadDao;
+import org.sagebionetworks.bridge.models.Metrics;
 import org.sagebionetworks.bridge.models.upload.UploadStatus;
 
 /**
@@ -29,6 +31,9 @@ public class UploadValidationTask implements Runnable {
     private List<UploadValidationHandler> handlerList;
     private UploadDao uploadDao;
     private HealthDataService healthDataService;
+    private UploadValidationMetrics uploadValidationMetrics;
+    private UploadCompletionNotifier uploadCompletionNotifier;
+    private String requestId;
 
     public final void setHealthDataService(HealthDataService healthDataService) {
         this.healthDataService = healthDataService;
@@ -82,6 +87,42 @@ public class UploadValidationTask implements Runnable {
         return uploadDao;
     }
 
+    /** Upload validation metrics, for handler timings. This is configured by Spring through the task factory. */
+    public final void setUploadValidationMetrics(UploadValidationMetrics uploadValidationMetrics) {
+        this.uploadValidationMetrics = uploadValidationMetrics;
+    }
+
+    /** This is package-scoped to facilitate unit tests. */
+    /* package-scoped*/ UploadValidationMetrics getUploadValidationMetrics() {
+        return uploadValidationMetrics;
+    }
+
+    /**
+     * Signals callers waiting for this upload once its validation status is written. This is configured by Spring
+     * through the task factory.
+     */
+    public final void setUploadCompletionNotifier(UploadCompletionNotifier uploadCompletionNotifier) {
+        this.uploadCompletionNotifier = uploadCompletionNotifier;
+    }
+
+    /** This is package-scoped to facilitate unit tests. */
+    /* package-scoped*/ UploadCompletionNotifier getUploadCompletionNotifier() {
+        return uploadCompletionNotifier;
+    }
+
+    /**
+     * ID of the request that started this validation, so the metrics for this task can be matched to that request.
+     * If this isn't set, the upload ID is used.
+     */
+    public final void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    /** This is package-scoped to facilitate unit tests. */
+    /* package-scoped*/ String getRequestId() {
+        return requestId;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void run() {
@@ -89,13 +130,38 @@ public class UploadValidationTask implements Runnable {
         File tempDir = fileHelper.createTempDir();
         context.setTempDir(tempDir);
 
+        try {
+            validate();
+        } finally {
+            // If validation stopped early, attachment writes may still be reading files from the temp dir.
+            joinAttachmentWrites();
+
+            // Finally, delete the temp dir.
+            try {
+                fileHelper.deleteDirRecursively(tempDir);
+            } catch (IOException ex) {
+                logger.error("Error deleting temp dir " + tempDir.getAbsolutePath() + ": " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    // Run the handlers and write the validation status.
+    private void validate() {
+        String appId = context.getAppId();
+        Metrics metrics = new Metrics(requestId != null ? requestId : context.getUpload().getUploadId());
+        metrics.setAppId(appId);
+        metrics.setUploadId(context.getUpload().getUploadId());
+        metrics.setUploadSize(context.getUpload().getContentLength());
+
         Stopwatch stopwatch = Stopwatch.createUnstarted();
         for (UploadValidationHandler oneHandler : handlerList) {
             String handlerName = oneHandler.getClass().getName();
+            boolean handlerSucceeded = false;
             stopwatch.start();
 
             try {
                 oneHandler.handle(context);
+                handlerSucceeded = true;
             } catch (Throwable ex) {
                 context.setSuccess(false);
                 context.addMessage(String.format("Exception thrown from upload validation handler %s: %s: %s",
@@ -120,10 +186,24 @@ public class UploadValidationTask implements Runnable {
             } finally {
                 long elapsedMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
                 stopwatch.reset();
-                // TODO: send this to somewhere other than the logs
-                logger.info(String.format("Upload validation handler %s took %d ms", handlerName, elapsedMillis));
+                String simpleName = oneHandler.getClass().getSimpleName();
+                uploadValidationMetrics.recordHandler(simpleName, appId, elapsedMillis, handlerSucceeded);
+                metrics.setHandlerElapsedMillis(simpleName, elapsedMillis);
+                for (Map.Entry<String, Long> stage : context.getStageElapsedMillis().entrySet()) {
+                    uploadValidationMetrics.recordHandler(stage.getKey(), appId, stage.getValue(), handlerSucceeded);
+                    metrics.setHandlerElapsedMillis(stage.getKey(), stage.getValue());
+                }
+                context.getStageElapsedMillis().clear();
             }
         }
+        // If a handler failed after attachment writes were started, the writes were never joined. Wait for them, so
+        // their errors are reported in the validation status.
+        joinAttachmentWrites();
+
+        long unzippedSize = getUnzippedSize();
+        uploadValidationMetrics.recordUpload(appId, context.getSuccess(), context.getUpload().getContentLength(),
+                unzippedSize);
+        metrics.setUploadUnzippedSize(unzippedSize);
 
         // write validation status to the upload DAO
         UploadStatus status = context.getSuccess() ? UploadStatus.SUCCEEDED : UploadStatus.VALIDATION_FAILED;
@@ -139,14 +219,42 @@ public class UploadValidationTask implements Runnable {
             logWriteValidationStatusException(status, ex);
         }
 
+        // Wake any synchronous upload complete calls, even if the write failed, so they stop waiting on this upload.
+        uploadCompletionNotifier.notifyCompleted(context.getUpload().getUploadId());
+
+        // Log the timings of each handler in the same format as request metrics.
+        metrics.setUploadStatus(status.name());
+        metrics.end();
+        logger.info(metrics.toJsonString());
+
         // TODO: if validation fails, wipe the files from S3
+    }
 
-        // Finally, delete the temp dir.
+    // Wait for any attachment writes that haven't been joined. A failed write fails the upload.
+    private void joinAttachmentWrites() {
         try {
-            fileHelper.deleteDirRecursively(tempDir);
-        } catch (IOException ex) {
-            logger.error("Error deleting temp dir " + tempDir.getAbsolutePath() + ": " + ex.getMessage(), ex);
+            context.getAttachmentWrites().join();
+        } catch (UploadValidationException ex) {
+            context.setSuccess(false);
+            context.addMessage("Error writing attachment: " + ex.getMessage());
+            logger.info(String.format("Error writing attachment for app %s, upload %s: %s", context.getAppId(),
+                    context.getUpload().getUploadId(), ex.getMessage()), ex);
+        }
+    }
+
+    // Total size of the unzipped files. Handlers that failed may not have unzipped anything.
+    private long getUnzippedSize() {
+        Map<String, File> unzippedDataFileMap = context.getUnzippedDataFileMap();
+        if (unzippedDataFileMap == null) {
+            return 0L;
+        }
+        long size = 0L;
+        for (File oneFile : unzippedDataFileMap.values()) {
+            if (fileHelper.fileExists(oneFile)) {
+                size += fileHelper.fileSize(oneFile);
+            }
         }
+        return size;
     }
 
     // Log helper. Unit tests will mock (spy) this, so we verify that we're catching and logging the exception.
@@ -5,6 +5,7 @@ import java.util.List;
 import javax.annotation.Nonnull;
 import javax.annotation.Resource;
 
+import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.dao.UploadDao;
 import org.sagebionetworks.bridge.file.FileHelper;
 import org.sagebionetworks.bridge.models.upload.Upload;
@@ -23,6 +24,9 @@ public class UploadValidationTaskFactory {
     private List<UploadValidationHandler> handlerList;
     private UploadDao uploadDao;
     private HealthDataService healthDataService;
+    private UploadValidationMetrics uploadValidationMetrics;
+    private UploadFileHelper uploadFileHelper;
+    private UploadCompletionNotifier uploadCompletionNotifier;
 
     /** File helper, used to create and delete the temp directory in which we process uploads. */
     @Autowired
@@ -47,6 +51,24 @@ public class UploadValidationTaskFactory {
         this.healthDataService = healthDataService;
     }
 
+    /** Upload validation metrics, for handler timings. This is configured by Spring. */
+    @Autowired
+    public final void setUploadValidationMetrics(UploadValidationMetrics uploadValidationMetrics) {
+        this.uploadValidationMetrics = uploadValidationMetrics;
+    }
+
+    /** Upload file helper, used to create the batch that each upload's attachments are written in. */
+    @Autowired
+    public final void setUploadFileHelper(UploadFileHelper uploadFileHelper) {
+        this.uploadFileHelper = uploadFileHelper;
+    }
+
+    /** Signals when validation of an upload has finished. This is configured by Spring. */
+    @Resource(name = "uploadCompletionNotifier")
+    public final void setUploadCompletionNotifier(UploadCompletionNotifier uploadCompletionNotifier) {
+        this.uploadCompletionNotifier = uploadCompletionNotifier;
+    }
+
     /**
      * Factory method for creating a validation task instance, for validating a single upload.
      *
@@ -62,6 +84,7 @@ public class UploadValidationTaskFactory {
         context.setHealthCode(upload.getHealthCode());
         context.setAppId(appId);
         context.setUpload(upload);
+        context.setAttachmentWrites(uploadFileHelper.newAttachmentWriteBatch(appId));
 
         // task
         UploadValidationTask task = new UploadValidationTask(context);
@@ -69,6 +92,9 @@ public class UploadValidationTaskFactory {
         task.setHandlerList(handlerList);
         task.setUploadDao(uploadDao);
         task.setHealthDataService(healthDataService);
+        task.setUploadValidationMetrics(uploadValidationMetrics);
+        task.setUploadCompletionNotifier(uploadCompletionNotifier);
+        task.setRequestId(BridgeUtils.getRequestContext().getId());
         return task;
     }
 }
@@ -0,0 +1,95 @@
+package org.sagebionetworks.bridge.util;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of elapsed times, in milliseconds. Times are counted in fixed buckets that grow roughly
+ * exponentially (1, 2, 5, 10, 20, 50 ms, ...), so recording is cheap and memory is constant, and percentiles are
+ * reported as the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+    static final long[] BUCKET_UPPER_BOUNDS = { 1L, 2L, 5L, 10L, 20L, 50L, 100L, 200L, 500L, 1000L, 2000L, 5000L,
+            10000L, 20000L, 50000L, 100000L, 200000L, 500000L };
+
+    // One more bucket than bounds, for times over the largest bound.
+    private final LongAdder[] buckets = new LongAdder[BUCKET_UPPER_BOUNDS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+    private final LongAccumulator maxMillis = new LongAccumulator(Long::max, 0L);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long elapsedMillis) {
+        long millis = Math.max(0L, elapsedMillis);
+        buckets[bucketIndex(millis)].increment();
+        count.increment();
+        totalMillis.add(millis);
+        maxMillis.accumulate(millis);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getAverageMillis() {
+        long n = count.sum();
+        return (n == 0L) ? 0L : totalMillis.sum() / n;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis.get();
+    }
+
+    public long getP50Millis() {
+        return getPercentileMillis(50);
+    }
+
+    public long getP90Millis() {
+        return getPercentileMillis(90);
+    }
+
+    public long getP99Millis() {
+        return getPercentileMillis(99);
+    }
+
+    /**
+     * The upper bound of the bucket that contains the given percentile, capped at the largest time recorded. Returns
+     * 0 if nothing has been recorded.
+     */
+    long getPercentileMillis(int percentile) {
+        long[] counts = new long[buckets.length];
+        long total = 0L;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        // Rank of the percentile, rounding up, so p99 of 10 samples is the 10th sample.
+        long rank = Math.max(1L, (total * percentile + 99L) / 100L);
+        long max = maxMillis.get();
+        long seen = 0L;
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(BUCKET_UPPER_BOUNDS[i], max);
+            }
+        }
+        return max;
+    }
+
+    private static int bucketIndex(long millis) {
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS.length; i++) {
+            if (millis <= BUCKET_UPPER_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_UPPER_BOUNDS.length;
+    }
+}
@@ -406,3 +406,9 @@ ADD COLUMN `withdrawnBy` varchar(255),
 ADD COLUMN `withdrawalNote` varchar(255),
 ADD CONSTRAINT `fk_enrolledBy` FOREIGN KEY (`enrolledBy`) REFERENCES `Accounts` (`id`),
 ADD CONSTRAINT `fk_withdrawnBy` FOREIGN KEY (`withdrawnBy`) REFERENCES `Accounts` (`id`);
+
+-- changeset bridge:20
+
+-- A short digest of reauth tokens, so a token is only hashed against the secret it could match.
+ALTER TABLE `AccountSecrets`
+ADD COLUMN `lookupKey` varchar(16) DEFAULT NULL;
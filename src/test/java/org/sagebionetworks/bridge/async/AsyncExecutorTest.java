@@ -0,0 +1,141 @@
+package org.sagebionetworks.bridge.async;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.async.AsyncExecutor.LaneStats;
+
+public class AsyncExecutorTest {
+    
+    private AsyncExecutor executor;
+    private CountDownLatch blockerStarted;
+    private CountDownLatch releaseBlocker;
+    
+    @BeforeMethod
+    public void before() {
+        blockerStarted = new CountDownLatch(1);
+        releaseBlocker = new CountDownLatch(1);
+    }
+    
+    @AfterMethod
+    public void after() {
+        releaseBlocker.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    public void tasksFromEachKeyAreTakenInTurn() throws Exception {
+        executor = new AsyncExecutor(1, 10, RejectionPolicy.REJECT);
+        block(AsyncLane.UPLOAD_VALIDATION);
+        
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        executor.execute(AsyncLane.UPLOAD_VALIDATION, "appA", () -> order.add("a1"));
+        executor.execute(AsyncLane.UPLOAD_VALIDATION, "appA", () -> order.add("a2"));
+        executor.execute(AsyncLane.UPLOAD_VALIDATION, "appA", () -> order.add("a3"));
+        executor.execute(AsyncLane.UPLOAD_VALIDATION, "appB", () -> order.add("b1"));
+        assertEquals(executor.getStats().get(AsyncLane.UPLOAD_VALIDATION).getQueueDepth(), 4);
+        
+        releaseBlocker.countDown();
+        executor.shutdown();
+        
+        assertEquals(order, ImmutableList.of("a1", "b1", "a2", "a3"));
+        LaneStats stats = executor.getStats().get(AsyncLane.UPLOAD_VALIDATION);
+        assertEquals(stats.getSubmitted(), 5L);
+        assertEquals(stats.getCompleted(), 5L);
+        assertEquals(stats.getQueueDepth(), 0);
+    }
+    
+    @Test
+    public void lanesDoNotShareThreads() throws Exception {
+        executor = new AsyncExecutor(1, 10, RejectionPolicy.REJECT);
+        block(AsyncLane.UPLOAD_VALIDATION);
+        
+        CountDownLatch interactiveRan = new CountDownLatch(1);
+        executor.execute(AsyncLane.INTERACTIVE, interactiveRan::countDown);
+        
+        assertTrue(interactiveRan.await(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void fullLaneRejects() throws Exception {
+        executor = new AsyncExecutor(1, 1, RejectionPolicy.REJECT);
+        block(AsyncLane.INTERACTIVE);
+        executor.execute(AsyncLane.INTERACTIVE, () -> {});
+        
+        try {
+            executor.execute(AsyncLane.INTERACTIVE, () -> {});
+            throw new AssertionError("Expected exception");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        assertEquals(executor.getStats().get(AsyncLane.INTERACTIVE).getRejected(), 1L);
+    }
+    
+    @Test
+    public void fullLaneRunsOnCallerThread() throws Exception {
+        executor = new AsyncExecutor(1, 1, RejectionPolicy.CALLER_RUNS);
+        block(AsyncLane.UPLOAD_VALIDATION);
+        executor.execute(AsyncLane.UPLOAD_VALIDATION, () -> {});
+        
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        executor.execute(AsyncLane.UPLOAD_VALIDATION, () -> thread.set(Thread.currentThread()));
+        
+        assertSame(thread.get(), Thread.currentThread());
+        assertEquals(executor.getStats().get(AsyncLane.UPLOAD_VALIDATION).getCallerRuns(), 1L);
+    }
+    
+    @Test
+    public void failedTasksAreCounted() throws Exception {
+        executor = new AsyncExecutor(1, 10, RejectionPolicy.REJECT);
+        executor.execute(AsyncLane.INTERACTIVE, () -> {
+            throw new IllegalStateException();
+        });
+        executor.shutdown();
+        
+        LaneStats stats = executor.getStats().get(AsyncLane.INTERACTIVE);
+        assertEquals(stats.getFailed(), 1L);
+        assertEquals(stats.getCompleted(), 1L);
+    }
+    
+    @Test
+    public void zeroThreadCountMeansOnePerCore() {
+        assertEquals(AsyncExecutor.threadCount(0), Runtime.getRuntime().availableProcessors());
+        assertEquals(AsyncExecutor.threadCount(3), 3);
+    }
+    
+    @Test(expectedExceptions = RejectedExecutionException.class)
+    public void shutdownLaneRejectsEvenWhenCallerRuns() {
+        executor = new AsyncExecutor(1, 10, RejectionPolicy.CALLER_RUNS);
+        executor.shutdown();
+        
+        executor.execute(AsyncLane.UPLOAD_VALIDATION, () -> {});
+    }
+    
+    private void block(AsyncLane lane) throws InterruptedException {
+        executor.execute(lane, "blocker", () -> {
+            blockerStarted.countDown();
+            try {
+                releaseBlocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(blockerStarted.await(5, TimeUnit.SECONDS));
+    }
+}
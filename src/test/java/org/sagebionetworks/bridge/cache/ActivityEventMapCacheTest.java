@@ -0,0 +1,194 @@
+package org.sagebionetworks.bridge.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.sagebionetworks.bridge.TestConstants.HEALTH_CODE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import org.sagebionetworks.bridge.dynamodb.DynamoActivityEvent;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.sagebionetworks.bridge.models.activities.ActivityEvent;
+import org.sagebionetworks.bridge.models.activities.ActivityEventObjectType;
+import org.sagebionetworks.bridge.models.activities.ActivityEventType;
+
+public class ActivityEventMapCacheTest extends Mockito {
+    private static final DateTime ENROLLMENT = new DateTime(1585000000000L, DateTimeZone.UTC);
+    private static final List<String> KEYS = ImmutableList.of(HEALTH_CODE + ":ActivityEventMap",
+            HEALTH_CODE + ":ActivityEventMapVersion");
+
+    @Mock
+    JedisPool mockJedisPool;
+
+    @Mock
+    Jedis mockJedis;
+
+    @Captor
+    ArgumentCaptor<List<byte[]>> keysCaptor;
+
+    @Captor
+    ArgumentCaptor<List<byte[]>> argsCaptor;
+
+    ActivityEventMapCache cache;
+    AtomicInteger loads;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        MockitoAnnotations.initMocks(this);
+        when(mockJedisPool.getResource()).thenReturn(mockJedis);
+
+        cache = new ActivityEventMapCache(3600);
+        cache.setJedisPool(mockJedisPool);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void getCachedMap() {
+        when(mockJedis.evalsha(any(byte[].class), anyList(), anyList())).thenReturn(ImmutableList.of(
+                bytes("*"), bytes("0"), bytes("enrollment"), bytes(Long.toString(ENROLLMENT.getMillis()))));
+
+        Map<String, DateTime> eventMap = cache.getActivityEventMap(HEALTH_CODE, this::load);
+
+        assertEquals(eventMap, ImmutableMap.of("enrollment", ENROLLMENT));
+        assertEquals(loads.get(), 0);
+        verify(mockJedis, times(1)).evalsha(any(byte[].class), keysCaptor.capture(), anyList());
+        assertEquals(strings(keysCaptor.getValue()), KEYS);
+        verify(mockJedis).close();
+    }
+
+    @Test
+    public void getCachedEmptyMap() {
+        when(mockJedis.evalsha(any(byte[].class), anyList(), anyList())).thenReturn(ImmutableList.of(
+                bytes("*"), bytes("0")));
+
+        Map<String, DateTime> eventMap = cache.getActivityEventMap(HEALTH_CODE, this::load);
+
+        assertTrue(eventMap.isEmpty());
+        assertEquals(loads.get(), 0);
+    }
+
+    @Test
+    public void getLoadsAndStoresWithVersion() {
+        when(mockJedis.evalsha(any(byte[].class), anyList(), anyList())).thenReturn(bytes("7"), 1L);
+
+        Map<String, DateTime> eventMap = cache.getActivityEventMap(HEALTH_CODE, this::load);
+
+        assertEquals(eventMap, ImmutableMap.of("enrollment", ENROLLMENT));
+        assertEquals(loads.get(), 1);
+
+        verify(mockJedis, times(2)).evalsha(any(byte[].class), keysCaptor.capture(), argsCaptor.capture());
+        assertEquals(strings(keysCaptor.getAllValues().get(1)), KEYS);
+        // The map is only stored if the version is still the one read before loading.
+        assertEquals(strings(argsCaptor.getAllValues().get(1)), ImmutableList.of("7", "3600", "*", "0",
+                "enrollment", Long.toString(ENROLLMENT.getMillis())));
+    }
+
+    @Test
+    public void getRedisErrorLoadsMap() {
+        when(mockJedisPool.getResource()).thenThrow(new JedisConnectionException("Redis is down"));
+
+        Map<String, DateTime> eventMap = cache.getActivityEventMap(HEALTH_CODE, this::load);
+
+        assertEquals(eventMap, ImmutableMap.of("enrollment", ENROLLMENT));
+        assertEquals(loads.get(), 1);
+    }
+
+    @Test
+    public void storeRedisErrorReturnsLoadedMap() {
+        when(mockJedis.evalsha(any(byte[].class), anyList(), anyList())).thenReturn(bytes("7"))
+                .thenThrow(new JedisConnectionException("Redis is down"));
+
+        Map<String, DateTime> eventMap = cache.getActivityEventMap(HEALTH_CODE, this::load);
+
+        assertEquals(eventMap, ImmutableMap.of("enrollment", ENROLLMENT));
+        assertEquals(loads.get(), 1);
+    }
+
+    @Test
+    public void updateActivityEvent() {
+        ActivityEvent event = new DynamoActivityEvent.Builder().withHealthCode(HEALTH_CODE)
+                .withObjectType(ActivityEventObjectType.ENROLLMENT).withTimestamp(ENROLLMENT).build();
+
+        cache.updateActivityEvent(event);
+
+        verify(mockJedis).evalsha(any(byte[].class), keysCaptor.capture(), argsCaptor.capture());
+        assertEquals(strings(keysCaptor.getValue()), KEYS);
+        assertEquals(strings(argsCaptor.getValue()), ImmutableList.of("3600", "enrollment", "enrollment",
+                Long.toString(ENROLLMENT.getMillis())));
+        verify(mockJedis).close();
+    }
+
+    @Test
+    public void updateAnsweredEventIsKeyedByAnswer() {
+        ActivityEvent event = new DynamoActivityEvent.Builder().withHealthCode(HEALTH_CODE)
+                .withObjectType(ActivityEventObjectType.QUESTION).withObjectId("questionGuid")
+                .withEventType(ActivityEventType.ANSWERED).withAnswerValue("yes").withTimestamp(ENROLLMENT)
+                .build();
+
+        cache.updateActivityEvent(event);
+
+        verify(mockJedis).evalsha(any(byte[].class), anyList(), argsCaptor.capture());
+        assertEquals(strings(argsCaptor.getValue()), ImmutableList.of("3600", "question:questionGuid:answered",
+                "question:questionGuid:answered=yes", Long.toString(ENROLLMENT.getMillis())));
+    }
+
+    @Test
+    public void removeActivityEventMap() {
+        cache.removeActivityEventMap(HEALTH_CODE);
+
+        verify(mockJedis).evalsha(any(byte[].class), keysCaptor.capture(), argsCaptor.capture());
+        assertEquals(strings(keysCaptor.getValue()), KEYS);
+        assertEquals(strings(argsCaptor.getValue()), ImmutableList.of("3600"));
+    }
+
+    @Test(expectedExceptions = BridgeServiceException.class)
+    public void removeRedisError() {
+        when(mockJedis.evalsha(any(byte[].class), anyList(), anyList()))
+                .thenThrow(new JedisConnectionException("Redis is down"));
+
+        cache.removeActivityEventMap(HEALTH_CODE);
+    }
+
+    @Test
+    public void loadedMapIsReturnedAsIs() {
+        Map<String, DateTime> loaded = ImmutableMap.of();
+        when(mockJedis.evalsha(any(byte[].class), anyList(), anyList())).thenReturn(bytes("0"), 0L);
+
+        assertSame(cache.getActivityEventMap(HEALTH_CODE, () -> loaded), loaded);
+    }
+
+    private Map<String, DateTime> load() {
+        loads.incrementAndGet();
+        return ImmutableMap.of("enrollment", ENROLLMENT);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(UTF_8);
+    }
+
+    private static List<String> strings(List<byte[]> values) {
+        return values.stream().map(value -> new String(value, UTF_8)).collect(Collectors.toList());
+    }
+}
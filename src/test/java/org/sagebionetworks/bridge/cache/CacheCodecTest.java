@@ -0,0 +1,101 @@
+package org.sagebionetworks.bridge.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+import org.sagebionetworks.bridge.models.apps.App;
+
+public class CacheCodecTest {
+    
+    private CacheCodec codec;
+    
+    @BeforeMethod
+    public void beforeMethod() {
+        codec = new CacheCodec();
+        codec.setBinaryFormatEnabled(true);
+        codec.setCompressionThresholdBytes(Integer.MAX_VALUE);
+    }
+    
+    @Test
+    public void writesJsonWhenBinaryFormatDisabled() throws Exception {
+        codec.setBinaryFormatEnabled(false);
+        
+        byte[] ser = codec.write(createApp());
+        assertFalse(codec.isBinary(ser));
+        
+        App app = BridgeObjectMapper.get().readValue(ser, App.class);
+        assertEquals(app.getIdentifier(), TEST_APP_ID);
+    }
+    
+    @Test
+    public void writesAndReadsSmile() throws Exception {
+        byte[] ser = codec.write(createApp());
+        assertEquals(ser[0], CacheCodec.SMILE_FORMAT);
+        assertTrue(codec.isBinary(ser));
+        
+        App app = codec.read(ser, App.class);
+        assertEquals(app, createApp());
+    }
+    
+    @Test
+    public void compressesAboveThreshold() throws Exception {
+        codec.setCompressionThresholdBytes(10);
+        
+        byte[] ser = codec.write(createApp());
+        assertEquals(ser[0], CacheCodec.DEFLATED_SMILE_FORMAT);
+        assertTrue(codec.isBinary(ser));
+        
+        App app = codec.read(ser, App.class);
+        assertEquals(app, createApp());
+    }
+    
+    @Test
+    public void readsJson() throws Exception {
+        byte[] ser = BridgeObjectMapper.get().writeValueAsBytes(createApp());
+        assertFalse(codec.isBinary(ser));
+        
+        App app = codec.read(ser, App.class);
+        assertEquals(app, createApp());
+    }
+    
+    @Test
+    public void sessionRetainsCacheOnlyFields() throws Exception {
+        StudyParticipant participant = new StudyParticipant.Builder().withId("userId")
+                .withHealthCode("healthCode").build();
+        UserSession session = new UserSession(participant);
+        session.setSessionToken("sessionToken");
+        session.setAppId(TEST_APP_ID);
+        
+        UserSession read = codec.read(codec.writeSession(session), UserSession.class);
+        assertEquals(read.getSessionToken(), "sessionToken");
+        assertEquals(read.getAppId(), TEST_APP_ID);
+        assertEquals(read.getHealthCode(), "healthCode");
+        assertEquals(read.getId(), "userId");
+    }
+    
+    @Test
+    public void sessionReadsJsonWrittenByOlderServers() throws Exception {
+        String json = TestUtils.createJson("{'appId':'"+TEST_APP_ID+"','sessionToken':'aToken'}");
+        
+        UserSession session = codec.read(json.getBytes(UTF_8), UserSession.class);
+        assertEquals(session.getAppId(), TEST_APP_ID);
+        assertNull(session.getParticipant().getHealthCode());
+    }
+    
+    private static App createApp() {
+        App app = TestUtils.getValidApp(CacheCodecTest.class);
+        app.setIdentifier(TEST_APP_ID);
+        return app;
+    }
+}
@@ -28,6 +28,17 @@ public class CacheKeyTest {
         CacheKey.appConfigList(null);
     }
     
+    @Test
+    public void activityEventMap() {
+        assertEquals(CacheKey.activityEventMap("healthCode").toString(), "healthCode:ActivityEventMap");
+    }
+    
+    @Test
+    public void activityEventMapVersion() {
+        assertEquals(CacheKey.activityEventMapVersion("healthCode").toString(),
+                "healthCode:ActivityEventMapVersion");
+    }
+    
     @Test
     public void tagList() { 
         assertEquals(CacheKey.tagList().toString(), "TagList");
@@ -43,6 +54,21 @@ public class CacheKeyTest {
         assertEquals(CacheKey.shortenUrl("ABC").toString(), "ABC:ShortenedUrl");
     }
     
+    @Test
+    public void appCriteria() {
+        assertEquals(CacheKey.appCriteria(TEST_APP_ID).toString(), TEST_APP_ID + ":Criteria");
+    }
+    
+    @Test
+    public void appCriteriaVersion() {
+        assertEquals(CacheKey.appCriteriaVersion(TEST_APP_ID).toString(), TEST_APP_ID + ":CriteriaVersion");
+    }
+    
+    @Test
+    public void schedulePlanSnapshot() {
+        assertEquals(CacheKey.schedulePlanSnapshot(TEST_APP_ID).toString(), TEST_APP_ID + ":SchedulePlanSnapshot");
+    }
+    
     @Test
     public void appConfigList() {
         assertEquals(CacheKey.appConfigList(TEST_APP_ID).toString(),  TEST_APP_ID + ":AppConfigList");
@@ -130,6 +156,11 @@ public class CacheKeyTest {
         assertEquals(CacheKey.subpopList(TEST_APP_ID).toString(), TEST_APP_ID + ":SubpopulationList");
     }
     
+    @Test
+    public void subpopMatcher() {
+        assertEquals(CacheKey.subpopMatcher(TEST_APP_ID).toString(), TEST_APP_ID + ":SubpopulationMatcher");
+    }
+    
     @Test
     public void verificationToken() {
         assertEquals(CacheKey.verificationToken("token").toString(), "token");
@@ -1,19 +1,21 @@
 package org.sagebionetworks.bridge.cache;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyList;
 import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
@@ -37,6 +39,7 @@ import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.config.Environment;
 import org.sagebionetworks.bridge.crypto.AesGcmEncryptor;
 import org.sagebionetworks.bridge.crypto.Encryptor;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.models.RequestInfo;
 import org.sagebionetworks.bridge.models.accounts.ConsentStatus;
@@ -49,6 +52,7 @@ import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
 import org.sagebionetworks.bridge.redis.JedisOps;
 import org.sagebionetworks.bridge.redis.JedisTransaction;
 
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -67,14 +71,33 @@ public class CacheProviderMockTest {
     private static final String DECRYPTED_SESSION_TOKEN = "ccea2978-f5b9-4377-8194-f887a3e2a19b";
     private static final CacheKey TOKEN_TO_USER_ID = CacheKey.tokenToUserId(DECRYPTED_SESSION_TOKEN);
     private static final CacheKey USER_ID_TO_SESSION = CacheKey.userIdToSession(USER_ID);
+    private static final byte[] USER_ID_TO_SESSION_BYTES = USER_ID_TO_SESSION.toString().getBytes(UTF_8);
+    private static final byte[] TEST_ID_KEY_BYTES = TEST_ID_KEY.getBytes(UTF_8);
 
     private CacheProvider cacheProvider;
+    
+    private CacheCodec cacheCodec;
 
     @Mock
     private JedisTransaction transaction;
 
     @Mock
     private JedisOps jedisOps;
+    
+    @Mock
+    private NearCache nearCache;
+    
+    @Mock
+    private JedisPool jedisPool;
+    
+    @Mock
+    private Jedis jedis;
+    
+    @Captor
+    private ArgumentCaptor<List<byte[]>> keysCaptor;
+    
+    @Captor
+    private ArgumentCaptor<List<byte[]>> argsCaptor;
 
     @Captor
     private ArgumentCaptor<String> stringCaptor;
@@ -83,6 +106,8 @@ public class CacheProviderMockTest {
     public void addAndRemoveViewFromCacheProvider() throws Exception {
         final CacheProvider simpleCacheProvider = new CacheProvider();
         simpleCacheProvider.setJedisOps(getJedisOps());
+        simpleCacheProvider.setNearCache(nearCache);
+        simpleCacheProvider.setCacheCodec(new CacheCodec());
 
         final App app = TestUtils.getValidApp(CacheProviderMockTest.class);
         app.setIdentifier("test");
@@ -114,13 +139,12 @@ public class CacheProviderMockTest {
         verify(jedisOps).sadd(CACHE_KEY.toString(), "member");
     }
 
+    private void mockSessionLookup(String json) {
+        when(jedis.evalsha(any(byte[].class), anyList(), anyList())).thenReturn(json.getBytes(UTF_8));
+    }
+    
     private void assertSession(String json) {
-        JedisOps jedisOps = mock(JedisOps.class);
-        
-        when(jedisOps.get(TOKEN_TO_USER_ID.toString())).thenReturn(USER_ID);
-        when(jedisOps.get(USER_ID_TO_SESSION.toString())).thenReturn(json);
-        
-        cacheProvider.setJedisOps(jedisOps);
+        mockSessionLookup(json);
         
         UserSession session = cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
 
@@ -161,8 +185,16 @@ public class CacheProviderMockTest {
         when(jedisOps.getTransaction()).thenReturn(transaction);
         when(jedisOps.get(TOKEN_TO_USER_ID.toString())).thenReturn(USER_ID);
 
+        when(jedisPool.getResource()).thenReturn(jedis);
+
+        cacheCodec = new CacheCodec();
+        
         cacheProvider = new CacheProvider();
         cacheProvider.setJedisOps(jedisOps);
+        cacheProvider.setJedisPool(jedisPool);
+        cacheProvider.setNearCache(nearCache);
+        cacheProvider.setCacheCodec(cacheCodec);
+        cacheProvider.setSessionExpireInSeconds(100);
     }
 
     private UserSession createUserSession() {
@@ -335,51 +367,65 @@ public class CacheProviderMockTest {
     public void getUserSessionByUserIdNewVersionUserHasSession() throws Exception {
         UserSession session = new UserSession();
         session.setSessionToken(DECRYPTED_SESSION_TOKEN);
-        String ser = BridgeObjectMapper.get().writeValueAsString(session);
-        when(jedisOps.get(USER_ID_TO_SESSION.toString())).thenReturn(ser);
+        byte[] ser = BridgeObjectMapper.get().writeValueAsBytes(session);
+        when(jedis.get(USER_ID_TO_SESSION_BYTES)).thenReturn(ser);
         
         UserSession retrieved = cacheProvider.getUserSessionByUserId(USER_ID);
         assertEquals(retrieved.getSessionToken(), DECRYPTED_SESSION_TOKEN);
     }
 
+    @Test
+    public void getUserSessionByUserIdBinaryFormat() throws Exception {
+        cacheCodec.setBinaryFormatEnabled(true);
+        UserSession session = createUserSession();
+        session.setAppId(TEST_APP_ID);
+        when(jedis.get(USER_ID_TO_SESSION_BYTES)).thenReturn(cacheCodec.writeSession(session));
+        
+        UserSession retrieved = cacheProvider.getUserSessionByUserId(USER_ID);
+        assertEquals(retrieved.getSessionToken(), DECRYPTED_SESSION_TOKEN);
+        assertEquals(retrieved.getAppId(), TEST_APP_ID);
+        assertEquals(retrieved.getHealthCode(), "healthCode");
+    }
+
     @Test
     public void getUserSessionSessionTokenMismatch() throws Exception {
         UserSession session = new UserSession(new StudyParticipant.Builder().build());
         session.setSessionToken("notTheSessionTokenWereLookingFor");
         
-        when(jedisOps.get(USER_ID_TO_SESSION.toString()))
-                .thenReturn(BridgeObjectMapper.get().writeValueAsString(session));
+        mockSessionLookup(BridgeObjectMapper.get().writeValueAsString(session));
 
         UserSession retrieved = cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
         assertNull(retrieved);
+        
+        verify(jedisOps).del(TOKEN_TO_USER_ID.toString());
     }
 
     @Test
     public void getUserSessionSuccessful() throws Exception {
         UserSession session = new UserSession(new StudyParticipant.Builder().build());
         session.setSessionToken(DECRYPTED_SESSION_TOKEN);
+        session.setAppId(TEST_APP_ID);
         
-        when(jedisOps.get(USER_ID_TO_SESSION.toString()))
-                .thenReturn(BridgeObjectMapper.get().writeValueAsString(session));
+        mockSessionLookup(BridgeObjectMapper.get().writeValueAsString(session));
 
         UserSession retrieved = cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
         assertEquals(retrieved.getSessionToken(), session.getSessionToken());
-    }
-    
-    @Test
-    public void getUserSessionTokenNotFound() {
-        // When nothing is mocked, the session token is not found
-        reset(jedisOps);
+        assertEquals(retrieved.getAppId(), TEST_APP_ID);
         
-        UserSession retrieved = cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
-        assertNull(retrieved);
+        // One round trip, resolving the token to the session in Redis
+        verify(jedis).evalsha(any(byte[].class), keysCaptor.capture(), argsCaptor.capture());
+        assertEquals(new String(keysCaptor.getValue().get(0), UTF_8), TOKEN_TO_USER_ID.toString());
+        assertEquals(USER_ID + new String(argsCaptor.getValue().get(0), UTF_8), USER_ID_TO_SESSION.toString());
+        verify(jedisOps, never()).get(anyString());
+        verify(jedis).close();
     }
     
     @Test
-    public void getUserSessionUserHasNoSession() {
-        // When token --> userId mapping is mocked, but there's no session, return null
+    public void getUserSessionTokenNotFound() {
+        // When nothing is mocked, the session token (or the session it points to) is not found
         UserSession retrieved = cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
         assertNull(retrieved);
+        verify(jedisOps, never()).del(anyString());
     }
     
     private void mockTransaction(JedisTransaction trans) {
@@ -486,7 +532,8 @@ public class CacheProviderMockTest {
         CacheProvider mockCacheProvider = spy(cacheProvider);
         mockCacheProvider.getUserSessionByUserId(USER_ID);
         
-        verify(jedisOps).get("userId:session2:user");
+        verify(jedis).get("userId:session2:user".getBytes(UTF_8));
+        verify(jedis).close();
     }
     
     @Test
@@ -507,9 +554,9 @@ public class CacheProviderMockTest {
     @Test
     public void testRemoveSessionByUserId() throws Exception {
         UserSession session = createUserSession();
-        String ser = BridgeObjectMapper.get().writeValueAsString(session);
+        byte[] ser = BridgeObjectMapper.get().writeValueAsBytes(session);
 
-        when(jedisOps.get(USER_ID_TO_SESSION.toString())).thenReturn(ser);
+        when(jedis.get(USER_ID_TO_SESSION_BYTES)).thenReturn(ser);
         
         cacheProvider.removeSessionByUserId(USER_ID);
         
@@ -520,12 +567,28 @@ public class CacheProviderMockTest {
     
     @Test
     public void testSetUserSession() throws Exception {
+        when(jedis.evalsha(any(byte[].class), anyList(), anyList())).thenReturn(100L);
+        
         UserSession session = createUserSession();
         cacheProvider.setUserSession(session);
         
-        verify(transaction).setex(eq(TOKEN_TO_USER_ID.toString()), anyInt(), eq(USER_ID));
-        verify(transaction).setex(eq(USER_ID_TO_SESSION.toString()), anyInt(), anyString());
-        verify(transaction).exec();
+        verify(jedis).evalsha(any(byte[].class), keysCaptor.capture(), argsCaptor.capture());
+        List<byte[]> keys = keysCaptor.getValue();
+        assertEquals(new String(keys.get(0), UTF_8), TOKEN_TO_USER_ID.toString());
+        assertEquals(new String(keys.get(1), UTF_8), USER_ID_TO_SESSION.toString());
+        
+        List<byte[]> args = argsCaptor.getValue();
+        assertEquals(new String(args.get(0), UTF_8), "100");
+        assertEquals(new String(args.get(1), UTF_8), USER_ID);
+        UserSession persisted = BridgeObjectMapper.get().readValue(args.get(2), UserSession.class);
+        assertEquals(persisted.getSessionToken(), DECRYPTED_SESSION_TOKEN);
+        verify(jedis).close();
+    }
+    
+    @Test(expectedExceptions = BridgeServiceException.class)
+    public void testSetUserSessionFails() throws Exception {
+        UserSession session = createUserSession();
+        cacheProvider.setUserSession(session);
     }
     
     @Test
@@ -543,9 +606,7 @@ public class CacheProviderMockTest {
         } catch(Throwable e) {
             fail(e.getMessage());
         }
-        verify(transaction, never()).setex(eq(TOKEN_TO_USER_ID.toString()), anyInt(), anyString());
-        verify(transaction, never()).setex(eq(USER_ID_TO_SESSION.toString()), anyInt(), eq(DECRYPTED_SESSION_TOKEN));
-        verify(transaction, never()).exec();
+        verify(jedis, never()).evalsha(any(byte[].class), anyList(), anyList());
     }
     
     @Test
@@ -559,9 +620,7 @@ public class CacheProviderMockTest {
         } catch(Throwable e) {
             fail(e.getMessage());
         }
-        verify(transaction, never()).setex(eq(TOKEN_TO_USER_ID.toString()), anyInt(), anyString());
-        verify(transaction, never()).setex(eq(USER_ID_TO_SESSION.toString()), anyInt(), eq(DECRYPTED_SESSION_TOKEN));
-        verify(transaction, never()).exec();
+        verify(jedis, never()).evalsha(any(byte[].class), anyList(), anyList());
     }
     
     @Test
@@ -579,42 +638,156 @@ public class CacheProviderMockTest {
         } catch(Throwable e) {
             fail(e.getMessage());
         }
-        verify(transaction, never()).setex(eq(TOKEN_TO_USER_ID.toString()), anyInt(), anyString());
-        verify(transaction, never()).setex(eq(USER_ID_TO_SESSION.toString()), anyInt(), eq(DECRYPTED_SESSION_TOKEN));
-        verify(transaction, never()).exec();
+        verify(jedis, never()).evalsha(any(byte[].class), anyList(), anyList());
     }
 
     @Test
     public void setApp() throws Exception {
         App app = App.create();
         app.setIdentifier(TEST_APP_ID);
-        String ser = BridgeObjectMapper.get().writeValueAsString(app);
+        byte[] ser = BridgeObjectMapper.get().writeValueAsBytes(app);
 
-        when(jedisOps.setex(any(), anyInt(), any())).thenReturn("OK");
+        when(jedis.setex(any(byte[].class), anyInt(), any(byte[].class))).thenReturn("OK");
 
         cacheProvider.setApp(app);
 
-        verify(jedisOps).setex(TEST_ID_KEY, BridgeConstants.BRIDGE_SESSION_EXPIRE_IN_SECONDS, ser);
+        verify(jedis).setex(TEST_ID_KEY_BYTES, BridgeConstants.BRIDGE_SESSION_EXPIRE_IN_SECONDS, ser);
+        verify(jedis).close();
+    }
+
+    @Test(expectedExceptions = BridgeServiceException.class)
+    public void setAppFails() {
+        App app = App.create();
+        app.setIdentifier(TEST_APP_ID);
+        
+        cacheProvider.setApp(app);
+    }
+
+    @Test
+    public void setAndGetAppBinaryFormat() throws Exception {
+        cacheCodec.setBinaryFormatEnabled(true);
+        App app = App.create();
+        app.setIdentifier(TEST_APP_ID);
+        app.setName("Test App");
+
+        ArgumentCaptor<byte[]> serCaptor = ArgumentCaptor.forClass(byte[].class);
+        when(jedis.setex(any(byte[].class), anyInt(), serCaptor.capture())).thenReturn("OK");
+        cacheProvider.setApp(app);
+        
+        byte[] ser = serCaptor.getValue();
+        assertTrue(cacheCodec.isBinary(ser));
+        
+        when(jedis.get(TEST_ID_KEY_BYTES)).thenReturn(ser);
+        App returned = cacheProvider.getApp(TEST_APP_ID);
+        assertEquals(returned.getIdentifier(), TEST_APP_ID);
+        assertEquals(returned.getName(), "Test App");
     }
 
     @Test
     public void getApp() throws Exception {
         App app = App.create();
         app.setIdentifier(TEST_APP_ID);
-        String ser = BridgeObjectMapper.get().writeValueAsString(app);
+        byte[] ser = BridgeObjectMapper.get().writeValueAsBytes(app);
 
-        when(jedisOps.get(TEST_ID_KEY)).thenReturn(ser);
+        when(jedis.get(TEST_ID_KEY_BYTES)).thenReturn(ser);
 
         App returned = cacheProvider.getApp(TEST_APP_ID);
         assertEquals(app, returned);
 
-        verify(jedisOps).get(TEST_ID_KEY);
-        verify(jedisOps).expire(TEST_ID_KEY, BridgeConstants.BRIDGE_SESSION_EXPIRE_IN_SECONDS);
+        verify(jedis).get(TEST_ID_KEY_BYTES);
+        verify(jedis).expire(TEST_ID_KEY_BYTES, BridgeConstants.BRIDGE_SESSION_EXPIRE_IN_SECONDS);
+        verify(jedis).close();
     }
 
     @Test
     public void removeApp() {
         cacheProvider.removeApp(TEST_APP_ID);
         verify(jedisOps).del(TEST_ID_KEY);
+        verify(nearCache).invalidate(CacheKey.app(TEST_APP_ID));
+    }
+    
+    @Test
+    public void getAppFromNearCache() throws Exception {
+        App app = App.create();
+        app.setIdentifier(TEST_APP_ID);
+        when(nearCache.get(CacheKey.app(TEST_APP_ID))).thenReturn(cacheCodec.write(app));
+        
+        App returned = cacheProvider.getApp(TEST_APP_ID);
+        assertEquals(returned.getIdentifier(), TEST_APP_ID);
+        
+        verify(jedisPool, never()).getResource();
+    }
+    
+    @Test
+    public void getAppFromNearCacheReturnsCopy() throws Exception {
+        App app = App.create();
+        app.setIdentifier(TEST_APP_ID);
+        app.setName("Name");
+        when(nearCache.get(CacheKey.app(TEST_APP_ID))).thenReturn(cacheCodec.write(app));
+        
+        // Changing one caller's app does not change the app the next caller gets.
+        App first = cacheProvider.getApp(TEST_APP_ID);
+        first.setName("Changed");
+        App second = cacheProvider.getApp(TEST_APP_ID);
+        
+        assertNotSame(first, second);
+        assertEquals(second.getName(), "Name");
+    }
+    
+    @Test
+    public void getAppAddsToNearCache() throws Exception {
+        App app = App.create();
+        app.setIdentifier(TEST_APP_ID);
+        byte[] ser = BridgeObjectMapper.get().writeValueAsBytes(app);
+        when(jedis.get(TEST_ID_KEY_BYTES)).thenReturn(ser);
+        when(nearCache.getVersion()).thenReturn(3L);
+        
+        cacheProvider.getApp(TEST_APP_ID);
+        
+        verify(nearCache).put(CacheKey.app(TEST_APP_ID), ser, 3L);
+    }
+    
+    @Test
+    public void setAppUpdatesNearCache() throws Exception {
+        App app = App.create();
+        app.setIdentifier(TEST_APP_ID);
+        when(jedis.setex(any(byte[].class), anyInt(), any(byte[].class))).thenReturn("OK");
+        
+        cacheProvider.setApp(app);
+        
+        ArgumentCaptor<Object> serCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(nearCache).update(eq(CacheKey.app(TEST_APP_ID)), serCaptor.capture());
+        assertEquals(cacheCodec.read((byte[])serCaptor.getValue(), App.class).getIdentifier(), TEST_APP_ID);
+    }
+    
+    @Test
+    public void getObjectWithTypeReferenceFromNearCache() {
+        when(nearCache.get(CACHE_KEY)).thenReturn("[\"A\",\"B\"]");
+        
+        List<String> returned = cacheProvider.getObject(CACHE_KEY, new TypeReference<List<String>>() {});
+        assertEquals(returned, ImmutableList.of("A", "B"));
+        
+        verify(jedisOps, never()).get(anyString());
+    }
+    
+    @Test
+    public void getObjectAddsJsonToNearCache() {
+        when(jedisOps.get(CACHE_KEY.toString())).thenReturn("[\"A\",\"B\"]");
+        when(nearCache.getVersion()).thenReturn(3L);
+        
+        List<String> returned = cacheProvider.getObject(CACHE_KEY, new TypeReference<List<String>>() {});
+        assertEquals(returned, ImmutableList.of("A", "B"));
+        
+        verify(nearCache).put(CACHE_KEY, "[\"A\",\"B\"]", 3L);
+    }
+    
+    @Test
+    public void removeSetOfCacheKeysInvalidatesNearCache() {
+        doReturn(Sets.newHashSet("A:view", "B:view")).when(jedisOps).smembers(CACHE_KEY.toString());
+        
+        cacheProvider.removeSetOfCacheKeys(CACHE_KEY);
+        
+        verify(nearCache).invalidate("A:view");
+        verify(nearCache).invalidate("B:view");
     }
 }
@@ -1,5 +1,6 @@
 package org.sagebionetworks.bridge.cache;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.testng.Assert.assertEquals;
 
 import java.util.List;
@@ -12,6 +13,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -23,12 +25,27 @@ import org.sagebionetworks.bridge.models.subpopulations.Subpopulation;
 import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
 import org.sagebionetworks.bridge.redis.JedisOps;
 
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
 public class CacheProviderStudyMigrationTest extends Mockito {
     private static final TypeReference<List<Subpopulation>> SURVEY_LIST_REF = new TypeReference<List<Subpopulation>>() {};
     
     @Mock
     JedisOps mockJedisOps;
     
+    @Mock
+    NearCache mockNearCache;
+    
+    @Mock
+    JedisPool mockJedisPool;
+    
+    @Mock
+    Jedis mockJedis;
+    
+    @Spy
+    CacheCodec cacheCodec = new CacheCodec();
+    
     @InjectMocks
     CacheProvider provider;
     
@@ -36,6 +53,7 @@ public class CacheProviderStudyMigrationTest extends Mockito {
     public void beforeMethod() {
         MockitoAnnotations.initMocks(this);
         provider.setSessionExpireInSeconds(10);
+        when(mockJedisPool.getResource()).thenReturn(mockJedis);
     }
 
     @Test
@@ -67,8 +85,7 @@ public class CacheProviderStudyMigrationTest extends Mockito {
         String json = TestUtils.createJson(
                 "{'studyIdentifier':'"+TEST_APP_ID+"','sessionToken':'aToken'}");
 
-        doReturn("aUser").when(mockJedisOps).get("aToken:session2");
-        doReturn(json).when(mockJedisOps).get("aUser:session2:user");
+        doReturn(json.getBytes(UTF_8)).when(mockJedis).evalsha(any(byte[].class), anyList(), anyList());
         
         UserSession session = provider.getUserSession("aToken");
         assertEquals(session.getAppId(), TEST_APP_ID);
@@ -79,8 +96,7 @@ public class CacheProviderStudyMigrationTest extends Mockito {
         String json = TestUtils.createJson(
                 "{'appId':'"+TEST_APP_ID+"','sessionToken':'aToken'}");
 
-        doReturn("aUser").when(mockJedisOps).get("aToken:session2");
-        doReturn(json).when(mockJedisOps).get("aUser:session2:user");
+        doReturn(json.getBytes(UTF_8)).when(mockJedis).evalsha(any(byte[].class), anyList(), anyList());
         
         UserSession session = provider.getUserSession("aToken");
         assertEquals(session.getAppId(), TEST_APP_ID);
@@ -0,0 +1,90 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.exceptions.BadRequestException;
+
+public class ConsentPdfCacheTest {
+    private static final byte[] PDF = new byte[] { 1, 2, 3 };
+
+    private ConsentPdfCache cache;
+    private AtomicInteger renderCount;
+
+    @BeforeMethod
+    public void before() {
+        cache = new ConsentPdfCache(10, 60);
+        renderCount = new AtomicInteger();
+    }
+
+    @Test
+    public void rendersOncePerDigest() {
+        assertSame(cache.getBytes("hash", this::render), PDF);
+        assertSame(cache.getBytes("hash", this::render), PDF);
+        assertEquals(renderCount.get(), 1);
+
+        cache.getBytes("otherHash", this::render);
+        assertEquals(renderCount.get(), 2);
+    }
+
+    @Test
+    public void concurrentRequestsWaitForOneRender() throws Exception {
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch finishRender = new CountDownLatch(1);
+        CompletableFuture<byte[]> first = CompletableFuture.supplyAsync(() -> cache.getBytes("hash", () -> {
+            rendering.countDown();
+            try {
+                finishRender.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return render();
+        }));
+        rendering.await();
+        CompletableFuture<byte[]> second = CompletableFuture.supplyAsync(() -> cache.getBytes("hash", this::render));
+
+        finishRender.countDown();
+        assertSame(first.get(1, TimeUnit.SECONDS), PDF);
+        assertSame(second.get(1, TimeUnit.SECONDS), PDF);
+        assertEquals(renderCount.get(), 1);
+    }
+
+    @Test
+    public void boundedByTotalSize() {
+        for (int i = 0; i < 10; i++) {
+            cache.getBytes("hash" + i, this::render);
+        }
+        // Each PDF is 3 bytes and the cache holds 10 bytes.
+        assertTrue(cache.size() <= 3);
+    }
+
+    @Test
+    public void renderErrorIsRethrownAndNotCached() {
+        try {
+            cache.getBytes("hash", () -> {
+                throw new BadRequestException("bad document");
+            });
+            fail("expected exception");
+        } catch (BadRequestException e) {
+            assertEquals(e.getMessage(), "bad document");
+        }
+        assertEquals(cache.size(), 0);
+
+        assertSame(cache.getBytes("hash", this::render), PDF);
+    }
+
+    private byte[] render() {
+        renderCount.incrementAndGet();
+        return PDF;
+    }
+}
@@ -0,0 +1,91 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
+import org.sagebionetworks.bridge.services.ConsentTemplate;
+
+public class ConsentTemplateCacheTest {
+    private static final SubpopulationGuid SUBPOP_GUID = SubpopulationGuid.create("subpopGuid");
+    private static final SubpopulationGuid OTHER_SUBPOP_GUID = SubpopulationGuid.create("otherSubpopGuid");
+    private static final long CREATED_ON = 1583020800000L;
+
+    private ConsentTemplateCache cache;
+    private AtomicInteger compileCount;
+
+    @BeforeMethod
+    public void before() {
+        cache = new ConsentTemplateCache(10, 60);
+        compileCount = new AtomicInteger();
+    }
+
+    @Test
+    public void compilesOncePerRevision() {
+        ConsentTemplate template = cache.get(SUBPOP_GUID, CREATED_ON, this::compile);
+        assertSame(cache.get(SUBPOP_GUID, CREATED_ON, this::compile), template);
+        assertEquals(compileCount.get(), 1);
+
+        assertNotSame(cache.get(SUBPOP_GUID, CREATED_ON + 1, this::compile), template);
+        assertNotSame(cache.get(OTHER_SUBPOP_GUID, CREATED_ON, this::compile), template);
+        assertEquals(compileCount.get(), 3);
+    }
+
+    @Test
+    public void putTemplateIsReturned() {
+        ConsentTemplate template = compile();
+        cache.put(SUBPOP_GUID, CREATED_ON, template);
+
+        assertSame(cache.get(SUBPOP_GUID, CREATED_ON, this::compile), template);
+        assertEquals(compileCount.get(), 1);
+    }
+
+    @Test
+    public void invalidateSubpopulationDropsAllRevisions() {
+        cache.get(SUBPOP_GUID, CREATED_ON, this::compile);
+        cache.get(SUBPOP_GUID, CREATED_ON + 1, this::compile);
+        cache.get(OTHER_SUBPOP_GUID, CREATED_ON, this::compile);
+
+        cache.invalidateSubpopulation(SUBPOP_GUID);
+
+        assertEquals(cache.size(), 1L);
+    }
+
+    @Test
+    public void boundedBySize() {
+        for (int i = 0; i < 20; i++) {
+            cache.get(SUBPOP_GUID, CREATED_ON + i, this::compile);
+        }
+        assertTrue(cache.size() <= 10);
+    }
+
+    @Test
+    public void compileErrorIsRethrownAndNotCached() {
+        try {
+            cache.get(SUBPOP_GUID, CREATED_ON, () -> {
+                throw new BadRequestException("bad document");
+            });
+            fail("expected exception");
+        } catch (BadRequestException e) {
+            assertEquals(e.getMessage(), "bad document");
+        }
+        assertEquals(cache.size(), 0L);
+
+        cache.get(SUBPOP_GUID, CREATED_ON, this::compile);
+        assertEquals(compileCount.get(), 1);
+    }
+
+    private ConsentTemplate compile() {
+        compileCount.incrementAndGet();
+        return ConsentTemplate.compile("<doc>${consent.body}</doc>", "<p>Consent</p>");
+    }
+}
@@ -0,0 +1,176 @@
+package org.sagebionetworks.bridge.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.sagebionetworks.bridge.models.OperatingSystem.IOS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.models.Criteria;
+
+public class CriteriaCacheTest extends Mockito {
+    private static final String KEY1 = "template:guidOne";
+    private static final String KEY2 = "template:guidTwo";
+    private static final List<String> KEYS = ImmutableList.of(TEST_APP_ID + ":Criteria",
+            TEST_APP_ID + ":CriteriaVersion");
+
+    @Mock
+    JedisPool mockJedisPool;
+
+    @Mock
+    Jedis mockJedis;
+
+    @Captor
+    ArgumentCaptor<List<byte[]>> keysCaptor;
+
+    @Captor
+    ArgumentCaptor<List<byte[]>> argsCaptor;
+
+    CriteriaCache cache;
+    AtomicInteger loads;
+    Criteria criteria;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        MockitoAnnotations.initMocks(this);
+        when(mockJedisPool.getResource()).thenReturn(mockJedis);
+
+        cache = new CriteriaCache(3600);
+        cache.setJedisPool(mockJedisPool);
+        loads = new AtomicInteger();
+
+        criteria = Criteria.create();
+        criteria.setKey(KEY1);
+        criteria.setMinAppVersion(IOS, 2);
+    }
+
+    @Test
+    public void getCachedCriteria() throws Exception {
+        // The second key is cached as having no criteria.
+        when(mockJedis.evalsha(any(byte[].class), anyList(), anyList())).thenReturn(ImmutableList.of(
+                bytes("3"), json(criteria), new byte[0]));
+
+        Map<String, Criteria> result = cache.getCriteria(TEST_APP_ID, ImmutableSet.of(KEY1, KEY2), this::load);
+
+        assertEquals(result.keySet(), ImmutableSet.of(KEY1));
+        assertEquals(result.get(KEY1).getKey(), KEY1);
+        assertEquals(result.get(KEY1).getMinAppVersion(IOS), new Integer(2));
+        assertEquals(loads.get(), 0);
+
+        verify(mockJedis).evalsha(any(byte[].class), keysCaptor.capture(), argsCaptor.capture());
+        assertEquals(strings(keysCaptor.getValue()), KEYS);
+        assertEquals(strings(argsCaptor.getValue()), ImmutableList.of(KEY1, KEY2));
+        verify(mockJedis).close();
+    }
+
+    @Test
+    public void getLoadsMissingKeysAndStoresWithVersion() throws Exception {
+        when(mockJedis.evalsha(any(byte[].class), anyList(), anyList())).thenReturn(
+                Arrays.asList(bytes("7"), json(criteria), null), 1L);
+
+        Map<String, Criteria> result = cache.getCriteria(TEST_APP_ID, ImmutableSet.of(KEY1, KEY2), this::load);
+
+        // Only the key that wasn't cached is loaded. It has no criteria.
+        assertEquals(result.keySet(), ImmutableSet.of(KEY1));
+        assertEquals(loads.get(), 1);
+
+        verify(mockJedis, times(2)).evalsha(any(byte[].class), keysCaptor.capture(), argsCaptor.capture());
+        assertEquals(strings(keysCaptor.getAllValues().get(1)), KEYS);
+        // The loaded criteria are only stored if the version is still the one read before loading.
+        assertEquals(strings(argsCaptor.getAllValues().get(1)), ImmutableList.of("7", "3600", KEY2, ""));
+    }
+
+    @Test
+    public void getStoresLoadedCriteria() throws Exception {
+        when(mockJedis.evalsha(any(byte[].class), anyList(), anyList())).thenReturn(
+                Arrays.asList(bytes("0"), null), 1L);
+
+        Map<String, Criteria> result = cache.getCriteria(TEST_APP_ID, ImmutableSet.of(KEY1), keys -> {
+            loads.incrementAndGet();
+            return ImmutableMap.of(KEY1, criteria);
+        });
+
+        assertEquals(result, ImmutableMap.of(KEY1, criteria));
+        assertEquals(loads.get(), 1);
+
+        verify(mockJedis, times(2)).evalsha(any(byte[].class), anyList(), argsCaptor.capture());
+        assertEquals(strings(argsCaptor.getAllValues().get(1)), ImmutableList.of("0", "3600", KEY1,
+                new String(json(criteria), UTF_8)));
+    }
+
+    @Test
+    public void getNoKeys() {
+        Map<String, Criteria> result = cache.getCriteria(TEST_APP_ID, ImmutableSet.of(), this::load);
+
+        assertTrue(result.isEmpty());
+        assertEquals(loads.get(), 0);
+        verifyZeroInteractions(mockJedisPool);
+    }
+
+    @Test(expectedExceptions = BridgeServiceException.class)
+    public void getRedisError() {
+        when(mockJedisPool.getResource()).thenThrow(new JedisConnectionException("Redis is down"));
+
+        cache.getCriteria(TEST_APP_ID, ImmutableSet.of(KEY1), this::load);
+    }
+
+    @Test
+    public void removeCriteria() {
+        cache.removeCriteria(TEST_APP_ID, KEY1);
+
+        verify(mockJedis).evalsha(any(byte[].class), keysCaptor.capture(), argsCaptor.capture());
+        assertEquals(strings(keysCaptor.getValue()), KEYS);
+        assertEquals(strings(argsCaptor.getValue()), ImmutableList.of("3600", KEY1));
+        verify(mockJedis).close();
+    }
+
+    @Test(expectedExceptions = BridgeServiceException.class)
+    public void removeRedisError() {
+        when(mockJedis.evalsha(any(byte[].class), anyList(), anyList()))
+                .thenThrow(new JedisConnectionException("Redis is down"));
+
+        cache.removeCriteria(TEST_APP_ID, KEY1);
+    }
+
+    private Map<String, Criteria> load(Set<String> keys) {
+        loads.incrementAndGet();
+        return ImmutableMap.of();
+    }
+
+    private static byte[] json(Criteria criteria) throws Exception {
+        return BridgeObjectMapper.get().writeValueAsBytes(criteria);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(UTF_8);
+    }
+
+    private static List<String> strings(List<byte[]> values) {
+        return values.stream().map(value -> new String(value, UTF_8)).collect(Collectors.toList());
+    }
+}
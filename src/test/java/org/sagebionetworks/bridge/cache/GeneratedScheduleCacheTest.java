@@ -0,0 +1,185 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.sagebionetworks.bridge.TestConstants.HEALTH_CODE;
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDateTime;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.dynamodb.DynamoScheduledActivity;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.models.schedules.ScheduleContext;
+import org.sagebionetworks.bridge.models.schedules.SchedulePlan;
+import org.sagebionetworks.bridge.models.schedules.ScheduledActivity;
+
+public class GeneratedScheduleCacheTest {
+
+    private static final DateTime STARTS_ON = DateTime.parse("2020-03-01T00:00:00.000Z");
+    private static final DateTime ENROLLMENT = DateTime.parse("2020-02-20T10:00:00.000Z");
+
+    private GeneratedScheduleCache cache;
+    private AtomicInteger generated;
+    private Supplier<List<ScheduledActivity>> generator;
+
+    @BeforeMethod
+    public void before() {
+        cache = new GeneratedScheduleCache(100, 60);
+        generated = new AtomicInteger();
+        generator = () -> {
+            generated.incrementAndGet();
+            return Lists.newArrayList(createActivity());
+        };
+    }
+
+    @Test
+    public void generatesOnceForTheSameKey() {
+        List<SchedulePlan> plans = TestUtils.getSchedulePlans(TEST_APP_ID);
+
+        cache.getScheduledActivities(createContext(HEALTH_CODE, ENROLLMENT, STARTS_ON), plans, generator);
+        cache.getScheduledActivities(createContext(HEALTH_CODE, ENROLLMENT, STARTS_ON), plans, generator);
+
+        assertEquals(generated.get(), 1);
+        assertEquals(cache.size(), 1L);
+    }
+
+    @Test
+    public void returnsIndependentCopies() throws Exception {
+        List<SchedulePlan> plans = TestUtils.getSchedulePlans(TEST_APP_ID);
+        ScheduleContext context = createContext(HEALTH_CODE, ENROLLMENT, STARTS_ON);
+
+        List<ScheduledActivity> first = cache.getScheduledActivities(context, plans, generator);
+        first.get(0).setFinishedOn(STARTS_ON.getMillis());
+        first.get(0).setClientData(BridgeObjectMapper.get().readTree("{\"a\":1}"));
+        first.add(createActivity());
+
+        List<ScheduledActivity> second = cache.getScheduledActivities(context, plans, generator);
+        assertEquals(second.size(), 1);
+        assertNotSame(second.get(0), first.get(0));
+        assertNull(second.get(0).getFinishedOn());
+        assertNull(second.get(0).getClientData());
+        assertEquals(second.get(0).getGuid(), first.get(0).getGuid());
+        assertEquals(second.get(0).getScheduledOn(), first.get(0).getScheduledOn());
+    }
+
+    @Test
+    public void newPlanVersionGeneratesAgain() {
+        List<SchedulePlan> plans = TestUtils.getSchedulePlans(TEST_APP_ID);
+        ScheduleContext context = createContext(HEALTH_CODE, ENROLLMENT, STARTS_ON);
+        cache.getScheduledActivities(context, plans, generator);
+
+        plans.get(0).setVersion(plans.get(0).getVersion() == null ? 1L : plans.get(0).getVersion() + 1L);
+        cache.getScheduledActivities(context, plans, generator);
+
+        assertEquals(generated.get(), 2);
+    }
+
+    @Test
+    public void newEventGeneratesAgain() {
+        List<SchedulePlan> plans = TestUtils.getSchedulePlans(TEST_APP_ID);
+        cache.getScheduledActivities(createContext(HEALTH_CODE, ENROLLMENT, STARTS_ON), plans, generator);
+        cache.getScheduledActivities(createContext(HEALTH_CODE, ENROLLMENT.plusDays(1), STARTS_ON), plans,
+                generator);
+
+        assertEquals(generated.get(), 2);
+    }
+
+    @Test
+    public void newWindowGeneratesAgain() {
+        List<SchedulePlan> plans = TestUtils.getSchedulePlans(TEST_APP_ID);
+        cache.getScheduledActivities(createContext(HEALTH_CODE, ENROLLMENT, STARTS_ON), plans, generator);
+        cache.getScheduledActivities(createContext(HEALTH_CODE, ENROLLMENT, STARTS_ON.plusDays(1)), plans,
+                generator);
+
+        assertEquals(generated.get(), 2);
+    }
+
+    @Test
+    public void invalidateParticipant() {
+        List<SchedulePlan> plans = TestUtils.getSchedulePlans(TEST_APP_ID);
+        cache.getScheduledActivities(createContext(HEALTH_CODE, ENROLLMENT, STARTS_ON), plans, generator);
+        cache.getScheduledActivities(createContext("otherHealthCode", ENROLLMENT, STARTS_ON), plans, generator);
+        assertEquals(cache.size(), 2L);
+
+        cache.invalidateParticipant(HEALTH_CODE);
+        assertEquals(cache.size(), 1L);
+
+        cache.getScheduledActivities(createContext(HEALTH_CODE, ENROLLMENT, STARTS_ON), plans, generator);
+        assertEquals(generated.get(), 3);
+    }
+
+    @Test
+    public void invalidateParticipantDropsAllTheirEntries() {
+        List<SchedulePlan> plans = TestUtils.getSchedulePlans(TEST_APP_ID);
+        cache.getScheduledActivities(createContext(HEALTH_CODE, ENROLLMENT, STARTS_ON), plans, generator);
+        cache.getScheduledActivities(createContext(HEALTH_CODE, ENROLLMENT, STARTS_ON.plusDays(1)), plans,
+                generator);
+        cache.getScheduledActivities(createContext("otherHealthCode", ENROLLMENT, STARTS_ON), plans, generator);
+        assertEquals(cache.size(), 3L);
+        assertEquals(cache.indexedParticipants(), 2);
+
+        cache.invalidateParticipant(HEALTH_CODE);
+        assertEquals(cache.size(), 1L);
+        assertEquals(cache.indexedParticipants(), 1);
+
+        // Invalidating a participant with no entries does nothing.
+        cache.invalidateParticipant(HEALTH_CODE);
+        assertEquals(cache.size(), 1L);
+    }
+
+    @Test
+    public void evictedEntriesLeaveTheIndex() {
+        cache = new GeneratedScheduleCache(1, 60);
+        List<SchedulePlan> plans = TestUtils.getSchedulePlans(TEST_APP_ID);
+        cache.getScheduledActivities(createContext(HEALTH_CODE, ENROLLMENT, STARTS_ON), plans, generator);
+        cache.getScheduledActivities(createContext("otherHealthCode", ENROLLMENT, STARTS_ON), plans, generator);
+
+        assertEquals(cache.size(), 1L);
+        assertEquals(cache.indexedParticipants(), 1);
+    }
+
+    @Test
+    public void invalidateApp() {
+        List<SchedulePlan> plans = TestUtils.getSchedulePlans(TEST_APP_ID);
+        cache.getScheduledActivities(createContext(HEALTH_CODE, ENROLLMENT, STARTS_ON), plans, generator);
+        cache.getScheduledActivities(createContext("otherHealthCode", ENROLLMENT, STARTS_ON), plans, generator);
+
+        cache.invalidateApp("otherApp");
+        assertEquals(cache.size(), 2L);
+
+        cache.invalidateApp(TEST_APP_ID);
+        assertEquals(cache.size(), 0L);
+        assertEquals(cache.indexedParticipants(), 0);
+    }
+
+    private static ScheduleContext createContext(String healthCode, DateTime enrollment, DateTime startsOn) {
+        return new ScheduleContext.Builder().withAppId(TEST_APP_ID).withHealthCode(healthCode)
+                .withInitialTimeZone(DateTimeZone.UTC).withStartsOn(startsOn).withEndsOn(startsOn.plusDays(4))
+                .withAccountCreatedOn(enrollment.minusHours(2))
+                .withEvents(ImmutableMap.of("enrollment", enrollment)).build();
+    }
+
+    private static ScheduledActivity createActivity() {
+        DynamoScheduledActivity activity = new DynamoScheduledActivity();
+        activity.setTimeZone(DateTimeZone.UTC);
+        activity.setGuid("activityGuid:2020-03-01T10:00:00.000");
+        activity.setHealthCode(HEALTH_CODE);
+        activity.setSchedulePlanGuid("schedulePlanGuid");
+        activity.setActivity(TestUtils.getActivity1());
+        activity.setLocalScheduledOn(LocalDateTime.parse("2020-03-01T10:00:00.000"));
+        activity.setPersistent(false);
+        return activity;
+    }
+}
@@ -0,0 +1,133 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.models.apps.App;
+import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+public class NearCacheTest extends Mockito {
+
+    private static final CacheKey APP_KEY = CacheKey.app(TEST_APP_ID);
+    private static final CacheKey SUBPOP_LIST_KEY = CacheKey.subpopList(TEST_APP_ID);
+    private static final CacheKey REQUEST_INFO_KEY = CacheKey.requestInfo("userId");
+
+    @Mock
+    JedisPool mockJedisPool;
+
+    @Mock
+    Jedis mockJedis;
+
+    NearCache nearCache;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        MockitoAnnotations.initMocks(this);
+        when(mockJedisPool.getResource()).thenReturn(mockJedis);
+
+        nearCache = new NearCache(2, 60);
+        nearCache.setJedisPool(mockJedisPool);
+    }
+
+    @Test
+    public void missThenHit() {
+        App app = App.create();
+
+        assertNull(nearCache.get(APP_KEY));
+        nearCache.put(APP_KEY, app, nearCache.getVersion());
+        assertEquals(nearCache.get(APP_KEY), app);
+
+        NearCache.NamespaceStats stats = nearCache.getStats().get("App");
+        assertEquals(stats.getHits(), 1L);
+        assertEquals(stats.getMisses(), 1L);
+    }
+
+    @Test
+    public void putAfterInvalidationIsIgnored() {
+        long version = nearCache.getVersion();
+        nearCache.invalidate(SUBPOP_LIST_KEY);
+
+        nearCache.put(APP_KEY, App.create(), version);
+        assertNull(nearCache.get(APP_KEY));
+    }
+
+    @Test
+    public void keysOutsideNamespacesAreNotCached() {
+        assertFalse(nearCache.isCacheable(REQUEST_INFO_KEY));
+        assertTrue(nearCache.isCacheable(CacheKey.subpop(SubpopulationGuid.create("guid"), TEST_APP_ID)));
+        assertTrue(nearCache.isCacheable(CacheKey.schedulePlanSnapshot(TEST_APP_ID)));
+
+        nearCache.put(REQUEST_INFO_KEY, "value", nearCache.getVersion());
+        assertNull(nearCache.get(REQUEST_INFO_KEY));
+
+        nearCache.invalidate(REQUEST_INFO_KEY);
+        verify(mockJedis, never()).publish(anyString(), anyString());
+        assertTrue(nearCache.getStats().isEmpty());
+    }
+
+    @Test
+    public void updateCachesLocallyAndPublishes() {
+        App app = App.create();
+        nearCache.update(APP_KEY, app);
+
+        assertEquals(nearCache.get(APP_KEY), app);
+        verify(mockJedis).publish(eq(NearCache.INVALIDATION_CHANNEL), endsWith("|" + APP_KEY.toString()));
+        verify(mockJedis).close();
+    }
+
+    @Test
+    public void invalidateRemovesAndPublishes() {
+        nearCache.update(APP_KEY, App.create());
+        nearCache.invalidate(APP_KEY);
+
+        assertNull(nearCache.get(APP_KEY));
+        verify(mockJedis, times(2)).publish(eq(NearCache.INVALIDATION_CHANNEL), endsWith("|" + APP_KEY.toString()));
+        assertEquals(nearCache.getStats().get("App").getInvalidations(), 1L);
+    }
+
+    @Test
+    public void publishFailureDoesNotThrow() {
+        when(mockJedisPool.getResource()).thenThrow(new RuntimeException());
+
+        nearCache.invalidate(APP_KEY);
+    }
+
+    @Test
+    public void invalidationFromOtherNodeRemoves() {
+        nearCache.update(APP_KEY, App.create());
+
+        nearCache.invalidateLocally(APP_KEY.toString());
+        assertNull(nearCache.get(APP_KEY));
+    }
+
+    @Test
+    public void lostMessagesDropEverything() {
+        long version = nearCache.getVersion();
+        nearCache.update(APP_KEY, App.create());
+
+        nearCache.invalidateAllLocally();
+        assertNull(nearCache.get(APP_KEY));
+        assertTrue(nearCache.getVersion() > version);
+    }
+
+    @Test
+    public void evictionsAreCounted() {
+        nearCache.put(CacheKey.app("A"), App.create(), nearCache.getVersion());
+        nearCache.put(CacheKey.app("B"), App.create(), nearCache.getVersion());
+        nearCache.put(CacheKey.app("C"), App.create(), nearCache.getVersion());
+
+        assertEquals(nearCache.getStats().get("App").getEvictions(), 1L);
+    }
+}
@@ -0,0 +1,94 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+public class RedisChannelTest extends Mockito {
+
+    private static final String CHANNEL = "test-channel";
+
+    @Mock
+    JedisPool mockJedisPool;
+
+    @Mock
+    Jedis mockJedis;
+
+    List<String> messages;
+    AtomicInteger lostCount;
+    RedisChannel channel;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        MockitoAnnotations.initMocks(this);
+        when(mockJedisPool.getResource()).thenReturn(mockJedis);
+
+        messages = new CopyOnWriteArrayList<>();
+        lostCount = new AtomicInteger();
+        channel = new RedisChannel(CHANNEL, messages::add, lostCount::incrementAndGet);
+        channel.setJedisPool(mockJedisPool);
+    }
+
+    @Test
+    public void publishTagsMessageWithNode() {
+        channel.publish("key");
+
+        ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
+        verify(mockJedis).publish(eq(CHANNEL), messageCaptor.capture());
+        assertTrue(messageCaptor.getValue().endsWith("|key"));
+        verify(mockJedis).close();
+    }
+
+    @Test
+    public void publishFailureDoesNotThrow() {
+        when(mockJedisPool.getResource()).thenThrow(new RuntimeException());
+
+        channel.publish("key");
+    }
+
+    @Test
+    public void messageFromThisNodeIsIgnored() {
+        channel.publish("key");
+
+        ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
+        verify(mockJedis).publish(eq(CHANNEL), messageCaptor.capture());
+
+        channel.receive(messageCaptor.getValue());
+        assertTrue(messages.isEmpty());
+    }
+
+    @Test
+    public void messageFromOtherNodeIsPassedOn() {
+        channel.receive("otherNode|key");
+
+        assertEquals(messages.size(), 1);
+        assertEquals(messages.get(0), "key");
+    }
+
+    @Test
+    public void malformedMessageIsIgnored() {
+        channel.receive("key");
+
+        assertTrue(messages.isEmpty());
+    }
+
+    @Test
+    public void messagesLostIsPassedOn() {
+        channel.messagesLost();
+
+        assertEquals(lostCount.get(), 1);
+    }
+}
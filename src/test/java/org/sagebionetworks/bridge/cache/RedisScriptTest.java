@@ -0,0 +1,60 @@
+package org.sagebionetworks.bridge.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+public class RedisScriptTest extends Mockito {
+    
+    private static final String SCRIPT = "return redis.call('GET', KEYS[1])";
+    private static final byte[] SHA1 = DigestUtils.sha1Hex(SCRIPT).getBytes(UTF_8);
+    private static final List<byte[]> KEYS = ImmutableList.of("key".getBytes(UTF_8));
+    private static final List<byte[]> ARGS = ImmutableList.of();
+    
+    @Mock
+    Jedis mockJedis;
+    
+    RedisScript script;
+    
+    @BeforeMethod
+    public void beforeMethod() {
+        MockitoAnnotations.initMocks(this);
+        script = new RedisScript(SCRIPT);
+    }
+    
+    @Test
+    public void evalBySha() {
+        when(mockJedis.evalsha(SHA1, KEYS, ARGS)).thenReturn("value");
+        
+        assertEquals(script.eval(mockJedis, KEYS, ARGS), "value");
+        verify(mockJedis, never()).eval(any(byte[].class), anyList(), anyList());
+    }
+    
+    @Test
+    public void evalSendsScriptWhenNotLoaded() {
+        when(mockJedis.evalsha(SHA1, KEYS, ARGS)).thenThrow(new JedisDataException("NOSCRIPT No matching script."));
+        when(mockJedis.eval(SCRIPT.getBytes(UTF_8), KEYS, ARGS)).thenReturn("value");
+        
+        assertEquals(script.eval(mockJedis, KEYS, ARGS), "value");
+    }
+    
+    @Test(expectedExceptions = JedisDataException.class)
+    public void evalRethrowsOtherErrors() {
+        when(mockJedis.evalsha(SHA1, KEYS, ARGS)).thenThrow(new JedisDataException("ERR Error running script"));
+        
+        script.eval(mockJedis, KEYS, ARGS);
+    }
+}
@@ -0,0 +1,120 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+
+public class RedisSubscriberTest extends Mockito {
+
+    private static final String CHANNEL_A = "channel-a";
+    private static final String CHANNEL_B = "channel-b";
+
+    @Mock
+    JedisPool mockJedisPool;
+
+    @Mock
+    Jedis mockJedis;
+
+    List<String> messagesA;
+    List<String> messagesB;
+    AtomicInteger lostCountA;
+    AtomicInteger lostCountB;
+    RedisSubscriber subscriber;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        MockitoAnnotations.initMocks(this);
+        when(mockJedisPool.getResource()).thenReturn(mockJedis);
+
+        messagesA = new CopyOnWriteArrayList<>();
+        messagesB = new CopyOnWriteArrayList<>();
+        lostCountA = new AtomicInteger();
+        lostCountB = new AtomicInteger();
+
+        subscriber = new RedisSubscriber();
+        subscriber.setJedisPool(mockJedisPool);
+        subscriber.register(new RedisChannel(CHANNEL_A, messagesA::add, lostCountA::incrementAndGet));
+        subscriber.register(new RedisChannel(CHANNEL_B, (message) -> {
+            if (message.equals("bad")) {
+                throw new IllegalStateException();
+            }
+            messagesB.add(message);
+        }, lostCountB::incrementAndGet));
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+        subscriber.unsubscribe();
+    }
+
+    @Test
+    public void subscribesToAllChannelsOnOneConnection() {
+        subscriber.subscribeOnce();
+
+        verify(mockJedisPool, times(1)).getResource();
+        verify(mockJedis).subscribe(any(JedisPubSub.class), eq(CHANNEL_A), eq(CHANNEL_B));
+    }
+
+    @Test
+    public void routesMessagesUntilSubscriptionDrops() {
+        doAnswer((invocation) -> {
+            JedisPubSub pubSub = invocation.getArgument(0);
+            pubSub.onMessage(CHANNEL_A, "otherNode|a1");
+            pubSub.onMessage(CHANNEL_B, "otherNode|b1");
+            pubSub.onMessage("unknown-channel", "otherNode|x");
+            throw new RuntimeException("Connection reset");
+        }).when(mockJedis).subscribe(any(JedisPubSub.class), any(), any());
+
+        subscriber.subscribeOnce();
+
+        assertEquals(messagesA.size(), 1);
+        assertEquals(messagesA.get(0), "a1");
+        assertEquals(messagesB.size(), 1);
+        assertEquals(messagesB.get(0), "b1");
+        // Every channel may have lost messages.
+        assertEquals(lostCountA.get(), 1);
+        assertEquals(lostCountB.get(), 1);
+        verify(mockJedis).close();
+    }
+
+    @Test
+    public void errorHandlingMessageDoesNotDropSubscription() {
+        doAnswer((invocation) -> {
+            JedisPubSub pubSub = invocation.getArgument(0);
+            pubSub.onMessage(CHANNEL_B, "otherNode|bad");
+            pubSub.onMessage(CHANNEL_A, "otherNode|a1");
+            return null;
+        }).when(mockJedis).subscribe(any(JedisPubSub.class), any(), any());
+
+        subscriber.subscribeOnce();
+
+        assertEquals(messagesA.size(), 1);
+        assertTrue(messagesB.isEmpty());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void channelCanOnlyBeRegisteredOnce() {
+        subscriber.register(new RedisChannel(CHANNEL_A, messagesA::add, lostCountA::incrementAndGet));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void channelCannotBeRegisteredAfterSubscribing() {
+        subscriber.subscribe();
+
+        subscriber.register(new RedisChannel("channel-c", messagesA::add, lostCountA::incrementAndGet));
+    }
+}
@@ -0,0 +1,222 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.mockito.Mockito.endsWith;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.DateTime;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.models.ClientInfo;
+import org.sagebionetworks.bridge.models.schedules.CompoundActivity;
+import org.sagebionetworks.bridge.models.schedules.SchemaReference;
+import org.sagebionetworks.bridge.models.schedules.SurveyReference;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+public class ReferenceResolutionCacheTest {
+
+    private static final String SURVEY_GUID = "surveyGuid";
+    private static final String SCHEMA_ID = "schemaId";
+    private static final String TASK_ID = "taskId";
+    private static final SurveyReference SURVEY_REF = new SurveyReference("surveyId", SURVEY_GUID,
+            DateTime.parse("2020-03-01T00:00:00.000Z"));
+    private static final SchemaReference SCHEMA_REF = new SchemaReference(SCHEMA_ID, 3);
+    private static final CompoundActivity COMPOUND_ACTIVITY = new CompoundActivity.Builder()
+            .withTaskIdentifier(TASK_ID).build();
+    private static final ClientInfo IOS_CLIENT = ClientInfo.fromUserAgentCache(
+            "Lilly/25 (iPhone Simulator; iPhone OS/9.3) BridgeSDK/12");
+
+    private Jedis mockJedis;
+    private ReferenceResolutionCache cache;
+    private AtomicInteger loads;
+
+    @BeforeMethod
+    public void before() {
+        mockJedis = mock(Jedis.class);
+        JedisPool mockJedisPool = mock(JedisPool.class);
+        when(mockJedisPool.getResource()).thenReturn(mockJedis);
+
+        cache = new ReferenceResolutionCache(100, 60);
+        cache.setJedisPool(mockJedisPool);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void surveyLoadedOnce() {
+        assertSame(cache.getSurveyReference(TEST_APP_ID, SURVEY_GUID, this::loadSurvey), SURVEY_REF);
+        assertSame(cache.getSurveyReference(TEST_APP_ID, SURVEY_GUID, this::loadSurvey), SURVEY_REF);
+        assertEquals(loads.get(), 1);
+    }
+
+    @Test
+    public void surveyKeyedByApp() {
+        cache.getSurveyReference(TEST_APP_ID, SURVEY_GUID, this::loadSurvey);
+        cache.getSurveyReference("otherApp", SURVEY_GUID, this::loadSurvey);
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void schemaKeyedByClientVersion() {
+        cache.getSchemaReference(TEST_APP_ID, SCHEMA_ID, IOS_CLIENT, this::loadSchema);
+        cache.getSchemaReference(TEST_APP_ID, SCHEMA_ID, IOS_CLIENT, this::loadSchema);
+        assertEquals(loads.get(), 1);
+
+        cache.getSchemaReference(TEST_APP_ID, SCHEMA_ID, ClientInfo.UNKNOWN_CLIENT, this::loadSchema);
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void compoundActivityLoadedOnce() {
+        assertSame(cache.getCompoundActivity(TEST_APP_ID, TASK_ID, this::loadCompoundActivity), COMPOUND_ACTIVITY);
+        assertSame(cache.getCompoundActivity(TEST_APP_ID, TASK_ID, this::loadCompoundActivity), COMPOUND_ACTIVITY);
+        assertEquals(loads.get(), 1);
+    }
+
+    @Test
+    public void nullIsNotCached() {
+        assertNull(cache.getSurveyReference(TEST_APP_ID, SURVEY_GUID, () -> null));
+        assertEquals(cache.size(), 0L);
+    }
+
+    @Test
+    public void invalidateSurvey() {
+        cache.getSurveyReference(TEST_APP_ID, SURVEY_GUID, this::loadSurvey);
+        cache.getSurveyReference(TEST_APP_ID, "otherGuid", this::loadSurvey);
+        cache.getCompoundActivity(TEST_APP_ID, SURVEY_GUID, this::loadCompoundActivity);
+
+        cache.invalidateSurvey(TEST_APP_ID, SURVEY_GUID);
+
+        // Only the survey with that GUID is dropped.
+        assertEquals(cache.size(), 2L);
+        cache.getSurveyReference(TEST_APP_ID, SURVEY_GUID, this::loadSurvey);
+        assertEquals(loads.get(), 4);
+    }
+
+    @Test
+    public void invalidateSchemaDropsAllClients() {
+        cache.getSchemaReference(TEST_APP_ID, SCHEMA_ID, IOS_CLIENT, this::loadSchema);
+        cache.getSchemaReference(TEST_APP_ID, SCHEMA_ID, ClientInfo.UNKNOWN_CLIENT, this::loadSchema);
+        cache.getSchemaReference(TEST_APP_ID, "otherSchema", IOS_CLIENT, this::loadSchema);
+
+        cache.invalidateSchema(TEST_APP_ID, SCHEMA_ID);
+
+        assertEquals(cache.size(), 1L);
+    }
+
+    @Test
+    public void invalidateCompoundActivity() {
+        cache.getCompoundActivity(TEST_APP_ID, TASK_ID, this::loadCompoundActivity);
+
+        cache.invalidateCompoundActivity(TEST_APP_ID, TASK_ID);
+
+        assertEquals(cache.size(), 0L);
+    }
+
+    @Test
+    public void invalidateApp() {
+        cache.getSurveyReference(TEST_APP_ID, SURVEY_GUID, this::loadSurvey);
+        cache.getSchemaReference(TEST_APP_ID, SCHEMA_ID, IOS_CLIENT, this::loadSchema);
+        cache.getCompoundActivity("otherApp", TASK_ID, this::loadCompoundActivity);
+
+        cache.invalidateApp(TEST_APP_ID);
+
+        assertEquals(cache.size(), 1L);
+    }
+
+    @Test
+    public void invalidationsArePublished() {
+        cache.invalidateSurvey(TEST_APP_ID, SURVEY_GUID);
+        cache.invalidateSchema(TEST_APP_ID, SCHEMA_ID);
+        cache.invalidateCompoundActivity(TEST_APP_ID, TASK_ID);
+        cache.invalidateApp(TEST_APP_ID);
+
+        verify(mockJedis).publish(eq(ReferenceResolutionCache.INVALIDATION_CHANNEL),
+                endsWith("|SURVEY|" + TEST_APP_ID + "|" + SURVEY_GUID));
+        verify(mockJedis).publish(eq(ReferenceResolutionCache.INVALIDATION_CHANNEL),
+                endsWith("|SCHEMA|" + TEST_APP_ID + "|" + SCHEMA_ID));
+        verify(mockJedis).publish(eq(ReferenceResolutionCache.INVALIDATION_CHANNEL),
+                endsWith("|COMPOUND_ACTIVITY|" + TEST_APP_ID + "|" + TASK_ID));
+        verify(mockJedis).publish(eq(ReferenceResolutionCache.INVALIDATION_CHANNEL),
+                endsWith("|APP|" + TEST_APP_ID));
+    }
+
+    @Test
+    public void invalidationFromOtherServer() {
+        cache.getSurveyReference(TEST_APP_ID, SURVEY_GUID, this::loadSurvey);
+        cache.getSchemaReference(TEST_APP_ID, "schema|with|delimiters", IOS_CLIENT, this::loadSchema);
+        cache.getCompoundActivity(TEST_APP_ID, TASK_ID, this::loadCompoundActivity);
+
+        cache.onMessage("SURVEY|" + TEST_APP_ID + "|" + SURVEY_GUID);
+        cache.onMessage("SCHEMA|" + TEST_APP_ID + "|schema|with|delimiters");
+
+        assertEquals(cache.size(), 1L);
+    }
+
+    @Test
+    public void appInvalidationFromOtherServer() {
+        cache.getSurveyReference(TEST_APP_ID, SURVEY_GUID, this::loadSurvey);
+        cache.getCompoundActivity("otherApp", TASK_ID, this::loadCompoundActivity);
+
+        cache.onMessage("APP|" + TEST_APP_ID);
+
+        assertEquals(cache.size(), 1L);
+    }
+
+    @Test
+    public void unknownMessageIgnored() {
+        cache.getSurveyReference(TEST_APP_ID, SURVEY_GUID, this::loadSurvey);
+
+        cache.onMessage("OTHER|" + TEST_APP_ID + "|" + SURVEY_GUID);
+        cache.onMessage(SURVEY_GUID);
+
+        assertEquals(cache.size(), 1L);
+    }
+
+    @Test
+    public void lostMessagesDropEverything() {
+        cache.getSurveyReference(TEST_APP_ID, SURVEY_GUID, this::loadSurvey);
+        cache.getCompoundActivity("otherApp", TASK_ID, this::loadCompoundActivity);
+
+        cache.invalidateAllLocally();
+
+        assertEquals(cache.size(), 0L);
+    }
+
+    @Test
+    public void valueLoadedDuringInvalidationIsNotCached() {
+        SurveyReference ref = cache.getSurveyReference(TEST_APP_ID, SURVEY_GUID, () -> {
+            // The survey is published while we are loading it.
+            cache.invalidateSurvey(TEST_APP_ID, SURVEY_GUID);
+            return SURVEY_REF;
+        });
+
+        assertSame(ref, SURVEY_REF);
+        assertEquals(cache.size(), 0L);
+    }
+
+    private SurveyReference loadSurvey() {
+        loads.incrementAndGet();
+        return SURVEY_REF;
+    }
+
+    private SchemaReference loadSchema() {
+        loads.incrementAndGet();
+        return SCHEMA_REF;
+    }
+
+    private CompoundActivity loadCompoundActivity() {
+        loads.incrementAndGet();
+        return COMPOUND_ACTIVITY;
+    }
+}
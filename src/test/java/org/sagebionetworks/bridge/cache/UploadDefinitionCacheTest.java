@@ -0,0 +1,202 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.mockito.Mockito.endsWith;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache.Type;
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache.TypeStats;
+import org.sagebionetworks.bridge.models.surveys.Survey;
+import org.sagebionetworks.bridge.models.upload.UploadSchema;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+public class UploadDefinitionCacheTest {
+
+    private static final String SCHEMA_ID = "schemaId";
+    private static final String SURVEY_GUID = "surveyGuid";
+    private static final long SURVEY_CREATED_ON = 1583020800000L;
+    private static final UploadSchema SCHEMA = UploadSchema.create();
+    private static final Survey SURVEY = Survey.create();
+
+    private Jedis mockJedis;
+    private UploadDefinitionCache cache;
+    private AtomicInteger loads;
+
+    @BeforeMethod
+    public void before() {
+        mockJedis = mock(Jedis.class);
+        JedisPool mockJedisPool = mock(JedisPool.class);
+        when(mockJedisPool.getResource()).thenReturn(mockJedis);
+
+        cache = new UploadDefinitionCache(100, 60);
+        cache.setJedisPool(mockJedisPool);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void schemaLoadedOnce() {
+        assertSame(cache.getUploadSchema(TEST_APP_ID, SCHEMA_ID, 3, this::loadSchema), SCHEMA);
+        assertSame(cache.getUploadSchema(TEST_APP_ID, SCHEMA_ID, 3, this::loadSchema), SCHEMA);
+        assertEquals(loads.get(), 1);
+
+        TypeStats stats = cache.getStats().get(Type.SCHEMA);
+        assertEquals(stats.getHits(), 1L);
+        assertEquals(stats.getMisses(), 1L);
+        assertEquals(stats.getHitRate(), 0.5);
+    }
+
+    @Test
+    public void schemaKeyedByRevision() {
+        cache.getUploadSchema(TEST_APP_ID, SCHEMA_ID, 3, this::loadSchema);
+        cache.getUploadSchema(TEST_APP_ID, SCHEMA_ID, 4, this::loadSchema);
+        cache.getUploadSchema("otherApp", SCHEMA_ID, 3, this::loadSchema);
+        assertEquals(loads.get(), 3);
+    }
+
+    @Test
+    public void surveyLoadedOnce() {
+        assertSame(cache.getSurvey(TEST_APP_ID, SURVEY_GUID, SURVEY_CREATED_ON, this::loadSurvey), SURVEY);
+        assertSame(cache.getSurvey(TEST_APP_ID, SURVEY_GUID, SURVEY_CREATED_ON, this::loadSurvey), SURVEY);
+        assertEquals(loads.get(), 1);
+        assertEquals(cache.getStats().get(Type.SURVEY).getHits(), 1L);
+        assertEquals(cache.getStats().get(Type.SCHEMA).getHits(), 0L);
+    }
+
+    @Test
+    public void surveyAndSchemaWithSameIdAreSeparate() {
+        cache.getUploadSchema(TEST_APP_ID, "sameId", 1, this::loadSchema);
+        cache.getSurvey(TEST_APP_ID, "sameId", 1L, this::loadSurvey);
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void noReadsHasZeroHitRate() {
+        assertEquals(cache.getStats().get(Type.SCHEMA).getHitRate(), 0.0);
+    }
+
+    @Test
+    public void nullIsNotCached() {
+        assertNull(cache.getUploadSchema(TEST_APP_ID, SCHEMA_ID, 3, () -> null));
+        assertEquals(cache.size(), 0L);
+        assertEquals(cache.getStats().get(Type.SCHEMA).getMisses(), 1L);
+    }
+
+    @Test
+    public void invalidateSchemaDropsAllRevisions() {
+        cache.getUploadSchema(TEST_APP_ID, SCHEMA_ID, 3, this::loadSchema);
+        cache.getUploadSchema(TEST_APP_ID, SCHEMA_ID, 4, this::loadSchema);
+        cache.getUploadSchema(TEST_APP_ID, "otherSchema", 3, this::loadSchema);
+        cache.getSurvey(TEST_APP_ID, SCHEMA_ID, SURVEY_CREATED_ON, this::loadSurvey);
+
+        cache.invalidateSchema(TEST_APP_ID, SCHEMA_ID);
+
+        assertEquals(cache.size(), 2L);
+        assertEquals(cache.getStats().get(Type.SCHEMA).getInvalidations(), 2L);
+        assertEquals(cache.getStats().get(Type.SURVEY).getInvalidations(), 0L);
+    }
+
+    @Test
+    public void invalidateSurveyDropsAllVersions() {
+        cache.getSurvey(TEST_APP_ID, SURVEY_GUID, SURVEY_CREATED_ON, this::loadSurvey);
+        cache.getSurvey(TEST_APP_ID, SURVEY_GUID, SURVEY_CREATED_ON + 1, this::loadSurvey);
+        cache.getSurvey("otherApp", SURVEY_GUID, SURVEY_CREATED_ON, this::loadSurvey);
+
+        cache.invalidateSurvey(TEST_APP_ID, SURVEY_GUID);
+
+        assertEquals(cache.size(), 1L);
+        assertEquals(cache.getStats().get(Type.SURVEY).getInvalidations(), 2L);
+        cache.getSurvey(TEST_APP_ID, SURVEY_GUID, SURVEY_CREATED_ON, this::loadSurvey);
+        assertEquals(loads.get(), 4);
+    }
+
+    @Test
+    public void invalidationsArePublished() {
+        cache.invalidateSchema(TEST_APP_ID, SCHEMA_ID);
+        cache.invalidateSurvey(TEST_APP_ID, SURVEY_GUID);
+
+        verify(mockJedis).publish(eq(UploadDefinitionCache.INVALIDATION_CHANNEL),
+                endsWith("|SCHEMA|" + TEST_APP_ID + "|" + SCHEMA_ID));
+        verify(mockJedis).publish(eq(UploadDefinitionCache.INVALIDATION_CHANNEL),
+                endsWith("|SURVEY|" + TEST_APP_ID + "|" + SURVEY_GUID));
+    }
+
+    @Test
+    public void invalidationFromOtherServer() {
+        cache.getUploadSchema(TEST_APP_ID, "schema|with|delimiters", 3, this::loadSchema);
+        cache.getUploadSchema(TEST_APP_ID, "otherSchema", 3, this::loadSchema);
+        cache.getSurvey(TEST_APP_ID, SURVEY_GUID, SURVEY_CREATED_ON, this::loadSurvey);
+
+        cache.onMessage("SCHEMA|" + TEST_APP_ID + "|schema|with|delimiters");
+        cache.onMessage("SURVEY|" + TEST_APP_ID + "|" + SURVEY_GUID);
+
+        assertEquals(cache.size(), 1L);
+        assertEquals(cache.getStats().get(Type.SCHEMA).getInvalidations(), 1L);
+        assertEquals(cache.getStats().get(Type.SURVEY).getInvalidations(), 1L);
+    }
+
+    @Test
+    public void unknownMessageIgnored() {
+        cache.getUploadSchema(TEST_APP_ID, SCHEMA_ID, 3, this::loadSchema);
+
+        cache.onMessage("OTHER|" + TEST_APP_ID + "|" + SCHEMA_ID);
+        cache.onMessage(SCHEMA_ID);
+
+        assertEquals(cache.size(), 1L);
+    }
+
+    @Test
+    public void lostMessagesDropEverything() {
+        cache.getUploadSchema(TEST_APP_ID, SCHEMA_ID, 3, this::loadSchema);
+        cache.getSurvey("otherApp", SURVEY_GUID, SURVEY_CREATED_ON, this::loadSurvey);
+
+        cache.getChannel().messagesLost();
+
+        assertEquals(cache.size(), 0L);
+    }
+
+    @Test
+    public void evictionsCounted() {
+        cache = new UploadDefinitionCache(1, 60);
+        cache.getUploadSchema(TEST_APP_ID, SCHEMA_ID, 3, this::loadSchema);
+        cache.getUploadSchema(TEST_APP_ID, SCHEMA_ID, 4, this::loadSchema);
+
+        assertEquals(cache.size(), 1L);
+        assertEquals(cache.getStats().get(Type.SCHEMA).getEvictions(), 1L);
+        assertEquals(cache.getStats().get(Type.SCHEMA).getInvalidations(), 0L);
+    }
+
+    @Test
+    public void valueLoadedDuringInvalidationIsNotCached() {
+        UploadSchema schema = cache.getUploadSchema(TEST_APP_ID, SCHEMA_ID, 3, () -> {
+            // The schema revision is updated while we are loading it.
+            cache.invalidateSchema(TEST_APP_ID, SCHEMA_ID);
+            return SCHEMA;
+        });
+
+        assertSame(schema, SCHEMA);
+        assertEquals(cache.size(), 0L);
+    }
+
+    private UploadSchema loadSchema() {
+        loads.incrementAndGet();
+        return SCHEMA;
+    }
+
+    private Survey loadSurvey() {
+        loads.incrementAndGet();
+        return SURVEY;
+    }
+}
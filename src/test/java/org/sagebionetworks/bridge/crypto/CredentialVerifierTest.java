@@ -0,0 +1,137 @@
+package org.sagebionetworks.bridge.crypto;
+
+import static org.sagebionetworks.bridge.crypto.CredentialVerifier.OVERLOADED_MESSAGE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
+import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
+
+public class CredentialVerifierTest extends Mockito {
+    private static final int RETRY_AFTER_SECONDS = 7;
+
+    @Mock
+    AsyncExecutor mockAsyncExecutor;
+
+    CredentialVerifier verifier;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        MockitoAnnotations.initMocks(this);
+
+        verifier = new CredentialVerifier();
+        verifier.setAsyncExecutor(mockAsyncExecutor);
+        verifier.setTimeoutMillis(100);
+        verifier.setRetryAfterSeconds(RETRY_AFTER_SECONDS);
+    }
+
+    @Test
+    public void verifyReturnsResult() {
+        runTasks();
+
+        assertTrue(verifier.verify(() -> true));
+        verify(mockAsyncExecutor).execute(eq(AsyncLane.CREDENTIAL_VERIFICATION), any(Runnable.class));
+    }
+
+    @Test(expectedExceptions = BadRequestException.class)
+    public void verifyRethrowsRuntimeException() {
+        runTasks();
+
+        verifier.verify(() -> {
+            throw new BadRequestException("bad");
+        });
+    }
+
+    @Test
+    public void verifyWrapsCheckedException() {
+        runTasks();
+
+        try {
+            verifier.verify(() -> {
+                throw new IOException("io");
+            });
+            fail("expected exception");
+        } catch (BridgeServiceException ex) {
+            assertEquals(ex.getMessage(), "Error verifying credential: io");
+            assertTrue(ex.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void verifyShedsWhenLaneIsFull() {
+        doThrow(new RejectedExecutionException()).when(mockAsyncExecutor).execute(any(AsyncLane.class),
+                any(Runnable.class));
+
+        assertOverloaded();
+    }
+
+    @Test
+    public void verifyShedsWhenTimedOut() {
+        // The task is queued but never run.
+        assertOverloaded();
+    }
+
+    @Test
+    public void timedOutVerificationDoesNotRun() {
+        AtomicBoolean ran = new AtomicBoolean();
+        try {
+            verifier.verify(() -> ran.getAndSet(true));
+            fail("expected exception");
+        } catch (ServiceUnavailableException ex) {
+            // expected
+        }
+
+        // The lane gets to the task after the caller has given up.
+        ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(mockAsyncExecutor).execute(eq(AsyncLane.CREDENTIAL_VERIFICATION), taskCaptor.capture());
+        taskCaptor.getValue().run();
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void startedVerificationIsNotTimedOut() {
+        // The check starts right away, but takes longer than the timeout.
+        doAnswer(invocation -> {
+            new Thread(invocation.<Runnable>getArgument(1)).start();
+            return null;
+        }).when(mockAsyncExecutor).execute(any(AsyncLane.class), any(Runnable.class));
+
+        assertTrue(verifier.verify(() -> {
+            Thread.sleep(300);
+            return true;
+        }));
+    }
+
+    private void runTasks() {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(mockAsyncExecutor).execute(any(AsyncLane.class), any(Runnable.class));
+    }
+
+    private void assertOverloaded() {
+        try {
+            verifier.verify(() -> true);
+            fail("expected exception");
+        } catch (ServiceUnavailableException ex) {
+            assertEquals(ex.getMessage(), OVERLOADED_MESSAGE);
+            assertEquals(ex.getRetryAfterSeconds(), RETRY_AFTER_SECONDS);
+        }
+    }
+}
@@ -9,6 +9,7 @@ import static org.sagebionetworks.bridge.models.activities.ActivityEventType.ANS
 import static org.sagebionetworks.bridge.models.activities.ActivityEventType.FINISHED;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
@@ -17,7 +18,10 @@ import java.util.Map;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedQueryList;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
 import com.google.common.collect.ImmutableList;
 
 import org.joda.time.DateTime;
@@ -32,6 +36,8 @@ import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.models.activities.ActivityEvent;
+
 public class DynamoActivityEventDaoTest extends Mockito {
     
     // timestamp is in milliseconds since the epoch, so use UTC here
@@ -62,7 +68,10 @@ public class DynamoActivityEventDaoTest extends Mockito {
     PaginatedQueryList<DynamoActivityEvent> queryResults;
     
     @Captor
-    ArgumentCaptor<DynamoActivityEvent> eventCaptor;
+    ArgumentCaptor<ActivityEvent> eventCaptor;
+    
+    @Captor
+    ArgumentCaptor<DynamoDBSaveExpression> saveExpressionCaptor;
     
     @Captor
     ArgumentCaptor<DynamoDBQueryExpression<DynamoActivityEvent>> queryCaptor;
@@ -76,57 +85,68 @@ public class DynamoActivityEventDaoTest extends Mockito {
     }
     
     @Test
-    public void publishEventIsNew() {
+    public void publishEventIsNewOrLater() {
         boolean result = dao.publishEvent(SURVEY_FINISHED_EVENT);
         assertTrue(result);
         
-        verify(mockMapper).load(eventCaptor.capture());
-        DynamoActivityEvent loadKey = eventCaptor.getValue();
-        assertEquals(loadKey.getHealthCode(), HEALTH_CODE);
-        assertEquals(loadKey.getEventId(), "survey:AAA-BBB-CCC:finished");
-        
-        verify(mockMapper).save(eventCaptor.capture());
+        verify(mockMapper, never()).load(any());
+        verify(mockMapper).save(eventCaptor.capture(), saveExpressionCaptor.capture());
         assertSame(eventCaptor.getValue(), SURVEY_FINISHED_EVENT);
+        
+        // Saved if there is no event, or if the saved event is earlier.
+        DynamoDBSaveExpression expression = saveExpressionCaptor.getValue();
+        assertEquals(expression.getConditionalOperator(), "OR");
+        Map<String, ExpectedAttributeValue> expected = expression.getExpected();
+        assertEquals(expected.size(), 2);
+        assertFalse(expected.get("eventId").getExists());
+        assertEquals(expected.get("timestamp").getComparisonOperator(), "LT");
+        assertEquals(expected.get("timestamp").getAttributeValueList().get(0).getN(),
+                Long.toString(TIMESTAMP.getMillis()));
     }
     
     @Test
-    public void publishEventIsMutableAndLater() {
-        DynamoActivityEvent earlierEvent = new DynamoActivityEvent.Builder().withHealthCode(HEALTH_CODE)
-                .withObjectType(SURVEY).withEventType(FINISHED).withTimestamp(TIMESTAMP.minusHours(1))
-                .withObjectId("AAA-BBB-CCC").build();
-        when(mockMapper.load(any())).thenReturn(earlierEvent);
-        
-        boolean result = dao.publishEvent(SURVEY_FINISHED_EVENT);
+    public void publishEventIsImmutable() {
+        boolean result = dao.publishEvent(ENROLLMENT_EVENT);
         assertTrue(result);
         
-        verify(mockMapper).save(eventCaptor.capture());
-        assertSame(eventCaptor.getValue(), SURVEY_FINISHED_EVENT);
+        // Saved only if there is no event.
+        verify(mockMapper).save(eq(ENROLLMENT_EVENT), saveExpressionCaptor.capture());
+        DynamoDBSaveExpression expression = saveExpressionCaptor.getValue();
+        assertNull(expression.getConditionalOperator());
+        Map<String, ExpectedAttributeValue> expected = expression.getExpected();
+        assertEquals(expected.size(), 1);
+        assertFalse(expected.get("eventId").getExists());
     }
     
     @Test
-    public void publishEventIsImmutableFails() {
-        when(mockMapper.load(any())).thenReturn(ENROLLMENT_EVENT);
-        
-        DynamoActivityEvent laterEvent = new DynamoActivityEvent.Builder().withHealthCode(HEALTH_CODE)
-                .withObjectType(ENROLLMENT).withTimestamp(TIMESTAMP.plusHours(1)).build();
+    public void publishEventConditionFails() {
+        doThrow(new ConditionalCheckFailedException("")).when(mockMapper).save(any(),
+                any(DynamoDBSaveExpression.class));
         
-        boolean result = dao.publishEvent(laterEvent);
+        boolean result = dao.publishEvent(SURVEY_FINISHED_EVENT);
         assertFalse(result);
-        
-        verify(mockMapper, never()).save(any());
     }
     
     @Test
-    public void publishEventIsEarlierFails() {
-        DynamoActivityEvent laterEvent = new DynamoActivityEvent.Builder().withHealthCode(HEALTH_CODE)
-                .withObjectType(SURVEY).withEventType(FINISHED).withTimestamp(TIMESTAMP.plusHours(1))
-                .withObjectId("AAA-BBB-CCC").build();
-        when(mockMapper.load(any())).thenReturn(laterEvent);
+    public void publishEvents() {
+        doThrow(new ConditionalCheckFailedException("")).when(mockMapper).save(eq(ENROLLMENT_EVENT),
+                any(DynamoDBSaveExpression.class));
         
-        boolean result = dao.publishEvent(SURVEY_FINISHED_EVENT);
-        assertFalse(result);
+        List<ActivityEvent> published = dao.publishEvents(ImmutableList.of(SURVEY_FINISHED_EVENT, ENROLLMENT_EVENT,
+                ACTIVITY_FINISHED_EVENT));
+        
+        // The enrollment event was already recorded.
+        assertEquals(published, ImmutableList.of(SURVEY_FINISHED_EVENT, ACTIVITY_FINISHED_EVENT));
+        verify(mockMapper, times(3)).save(any(), any(DynamoDBSaveExpression.class));
+        verify(mockMapper, never()).load(any());
+    }
+    
+    @Test
+    public void publishEventsEmpty() {
+        List<ActivityEvent> published = dao.publishEvents(ImmutableList.of());
+        assertTrue(published.isEmpty());
         
-        verify(mockMapper, never()).save(any());
+        verifyZeroInteractions(mockMapper);
     }
 
     @Test
@@ -16,6 +16,8 @@ import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedQueryList;
 import com.amazonaws.services.dynamodbv2.model.Condition;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
@@ -108,6 +110,29 @@ public class DynamoAppConfigDaoTest extends Mockito {
         assertEquals(condition.getAttributeValueList().get(0).getN(), "1");
     }
     
+    @Test
+    public void getAppConfigsLoadsCriteriaInOneBatch() {
+        DynamoAppConfig config1 = new DynamoAppConfig();
+        config1.setGuid(GUID);
+        DynamoAppConfig config2 = new DynamoAppConfig();
+        config2.setGuid("otherGuid");
+        List<DynamoAppConfig> configs = ImmutableList.of(config1, config2);
+        when(mockResults.size()).thenReturn(configs.size());
+        when(mockResults.iterator()).thenReturn(configs.iterator());
+        when(mockMapper.query(eq(DynamoAppConfig.class), any())).thenReturn(mockResults);
+        
+        Criteria criteria = new DynamoCriteria();
+        when(mockCriteriaDao.getCriteria(TEST_APP_ID, ImmutableSet.of(CRITERIA_KEY, "appconfig:otherGuid")))
+                .thenReturn(ImmutableMap.of(CRITERIA_KEY, criteria));
+        
+        List<AppConfig> results = dao.getAppConfigs(TEST_APP_ID, false);
+        assertSame(results.get(0).getCriteria(), criteria);
+        // Config without criteria gets an empty criteria object.
+        assertEquals(results.get(1).getCriteria().getKey(), "appconfig:otherGuid");
+        
+        verify(mockCriteriaDao, never()).getCriteria(any(), anyString());
+    }
+    
     @Test
     public void getAppConfig() {
         DynamoAppConfig config = new DynamoAppConfig();
@@ -115,7 +140,7 @@ public class DynamoAppConfigDaoTest extends Mockito {
         when(mockMapper.load(KEY)).thenReturn(config);
         
         Criteria criteria = new DynamoCriteria();
-        when(mockCriteriaDao.getCriteria(CRITERIA_KEY)).thenReturn(criteria);
+        when(mockCriteriaDao.getCriteria(TEST_APP_ID, CRITERIA_KEY)).thenReturn(criteria);
         
         AppConfig result = dao.getAppConfig(TEST_APP_ID, GUID);
         
@@ -141,6 +166,7 @@ public class DynamoAppConfigDaoTest extends Mockito {
     @Test
     public void createAppConfig() {
         AppConfig config = AppConfig.create();
+        config.setAppId(TEST_APP_ID);
         config.setDeleted(true); // verify this cannot be created true
         config.setGuid(GUID); // set in AppConfigService
         Criteria criteria = Criteria.create();
@@ -152,7 +178,7 @@ public class DynamoAppConfigDaoTest extends Mockito {
         assertEquals(criteria.getKey(), CRITERIA_KEY);
         
         verify(mockMapper).save(config);
-        verify(mockCriteriaDao).createOrUpdateCriteria(criteria);
+        verify(mockCriteriaDao).createOrUpdateCriteria(TEST_APP_ID, criteria);
     }
     
     @Test
@@ -175,7 +201,7 @@ public class DynamoAppConfigDaoTest extends Mockito {
         AppConfig result = dao.updateAppConfig(config);
         assertSame(result, config);
         
-        verify(mockCriteriaDao).createOrUpdateCriteria(criteriaCaptor.capture());
+        verify(mockCriteriaDao).createOrUpdateCriteria(eq(TEST_APP_ID), criteriaCaptor.capture());
         verify(mockMapper).save(config);
         
         assertFalse(result.isDeleted());
@@ -201,7 +227,7 @@ public class DynamoAppConfigDaoTest extends Mockito {
         AppConfig result = dao.updateAppConfig(config);
         assertSame(result, config);
         
-        verify(mockCriteriaDao).createOrUpdateCriteria(criteriaCaptor.capture());
+        verify(mockCriteriaDao).createOrUpdateCriteria(eq(TEST_APP_ID), criteriaCaptor.capture());
         verify(mockMapper).save(config);
         
         assertTrue(result.isDeleted());
@@ -227,7 +253,7 @@ public class DynamoAppConfigDaoTest extends Mockito {
         AppConfig result = dao.updateAppConfig(config);
         assertSame(result, config);
         
-        verify(mockCriteriaDao).createOrUpdateCriteria(criteriaCaptor.capture());
+        verify(mockCriteriaDao).createOrUpdateCriteria(eq(TEST_APP_ID), criteriaCaptor.capture());
         verify(mockMapper).save(config);
         
         assertFalse(result.isDeleted());
@@ -296,7 +322,7 @@ public class DynamoAppConfigDaoTest extends Mockito {
         dao.deleteAppConfigPermanently(TEST_APP_ID, GUID);
         
         verify(mockMapper).delete(saved);
-        verify(mockCriteriaDao).deleteCriteria(CRITERIA_KEY);
+        verify(mockCriteriaDao).deleteCriteria(TEST_APP_ID, CRITERIA_KEY);
     }
 
     @Test(expectedExceptions = EntityNotFoundException.class)
@@ -1,13 +1,24 @@
 package org.sagebionetworks.bridge.dynamodb;
 
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -15,73 +26,126 @@ import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.cache.CriteriaCache;
 import org.sagebionetworks.bridge.models.Criteria;
 
 public class DynamoCriteriaDaoTest extends Mockito {
 
     private static final String CRITERIA_KEY = "criteria:key";
+    private static final String OTHER_CRITERIA_KEY = "criteria:other-key";
 
     @Mock
     DynamoDBMapper mockMapper;
-    
+
+    @Mock
+    CriteriaCache mockCriteriaCache;
+
     @Captor
     ArgumentCaptor<DynamoCriteria> criteriaCaptor;
-    
+
+    @Captor
+    ArgumentCaptor<List<DynamoCriteria>> criteriaListCaptor;
+
     @InjectMocks
     DynamoCriteriaDao dao;
-    
+
+    @SuppressWarnings("unchecked")
     @BeforeMethod
     public void beforeMethod() {
         MockitoAnnotations.initMocks(this);
+
+        // Nothing is cached, so every key is loaded.
+        when(mockCriteriaCache.getCriteria(any(), any(), any())).thenAnswer(invocation -> {
+            Set<String> keys = invocation.getArgument(1);
+            return invocation.<Function<Set<String>, Map<String, Criteria>>>getArgument(2).apply(keys);
+        });
     }
-    
+
     @Test
     public void createOrUpdateCriteria() {
         Criteria criteria = Criteria.create();
         criteria.setKey(CRITERIA_KEY);
-        
-        Criteria result = dao.createOrUpdateCriteria(criteria);
+
+        Criteria result = dao.createOrUpdateCriteria(TEST_APP_ID, criteria);
         assertSame(result, criteria);
-        
-        verify(mockMapper).save(criteria);
+
+        InOrder inOrder = inOrder(mockMapper, mockCriteriaCache);
+        inOrder.verify(mockMapper).save(criteria);
+        inOrder.verify(mockCriteriaCache).removeCriteria(TEST_APP_ID, CRITERIA_KEY);
     }
-    
+
     @Test
     public void getCriteria() {
         Criteria saved = Criteria.create();
         saved.setKey(CRITERIA_KEY);
-        when(mockMapper.load(any())).thenReturn(saved);
-        
-        Criteria result = dao.getCriteria(CRITERIA_KEY);
+        when(mockMapper.batchLoad(any(List.class))).thenReturn(
+                ImmutableMap.<String, List<Object>>of("Criteria", ImmutableList.of(saved)));
+
+        Criteria result = dao.getCriteria(TEST_APP_ID, CRITERIA_KEY);
         assertSame(result, saved);
-        
-        verify(mockMapper).load(criteriaCaptor.capture());
-        DynamoCriteria key = criteriaCaptor.getValue();
-        assertEquals(key.getKey(), CRITERIA_KEY);
+
+        verify(mockCriteriaCache).getCriteria(eq(TEST_APP_ID), eq(ImmutableSet.of(CRITERIA_KEY)), any());
+        verify(mockMapper).batchLoad(criteriaListCaptor.capture());
+        assertEquals(criteriaListCaptor.getValue().size(), 1);
+        assertEquals(criteriaListCaptor.getValue().get(0).getKey(), CRITERIA_KEY);
     }
 
     @Test
     public void getCriteriaNotFound() {
-        assertNull( dao.getCriteria(CRITERIA_KEY) );
+        when(mockMapper.batchLoad(any(List.class))).thenReturn(ImmutableMap.of());
+
+        assertNull( dao.getCriteria(TEST_APP_ID, CRITERIA_KEY) );
     }
-    
+
+    @Test
+    public void getCriteriaBatch() {
+        Criteria saved = Criteria.create();
+        saved.setKey(CRITERIA_KEY);
+        when(mockMapper.batchLoad(any(List.class))).thenReturn(
+                ImmutableMap.<String, List<Object>>of("Criteria", ImmutableList.of(saved)));
+
+        Map<String, Criteria> result = dao.getCriteria(TEST_APP_ID, ImmutableSet.of(CRITERIA_KEY, OTHER_CRITERIA_KEY));
+        assertEquals(result.size(), 1);
+        assertSame(result.get(CRITERIA_KEY), saved);
+
+        // Both keys are loaded in one batch.
+        verify(mockMapper).batchLoad(criteriaListCaptor.capture());
+        List<DynamoCriteria> hashKeys = criteriaListCaptor.getValue();
+        assertEquals(hashKeys.size(), 2);
+        assertTrue(hashKeys.stream().anyMatch(hashKey -> hashKey.getKey().equals(OTHER_CRITERIA_KEY)));
+        verify(mockMapper, never()).load(any());
+    }
+
+    @Test
+    public void getCriteriaServedFromCache() {
+        Criteria cached = Criteria.create();
+        cached.setKey(CRITERIA_KEY);
+        when(mockCriteriaCache.getCriteria(any(), any(), any())).thenReturn(ImmutableMap.of(CRITERIA_KEY, cached));
+
+        assertSame(dao.getCriteria(TEST_APP_ID, CRITERIA_KEY), cached);
+
+        verifyZeroInteractions(mockMapper);
+    }
+
     @Test
     public void deleteCriteria() {
         Criteria saved = Criteria.create();
         saved.setKey(CRITERIA_KEY);
         when(mockMapper.load(any())).thenReturn(saved);
-        
-        dao.deleteCriteria(CRITERIA_KEY);
-        
+
+        dao.deleteCriteria(TEST_APP_ID, CRITERIA_KEY);
+
         verify(mockMapper).delete(criteriaCaptor.capture());
         DynamoCriteria key = criteriaCaptor.getValue();
         assertEquals(key.getKey(), CRITERIA_KEY);
+        verify(mockCriteriaCache).removeCriteria(TEST_APP_ID, CRITERIA_KEY);
     }
 
     @Test
     public void deleteCriteriaNotFound() {
-        dao.deleteCriteria(CRITERIA_KEY);
-        
+        dao.deleteCriteria(TEST_APP_ID, CRITERIA_KEY);
+
         verify(mockMapper, never()).delete(any());
+        verify(mockCriteriaCache).removeCriteria(TEST_APP_ID, CRITERIA_KEY);
     }
 }
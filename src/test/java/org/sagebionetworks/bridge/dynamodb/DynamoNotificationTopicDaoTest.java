@@ -8,6 +8,7 @@ import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anySet;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
@@ -22,6 +23,7 @@ import java.util.List;
 import java.util.Set;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
@@ -97,8 +99,12 @@ public class DynamoNotificationTopicDaoTest {
     public void before() {
         MockitoAnnotations.initMocks(this);
         // Mock criteria DAO.
-        when(mockCriteriaDao.getCriteria(DynamoNotificationTopicDao.CRITERIA_KEY_PREFIX + GUID_WITH_CRITERIA))
-                .thenReturn(makeCriteria());
+        String criteriaKey = DynamoNotificationTopicDao.CRITERIA_KEY_PREFIX + GUID_WITH_CRITERIA;
+        when(mockCriteriaDao.getCriteria(TEST_APP_ID, criteriaKey)).thenReturn(makeCriteria());
+        when(mockCriteriaDao.getCriteria(eq(TEST_APP_ID), anySet())).thenAnswer(invocation -> {
+            Set<String> keys = invocation.getArgument(1);
+            return keys.contains(criteriaKey) ? ImmutableMap.of(criteriaKey, makeCriteria()) : ImmutableMap.of();
+        });
 
         // Set up topic DAO.
         dao = new DynamoNotificationTopicDao();
@@ -161,7 +167,7 @@ public class DynamoNotificationTopicDaoTest {
 
         // Verify the saved criteria is correct.
         ArgumentCaptor<Criteria> savedCriteriaCaptor = ArgumentCaptor.forClass(Criteria.class);
-        verify(mockCriteriaDao).createOrUpdateCriteria(savedCriteriaCaptor.capture());
+        verify(mockCriteriaDao).createOrUpdateCriteria(eq(TEST_APP_ID), savedCriteriaCaptor.capture());
         assertCriteria(captured.getGuid(), savedCriteriaCaptor.getValue());
     }
 
@@ -256,7 +262,7 @@ public class DynamoNotificationTopicDaoTest {
         dao.deleteTopicPermanently(TEST_APP_ID, GUID_WITH_CRITERIA);
 
         // Verify criteria DAO.
-        verify(mockCriteriaDao).deleteCriteria(DynamoNotificationTopicDao.CRITERIA_KEY_PREFIX +
+        verify(mockCriteriaDao).deleteCriteria(TEST_APP_ID, DynamoNotificationTopicDao.CRITERIA_KEY_PREFIX +
                 GUID_WITH_CRITERIA);
     }
     
@@ -336,6 +342,12 @@ public class DynamoNotificationTopicDaoTest {
         assertEquals(topics.get(1).getGuid(), GUID_WITH_CRITERIA);
         assertCriteria(GUID_WITH_CRITERIA, topics.get(1).getCriteria());
 
+        // Criteria are loaded in one batch.
+        verify(mockCriteriaDao).getCriteria(TEST_APP_ID, ImmutableSet.of(
+                DynamoNotificationTopicDao.CRITERIA_KEY_PREFIX + GUID_WITHOUT_CRITERIA,
+                DynamoNotificationTopicDao.CRITERIA_KEY_PREFIX + GUID_WITH_CRITERIA));
+        verify(mockCriteriaDao, never()).getCriteria(any(), anyString());
+
         // Verify query.
         verify(mockMapper).queryPage(eq(DynamoNotificationTopic.class), queryExpressionCaptor.capture());
         
@@ -445,7 +457,7 @@ public class DynamoNotificationTopicDaoTest {
 
         // Verify the saved criteria is correct.
         ArgumentCaptor<Criteria> savedCriteriaCaptor = ArgumentCaptor.forClass(Criteria.class);
-        verify(mockCriteriaDao).createOrUpdateCriteria(savedCriteriaCaptor.capture());
+        verify(mockCriteriaDao).createOrUpdateCriteria(eq(TEST_APP_ID), savedCriteriaCaptor.capture());
         assertCriteria(GUID_WITHOUT_CRITERIA, savedCriteriaCaptor.getValue());
     }
 
@@ -469,7 +481,7 @@ public class DynamoNotificationTopicDaoTest {
         assertNull(savedTopic.getCriteria());
 
         // Criteria DAO is never called to save the criteria.
-        verify(mockCriteriaDao, never()).createOrUpdateCriteria(any());
+        verify(mockCriteriaDao, never()).createOrUpdateCriteria(any(), any());
     }
 
     @Test(expectedExceptions = EntityNotFoundException.class)
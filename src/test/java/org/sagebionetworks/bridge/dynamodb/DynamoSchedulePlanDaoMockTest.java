@@ -43,6 +43,7 @@ import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
 import com.amazonaws.services.dynamodbv2.model.Condition;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 
@@ -89,7 +90,8 @@ public class DynamoSchedulePlanDaoMockTest extends Mockito {
         ScheduleCriteria scheduleCriteria = strategy.getScheduleCriteria().get(0);
         Criteria criteria = scheduleCriteria.getCriteria();
         
-        when(mockCriteriaDao.getCriteria(SCHEDULE_CRITERIA_KEY)).thenReturn(criteria);
+        when(mockCriteriaDao.getCriteria(TEST_APP_ID, ImmutableSet.of(SCHEDULE_CRITERIA_KEY)))
+                .thenReturn(ImmutableMap.of(SCHEDULE_CRITERIA_KEY, criteria));
     }
     
     @AfterMethod
@@ -144,13 +146,14 @@ public class DynamoSchedulePlanDaoMockTest extends Mockito {
         assertCriteria(criteria);
         
         String key = criteria.getKey();
-        verify(mockCriteriaDao).getCriteria(key);
+        verify(mockCriteriaDao).getCriteria(TEST_APP_ID, ImmutableSet.of(key));
         
         // now have criteriaDao return a different criteria object, that should update the plan
         Criteria persistedCriteria = Criteria.create();
         persistedCriteria.setMinAppVersion(IOS, 1);
         persistedCriteria.setMaxAppVersion(IOS, 65);
-        when(mockCriteriaDao.getCriteria(key)).thenReturn(persistedCriteria);
+        when(mockCriteriaDao.getCriteria(TEST_APP_ID, ImmutableSet.of(key)))
+                .thenReturn(ImmutableMap.of(key, persistedCriteria));
         
         plans = dao.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false);
         plan = plans.get(0);
@@ -172,13 +175,14 @@ public class DynamoSchedulePlanDaoMockTest extends Mockito {
         assertCriteria(criteria);
         
         String key = criteria.getKey();
-        verify(mockCriteriaDao).getCriteria(key);
+        verify(mockCriteriaDao).getCriteria(TEST_APP_ID, ImmutableSet.of(key));
         
         // now have criteriaDao return a different criteria object, that should update the plan
         Criteria persistedCriteria = Criteria.create();
         persistedCriteria.setMinAppVersion(IOS, 1);
         persistedCriteria.setMaxAppVersion(IOS, 65);
-        when(mockCriteriaDao.getCriteria(key)).thenReturn(persistedCriteria);
+        when(mockCriteriaDao.getCriteria(TEST_APP_ID, ImmutableSet.of(key)))
+                .thenReturn(ImmutableMap.of(key, persistedCriteria));
         
         plan = dao.getSchedulePlan(TEST_APP_ID, plan.getGuid());
         strategy = (CriteriaScheduleStrategy)plan.getStrategy();
@@ -199,7 +203,7 @@ public class DynamoSchedulePlanDaoMockTest extends Mockito {
         
         ArgumentCaptor<Criteria> criteriaCaptor = ArgumentCaptor.forClass(Criteria.class);
         
-        verify(mockCriteriaDao).createOrUpdateCriteria(criteriaCaptor.capture());
+        verify(mockCriteriaDao).createOrUpdateCriteria(eq(TEST_APP_ID), criteriaCaptor.capture());
         Criteria crit = criteriaCaptor.getValue();
         assertCriteria(crit);        
     }
@@ -235,7 +239,7 @@ public class DynamoSchedulePlanDaoMockTest extends Mockito {
         assertEquals(returnedCriteria.getMaxAppVersion(IOS), new Integer(200));        
         
         // Verify they were persisted
-        verify(mockCriteriaDao).createOrUpdateCriteria(criteriaCaptor.capture());
+        verify(mockCriteriaDao).createOrUpdateCriteria(eq(TEST_APP_ID), criteriaCaptor.capture());
         Criteria updatedCriteria = criteriaCaptor.getValue();
         assertEquals(updatedCriteria.getMinAppVersion(IOS), new Integer(100));
         assertEquals(updatedCriteria.getMaxAppVersion(IOS), new Integer(200));        
@@ -304,7 +308,7 @@ public class DynamoSchedulePlanDaoMockTest extends Mockito {
         dao.deleteSchedulePlan(TEST_APP_ID, schedulePlan.getGuid());
         
         verify(mockMapper).save(schedulePlanCaptor.capture());
-        verify(mockCriteriaDao, never()).deleteCriteria(any());
+        verify(mockCriteriaDao, never()).deleteCriteria(any(), any());
         
         assertTrue(schedulePlanCaptor.getValue().isDeleted());
     }
@@ -315,7 +319,7 @@ public class DynamoSchedulePlanDaoMockTest extends Mockito {
         dao.deleteSchedulePlanPermanently(TEST_APP_ID, schedulePlan.getGuid());
         
         verify(mockMapper).delete(schedulePlanCaptor.capture());
-        verify(mockCriteriaDao).deleteCriteria(any());
+        verify(mockCriteriaDao).deleteCriteria(any(), any());
     }
     
     @Test
@@ -323,7 +327,7 @@ public class DynamoSchedulePlanDaoMockTest extends Mockito {
         mockSchedulePlanQuery();
         dao.deleteSchedulePlanPermanently(TEST_APP_ID, schedulePlan.getGuid());
         
-        verify(mockCriteriaDao).deleteCriteria(SCHEDULE_CRITERIA_KEY);
+        verify(mockCriteriaDao).deleteCriteria(TEST_APP_ID, SCHEDULE_CRITERIA_KEY);
     }
     
     @Test
@@ -423,7 +427,7 @@ public class DynamoSchedulePlanDaoMockTest extends Mockito {
         SchedulePlan returned = dao.createSchedulePlan(TEST_APP_ID, plan);
         
         // Verify the criteria were persisted
-        verify(mockCriteriaDao).createOrUpdateCriteria(criteriaCaptor.capture());
+        verify(mockCriteriaDao).createOrUpdateCriteria(eq(TEST_APP_ID), criteriaCaptor.capture());
         assertSame(criteriaCaptor.getValue(), criteria);
         assertEquals(criteriaCaptor.getValue().getKey(), SCHEDULE_CRITERIA_KEY);
         
@@ -447,7 +451,7 @@ public class DynamoSchedulePlanDaoMockTest extends Mockito {
         
         mockSchedulePlanQuery();
 
-        when(mockCriteriaDao.createOrUpdateCriteria(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(mockCriteriaDao.createOrUpdateCriteria(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
         
         SchedulePlan plan = constructSchedulePlan();
         plan.setAppId(null); // this will be set
@@ -466,7 +470,7 @@ public class DynamoSchedulePlanDaoMockTest extends Mockito {
         assertFalse(query.isScanIndexForward());
         
         // Verify the criteria were persisted
-        verify(mockCriteriaDao).createOrUpdateCriteria(criteriaCaptor.capture());
+        verify(mockCriteriaDao).createOrUpdateCriteria(eq(TEST_APP_ID), criteriaCaptor.capture());
         assertEquals(criteriaCaptor.getValue(), criteria);
         
         verify(mockMapper).save(schedulePlanCaptor.capture());
@@ -537,7 +541,7 @@ public class DynamoSchedulePlanDaoMockTest extends Mockito {
         assertSame(plan, schedulePlan);
         
         verify(mockMapper).queryPage(eq(DynamoSchedulePlan.class), any());
-        verify(mockCriteriaDao).getCriteria(SCHEDULE_CRITERIA_KEY);
+        verify(mockCriteriaDao).getCriteria(TEST_APP_ID, ImmutableSet.of(SCHEDULE_CRITERIA_KEY));
     }
     
     @Test(expectedExceptions = EntityNotFoundException.class)
@@ -549,7 +553,7 @@ public class DynamoSchedulePlanDaoMockTest extends Mockito {
         assertEquals(result, schedulePlan);
         
         verify(mockMapper).queryPage(eq(DynamoSchedulePlan.class), any());
-        verify(mockCriteriaDao).getCriteria(SCHEDULE_CRITERIA_KEY);
+        verify(mockCriteriaDao).getCriteria(TEST_APP_ID, ImmutableSet.of(SCHEDULE_CRITERIA_KEY));
     }
     
     private void assertCriteria(Criteria criteria) {
@@ -1,6 +1,7 @@
 package org.sagebionetworks.bridge.dynamodb;
 
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -32,6 +33,8 @@ import org.testng.annotations.Test;
 import org.sagebionetworks.bridge.BridgeConstants;
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
 import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.config.Environment;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
@@ -76,6 +79,8 @@ public class DynamoScheduledActivityDaoMockTest {
     private static final int PAGE_SIZE = 30;
     
     private DynamoDBMapper mapper;
+    
+    private AsyncExecutor mockAsyncExecutor;
 
     private DynamoScheduledActivityDao activityDao;
     
@@ -328,6 +333,127 @@ public class DynamoScheduledActivityDaoMockTest {
         assertEquals(results.getRequestParams().get("scheduledOnEnd"), SCHEDULED_ON_END.toString());
     }
 
+    @SuppressWarnings({"unchecked","rawtypes"})
+    @Test
+    public void getPersistedActivities() {
+        mockAsyncExecutor();
+        
+        // Persisted in the time window: one scheduled, one that is no longer scheduled.
+        DynamoScheduledActivity aaaScheduled = persistedActivity("AAA:2015-04-12T10:00:00.000");
+        DynamoScheduledActivity aaaUnscheduled = persistedActivity("AAA:2015-04-11T09:00:00.000");
+        // Persisted outside the time window.
+        DynamoScheduledActivity cccOutOfWindow = persistedActivity("CCC:2015-01-01T10:00:00.000");
+        
+        when(mapper.queryPage(eq(DynamoScheduledActivity.class), any())).thenAnswer(invocation -> {
+            DynamoDBQueryExpression<DynamoScheduledActivity> query = invocation.getArgument(1);
+            String start = query.getRangeKeyConditions().get("guid").getAttributeValueList().get(0).getS();
+            QueryResultPage<DynamoScheduledActivity> page = new QueryResultPage<>();
+            page.setResults(start.startsWith("AAA:") ? Lists.newArrayList(aaaScheduled, aaaUnscheduled)
+                    : Lists.newArrayList());
+            return page;
+        });
+        Map<String,List<Object>> batchResults = ImmutableMap.of("some-table-name",
+                ImmutableList.of(cccOutOfWindow));
+        when(mapper.batchLoad(any(List.class))).thenReturn(batchResults);
+        
+        List<ScheduledActivity> scheduled = ImmutableList.of(
+                scheduledActivity("AAA:2015-04-12T10:00:00.000"),
+                scheduledActivity("AAA:2015-04-13T10:00:00.000"),
+                scheduledActivity("BBB:2015-04-12T10:00:00.000"),
+                scheduledActivity("CCC:2015-01-01T10:00:00.000"));
+        
+        List<ScheduledActivity> results = activityDao.getPersistedActivities(HEALTH_CODE, SCHEDULED_ON_START,
+                SCHEDULED_ON_END, scheduled);
+        
+        assertEquals(results.size(), 3);
+        assertTrue(results.contains(aaaScheduled));
+        assertTrue(results.contains(aaaUnscheduled));
+        assertTrue(results.contains(cccOutOfWindow));
+        for (ScheduledActivity activity : results) {
+            assertEquals(activity.getTimeZone(), SCHEDULED_ON_START.getZone());
+        }
+        
+        // One history query per activity GUID, each submitted to the executor.
+        verify(mapper, times(3)).queryPage(eq(DynamoScheduledActivity.class), any());
+        verify(mockAsyncExecutor, times(3)).execute(eq(AsyncLane.FAN_OUT), eq(HEALTH_CODE), any());
+        
+        // One batch load of the scheduled activities that weren't found by the queries.
+        ArgumentCaptor<List> keysCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mapper).batchLoad(keysCaptor.capture());
+        List<DynamoScheduledActivity> keys = keysCaptor.getValue();
+        assertEquals(keys.size(), 3);
+        assertEquals(keys.get(0).getGuid(), "AAA:2015-04-13T10:00:00.000");
+        assertEquals(keys.get(1).getGuid(), "BBB:2015-04-12T10:00:00.000");
+        assertEquals(keys.get(2).getGuid(), "CCC:2015-01-01T10:00:00.000");
+        for (DynamoScheduledActivity key : keys) {
+            assertEquals(key.getHealthCode(), HEALTH_CODE);
+        }
+    }
+    
+    @Test
+    public void getPersistedActivitiesAllFoundByQueries() {
+        mockAsyncExecutor();
+        
+        DynamoScheduledActivity aaa = persistedActivity("AAA:2015-04-12T10:00:00.000");
+        QueryResultPage<DynamoScheduledActivity> page = new QueryResultPage<>();
+        page.setResults(Lists.newArrayList(aaa));
+        when(mapper.queryPage(eq(DynamoScheduledActivity.class), any())).thenReturn(page);
+        
+        List<ScheduledActivity> results = activityDao.getPersistedActivities(HEALTH_CODE, SCHEDULED_ON_START,
+                SCHEDULED_ON_END, ImmutableList.of(scheduledActivity("AAA:2015-04-12T10:00:00.000")));
+        assertEquals(results, ImmutableList.of(aaa));
+        
+        // Nothing left to load by key.
+        verify(mapper, never()).batchLoad(any(List.class));
+    }
+    
+    @Test
+    public void getPersistedActivitiesWithNoScheduledActivities() {
+        mockAsyncExecutor();
+        
+        List<ScheduledActivity> results = activityDao.getPersistedActivities(HEALTH_CODE, SCHEDULED_ON_START,
+                SCHEDULED_ON_END, ImmutableList.of());
+        assertTrue(results.isEmpty());
+        
+        verifyNoMoreInteractions(mapper);
+        verifyNoMoreInteractions(mockAsyncExecutor);
+    }
+    
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void getPersistedActivitiesRethrowsQueryException() {
+        mockAsyncExecutor();
+        when(mapper.queryPage(eq(DynamoScheduledActivity.class), any()))
+                .thenThrow(new IllegalStateException("query failed"));
+        
+        activityDao.getPersistedActivities(HEALTH_CODE, SCHEDULED_ON_START, SCHEDULED_ON_END,
+                ImmutableList.of(scheduledActivity("AAA:2015-04-12T10:00:00.000")));
+    }
+    
+    // Runs submitted tasks on the calling thread.
+    private void mockAsyncExecutor() {
+        mockAsyncExecutor = mock(AsyncExecutor.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(2)).run();
+            return null;
+        }).when(mockAsyncExecutor).execute(any(AsyncLane.class), any(), any());
+        activityDao.setAsyncExecutor(mockAsyncExecutor);
+    }
+    
+    private DynamoScheduledActivity persistedActivity(String guid) {
+        DynamoScheduledActivity activity = new DynamoScheduledActivity();
+        activity.setHealthCode(HEALTH_CODE);
+        activity.setGuid(guid);
+        activity.setStartedOn(NOW.getMillis());
+        return activity;
+    }
+    
+    private DynamoScheduledActivity scheduledActivity(String guid) {
+        DynamoScheduledActivity activity = new DynamoScheduledActivity();
+        activity.setHealthCode(HEALTH_CODE);
+        activity.setGuid(guid);
+        return activity;
+    }
+
     @Test(expectedExceptions = BadRequestException.class)
     public void getActivityHistoryV2PageBelowMinSize() {
         activityDao.getActivityHistoryV2(HEALTH_CODE, ACTIVITY_GUID, SCHEDULED_ON_START, SCHEDULED_ON_END, OFFSET_KEY,
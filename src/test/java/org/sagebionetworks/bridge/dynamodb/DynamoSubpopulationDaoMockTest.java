@@ -1,6 +1,10 @@
 package org.sagebionetworks.bridge.dynamodb;
 
+import static java.util.stream.Collectors.toMap;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anySet;
+import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
@@ -16,6 +20,7 @@ import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
 import java.util.List;
+import java.util.Set;
 
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
@@ -36,6 +41,7 @@ import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedQueryList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
@@ -79,8 +85,8 @@ public class DynamoSubpopulationDaoMockTest {
         doReturn(persistedSubpop).when(mapper).load(any());
         doReturn(page).when(mapper).query(eq(DynamoSubpopulation.class), any());
         
-        when(criteriaDao.getCriteria(any())).thenReturn(CRITERIA);
-        when(criteriaDao.createOrUpdateCriteria(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        mockCriteria(CRITERIA);
+        when(criteriaDao.createOrUpdateCriteria(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
     }
     
     @Test
@@ -90,7 +96,7 @@ public class DynamoSubpopulationDaoMockTest {
         dao.createSubpopulation(subpop);
         
         Criteria criteria = subpop.getCriteria();
-        verify(criteriaDao).createOrUpdateCriteria(criteria);
+        verify(criteriaDao).createOrUpdateCriteria(TEST_APP_ID, criteria);
     }
     
     @Test
@@ -101,7 +107,7 @@ public class DynamoSubpopulationDaoMockTest {
         assertEquals(criteria.getMinAppVersion(OperatingSystem.IOS), new Integer(0));
         assertEquals(criteria.getMinAppVersion(OperatingSystem.ANDROID), new Integer(0));
         
-        verify(criteriaDao).createOrUpdateCriteria(criteria);
+        verify(criteriaDao).createOrUpdateCriteria(TEST_APP_ID, criteria);
     }
     
     @Test
@@ -111,33 +117,33 @@ public class DynamoSubpopulationDaoMockTest {
         Criteria criteria = subpop.getCriteria();
         assertEquals(criteria, CRITERIA);
         
-        verify(criteriaDao).getCriteria(criteria.getKey());
+        verify(criteriaDao).getCriteria(TEST_APP_ID, criteria.getKey());
         verifyNoMoreInteractions(criteriaDao);
     }
     
     @Test
     public void getSubpopulationConstructsCriteriaIfNotSaved() {
-        when(criteriaDao.getCriteria(any())).thenReturn(null);
+        when(criteriaDao.getCriteria(any(), anyString())).thenReturn(null);
         
         Subpopulation subpop = dao.getSubpopulation(TEST_APP_ID, SUBPOP_GUID);
         Criteria criteria = subpop.getCriteria();
         assertNotNull(criteria);
         
-        verify(criteriaDao).getCriteria(criteria.getKey());
+        verify(criteriaDao).getCriteria(TEST_APP_ID, criteria.getKey());
     }
     
     @Test
     public void physicalDeleteSubpopulationDeletesCriteria() {
         dao.deleteSubpopulationPermanently(TEST_APP_ID, SUBPOP_GUID);
         
-        verify(criteriaDao).deleteCriteria(createSubpopulation().getCriteria().getKey());
+        verify(criteriaDao).deleteCriteria(TEST_APP_ID, createSubpopulation().getCriteria().getKey());
     }
     
     @Test
     public void logicalDeleteSubpopulationDoesNotDeleteCriteria() {
         dao.deleteSubpopulation(TEST_APP_ID, SUBPOP_GUID);
         
-        verify(criteriaDao, never()).deleteCriteria(createSubpopulation().getCriteria().getKey());
+        verify(criteriaDao, never()).deleteCriteria(TEST_APP_ID, createSubpopulation().getCriteria().getKey());
     }
     
     @Test(expectedExceptions = BadRequestException.class)
@@ -160,7 +166,7 @@ public class DynamoSubpopulationDaoMockTest {
         doReturn(defaultSubpop).when(dao).getSubpopulation(TEST_APP_ID, SUBPOP_GUID);
         
         dao.deleteSubpopulationPermanently(TEST_APP_ID, SUBPOP_GUID);
-        verify(criteriaDao).deleteCriteria(defaultSubpop.getCriteria().getKey());
+        verify(criteriaDao).deleteCriteria(TEST_APP_ID, defaultSubpop.getCriteria().getKey());
         verify(mapper).delete(defaultSubpop);
     }
     
@@ -173,7 +179,7 @@ public class DynamoSubpopulationDaoMockTest {
         Subpopulation updatedSubpop = dao.updateSubpopulation(subpop);
         assertEquals(updatedSubpop.getCriteria(), CRITERIA);
         
-        verify(criteriaDao).createOrUpdateCriteria(criteriaCaptor.capture());
+        verify(criteriaDao).createOrUpdateCriteria(eq(TEST_APP_ID), criteriaCaptor.capture());
         Criteria savedCriteria = criteriaCaptor.getValue();
         assertEquals(savedCriteria, CRITERIA);
     }
@@ -192,8 +198,8 @@ public class DynamoSubpopulationDaoMockTest {
         Subpopulation updatedSubpop = dao.updateSubpopulation(subpopWithCritObject);
         assertEquals(updatedSubpop.getCriteria(), CRITERIA);
         
-        verify(criteriaDao).getCriteria(subpopWithCritObject.getCriteria().getKey());
-        verify(criteriaDao).createOrUpdateCriteria(criteriaCaptor.capture());
+        verify(criteriaDao).getCriteria(TEST_APP_ID, subpopWithCritObject.getCriteria().getKey());
+        verify(criteriaDao).createOrUpdateCriteria(eq(TEST_APP_ID), criteriaCaptor.capture());
         Criteria savedCriteria = criteriaCaptor.getValue();
         assertEquals(savedCriteria, CRITERIA);
     }
@@ -252,7 +258,7 @@ public class DynamoSubpopulationDaoMockTest {
         List<Subpopulation> list = dao.getSubpopulations(TEST_APP_ID, false, true);
         assertEquals(list.get(0).getCriteria(), CRITERIA);
         
-        verify(criteriaDao).getCriteria(list.get(0).getCriteria().getKey());
+        verify(criteriaDao).getCriteria(TEST_APP_ID, ImmutableSet.of(list.get(0).getCriteria().getKey()));
     }
     
     @Test
@@ -263,13 +269,13 @@ public class DynamoSubpopulationDaoMockTest {
         assertEquals(list.get(0).getCriteria(), CRITERIA);
         
         // In this case it actually returns a criteria object.
-        verify(criteriaDao).getCriteria(list.get(0).getCriteria().getKey());
+        verify(criteriaDao).getCriteria(TEST_APP_ID, ImmutableSet.of(list.get(0).getCriteria().getKey()));
     }
     
     @Test
     public void criteriaTableTakesPrecedenceOnGet() {
         reset(criteriaDao);
-        doReturn(CRITERIA).when(criteriaDao).getCriteria(any());
+        mockCriteria(CRITERIA);
         
         Subpopulation subpop = dao.getSubpopulation(TEST_APP_ID, SUBPOP_GUID);
         Criteria retrievedCriteria = subpop.getCriteria();
@@ -279,13 +285,21 @@ public class DynamoSubpopulationDaoMockTest {
     @Test
     public void criteriaTableTakesPrecedenceOnGetList() {
         reset(criteriaDao);
-        doReturn(CRITERIA).when(criteriaDao).getCriteria(any());
+        mockCriteria(CRITERIA);
         
         List<Subpopulation> subpops = dao.getSubpopulations(TEST_APP_ID, false, true);
         Criteria retrievedCriteria = subpops.get(0).getCriteria();
         assertEquals(retrievedCriteria, CRITERIA);
     }
     
+    private void mockCriteria(Criteria criteria) {
+        doReturn(criteria).when(criteriaDao).getCriteria(any(), anyString());
+        doAnswer(invocation -> {
+            Set<String> keys = invocation.getArgument(1);
+            return keys.stream().collect(toMap(key -> key, key -> criteria));
+        }).when(criteriaDao).getCriteria(any(), anySet());
+    }
+    
     private Subpopulation createSubpopulation() {
         Criteria criteria = TestUtils.copyCriteria(CRITERIA);
         criteria.setKey("subpopulation:"+SUBPOP_GUID);
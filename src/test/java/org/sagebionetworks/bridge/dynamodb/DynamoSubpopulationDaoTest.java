@@ -90,14 +90,14 @@ public class DynamoSubpopulationDaoTest extends Mockito {
         assertFalse(savedSubpop.isDefaultGroup());
         assertEquals(savedSubpop.getPublishedConsentCreatedOn(), 0L);
         
-        verify(mockCriteriaDao).createOrUpdateCriteria(criteriaCaptor.capture());
+        verify(mockCriteriaDao).createOrUpdateCriteria(eq(TEST_APP_ID), criteriaCaptor.capture());
         Criteria savedCriteria = criteriaCaptor.getValue();
         assertEquals(savedCriteria.getKey(), CRITERIA_KEY);
     }
     
     @Test
     public void createDefaultSubpopulation() {
-        when(mockCriteriaDao.createOrUpdateCriteria(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(mockCriteriaDao.createOrUpdateCriteria(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
         
         Subpopulation result = dao.createDefaultSubpopulation(TEST_APP_ID);
         
@@ -110,7 +110,7 @@ public class DynamoSubpopulationDaoTest extends Mockito {
         assertTrue(subpop.isRequired());
         assertSame(subpop, result);
         
-        verify(mockCriteriaDao).createOrUpdateCriteria(criteriaCaptor.capture());
+        verify(mockCriteriaDao).createOrUpdateCriteria(eq(TEST_APP_ID), criteriaCaptor.capture());
         Criteria criteria = criteriaCaptor.getValue();
         assertEquals(criteria.getKey(), "subpopulation:" + TEST_APP_ID);
         assertEquals(criteria.getMinAppVersion(ANDROID), new Integer(0));
@@ -357,7 +357,7 @@ public class DynamoSubpopulationDaoTest extends Mockito {
         
         dao.deleteSubpopulationPermanently(TEST_APP_ID, SUBPOP_GUID);
         
-        verify(mockCriteriaDao).deleteCriteria("subpopulation:oneGuid");
+        verify(mockCriteriaDao).deleteCriteria(TEST_APP_ID, "subpopulation:oneGuid");
         verify(mockMapper).delete(any());
     }
 
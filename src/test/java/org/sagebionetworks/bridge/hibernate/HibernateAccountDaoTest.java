@@ -14,6 +14,7 @@ import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -72,6 +73,9 @@ public class HibernateAccountDaoTest extends Mockito {
     private static final AccountId ACCOUNT_ID_WITH_SYNID = AccountId.forSynapseUserId(TEST_APP_ID,
             SYNAPSE_USER_ID);
 
+    private static final String SUMMARY_SELECT = "SELECT acct.id, acct.appId, acct.firstName, acct.lastName, "
+            + "acct.email, acct.phone, acct.createdOn, acct.status, acct.synapseUserId, acct.orgMembership "
+            + "FROM HibernateAccount AS acct";
     private static final String STUDY_A = "studyA";
     private static final String STUDY_B = "studyB";
     private static final Map<String, Object> APP_QUERY_PARAMS = new ImmutableMap.Builder<String, Object>()
@@ -446,7 +450,7 @@ public class HibernateAccountDaoTest extends Mockito {
 
     @Test
     public void getPaged() throws Exception {
-        String expQuery = "SELECT acct.id FROM HibernateAccount AS acct LEFT JOIN "
+        String expQuery = SUMMARY_SELECT + " LEFT JOIN "
                 + "acct.enrollments AS enrollment WITH acct.id = enrollment.accountId "
                 + "WHERE acct.appId = :appId AND size(acct.roles) > 0 AND acct.orgMembership "
                 +"= :orgId GROUP BY acct.id";
@@ -456,41 +460,28 @@ public class HibernateAccountDaoTest extends Mockito {
                 +"WHERE acct.appId = :appId AND size(acct.roles) > 0 AND acct.orgMembership = "
                 +":orgId";
         
-        Set<Enrollment> set = ImmutableSet.of(
-                Enrollment.create(TEST_APP_ID, STUDY_A, ACCOUNT_ID),
-                Enrollment.create(TEST_APP_ID, STUDY_B, ACCOUNT_ID));
-
         // mock hibernate
-        HibernateAccount hibernateAccount1 = makeValidHibernateAccount(false);
-        hibernateAccount1.setId("account-1");
-        hibernateAccount1.setEmail("email1@example.com");
-        hibernateAccount1.setEnrollments(set);
-
-        HibernateAccount hibernateAccount2 = makeValidHibernateAccount(false);
-        hibernateAccount2.setId("account-2");
-        hibernateAccount2.setEmail("email2@example.com");
-        hibernateAccount2.setEnrollments(set);
-
-        when(mockHibernateHelper.queryGet(expQuery, APP_QUERY_PARAMS, 10, 5, String.class))
-                .thenReturn(ImmutableList.of("account-1", "account-2"));
-        when(mockHibernateHelper.getById(HibernateAccount.class, "account-1")).thenReturn(hibernateAccount1);        
-        when(mockHibernateHelper.getById(HibernateAccount.class, "account-2")).thenReturn(hibernateAccount2);
+        List<Object[]> rows = ImmutableList.of(
+                makeSummaryRow("account-1", "email1@example.com"),
+                makeSummaryRow("account-2", "email2@example.com"));
+        when(mockHibernateHelper.queryGet(expQuery, APP_QUERY_PARAMS, 10, 2, Object[].class)).thenReturn(rows);
+        mockSummaryCollections("account-1", "account-2");
         when(mockHibernateHelper.queryCount(eq(expCountQuery), any())).thenReturn(12);
 
-        // execute and validate
+        // execute and validate. The page is full, so the accounts are counted.
         AccountSummarySearch search = new AccountSummarySearch.Builder().withOffsetBy(10)
-                .withAdminOnly(true).withOrgMembership(TEST_ORG_ID).withPageSize(5).build();
+                .withAdminOnly(true).withOrgMembership(TEST_ORG_ID).withPageSize(2).build();
 
         PagedResourceList<AccountSummary> accountSummaryResourceList = dao.getPagedAccountSummaries(TEST_APP_ID, search);
         assertEquals(accountSummaryResourceList.getRequestParams().get("offsetBy"), 10);
-        assertEquals(accountSummaryResourceList.getRequestParams().get("pageSize"), 5);
+        assertEquals(accountSummaryResourceList.getRequestParams().get("pageSize"), 2);
         assertEquals(accountSummaryResourceList.getRequestParams().get("orgMembership"), TEST_ORG_ID);
         assertTrue((Boolean)accountSummaryResourceList.getRequestParams().get("adminOnly"));
         assertEquals(accountSummaryResourceList.getTotal(), (Integer) 12);
 
         Map<String, Object> paramsMap = accountSummaryResourceList.getRequestParams();
         assertEquals(paramsMap.get("offsetBy"), 10);
-        assertEquals(paramsMap.get("pageSize"), 5);
+        assertEquals(paramsMap.get("pageSize"), 2);
         assertEquals(paramsMap.get("adminOnly"), Boolean.TRUE);
         assertEquals(paramsMap.get("orgMembership"), TEST_ORG_ID);
 
@@ -502,17 +493,67 @@ public class HibernateAccountDaoTest extends Mockito {
         assertEquals(accountSummaryList.get(0).getAppId(), TEST_APP_ID);
         assertEquals(accountSummaryList.get(0).getEmail(), "email1@example.com");
         assertEquals(accountSummaryList.get(0).getStudyIds(), ImmutableSet.of(STUDY_A, STUDY_B));
+        assertEquals(accountSummaryList.get(0).getExternalIds(), ImmutableMap.of(STUDY_A, "extId-account-1"));
+        assertEquals(accountSummaryList.get(0).getAttributes(), ImmutableMap.of("attr", "value-account-1"));
+        assertEquals(accountSummaryList.get(0).getStatus(), ENABLED);
+        assertEquals(accountSummaryList.get(0).getPhone(), PHONE);
+        assertEquals(accountSummaryList.get(0).getCreatedOn(), CREATED_ON);
 
         assertEquals(accountSummaryList.get(1).getId(), "account-2");
         assertEquals(accountSummaryList.get(1).getAppId(), TEST_APP_ID);
         assertEquals(accountSummaryList.get(1).getEmail(), "email2@example.com");
         assertEquals(accountSummaryList.get(1).getStudyIds(), ImmutableSet.of(STUDY_A, STUDY_B));
-
-        // verify hibernate calls
-        verify(mockHibernateHelper).queryGet(eq(expQuery), eq(APP_QUERY_PARAMS), eq(10), eq(5), eq(String.class));
-        verify(mockHibernateHelper).getById(HibernateAccount.class, "account-1");
-        verify(mockHibernateHelper).getById(HibernateAccount.class, "account-2");
+        assertEquals(accountSummaryList.get(1).getAttributes(), ImmutableMap.of("attr", "value-account-2"));
+
+        // verify hibernate calls. Accounts are never loaded individually.
+        verify(mockHibernateHelper).queryGet(eq(expQuery), eq(APP_QUERY_PARAMS), eq(10), eq(2), eq(Object[].class));
+        verify(mockHibernateHelper).queryGet(eq(HibernateAccountDao.SUMMARY_ENROLLMENTS_QUERY), paramCaptor.capture(),
+                isNull(), isNull(), eq(HibernateEnrollment.class));
+        verify(mockHibernateHelper).queryGet(eq(HibernateAccountDao.SUMMARY_ATTRIBUTES_QUERY), paramCaptor.capture(),
+                isNull(), isNull(), eq(Object[].class));
         verify(mockHibernateHelper).queryCount(expCountQuery, APP_QUERY_PARAMS);
+        verify(mockHibernateHelper, never()).getById(any(), any());
+        
+        for (Map<String, Object> params : paramCaptor.getAllValues()) {
+            assertEquals(params.get("accountIds"), ImmutableSet.of("account-1", "account-2"));
+        }
+    }
+    
+    @Test
+    public void getPagedLastPageIsNotCounted() throws Exception {
+        List<Object[]> rows = ImmutableList.of(makeSummaryRow("account-1", "email1@example.com"));
+        when(mockHibernateHelper.queryGet(any(), any(), any(), any(), eq(Object[].class))).thenReturn(rows);
+        mockSummaryCollections("account-1");
+
+        AccountSummarySearch search = new AccountSummarySearch.Builder().withOffsetBy(10).withPageSize(5).build();
+        PagedResourceList<AccountSummary> accountSummaryResourceList = dao.getPagedAccountSummaries(TEST_APP_ID, search);
+        
+        assertEquals(accountSummaryResourceList.getItems().size(), 1);
+        assertEquals(accountSummaryResourceList.getTotal(), (Integer) 11);
+        verify(mockHibernateHelper, never()).queryCount(any(), any());
+    }
+    
+    @Test
+    public void getPagedNoAccounts() throws Exception {
+        AccountSummarySearch search = new AccountSummarySearch.Builder().build();
+        PagedResourceList<AccountSummary> accountSummaryResourceList = dao.getPagedAccountSummaries(TEST_APP_ID, search);
+        
+        assertTrue(accountSummaryResourceList.getItems().isEmpty());
+        assertEquals(accountSummaryResourceList.getTotal(), (Integer) 0);
+        // Only the summary query is needed.
+        verify(mockHibernateHelper).queryGet(any(), any(), any(), any(), any());
+        verify(mockHibernateHelper, never()).queryCount(any(), any());
+    }
+    
+    @Test
+    public void getPagedEmptyPageAfterOffsetIsCounted() throws Exception {
+        when(mockHibernateHelper.queryCount(any(), any())).thenReturn(7);
+        
+        AccountSummarySearch search = new AccountSummarySearch.Builder().withOffsetBy(10).withPageSize(5).build();
+        PagedResourceList<AccountSummary> accountSummaryResourceList = dao.getPagedAccountSummaries(TEST_APP_ID, search);
+        
+        assertTrue(accountSummaryResourceList.getItems().isEmpty());
+        assertEquals(accountSummaryResourceList.getTotal(), (Integer) 7);
     }
 
     @Test
@@ -520,20 +561,11 @@ public class HibernateAccountDaoTest extends Mockito {
         BridgeUtils.setRequestContext(
                 new RequestContext.Builder().withCallerStudies(ImmutableSet.of(STUDY_A)).build());
         
-        Set<Enrollment> set = ImmutableSet.of(
-                Enrollment.create(TEST_APP_ID, STUDY_A, ACCOUNT_ID),
-                Enrollment.create(TEST_APP_ID, STUDY_B, ACCOUNT_ID));
-
-        HibernateAccount hibernateAccount1 = makeValidHibernateAccount(false);
-        hibernateAccount1.setId("account-1");
-        hibernateAccount1.setEnrollments(set);
-        HibernateAccount hibernateAccount2 = makeValidHibernateAccount(false);
-        hibernateAccount2.setId("account-2");
-        hibernateAccount2.setEnrollments(set);
-        when(mockHibernateHelper.queryGet(any(), any(), any(), any(), any()))
-                .thenReturn(ImmutableList.of("account-1", "account-2"));
-        when(mockHibernateHelper.getById(HibernateAccount.class, "account-1")).thenReturn(hibernateAccount1);
-        when(mockHibernateHelper.getById(HibernateAccount.class, "account-2")).thenReturn(hibernateAccount2);
+        List<Object[]> rows = ImmutableList.of(
+                makeSummaryRow("account-1", "email1@example.com"),
+                makeSummaryRow("account-2", "email2@example.com"));
+        when(mockHibernateHelper.queryGet(any(), any(), any(), any(), eq(Object[].class))).thenReturn(rows);
+        mockSummaryCollections("account-1", "account-2");
 
         AccountSummarySearch search = new AccountSummarySearch.Builder().build();
         PagedResourceList<AccountSummary> accountSummaryResourceList = dao.getPagedAccountSummaries(TEST_APP_ID, search);
@@ -546,7 +578,7 @@ public class HibernateAccountDaoTest extends Mockito {
 
     @Test
     public void getPagedWithOptionalParams() throws Exception {
-        String expQuery = "SELECT acct.id FROM HibernateAccount AS acct LEFT JOIN acct.enrollments AS "
+        String expQuery = SUMMARY_SELECT + " LEFT JOIN acct.enrollments AS "
                 + "enrollment WITH acct.id = enrollment.accountId WHERE acct.appId = :appId AND "
                 + "acct.email LIKE :email AND acct.phone.number LIKE :number AND acct.createdOn >= :startTime "
                 + "AND acct.createdOn <= :endTime AND :language IN ELEMENTS(acct.languages) AND "
@@ -566,11 +598,9 @@ public class HibernateAccountDaoTest extends Mockito {
         DateTime startDate = DateTime.parse("2017-05-19T11:40:06.247-0700");
         DateTime endDate = DateTime.parse("2017-05-19T18:32:03.434-0700");
 
-        // mock hibernate
-        when(mockHibernateHelper.queryGet(eq(expQuery), any(), any(), any(), any()))
-                .thenReturn(ImmutableList.of(ACCOUNT_ID));
-        when(mockHibernateHelper.getById(HibernateAccount.class, ACCOUNT_ID))
-                .thenReturn(makeValidHibernateAccount(false));
+        // mock hibernate. Return a full page so the accounts are counted.
+        when(mockHibernateHelper.queryGet(eq(expQuery), any(), any(), any(), eq(Object[].class)))
+                .thenReturn(makeSummaryPage(5));
         when(mockHibernateHelper.queryCount(eq(expCountQuery), any())).thenReturn(11);
 
         // execute and validate - Just validate filters and query, since everything else is tested in getPaged().
@@ -613,8 +643,7 @@ public class HibernateAccountDaoTest extends Mockito {
         params.put("language", "de");
         params.put("orgId", TEST_ORG_ID);
 
-        verify(mockHibernateHelper).queryGet(eq(expQuery), paramCaptor.capture(), eq(10), eq(5), eq(String.class));
-        verify(mockHibernateHelper).getById(HibernateAccount.class, ACCOUNT_ID);
+        verify(mockHibernateHelper).queryGet(eq(expQuery), paramCaptor.capture(), eq(10), eq(5), eq(Object[].class));
         verify(mockHibernateHelper).queryCount(eq(expCountQuery), paramCaptor.capture());
 
         Map<String, Object> capturedParams = paramCaptor.getAllValues().get(0);
@@ -654,7 +683,11 @@ public class HibernateAccountDaoTest extends Mockito {
             RequestContext context = new RequestContext.Builder().withCallerStudies(studyIds).build();
             BridgeUtils.setRequestContext(context);
 
-            AccountSummarySearch search = new AccountSummarySearch.Builder().build();
+            when(mockHibernateHelper.queryGet(any(), any(), any(), any(), eq(Object[].class)))
+                    .thenReturn(makeSummaryPage(5));
+            mockSummaryCollections();
+            
+            AccountSummarySearch search = new AccountSummarySearch.Builder().withPageSize(5).build();
             dao.getPagedAccountSummaries(TEST_APP_ID, search);
 
             verify(mockHibernateHelper).queryCount(eq(expCountQuery), paramCaptor.capture());
@@ -668,7 +701,7 @@ public class HibernateAccountDaoTest extends Mockito {
 
     @Test
     public void getPagedWithOptionalEmptySetParams() throws Exception {
-        String expQuery = "SELECT acct.id FROM HibernateAccount AS acct LEFT JOIN acct.enrollments "
+        String expQuery = SUMMARY_SELECT + " LEFT JOIN acct.enrollments "
                 + "AS enrollment WITH acct.id = enrollment.accountId WHERE acct.appId = :appId AND "
                 + "acct.email LIKE :email AND acct.phone.number LIKE :number AND acct.createdOn >= "
                 + ":startTime AND acct.createdOn <= :endTime AND :language IN ELEMENTS(acct.languages) "
@@ -684,11 +717,9 @@ public class HibernateAccountDaoTest extends Mockito {
         DateTime startDate = DateTime.parse("2017-05-19T11:40:06.247-0700");
         DateTime endDate = DateTime.parse("2017-05-19T18:32:03.434-0700");
 
-        // mock hibernate
-        when(mockHibernateHelper.queryGet(eq(expQuery), any(), any(), any(), any()))
-                .thenReturn(ImmutableList.of(ACCOUNT_ID));
-        when(mockHibernateHelper.getById(HibernateAccount.class, ACCOUNT_ID))
-            .thenReturn(makeValidHibernateAccount(false));
+        // mock hibernate. Return a full page so the accounts are counted.
+        when(mockHibernateHelper.queryGet(eq(expQuery), any(), any(), any(), eq(Object[].class)))
+                .thenReturn(makeSummaryPage(5));
         when(mockHibernateHelper.queryCount(any(), any())).thenReturn(11);
 
         // execute and validate - Just validate filters and query, since everything else is tested in getPaged().
@@ -721,8 +752,7 @@ public class HibernateAccountDaoTest extends Mockito {
         params.put("endTime", endDate);
         params.put("language", "de");
 
-        verify(mockHibernateHelper).queryGet(eq(expQuery), paramCaptor.capture(), eq(10), eq(5), eq(String.class));
-        verify(mockHibernateHelper).getById(HibernateAccount.class, ACCOUNT_ID);
+        verify(mockHibernateHelper).queryGet(eq(expQuery), paramCaptor.capture(), eq(10), eq(5), eq(Object[].class));
         verify(mockHibernateHelper).queryCount(eq(expCountQuery), paramCaptor.capture());
 
         Map<String, Object> capturedParams = paramCaptor.getAllValues().get(0);
@@ -1028,6 +1058,35 @@ public class HibernateAccountDaoTest extends Mockito {
     }
 
     // Create minimal Hibernate account for everything that will be used by HibernateAccountDao.
+    private static Object[] makeSummaryRow(String id, String email) {
+        return new Object[] { id, TEST_APP_ID, FIRST_NAME, LAST_NAME, email, PHONE, CREATED_ON, ENABLED,
+                SYNAPSE_USER_ID, null };
+    }
+    
+    private static List<Object[]> makeSummaryPage(int size) {
+        ImmutableList.Builder<Object[]> builder = ImmutableList.builder();
+        for (int i = 0; i < size; i++) {
+            builder.add(makeSummaryRow("account-" + i, "email" + i + "@example.com"));
+        }
+        return builder.build();
+    }
+    
+    // Each account is enrolled in studies A and B, and has one attribute.
+    private void mockSummaryCollections(String... accountIds) {
+        List<HibernateEnrollment> enrollments = new ArrayList<>();
+        List<Object[]> attributes = new ArrayList<>();
+        for (String accountId : accountIds) {
+            enrollments.add((HibernateEnrollment) Enrollment.create(TEST_APP_ID, STUDY_A, accountId,
+                    "extId-" + accountId));
+            enrollments.add((HibernateEnrollment) Enrollment.create(TEST_APP_ID, STUDY_B, accountId));
+            attributes.add(new Object[] { accountId, "attr", "value-" + accountId });
+        }
+        when(mockHibernateHelper.queryGet(eq(HibernateAccountDao.SUMMARY_ENROLLMENTS_QUERY), any(), any(), any(),
+                eq(HibernateEnrollment.class))).thenReturn(enrollments);
+        when(mockHibernateHelper.queryGet(eq(HibernateAccountDao.SUMMARY_ATTRIBUTES_QUERY), any(), any(), any(),
+                eq(Object[].class))).thenReturn(attributes);
+    }
+
     private static HibernateAccount makeValidHibernateAccount(boolean generatePasswordHash) throws Exception {
         HibernateAccount hibernateAccount = new HibernateAccount();
         hibernateAccount.setId(ACCOUNT_ID);
@@ -2,12 +2,14 @@ package org.sagebionetworks.bridge.hibernate;
 
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 import java.security.InvalidKeyException;
@@ -16,6 +18,7 @@ import java.security.spec.InvalidKeySpecException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import com.google.common.collect.ImmutableList;
 
@@ -31,6 +34,7 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.crypto.CredentialVerifier;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.models.accounts.AccountSecret;
 import org.sagebionetworks.bridge.models.accounts.AccountSecretType;
@@ -49,6 +53,9 @@ public class HibernateAccountSecretDaoTest {
     @Mock
     private HibernateHelper helper;
     
+    @Mock
+    private CredentialVerifier credentialVerifier;
+    
     @Captor
     ArgumentCaptor<AccountSecret> secretCaptor;
     
@@ -59,6 +66,9 @@ public class HibernateAccountSecretDaoTest {
     public void before() {
         MockitoAnnotations.initMocks(this);
         dao.setHibernateHelper(helper);
+        dao.setCredentialVerifier(credentialVerifier);
+        when(credentialVerifier.verify(any())).thenAnswer(invocation ->
+                ((Callable<?>) invocation.getArgument(0)).call());
         //when(dao.generateHash(PasswordAlgorithm.DEFAULT_PASSWORD_ALGORITHM, TOKEN)).thenReturn(TOKEN);
         DateTimeUtils.setCurrentMillisFixed(CREATED_ON.getMillis());
     }
@@ -79,9 +89,18 @@ public class HibernateAccountSecretDaoTest {
         assertEquals(secret.getAlgorithm(), PasswordAlgorithm.DEFAULT_PASSWORD_ALGORITHM);
         assertNotEquals(secret.getHash(), TOKEN);
         assertEquals(secret.getType(), AccountSecretType.REAUTH);
+        assertEquals(secret.getLookupKey(), HibernateAccountSecretDao.lookupKey(TOKEN));
         assertEquals(secret.getCreatedOn(), CREATED_ON);
     }
     
+    @Test
+    public void lookupKey() {
+        String lookupKey = HibernateAccountSecretDao.lookupKey(TOKEN);
+        assertEquals(lookupKey.length(), HibernateAccountSecretDao.LOOKUP_KEY_LENGTH);
+        assertEquals(HibernateAccountSecretDao.lookupKey(TOKEN), lookupKey);
+        assertNotEquals(HibernateAccountSecretDao.lookupKey("ABC"), lookupKey);
+    }
+    
     @Test
     public void verifySecret() throws Exception {
         makeResults(TOKEN);
@@ -118,6 +137,54 @@ public class HibernateAccountSecretDaoTest {
         assertFalse(dao.verifySecret(AccountSecretType.REAUTH, ACCOUNT_ID, TOKEN, ROTATIONS).isPresent());
     }
     
+    @Test
+    public void verifySecretOnlyHashesSecretWithMatchingLookupKey() throws Exception {
+        List<HibernateAccountSecret> results = makeResultsWithLookupKeys("ABC", TOKEN, "DEF");
+        
+        AccountSecret secret = dao.verifySecret(AccountSecretType.REAUTH, ACCOUNT_ID, TOKEN, ROTATIONS).get();
+        assertEquals(secret, results.get(1));
+        
+        verify(results.get(0), never()).getAlgorithm();
+        verify(results.get(1)).getAlgorithm();
+        verify(results.get(2), never()).getAlgorithm();
+        verify(helper, never()).queryUpdate(any(), any());
+    }
+    
+    @Test
+    public void verifySecretFailsWithoutHashingWhenNoLookupKeyMatches() throws Exception {
+        List<HibernateAccountSecret> results = makeResultsWithLookupKeys("ABC", "DEF");
+        
+        assertFalse(dao.verifySecret(AccountSecretType.REAUTH, ACCOUNT_ID, TOKEN, ROTATIONS).isPresent());
+        
+        verify(results.get(0), never()).getAlgorithm();
+        verify(results.get(1), never()).getAlgorithm();
+    }
+    
+    @Test
+    public void verifySecretAddsLookupKeyToLegacySecret() throws Exception {
+        List<HibernateAccountSecret> results = makeResults(TOKEN);
+        results.get(0).setAccountId(ACCOUNT_ID);
+        String hash = results.get(0).getHash();
+        
+        AccountSecret secret = dao.verifySecret(AccountSecretType.REAUTH, ACCOUNT_ID, TOKEN, ROTATIONS).get();
+        assertEquals(secret.getLookupKey(), HibernateAccountSecretDao.lookupKey(TOKEN));
+        
+        verify(helper).queryUpdate(eq(HibernateAccountSecretDao.MIGRATE_QUERY), paramsCaptor.capture());
+        Map<String, Object> params = paramsCaptor.getValue();
+        assertEquals(params.get("lookupKey"), HibernateAccountSecretDao.lookupKey(TOKEN));
+        assertEquals(params.get("accountId"), ACCOUNT_ID);
+        assertEquals(params.get("hash"), hash);
+    }
+    
+    @Test
+    public void verifySecretSucceedsWhenAddingLookupKeyFails() throws Exception {
+        makeResults(TOKEN);
+        when(helper.queryUpdate(any(), any())).thenThrow(new BridgeServiceException("Database error"));
+        
+        AccountSecret secret = dao.verifySecret(AccountSecretType.REAUTH, ACCOUNT_ID, TOKEN, ROTATIONS).get();
+        assertNull(secret.getLookupKey());
+    }
+    
     @Test
     public void verifySecretExceptionIsSuppressed() throws Exception {
         PasswordAlgorithm algorithm = Mockito.mock(PasswordAlgorithm.class);
@@ -164,4 +231,18 @@ public class HibernateAccountSecretDaoTest {
                 eq(0), eq(ROTATIONS), eq(HibernateAccountSecret.class))).thenReturn(results);
         return results;
     }
+    
+    private List<HibernateAccountSecret> makeResultsWithLookupKeys(String... plaintexts) throws Exception {
+        List<HibernateAccountSecret> results = new ArrayList<>();
+        for (String plaintext : plaintexts) {
+            HibernateAccountSecret secret = Mockito.spy(new HibernateAccountSecret());
+            secret.setAlgorithm(PasswordAlgorithm.DEFAULT_PASSWORD_ALGORITHM);
+            secret.setHash(PasswordAlgorithm.DEFAULT_PASSWORD_ALGORITHM.generateHash(plaintext));
+            secret.setLookupKey(HibernateAccountSecretDao.lookupKey(plaintext));
+            results.add(secret);
+        }
+        when(helper.queryGet(eq(HibernateAccountSecretDao.GET_QUERY), any(), 
+                eq(0), eq(ROTATIONS), eq(HibernateAccountSecret.class))).thenReturn(results);
+        return results;
+    }
 }
@@ -1,8 +1,15 @@
 package org.sagebionetworks.bridge.hibernate;
 
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
 import static org.sagebionetworks.bridge.TestConstants.USER_ID;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
+import java.util.Map;
+
+import org.hibernate.jpa.TypedParameterValue;
 import org.joda.time.DateTime;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
@@ -13,6 +20,9 @@ import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
 import org.sagebionetworks.bridge.models.RequestInfo;
 
 public class HibernateRequestInfoDaoTest extends Mockito {
@@ -26,6 +36,12 @@ public class HibernateRequestInfoDaoTest extends Mockito {
     @Captor
     ArgumentCaptor<RequestInfo> requestInfoCaptor;
     
+    @Captor
+    ArgumentCaptor<String> sqlCaptor;
+    
+    @Captor
+    ArgumentCaptor<Map<String, Object>> paramsCaptor;
+    
     @BeforeMethod
     public void beforeMethod() { 
         MockitoAnnotations.initMocks(this);
@@ -58,6 +74,50 @@ public class HibernateRequestInfoDaoTest extends Mockito {
         assertNotNull(captured.getSignedInOn());
     }
 
+    @Test
+    public void updateRequestInfos() {
+        DateTime signedInOn = DateTime.parse("2020-10-10T10:10:10.000Z");
+        RequestInfo info1 = new RequestInfo.Builder().withUserId(USER_ID).withAppId(TEST_APP_ID)
+                .withSignedInOn(signedInOn).withUserDataGroups(ImmutableSet.of("group1")).build();
+        RequestInfo info2 = new RequestInfo.Builder().withUserId("otherUserId").withAppId(TEST_APP_ID)
+                .withUserAgent("Asthma/26").build();
+        
+        dao.updateRequestInfos(ImmutableList.of(info1, info2));
+        
+        verify(mockHelper).nativeQueryUpdate(sqlCaptor.capture(), paramsCaptor.capture());
+        String sql = sqlCaptor.getValue();
+        assertTrue(sql.startsWith("INSERT INTO RequestInfos (userId, clientInfo, userAgent, languages, "
+                + "userDataGroups, userSubstudyIds, activitiesAccessedOn, signedInOn, uploadedOn, timeZone, "
+                + "studyIdentifier) VALUES (:userId0, :clientInfo0, "), sql);
+        assertTrue(sql.contains("), (:userId1, :clientInfo1, "), sql);
+        assertTrue(sql.endsWith(" ON DUPLICATE KEY UPDATE clientInfo = COALESCE(VALUES(clientInfo), clientInfo), "
+                + "userAgent = COALESCE(VALUES(userAgent), userAgent), languages = COALESCE(VALUES(languages), "
+                + "languages), userDataGroups = COALESCE(VALUES(userDataGroups), userDataGroups), userSubstudyIds = "
+                + "COALESCE(VALUES(userSubstudyIds), userSubstudyIds), activitiesAccessedOn = "
+                + "COALESCE(VALUES(activitiesAccessedOn), activitiesAccessedOn), signedInOn = "
+                + "COALESCE(VALUES(signedInOn), signedInOn), uploadedOn = COALESCE(VALUES(uploadedOn), uploadedOn), "
+                + "timeZone = COALESCE(VALUES(timeZone), timeZone), studyIdentifier = "
+                + "COALESCE(VALUES(studyIdentifier), studyIdentifier)"), sql);
+        
+        Map<String, Object> params = paramsCaptor.getValue();
+        assertEquals(params.size(), 22);
+        assertEquals(value(params, "userId0"), USER_ID);
+        assertEquals(value(params, "signedInOn0"), Long.toString(signedInOn.getMillis()));
+        assertEquals(value(params, "userDataGroups0"), "[\"group1\"]");
+        assertNull(value(params, "userAgent0"));
+        assertEquals(value(params, "userId1"), "otherUserId");
+        assertEquals(value(params, "userAgent1"), "Asthma/26");
+        assertNull(value(params, "signedInOn1"));
+        assertEquals(value(params, "studyIdentifier1"), TEST_APP_ID);
+    }
+    
+    @Test
+    public void updateRequestInfosEmpty() {
+        dao.updateRequestInfos(ImmutableList.of());
+        
+        verifyZeroInteractions(mockHelper);
+    }
+
     @Test
     public void getRequestInfo() {
         dao.getRequestInfo(USER_ID);
@@ -79,4 +139,8 @@ public class HibernateRequestInfoDaoTest extends Mockito {
         dao.removeRequestInfo(USER_ID);
         verify(mockHelper, never()).deleteById(any(), any());
     }       
+    
+    private static Object value(Map<String, Object> params, String name) {
+        return ((TypedParameterValue) params.get(name)).getValue();
+    }
 }
@@ -0,0 +1,245 @@
+package org.sagebionetworks.bridge.http;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.http.OutboundHttpClient.HostStats;
+
+/** Runs the client against a stub server on a local port. */
+public class OutboundHttpClientTest {
+    private static final String BODY = "{\"status\":\"ok\"}";
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private String baseUrl;
+    private String host;
+    private OutboundHttpClient client;
+    // The client ports of the connections the server has seen.
+    private Set<Integer> clientPorts;
+    private AtomicInteger requestCount;
+
+    @BeforeMethod
+    public void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.start();
+        host = "localhost:" + server.getAddress().getPort();
+        baseUrl = "http://" + host;
+        clientPorts = ConcurrentHashMap.newKeySet();
+        requestCount = new AtomicInteger();
+
+        client = new OutboundHttpClient(10, 2, 1000, 200, 1000, 1, 60);
+    }
+
+    @AfterMethod
+    public void after() throws IOException {
+        client.close();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    public void reusesConnections() throws Exception {
+        stub("/ok", (exchange) -> respond(exchange, 200, BODY));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(get("/ok"), BODY);
+        }
+        assertEquals(requestCount.get(), 3);
+        assertEquals(clientPorts.size(), 1);
+
+        HostStats stats = client.getHostStats().get(host);
+        assertEquals(stats.getResponses(), 3L);
+        assertEquals(stats.getLatency().getCount(), 3L);
+        assertEquals(stats.getFailures(), 0L);
+        assertEquals(client.getPoolStats().get(host).getAvailable(), 1);
+        assertEquals(client.getTotalPoolStats().getLeased(), 0);
+    }
+
+    @Test
+    public void countsServerErrors() throws Exception {
+        stub("/error", (exchange) -> respond(exchange, 503, BODY));
+
+        get("/error");
+
+        HostStats stats = client.getHostStats().get(host);
+        assertEquals(stats.getResponses(), 1L);
+        assertEquals(stats.getServerErrors(), 1L);
+    }
+
+    @Test
+    public void retriesIdempotentRequests() throws Exception {
+        // The server drops the first connection without responding.
+        stub("/flaky", (exchange) -> {
+            if (requestCount.get() == 1) {
+                exchange.close();
+                return;
+            }
+            respond(exchange, 200, BODY);
+        });
+
+        assertEquals(get("/flaky"), BODY);
+        assertEquals(requestCount.get(), 2);
+        assertEquals(client.getHostStats().get(host).getFailures(), 0L);
+    }
+
+    @Test
+    public void retriesPutsWithBody() throws Exception {
+        stub("/flaky", (exchange) -> {
+            if (requestCount.get() == 1) {
+                exchange.close();
+                return;
+            }
+            respond(exchange, 200, BODY);
+        });
+
+        HttpPut put = new HttpPut(baseUrl + "/flaky");
+        put.setEntity(new StringEntity(BODY, ContentType.APPLICATION_JSON));
+        try (CloseableHttpResponse response = client.execute(put)) {
+            assertEquals(EntityUtils.toString(response.getEntity(), UTF_8), BODY);
+        }
+        assertEquals(requestCount.get(), 2);
+    }
+
+    @Test
+    public void doesNotRetryPosts() throws Exception {
+        stub("/flaky", HttpExchange::close);
+
+        try {
+            client.execute(new HttpPost(baseUrl + "/flaky"));
+            fail("Should have thrown an exception");
+        } catch (NoHttpResponseException e) {
+            // expected
+        }
+        assertEquals(requestCount.get(), 1);
+        assertEquals(client.getHostStats().get(host).getFailures(), 1L);
+    }
+
+    @Test
+    public void timesOutSlowResponses() throws Exception {
+        stub("/slow", (exchange) -> {
+            sleep(2000);
+            respond(exchange, 200, BODY);
+        });
+
+        try {
+            get("/slow");
+            fail("Should have thrown an exception");
+        } catch (SocketTimeoutException e) {
+            // expected
+        }
+        // Timeouts are not retried.
+        assertEquals(requestCount.get(), 1);
+        assertEquals(client.getHostStats().get(host).getFailures(), 1L);
+    }
+
+    @Test
+    public void limitsConnectionsPerHost() throws Exception {
+        CountDownLatch received = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        stub("/blocked", (exchange) -> {
+            received.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, BODY);
+        });
+
+        // Both of the host's connections are in use.
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        List<Future<String>> calls = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            calls.add(callers.submit(() -> get("/blocked")));
+        }
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        assertEquals(client.getTotalPoolStats().getLeased(), 2);
+
+        try {
+            get("/blocked");
+            fail("Should have thrown an exception");
+        } catch (ConnectionPoolTimeoutException e) {
+            // expected
+        } finally {
+            release.countDown();
+        }
+        for (Future<String> call : calls) {
+            assertEquals(call.get(5, TimeUnit.SECONDS), BODY);
+        }
+        callers.shutdown();
+
+        HostStats stats = client.getHostStats().get(host);
+        assertEquals(stats.getPoolTimeouts(), 1L);
+        assertEquals(stats.getResponses(), 2L);
+    }
+
+    private String get(String path) throws IOException {
+        try (CloseableHttpResponse response = client.execute(new HttpGet(baseUrl + path))) {
+            return EntityUtils.toString(response.getEntity(), UTF_8);
+        }
+    }
+
+    private void stub(String path, StubHandler handler) {
+        server.createContext(path, (exchange) -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            requestCount.incrementAndGet();
+            handler.handle(exchange);
+        });
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface StubHandler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+}
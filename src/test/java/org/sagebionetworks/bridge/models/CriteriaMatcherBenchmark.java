@@ -0,0 +1,121 @@
+package org.sagebionetworks.bridge.models;
+
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.sagebionetworks.bridge.models.OperatingSystem.ANDROID;
+import static org.sagebionetworks.bridge.models.OperatingSystem.IOS;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Compares matching an app's entities against users' criteria contexts with {@link CriteriaUtils#filterByCriteria}
+ * and with a compiled {@link CriteriaMatcher}. This is not run with the tests. After running "mvn test-compile", run
+ * the main method with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CriteriaMatcherBenchmark {
+
+    private static final List<String> LANGUAGES = ImmutableList.of("en", "fr", "de", "es");
+    private static final int CONTEXT_COUNT = 256;
+
+    @Param({ "5", "50", "500" })
+    public int candidateCount;
+
+    private List<HasCriteria> candidates;
+    private CriteriaMatcher<HasCriteria> matcher;
+    private CriteriaContext[] contexts;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42L);
+        candidates = new ArrayList<>();
+        for (int i = 0; i < candidateCount; i++) {
+            Criteria criteria = Criteria.create();
+            criteria.setAllOfGroups(randomSet(random, "group", 30, 2));
+            criteria.setNoneOfGroups(randomSet(random, "group", 30, 1));
+            criteria.setAllOfStudyIds(randomSet(random, "study", 10, 1));
+            if (random.nextInt(4) == 0) {
+                criteria.setLanguage(LANGUAGES.get(random.nextInt(LANGUAGES.size())));
+            }
+            if (random.nextBoolean()) {
+                String osName = random.nextBoolean() ? IOS : ANDROID;
+                criteria.setMinAppVersion(osName, random.nextInt(10));
+                criteria.setMaxAppVersion(osName, 10 + random.nextInt(10));
+            }
+            candidates.add(() -> criteria);
+        }
+        matcher = CriteriaMatcher.compile(candidates, null);
+
+        contexts = new CriteriaContext[CONTEXT_COUNT];
+        for (int i = 0; i < CONTEXT_COUNT; i++) {
+            String osName = random.nextBoolean() ? "iPhone OS" : "Android";
+            ClientInfo clientInfo = ClientInfo.fromUserAgentCache(
+                    "app/" + random.nextInt(20) + " (deviceName; " + osName + "/3.9) BridgeJavaSDK/12");
+            contexts[i] = new CriteriaContext.Builder().withAppId(TEST_APP_ID).withClientInfo(clientInfo)
+                    .withUserDataGroups(randomSet(random, "group", 30, 6))
+                    .withUserStudyIds(randomSet(random, "study", 10, 2))
+                    .withLanguages(ImmutableList.of(LANGUAGES.get(random.nextInt(LANGUAGES.size())), "en"))
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public List<HasCriteria> filterByCriteria() {
+        return CriteriaUtils.filterByCriteria(nextContext(), candidates, null);
+    }
+
+    @Benchmark
+    public List<HasCriteria> compiledMatcher() {
+        return matcher.filter(nextContext());
+    }
+
+    @Benchmark
+    public CriteriaMatcher<HasCriteria> compile() {
+        return CriteriaMatcher.compile(candidates, null);
+    }
+
+    private CriteriaContext nextContext() {
+        next = (next + 1) % CONTEXT_COUNT;
+        return contexts[next];
+    }
+
+    private static Set<String> randomSet(Random random, String prefix, int range, int maxSize) {
+        Set<String> set = new HashSet<>();
+        int size = random.nextInt(maxSize + 1);
+        for (int i = 0; i < size; i++) {
+            set.add(prefix + random.nextInt(range));
+        }
+        return set;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CriteriaMatcherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
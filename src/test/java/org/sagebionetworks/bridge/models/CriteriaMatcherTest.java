@@ -0,0 +1,171 @@
+package org.sagebionetworks.bridge.models;
+
+import static java.util.Comparator.comparingLong;
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.sagebionetworks.bridge.TestConstants.TIMESTAMP;
+import static org.sagebionetworks.bridge.models.OperatingSystem.ANDROID;
+import static org.sagebionetworks.bridge.models.OperatingSystem.IOS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.models.appconfig.AppConfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class CriteriaMatcherTest {
+
+    private static final ClientInfo IOS_CLIENT_INFO = ClientInfo
+            .fromUserAgentCache("app/4 (deviceName; iPhone OS/3.9) BridgeJavaSDK/12");
+    private static final List<String> LANGUAGES = ImmutableList.of("en", "EN", "fr", "de");
+    private static final List<String> OPERATING_SYSTEMS = ImmutableList.of(IOS, ANDROID);
+
+    @Test
+    public void filtersLikeCriteriaUtils() {
+        HasCriteria allOf = withCriteria(criteria(ImmutableSet.of("group1", "group2"), ImmutableSet.of(), null));
+        HasCriteria noneOf = withCriteria(criteria(ImmutableSet.of(), ImmutableSet.of("group3"), null));
+        HasCriteria french = withCriteria(criteria(ImmutableSet.of(), ImmutableSet.of(), "fr"));
+        HasCriteria english = withCriteria(criteria(ImmutableSet.of(), ImmutableSet.of(), "en"));
+        Criteria tooOld = criteria(ImmutableSet.of(), ImmutableSet.of(), null);
+        tooOld.setMaxAppVersion(IOS, 3);
+        HasCriteria versioned = withCriteria(tooOld);
+
+        CriteriaMatcher<HasCriteria> matcher = CriteriaMatcher.compile(
+                ImmutableList.of(allOf, noneOf, french, english, versioned), null);
+
+        CriteriaContext context = new CriteriaContext.Builder().withAppId(TEST_APP_ID)
+                .withClientInfo(IOS_CLIENT_INFO).withUserDataGroups(ImmutableSet.of("group1", "group2"))
+                .withLanguages(ImmutableList.of("en", "fr")).build();
+
+        // Entities without a language are sorted ahead of those with a language.
+        assertEquals(matcher.filter(context), ImmutableList.of(allOf, noneOf, english, french));
+    }
+
+    @Test
+    public void sortedWithAdditionalComparator() {
+        AppConfig appConfig1 = appConfig("de", 1);
+        AppConfig appConfig2 = appConfig("de", 2);
+        AppConfig appConfig3 = appConfig("en", 3);
+
+        CriteriaMatcher<AppConfig> matcher = CriteriaMatcher.compile(
+                ImmutableList.of(appConfig1, appConfig2, appConfig3), comparingLong(AppConfig::getCreatedOn));
+
+        CriteriaContext context = new CriteriaContext.Builder().withAppId(TEST_APP_ID)
+                .withLanguages(ImmutableList.of("de", "en")).build();
+        assertEquals(matcher.filter(context), ImmutableList.of(appConfig2, appConfig1, appConfig3));
+    }
+
+    @Test
+    public void matchesManyDataGroups() {
+        // More data groups than fit in one word of the bit sets.
+        Set<String> allOfGroups = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            allOfGroups.add("group" + i);
+        }
+        HasCriteria entity = withCriteria(criteria(allOfGroups, ImmutableSet.of("group100"), null));
+        CriteriaMatcher<HasCriteria> matcher = CriteriaMatcher.compile(ImmutableList.of(entity), null);
+
+        Set<String> userGroups = new HashSet<>(allOfGroups);
+        assertEquals(matcher.filter(context(userGroups)), ImmutableList.of(entity));
+
+        userGroups.remove("group99");
+        assertTrue(matcher.filter(context(userGroups)).isEmpty());
+
+        userGroups.add("group99");
+        userGroups.add("group100");
+        assertTrue(matcher.filter(context(userGroups)).isEmpty());
+    }
+
+    @Test
+    public void noCandidates() {
+        CriteriaMatcher<HasCriteria> matcher = CriteriaMatcher.compile(ImmutableList.of(), null);
+
+        assertTrue(matcher.filter(context(ImmutableSet.of("group1"))).isEmpty());
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void nullCriteria() {
+        CriteriaMatcher.compile(ImmutableList.of(withCriteria(null)), null);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void candidatesCannotBeChanged() {
+        CriteriaMatcher<HasCriteria> matcher = CriteriaMatcher.compile(new ArrayList<>(), null);
+
+        matcher.getCandidates().add(withCriteria(Criteria.create()));
+    }
+
+    @Test
+    public void matchesSameEntitiesAsCriteriaUtils() {
+        Random random = new Random(12345L);
+        List<HasCriteria> candidates = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Criteria criteria = criteria(randomSet(random, "group", 70, 2), randomSet(random, "group", 70, 1),
+                    random.nextInt(3) == 0 ? LANGUAGES.get(random.nextInt(LANGUAGES.size())) : null);
+            criteria.setAllOfStudyIds(randomSet(random, "study", 6, 1));
+            criteria.setNoneOfStudyIds(randomSet(random, "study", 6, 1));
+            if (random.nextBoolean()) {
+                String osName = OPERATING_SYSTEMS.get(random.nextInt(OPERATING_SYSTEMS.size()));
+                criteria.setMinAppVersion(osName, random.nextInt(10));
+                criteria.setMaxAppVersion(osName, 5 + random.nextInt(10));
+            }
+            candidates.add(withCriteria(criteria));
+        }
+        CriteriaMatcher<HasCriteria> matcher = CriteriaMatcher.compile(candidates, null);
+
+        for (int i = 0; i < 500; i++) {
+            String osName = random.nextBoolean() ? "iPhone OS" : "Android";
+            ClientInfo clientInfo = ClientInfo.fromUserAgentCache(
+                    "app/" + random.nextInt(15) + " (deviceName; " + osName + "/3.9) BridgeJavaSDK/12");
+            List<String> languages = new ArrayList<>(LANGUAGES);
+            languages.removeIf(language -> random.nextBoolean());
+            CriteriaContext context = new CriteriaContext.Builder().withAppId(TEST_APP_ID)
+                    .withClientInfo(clientInfo).withLanguages(languages)
+                    .withUserDataGroups(randomSet(random, "group", 70, 40))
+                    .withUserStudyIds(randomSet(random, "study", 6, 3)).build();
+
+            assertEquals(matcher.filter(context), CriteriaUtils.filterByCriteria(context, candidates, null));
+        }
+    }
+
+    private static Set<String> randomSet(Random random, String prefix, int range, int maxSize) {
+        Set<String> set = new HashSet<>();
+        int size = random.nextInt(maxSize + 1);
+        for (int i = 0; i < size; i++) {
+            set.add(prefix + random.nextInt(range));
+        }
+        return set;
+    }
+
+    private static CriteriaContext context(Set<String> userDataGroups) {
+        return new CriteriaContext.Builder().withAppId(TEST_APP_ID).withClientInfo(IOS_CLIENT_INFO)
+                .withUserDataGroups(userDataGroups).build();
+    }
+
+    private static Criteria criteria(Set<String> allOfGroups, Set<String> noneOfGroups, String language) {
+        Criteria criteria = Criteria.create();
+        criteria.setAllOfGroups(allOfGroups);
+        criteria.setNoneOfGroups(noneOfGroups);
+        criteria.setLanguage(language);
+        return criteria;
+    }
+
+    private static HasCriteria withCriteria(Criteria criteria) {
+        return () -> criteria;
+    }
+
+    private static AppConfig appConfig(String language, int hoursAgo) {
+        AppConfig appConfig = AppConfig.create();
+        appConfig.setCriteria(criteria(ImmutableSet.of(), ImmutableSet.of(), language));
+        appConfig.setCreatedOn(TIMESTAMP.minusHours(hoursAgo).getMillis());
+        return appConfig;
+    }
+}
@@ -7,6 +7,7 @@ import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
 import org.joda.time.DateTime;
@@ -50,6 +51,28 @@ public class MetricsTest {
         assertEquals(metricsNode.get("version").intValue(), 1);
     }
 
+    @Test
+    public void uploadValidationMetrics() {
+        Metrics metrics = new Metrics("12345");
+        metrics.setUploadUnzippedSize(2048L);
+        metrics.setUploadStatus("SUCCEEDED");
+        metrics.setHandlerElapsedMillis("StreamingUnpackHandler", 120L);
+        metrics.setHandlerElapsedMillis("UploadFormatHandler", 30L);
+
+        ObjectNode json = metrics.getJson();
+        assertEquals(json.get("upload_unzipped_size").longValue(), 2048L);
+        assertEquals(json.get("upload_status").textValue(), "SUCCEEDED");
+        JsonNode handlerNode = json.get("handler_elapsed_millis");
+        assertEquals(handlerNode.size(), 2);
+        assertEquals(handlerNode.get("StreamingUnpackHandler").longValue(), 120L);
+        assertEquals(handlerNode.get("UploadFormatHandler").longValue(), 30L);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void handlerElapsedMillisRequiresHandlerName() {
+        new Metrics("12345").setHandlerElapsedMillis(" ", 1L);
+    }
+
     @Test
     public void testTimingMetrics() {
         // Mock start and test.
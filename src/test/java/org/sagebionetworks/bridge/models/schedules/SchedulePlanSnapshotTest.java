@@ -0,0 +1,147 @@
+package org.sagebionetworks.bridge.models.schedules;
+
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.sagebionetworks.bridge.models.schedules.ScheduleType.RECURRING;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.dynamodb.DynamoSchedulePlan;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+public class SchedulePlanSnapshotTest {
+
+    private static final DateTime ENROLLMENT = DateTime.parse("2015-03-23T10:00:00Z");
+
+    @Test
+    public void schedulersAreCompiledOnce() {
+        Schedule cronSchedule = makeCronSchedule();
+        Schedule intervalSchedule = TestUtils.getSchedule("Interval");
+        SchedulePlan plan = makePlan(cronSchedule, intervalSchedule);
+
+        SchedulePlanSnapshot snapshot = SchedulePlanSnapshot.compile(ImmutableList.of(plan));
+
+        assertTrue(snapshot.getScheduler(cronSchedule) instanceof CronActivityScheduler);
+        assertSame(snapshot.getScheduler(cronSchedule), snapshot.getScheduler(cronSchedule));
+        assertSame(snapshot.getScheduler(intervalSchedule), snapshot.getScheduler(intervalSchedule));
+        assertNotSame(snapshot.getScheduler(cronSchedule), snapshot.getScheduler(intervalSchedule));
+    }
+
+    @Test
+    public void scheduleOutsideSnapshotGetsItsOwnScheduler() {
+        SchedulePlanSnapshot snapshot = SchedulePlanSnapshot.compile(ImmutableList.of(
+                makePlan(makeCronSchedule())));
+
+        // An equal schedule that is not in the snapshot.
+        Schedule other = makeCronSchedule();
+        assertTrue(snapshot.getScheduler(other) instanceof CronActivityScheduler);
+        assertNotSame(snapshot.getScheduler(other), snapshot.getScheduler(other));
+    }
+
+    @Test
+    public void compiledCronSchedulerCanBeReused() {
+        Schedule schedule = makeCronSchedule();
+        SchedulePlan plan = makePlan(schedule);
+        SchedulePlanSnapshot snapshot = SchedulePlanSnapshot.compile(ImmutableList.of(plan));
+
+        ScheduleContext context = new ScheduleContext.Builder()
+                .withAppId(TEST_APP_ID)
+                .withInitialTimeZone(DateTimeZone.UTC)
+                .withEndsOn(ENROLLMENT.plusDays(4))
+                .withEvents(ImmutableMap.of("enrollment", ENROLLMENT)).build();
+
+        List<ScheduledActivity> expected = schedule.getScheduler().getScheduledActivities(plan, context);
+        assertEquals(snapshot.getScheduler(schedule).getScheduledActivities(plan, context).size(), expected.size());
+        assertEquals(snapshot.getScheduler(schedule).getScheduledActivities(plan, context).size(), expected.size());
+    }
+
+    @Test
+    public void getScheduleForUserMatchesScheduleCriteria() {
+        Schedule groupSchedule = makeCronSchedule();
+        Schedule defaultSchedule = TestUtils.getSchedule("Default");
+        CriteriaScheduleStrategy strategy = new CriteriaScheduleStrategy();
+        strategy.addCriteria(new ScheduleCriteria(groupSchedule,
+                TestUtils.createCriteria(null, null, ImmutableSet.of("group1"), null)));
+        strategy.addCriteria(new ScheduleCriteria(defaultSchedule, TestUtils.createCriteria(null, null, null, null)));
+        SchedulePlan plan = new DynamoSchedulePlan();
+        plan.setStrategy(strategy);
+
+        SchedulePlanSnapshot snapshot = SchedulePlanSnapshot.compile(ImmutableList.of(plan));
+
+        ScheduleContext context = new ScheduleContext.Builder().withAppId(TEST_APP_ID)
+                .withUserDataGroups(ImmutableSet.of("group1")).build();
+        assertSame(snapshot.getScheduleForUser(plan, context), groupSchedule);
+        assertSame(snapshot.getScheduleForUser(plan, context), strategy.getScheduleForUser(plan, context));
+
+        context = new ScheduleContext.Builder().withAppId(TEST_APP_ID).build();
+        assertSame(snapshot.getScheduleForUser(plan, context), defaultSchedule);
+        assertSame(snapshot.getScheduleForUser(plan, context), strategy.getScheduleForUser(plan, context));
+    }
+
+    @Test
+    public void getScheduleForUserNoScheduleCriteriaMatch() {
+        CriteriaScheduleStrategy strategy = new CriteriaScheduleStrategy();
+        strategy.addCriteria(new ScheduleCriteria(makeCronSchedule(),
+                TestUtils.createCriteria(null, null, ImmutableSet.of("group1"), null)));
+        SchedulePlan plan = new DynamoSchedulePlan();
+        plan.setStrategy(strategy);
+
+        SchedulePlanSnapshot snapshot = SchedulePlanSnapshot.compile(ImmutableList.of(plan));
+
+        assertNull(snapshot.getScheduleForUser(plan, new ScheduleContext.Builder().withAppId(TEST_APP_ID).build()));
+    }
+
+    @Test
+    public void getScheduleForUserWithSimpleStrategy() {
+        Schedule schedule = TestUtils.getSchedule("Simple");
+        SimpleScheduleStrategy strategy = new SimpleScheduleStrategy();
+        strategy.setSchedule(schedule);
+        SchedulePlan plan = new DynamoSchedulePlan();
+        plan.setStrategy(strategy);
+
+        SchedulePlanSnapshot snapshot = SchedulePlanSnapshot.compile(ImmutableList.of(plan));
+
+        assertSame(snapshot.getScheduleForUser(plan, new ScheduleContext.Builder().withAppId(TEST_APP_ID).build()),
+                schedule);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void plansCannotBeChanged() {
+        SchedulePlanSnapshot snapshot = SchedulePlanSnapshot.compile(ImmutableList.of(
+                makePlan(makeCronSchedule())));
+
+        snapshot.getPlans().add(new DynamoSchedulePlan());
+    }
+
+    private static SchedulePlan makePlan(Schedule... schedules) {
+        CriteriaScheduleStrategy strategy = new CriteriaScheduleStrategy();
+        for (Schedule schedule : schedules) {
+            strategy.addCriteria(new ScheduleCriteria(schedule, TestUtils.createCriteria(null, null, null, null)));
+        }
+        SchedulePlan plan = new DynamoSchedulePlan();
+        plan.setGuid("BBB");
+        plan.setAppId(TEST_APP_ID);
+        plan.setStrategy(strategy);
+        return plan;
+    }
+
+    private static Schedule makeCronSchedule() {
+        Schedule schedule = new Schedule();
+        schedule.setScheduleType(RECURRING);
+        schedule.setCronTrigger("0 0 14 1/1 * ? *");
+        schedule.addActivity(TestUtils.getActivity3());
+        return schedule;
+    }
+}
@@ -28,6 +28,7 @@ import static org.testng.Assert.fail;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.function.Consumer;
 
 import com.google.common.collect.ImmutableList;
@@ -50,6 +51,7 @@ import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.RequestContext;
+import org.sagebionetworks.bridge.crypto.CredentialVerifier;
 import org.sagebionetworks.bridge.dao.AccountDao;
 import org.sagebionetworks.bridge.dao.AccountSecretDao;
 import org.sagebionetworks.bridge.exceptions.AccountDisabledException;
@@ -108,6 +110,9 @@ public class AccountServiceTest extends Mockito {
     @Mock
     Consumer<Account> mockConsumer;
 
+    @Mock
+    CredentialVerifier mockCredentialVerifier;
+
     @InjectMocks
     @Spy
     AccountService service;
@@ -128,6 +133,9 @@ public class AccountServiceTest extends Mockito {
     @BeforeMethod
     public void beforeMethod() {
         MockitoAnnotations.initMocks(this);
+        // Verify credentials on the calling thread.
+        when(mockCredentialVerifier.verify(any())).thenAnswer(invocation ->
+                ((Callable<?>) invocation.getArgument(0)).call());
     }
 
     @Test
@@ -2,6 +2,7 @@ package org.sagebionetworks.bridge.services;
 
 import static org.mockito.Mockito.anyBoolean;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.never;
@@ -17,12 +18,15 @@ import static org.testng.Assert.fail;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDateTime;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.Spy;
@@ -30,9 +34,12 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.ActivityEventMapCache;
+import org.sagebionetworks.bridge.cache.GeneratedScheduleCache;
 import org.sagebionetworks.bridge.dao.ActivityEventDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoActivityEvent.Builder;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.time.DateUtils;
 import org.sagebionetworks.bridge.models.activities.ActivityEvent;
 import org.sagebionetworks.bridge.models.activities.ActivityEventObjectType;
@@ -62,6 +69,15 @@ public class ActivityEventServiceTest {
     @Mock
     private ParticipantService mockParticipantService;
     
+    @Mock
+    private GeneratedScheduleCache mockGeneratedScheduleCache;
+    
+    @Mock
+    private ActivityEventMapCache mockActivityEventMapCache;
+    
+    @Captor
+    private ArgumentCaptor<List<ActivityEvent>> eventListCaptor;
+    
     @BeforeMethod
     public void before() {
         MockitoAnnotations.initMocks(this);
@@ -70,6 +86,12 @@ public class ActivityEventServiceTest {
         activityEventService.setActivityEventDao(activityEventDao);
         activityEventService.setAppService(mockAppService);
         activityEventService.setParticipantService(mockParticipantService);
+        activityEventService.setGeneratedScheduleCache(mockGeneratedScheduleCache);
+        activityEventService.setActivityEventMapCache(mockActivityEventMapCache);
+        
+        // By default, nothing is cached.
+        when(mockActivityEventMapCache.getActivityEventMap(any(), any())).thenAnswer(
+                invocation -> invocation.<Supplier<Map<String, DateTime>>>getArgument(1).get());
     }
 
     @Test
@@ -133,6 +155,92 @@ public class ActivityEventServiceTest {
         verifyNoMoreInteractions(activityEventDao);
     }
     
+    @Test
+    public void publishEventInvalidatesGeneratedSchedules() {
+        ActivityEvent event = new Builder().withHealthCode(HEALTH_CODE)
+            .withObjectType(ActivityEventObjectType.ENROLLMENT).withTimestamp(DateTime.now()).build();
+        when(activityEventDao.publishEvent(event)).thenReturn(true);
+
+        activityEventService.publishActivityEvent(event);
+        
+        verify(mockActivityEventMapCache).updateActivityEvent(event);
+        verify(mockGeneratedScheduleCache).invalidateParticipant(HEALTH_CODE);
+    }
+    
+    @Test
+    public void publishEventRemovesCachedEventsWhenUpdateFails() {
+        ActivityEvent event = new Builder().withHealthCode(HEALTH_CODE)
+            .withObjectType(ActivityEventObjectType.ENROLLMENT).withTimestamp(DateTime.now()).build();
+        when(activityEventDao.publishEvent(event)).thenReturn(true);
+        doThrow(new BridgeServiceException("Redis is down")).when(mockActivityEventMapCache)
+                .updateActivityEvent(event);
+
+        activityEventService.publishActivityEvent(event);
+        
+        verify(mockActivityEventMapCache).removeActivityEventMap(HEALTH_CODE);
+        verify(mockGeneratedScheduleCache).invalidateParticipant(HEALTH_CODE);
+    }
+    
+    @Test
+    public void publishEventSucceedsWhenCachedEventsCannotBeRemoved() {
+        ActivityEvent event = new Builder().withHealthCode(HEALTH_CODE)
+            .withObjectType(ActivityEventObjectType.ENROLLMENT).withTimestamp(DateTime.now()).build();
+        when(activityEventDao.publishEvent(event)).thenReturn(true);
+        doThrow(new BridgeServiceException("Redis is down")).when(mockActivityEventMapCache)
+                .updateActivityEvent(event);
+        doThrow(new BridgeServiceException("Redis is down")).when(mockActivityEventMapCache)
+                .removeActivityEventMap(HEALTH_CODE);
+
+        activityEventService.publishActivityEvent(event);
+        
+        verify(mockGeneratedScheduleCache).invalidateParticipant(HEALTH_CODE);
+    }
+    
+    @Test
+    public void unpublishedEventDoesNotInvalidateGeneratedSchedules() {
+        ActivityEvent event = new Builder().withHealthCode(HEALTH_CODE)
+            .withObjectType(ActivityEventObjectType.ENROLLMENT).withTimestamp(DateTime.now()).build();
+        when(activityEventDao.publishEvent(event)).thenReturn(false);
+
+        activityEventService.publishActivityEvent(event);
+        
+        verify(mockActivityEventMapCache, never()).updateActivityEvent(any());
+        verify(mockGeneratedScheduleCache, never()).invalidateParticipant(any());
+    }
+    
+    @Test
+    public void automaticEventsInvalidateGeneratedSchedulesOnce() {
+        App app = App.create();
+        app.setAutomaticCustomEvents(ImmutableMap.of("3-days-after", "enrollment:P3D", "1-week-after",
+                "enrollment:P1W"));
+        ActivityEvent enrollmentEvent = new Builder().withHealthCode(HEALTH_CODE)
+                .withObjectType(ActivityEventObjectType.ENROLLMENT).withTimestamp(DateTime.now()).build();
+        when(activityEventDao.publishEvent(any())).thenReturn(true);
+        when(activityEventDao.publishEvents(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        activityEventService.publishEnrollmentEvent(app, HEALTH_CODE, new ConsentSignature.Builder()
+                .withSignedOn(enrollmentEvent.getTimestamp()).build());
+        
+        // Once for the enrollment event, and once for both automatic events.
+        verify(mockGeneratedScheduleCache, times(2)).invalidateParticipant(HEALTH_CODE);
+        verify(mockActivityEventMapCache, times(3)).updateActivityEvent(any());
+    }
+    
+    @Test
+    public void unpublishedAutomaticEventsDoNotInvalidateGeneratedSchedules() {
+        App app = App.create();
+        app.setAutomaticCustomEvents(ImmutableMap.of("3-days-after", "enrollment:P3D"));
+        when(activityEventDao.publishEvent(any())).thenReturn(true);
+        when(activityEventDao.publishEvents(any())).thenReturn(ImmutableList.of());
+        
+        activityEventService.publishEnrollmentEvent(app, HEALTH_CODE, new ConsentSignature.Builder()
+                .withSignedOn(DateTime.now().getMillis()).build());
+        
+        // Only for the enrollment event.
+        verify(mockGeneratedScheduleCache, times(1)).invalidateParticipant(HEALTH_CODE);
+        verify(mockActivityEventMapCache, times(1)).updateActivityEvent(any());
+    }
+    
     @Test
     public void canPublishCreatedOn() {
         DateTime now = DateTime.now();
@@ -147,6 +255,19 @@ public class ActivityEventServiceTest {
         assertEquals(argument.getValue().getHealthCode(), HEALTH_CODE);
     }
     
+    @Test
+    public void getActivityEventMapFromCache() {
+        Map<String, DateTime> map = ImmutableMap.of("enrollment", ENROLLMENT, "created_on", CREATED_ON);
+        when(mockActivityEventMapCache.getActivityEventMap(eq(HEALTH_CODE), any())).thenReturn(map);
+        
+        Map<String, DateTime> results = activityEventService.getActivityEventMap(TEST_APP_ID, HEALTH_CODE);
+        assertEquals(results.get("enrollment"), ENROLLMENT);
+        assertEquals(results.get("study_start_date"), ENROLLMENT);
+        assertEquals(results.size(), 3);
+        
+        verify(activityEventDao, never()).getActivityEventMap(any());
+    }
+    
     @Test
     public void canGetActivityEventMap() {
         Map<String, DateTime> map = Maps.newHashMap();
@@ -233,6 +354,8 @@ public class ActivityEventServiceTest {
         
         verify(activityEventDao).deleteActivityEvents(HEALTH_CODE);
         verifyNoMoreInteractions(activityEventDao);
+        verify(mockActivityEventMapCache).removeActivityEventMap(HEALTH_CODE);
+        verify(mockGeneratedScheduleCache).invalidateParticipant(HEALTH_CODE);
     }
     
     @Test
@@ -304,15 +427,18 @@ public class ActivityEventServiceTest {
                 .withSignedOn(enrollment.getMillis()).build();
 
         when(activityEventDao.publishEvent(any())).thenReturn(true);
+        when(activityEventDao.publishEvents(any())).thenAnswer(invocation -> invocation.getArgument(0));
         
         // Execute
         activityEventService.publishEnrollmentEvent(app,"AAA-BBB-CCC", signature);
 
-        // Verify published events (4)
+        // Verify published events (4). The automatic events are published together.
         ArgumentCaptor<ActivityEvent> publishedEventCaptor = ArgumentCaptor.forClass(ActivityEvent.class);
-        verify(activityEventDao, times(4)).publishEvent(publishedEventCaptor.capture());
+        verify(activityEventDao).publishEvent(publishedEventCaptor.capture());
+        verify(activityEventDao).publishEvents(eventListCaptor.capture());
 
-        List<ActivityEvent> publishedEventList = publishedEventCaptor.getAllValues();
+        List<ActivityEvent> publishedEventList = Lists.newArrayList(publishedEventCaptor.getValue());
+        publishedEventList.addAll(eventListCaptor.getValue());
 
         assertEquals(publishedEventList.get(0).getEventId(), "enrollment");
         assertEquals(publishedEventList.get(0).getTimestamp().longValue(), enrollment.getMillis());
@@ -353,6 +479,7 @@ public class ActivityEventServiceTest {
         
         // Only happens once, none of the other custom events are published.
         verify(activityEventDao, times(1)).publishEvent(any());
+        verify(activityEventDao, never()).publishEvents(any());
     }
     
     @Test
@@ -374,6 +501,7 @@ public class ActivityEventServiceTest {
         
         // Only happens once, none of the other custom events are published.
         verify(activityEventDao, times(1)).publishEvent(any());
+        verify(activityEventDao, never()).publishEvents(any());
     }
     
     @Test
@@ -395,6 +523,7 @@ public class ActivityEventServiceTest {
         
         // Only happens once, none of the other custom events are published.
         verify(activityEventDao, times(1)).publishEvent(any());
+        verify(activityEventDao, never()).publishEvents(any());
     }
 
     @Test
@@ -414,6 +543,7 @@ public class ActivityEventServiceTest {
         
         // Only happens once, none of the other custom events are published.
         verify(activityEventDao, times(1)).publishEvent(any());
+        verify(activityEventDao, never()).publishEvents(any());
     }
     
     @Test
@@ -433,15 +563,18 @@ public class ActivityEventServiceTest {
         DateTime retrieved = DateTime.parse("2018-04-04T16:00-0700");
         
         when(activityEventDao.publishEvent(any())).thenReturn(true);
+        when(activityEventDao.publishEvents(any())).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Execute
         activityEventService.publishActivitiesRetrieved(app, "AAA-BBB-CCC", retrieved);
 
-        // Verify published events (4)
+        // Verify published events (4). The automatic events are published together.
         ArgumentCaptor<ActivityEvent> publishedEventCaptor = ArgumentCaptor.forClass(ActivityEvent.class);
-        verify(activityEventDao, times(4)).publishEvent(publishedEventCaptor.capture());
+        verify(activityEventDao).publishEvent(publishedEventCaptor.capture());
+        verify(activityEventDao).publishEvents(eventListCaptor.capture());
 
-        List<ActivityEvent> publishedEventList = publishedEventCaptor.getAllValues();
+        List<ActivityEvent> publishedEventList = Lists.newArrayList(publishedEventCaptor.getValue());
+        publishedEventList.addAll(eventListCaptor.getValue());
 
         assertEquals(publishedEventList.get(0).getEventId(), "activities_retrieved");
         assertEquals(publishedEventList.get(0).getTimestamp().longValue(), retrieved.getMillis());
@@ -474,15 +607,18 @@ public class ActivityEventServiceTest {
         DateTime timestamp = DateTime.parse("2018-04-04T16:00-0700");
         
         when(activityEventDao.publishEvent(any())).thenReturn(true);
+        when(activityEventDao.publishEvents(any())).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Execute
         activityEventService.publishCustomEvent(app, "AAA-BBB-CCC", "myEvent", timestamp);
 
-        // Verify published events (3)
+        // Verify published events (3). The automatic events are published together.
         ArgumentCaptor<ActivityEvent> publishedEventCaptor = ArgumentCaptor.forClass(ActivityEvent.class);
-        verify(activityEventDao, times(3)).publishEvent(publishedEventCaptor.capture());
+        verify(activityEventDao).publishEvent(publishedEventCaptor.capture());
+        verify(activityEventDao).publishEvents(eventListCaptor.capture());
 
-        List<ActivityEvent> publishedEventList = publishedEventCaptor.getAllValues();
+        List<ActivityEvent> publishedEventList = Lists.newArrayList(publishedEventCaptor.getValue());
+        publishedEventList.addAll(eventListCaptor.getValue());
         
         assertEquals(publishedEventList.get(0).getEventId(), "custom:myEvent");
         assertEquals(publishedEventList.get(0).getTimestamp().longValue(), timestamp.getMillis());
@@ -1,6 +1,7 @@
 package org.sagebionetworks.bridge.services;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
@@ -11,6 +12,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.NearCache;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.models.surveys.Survey;
 
@@ -26,6 +28,8 @@ public class CacheAdminServiceTest {
     
     private CacheAdminService adminService;
     
+    private NearCache nearCache;
+    
     @BeforeMethod
     public void before() {
         adminService = new CacheAdminService();
@@ -34,6 +38,9 @@ public class CacheAdminServiceTest {
         when(pool.getResource()).thenReturn(createStubJedis());
 
         adminService.setJedisPool(pool);
+        
+        nearCache = mock(NearCache.class);
+        adminService.setNearCache(nearCache);
     }
     
     @Test
@@ -50,6 +57,8 @@ public class CacheAdminServiceTest {
         adminService.removeItem("foo:App");
         Set<String> set = adminService.listItems();
         assertEquals(set.size(), 1);
+        
+        verify(nearCache).invalidate("foo:App");
     }
     
     @Test(expectedExceptions = BridgeServiceException.class)
@@ -19,6 +19,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.ReferenceResolutionCache;
 import org.sagebionetworks.bridge.dao.CompoundActivityDefinitionDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.ConstraintViolationException;
@@ -41,14 +42,17 @@ public class CompoundActivityDefinitionServiceTest {
     private SchedulePlanService schedulePlanService;
     private CompoundActivityDefinitionDao dao;
     private CompoundActivityDefinitionService service;
+    private ReferenceResolutionCache referenceResolutionCache;
 
     @BeforeMethod
     public void setup() {
         dao = mock(CompoundActivityDefinitionDao.class);
         schedulePlanService = mock(SchedulePlanService.class);
+        referenceResolutionCache = mock(ReferenceResolutionCache.class);
         service = new CompoundActivityDefinitionService();
         service.setSchedulePlanService(schedulePlanService);
         service.setCompoundActivityDefDao(dao);
+        service.setReferenceResolutionCache(referenceResolutionCache);
     }
 
     // CREATE
@@ -73,6 +77,9 @@ public class CompoundActivityDefinitionServiceTest {
 
         // Validate that the service result is the same as the dao result.
         assertSame(serviceResult, daoResult);
+
+        // Resolved references to this task are dropped.
+        verify(referenceResolutionCache).invalidateCompoundActivity(TEST_APP_ID, TASK_ID);
     }
 
     @Test
@@ -106,6 +113,16 @@ public class CompoundActivityDefinitionServiceTest {
         verify(dao).deleteCompoundActivityDefinition(TEST_APP_ID, TASK_ID);
     }
 
+    @Test
+    public void deleteInvalidatesResolvedReferences() {
+        // execute
+        service.deleteCompoundActivityDefinition(TEST_APP_ID, TASK_ID);
+
+        // verify dao and cache
+        verify(dao).deleteCompoundActivityDefinition(TEST_APP_ID, TASK_ID);
+        verify(referenceResolutionCache).invalidateCompoundActivity(TEST_APP_ID, TASK_ID);
+    }
+
     @Test
     public void deleteNullTaskId() {
         deleteBadRequest(null);
@@ -164,8 +181,9 @@ public class CompoundActivityDefinitionServiceTest {
         // execute
         service.deleteAllCompoundActivityDefinitionsInApp(TEST_APP_ID);
 
-        // verify dao
+        // verify dao and cache
         verify(dao).deleteAllCompoundActivityDefinitionsInApp(TEST_APP_ID);
+        verify(referenceResolutionCache).invalidateApp(TEST_APP_ID);
     }
 
     // LIST
@@ -251,6 +269,7 @@ public class CompoundActivityDefinitionServiceTest {
 
         // Validate that the service result is the same as the dao result.
         assertSame(serviceResult, daoResult);
+        verify(referenceResolutionCache).invalidateCompoundActivity(TEST_APP_ID, TASK_ID);
     }
 
     @Test
@@ -4,6 +4,9 @@ import static org.sagebionetworks.bridge.TestConstants.EMAIL;
 import static org.sagebionetworks.bridge.TestConstants.PHONE;
 import static org.sagebionetworks.bridge.models.accounts.SharingScope.NO_SHARING;
 import static org.sagebionetworks.bridge.services.StudyConsentService.SIGNATURE_BLOCK;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.io.FileInputStream;
@@ -63,6 +66,28 @@ public class ConsentPdfTest {
         assertTrue(consentPdf.getBytes().length > 0);
     }
     
+    @Test
+    public void rendersOnce() throws Exception {
+        ConsentPdf consentPdf = new ConsentPdf(app, EMAIL_PARTICIPANT, makeSignatureWithoutImage(), NO_SHARING,
+                DOCUMENT_FRAGMENT, consentBodyTemplate);
+        
+        assertSame(consentPdf.getBytes(), consentPdf.getBytes());
+    }
+    
+    @Test
+    public void contentHashIdentifiesDocument() throws Exception {
+        ConsentSignature sig = makeSignatureWithoutImage();
+        ConsentPdf consentPdf = new ConsentPdf(app, EMAIL_PARTICIPANT, sig, NO_SHARING, DOCUMENT_FRAGMENT,
+                consentBodyTemplate);
+        ConsentPdf sameConsentPdf = new ConsentPdf(app, EMAIL_PARTICIPANT, sig, NO_SHARING, DOCUMENT_FRAGMENT,
+                consentBodyTemplate);
+        ConsentPdf otherConsentPdf = new ConsentPdf(app, EMAIL_PARTICIPANT, sig, NO_SHARING,
+                "<p>This is another consent agreement body</p>" + SIGNATURE_BLOCK, consentBodyTemplate);
+        
+        assertEquals(consentPdf.getContentHash(), sameConsentPdf.getContentHash());
+        assertNotEquals(consentPdf.getContentHash(), otherConsentPdf.getContentHash());
+    }
+    
     @Test
     public void docWithNullUserTimeZone() throws Exception {
         ConsentSignature sig = makeSignatureWithoutImage();
@@ -1,9 +1,12 @@
 package org.sagebionetworks.bridge.services;
 
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -41,6 +44,9 @@ import org.mockito.Spy;
 import org.sagebionetworks.bridge.BridgeConstants;
 import org.sagebionetworks.bridge.TestConstants;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
+import org.sagebionetworks.bridge.cache.ConsentPdfCache;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.EntityAlreadyExistsException;
@@ -57,7 +63,6 @@ import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.apps.MimeType;
 import org.sagebionetworks.bridge.models.studies.Enrollment;
 import org.sagebionetworks.bridge.models.subpopulations.ConsentSignature;
-import org.sagebionetworks.bridge.models.subpopulations.StudyConsentView;
 import org.sagebionetworks.bridge.models.subpopulations.Subpopulation;
 import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
 import org.sagebionetworks.bridge.models.templates.TemplateRevision;
@@ -70,7 +75,6 @@ import org.sagebionetworks.bridge.services.email.MimeTypeEmailProvider;
 import org.sagebionetworks.bridge.services.email.WithdrawConsentEmailProvider;
 import org.sagebionetworks.bridge.sms.SmsMessageProvider;
 
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.ClassPathResource;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -129,9 +133,10 @@ public class ConsentServiceMockTest {
     @Mock
     private Subpopulation subpopulation;
     @Mock
-    private StudyConsentView studyConsentView;
-    @Mock
     private TemplateService templateService;
+    @Mock
+    private AsyncExecutor asyncExecutor;
+    private ConsentPdfCache consentPdfCache;
     @Captor
     private ArgumentCaptor<BasicEmailProvider> emailCaptor;
     @Captor
@@ -157,8 +162,16 @@ public class ConsentServiceMockTest {
         consentService.setS3Helper(s3Helper);
         consentService.setUrlShortenerService(urlShortenerService);
         consentService.setNotificationsService(notificationsService);
-        consentService.setConsentTemplate(new ByteArrayResource((documentString).getBytes()));
         consentService.setTemplateService(templateService);
+        consentService.setAsyncExecutor(asyncExecutor);
+        consentPdfCache = spy(new ConsentPdfCache(10000000L, 60));
+        consentService.setConsentPdfCache(consentPdfCache);
+        
+        // Deliver consents on the calling thread.
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(2).run();
+            return null;
+        }).when(asyncExecutor).execute(any(AsyncLane.class), any(), any(Runnable.class));
 
         app = TestUtils.getValidApp(ConsentServiceMockTest.class);
         
@@ -178,10 +191,9 @@ public class ConsentServiceMockTest {
         when(urlShortenerService.shortenUrl(LONG_URL, BridgeConstants.SIGNED_CONSENT_DOWNLOAD_EXPIRE_IN_SECONDS))
                 .thenReturn(SHORT_URL);
 
-        when(studyConsentView.getCreatedOn()).thenReturn(CONSENT_CREATED_ON);
-        when(studyConsentView.getDocumentContent())
-                .thenReturn("<p>This is content of the final HTML document we assemble.</p>");
-        when(studyConsentService.getActiveConsent(subpopulation)).thenReturn(studyConsentView);
+        when(subpopulation.getPublishedConsentCreatedOn()).thenReturn(CONSENT_CREATED_ON);
+        when(studyConsentService.getActiveConsentTemplate(subpopulation)).thenReturn(ConsentTemplate.compile(
+                documentString, "<p>This is content of the final HTML document we assemble.</p>"));
         when(subpopService.getSubpopulation(app.getIdentifier(), SUBPOP_GUID)).thenReturn(subpopulation);
     }
 
@@ -882,6 +894,46 @@ public class ConsentServiceMockTest {
         assertEquals(provider.getTemplateRevision().getDocumentContent(), revision.getDocumentContent());
     }
 
+    @Test
+    public void consentToResearchDeliversConsentAsync() {
+        // Consent delivery is queued, but doesn't run.
+        doAnswer(invocation -> null).when(asyncExecutor).execute(any(AsyncLane.class), any(), any(Runnable.class));
+        
+        consentService.consentToResearch(app, SUBPOP_GUID, PARTICIPANT, CONSENT_SIGNATURE,
+                SharingScope.NO_SHARING, true);
+        
+        verify(accountService).updateAccount(any(), eq(null));
+        verify(asyncExecutor).execute(eq(AsyncLane.CONSENT_DELIVERY), eq(app.getIdentifier()),
+                any(ConsentService.ConsentDeliveryHandler.class));
+        verify(sendMailService, never()).sendEmail(any());
+    }
+    
+    @Test
+    public void consentToResearchNoRecipientsDoesNotQueueDelivery() {
+        app.setConsentNotificationEmail(null);
+        when(subpopulation.isAutoSendConsentSuppressed()).thenReturn(true);
+        
+        consentService.consentToResearch(app, SUBPOP_GUID, PARTICIPANT, CONSENT_SIGNATURE,
+                SharingScope.NO_SHARING, true);
+        
+        verify(asyncExecutor, never()).execute(any(AsyncLane.class), any(), any(Runnable.class));
+    }
+    
+    @Test
+    public void resendConsentAgreementReusesRenderedPdf() {
+        account.setConsentSignatureHistory(SUBPOP_GUID, ImmutableList.of(CONSENT_SIGNATURE));
+        
+        consentService.resendConsentAgreement(app, SUBPOP_GUID, PARTICIPANT);
+        consentService.resendConsentAgreement(app, SUBPOP_GUID, PARTICIPANT);
+        
+        verify(sendMailService, times(2)).sendEmail(any());
+        
+        // Both are looked up by the same document digest, so the PDF is only rendered once.
+        ArgumentCaptor<String> hashCaptor = ArgumentCaptor.forClass(String.class);
+        verify(consentPdfCache, times(2)).getBytes(hashCaptor.capture(), any());
+        assertEquals(hashCaptor.getAllValues().get(0), hashCaptor.getAllValues().get(1));
+    }
+
     @Test
     public void consentToResearchWithPhoneAutoSuppressed() {
         when(subpopulation.isAutoSendConsentSuppressed()).thenReturn(true);
@@ -0,0 +1,69 @@
+package org.sagebionetworks.bridge.services;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.BridgeUtils;
+
+public class ConsentTemplateTest {
+    private static final String PAGE = "<html><title>${appName}</title><body>${consent.body}</body></html>";
+    private static final String BODY = "<p>${appName} consent</p><p>${participant.name}, ${participant.signing.date}</p>";
+
+    @Test
+    public void resolve() {
+        ConsentTemplate template = ConsentTemplate.compile(PAGE, BODY);
+
+        String result = template.resolve(ImmutableMap.of("appName", "App", "participant.name", "Name",
+                "participant.signing.date", "Today"));
+        assertEquals(result, "<html><title>App</title><body><p>App consent</p><p>Name, Today</p></body></html>");
+    }
+
+    @Test
+    public void resolveMatchesResolveTemplate() {
+        Map<String, String> values = ImmutableMap.of("appName", "App", "participant.name", "Name",
+                "participant.signing.date", "Today");
+
+        Map<String, String> pageValues = new HashMap<>(values);
+        pageValues.put("consent.body", BridgeUtils.resolveTemplate(BODY, values));
+        String expected = BridgeUtils.resolveTemplate(PAGE, pageValues);
+
+        assertEquals(ConsentTemplate.compile(PAGE, BODY).resolve(values), expected);
+    }
+
+    @Test
+    public void variablesWithoutValuesAreLeftAsIs() {
+        ConsentTemplate template = ConsentTemplate.compile(PAGE, BODY);
+
+        String result = template.resolve(ImmutableMap.of());
+        assertEquals(result, "<html><title>${appName}</title><body><p>${appName} consent</p>"
+                + "<p>${participant.name}, ${participant.signing.date}</p></body></html>");
+    }
+
+    @Test
+    public void valuesAreNotResolved() {
+        ConsentTemplate template = ConsentTemplate.compile("${consent.body}", "<p>${participant.name}</p>");
+
+        String result = template.resolve(ImmutableMap.of("participant.name", "${appName}", "appName", "App"));
+        assertEquals(result, "<p>${appName}</p>");
+    }
+
+    @Test
+    public void documentWithoutVariables() {
+        ConsentTemplate template = ConsentTemplate.compile("<doc>${consent.body}</doc>", "<p>Text</p>");
+
+        assertEquals(template.resolve(ImmutableMap.of()), "<doc><p>Text</p></doc>");
+    }
+
+    @Test
+    public void unterminatedVariableIsLiteral() {
+        ConsentTemplate template = ConsentTemplate.compile("${consent.body}", "<p>${appName</p>");
+
+        assertEquals(template.resolve(ImmutableMap.of("appName", "App")), "<p>${appName</p>");
+    }
+}
@@ -3,6 +3,7 @@ package org.sagebionetworks.bridge.services;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -12,7 +13,7 @@ import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
@@ -21,6 +22,8 @@ import org.mockito.Spy;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
 import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.cache.CacheKey;
 
@@ -39,7 +42,7 @@ public class EmailVerificationServiceTest {
     @Mock
     private AmazonSimpleEmailServiceClient sesClient;
     @Mock
-    private ExecutorService asyncExecutorService;
+    private AsyncExecutor asyncExecutor;
     @Mock
     private GetIdentityVerificationAttributesResult result;
     @Mock
@@ -55,7 +58,7 @@ public class EmailVerificationServiceTest {
     public void before() {
         MockitoAnnotations.initMocks(this);
         service.setAmazonSimpleEmailServiceClient(sesClient);
-        service.setAsyncExecutorService(asyncExecutorService);
+        service.setAsyncExecutor(asyncExecutor);
         service.setCacheProvider(cacheProvider);
     }
     
@@ -76,7 +79,7 @@ public class EmailVerificationServiceTest {
         EmailVerificationStatus status = service.verifyEmailAddress(EMAIL_ADDRESS);
 
         assertEquals(status, EmailVerificationStatus.VERIFIED);
-        verify(asyncExecutorService, never()).execute(any());
+        verify(asyncExecutor, never()).execute(any(), any());
         verify(sesClient).getIdentityVerificationAttributes(getCaptor.capture());
         assertEquals(getCaptor.getValue().getIdentities().get(0), EMAIL_ADDRESS);
 
@@ -97,6 +100,17 @@ public class EmailVerificationServiceTest {
         verify(cacheProvider).setObject(eq(EMAIL_ADDRESS_KEY), eq("PENDING"), anyInt());
     }
     
+    @Test
+    public void unverifiedNotCachedAsPendingWhenLaneIsFull() {
+        mockSession("Failure");
+        doThrow(new RejectedExecutionException()).when(asyncExecutor).execute(eq(AsyncLane.INTERACTIVE), any());
+
+        EmailVerificationStatus status = service.verifyEmailAddress(EMAIL_ADDRESS);
+
+        assertEquals(status, EmailVerificationStatus.UNVERIFIED);
+        verify(cacheProvider, never()).setObject(eq(EMAIL_ADDRESS_KEY), eq("PENDING"), anyInt());
+    }
+    
     @Test
     public void emailDoesntExistRequestVerification() {
         mockSession(null);
@@ -203,7 +217,7 @@ public class EmailVerificationServiceTest {
     private void verifyAsyncHandler() {
         ArgumentCaptor<EmailVerificationService.AsyncSnsTopicHandler> handlerCaptor = ArgumentCaptor.forClass(
                 EmailVerificationService.AsyncSnsTopicHandler.class);
-        verify(asyncExecutorService).execute(handlerCaptor.capture());
+        verify(asyncExecutor).execute(eq(AsyncLane.INTERACTIVE), handlerCaptor.capture());
         assertEquals(handlerCaptor.getValue().getEmailAddress(), EMAIL_ADDRESS);
     }
 }
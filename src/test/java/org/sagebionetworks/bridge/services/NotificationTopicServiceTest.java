@@ -1,11 +1,17 @@
 package org.sagebionetworks.bridge.services;
 
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
 import static org.sagebionetworks.bridge.TestUtils.getNotificationTopic;
+import static org.sagebionetworks.bridge.services.NotificationTopicService.MAX_RECONCILIATION_ATTEMPTS;
+import static org.sagebionetworks.bridge.services.NotificationTopicService.RECONCILIATION_RETRY_DELAY_MILLIS;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
@@ -16,6 +22,8 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -27,6 +35,8 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
 import org.sagebionetworks.bridge.dao.NotificationRegistrationDao;
 import org.sagebionetworks.bridge.dao.NotificationTopicDao;
 import org.sagebionetworks.bridge.dao.TopicSubscriptionDao;
@@ -137,9 +147,18 @@ public class NotificationTopicServiceTest {
     @Mock
     private NotificationRegistration mockNotificationRegistration;
     
+    @Mock
+    private AsyncExecutor mockAsyncExecutor;
+    
+    @Mock
+    private ScheduledExecutorService mockRetryTimer;
+
     @Captor
     private ArgumentCaptor<PublishRequest> publishRequestCaptor;
 
+    @Captor
+    private ArgumentCaptor<Runnable> runnableCaptor;
+
     private NotificationTopicService service;
     
     @BeforeMethod
@@ -151,6 +170,18 @@ public class NotificationTopicServiceTest {
         service.setSnsClient(mockSnsClient);
         service.setNotificationRegistrationDao(mockRegistrationDao);
         service.setTopicSubscriptionDao(mockSubscriptionDao);
+        service.setAsyncExecutor(mockAsyncExecutor);
+        service.setRetryTimer(mockRetryTimer);
+
+        // Run reconciliations, and retries without their delay, on the calling thread.
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(2).run();
+            return null;
+        }).when(mockAsyncExecutor).execute(any(AsyncLane.class), any(), any(Runnable.class));
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(mockRetryTimer).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
     }
     
     @Test
@@ -365,6 +396,81 @@ public class NotificationTopicServiceTest {
         verify(mockSubscriptionDao, never()).subscribe(any(), eq(MANUAL_TOPIC_2));
     }
 
+    @Test
+    public void manageCriteriaBasedSubscriptions_RunsInBackground() {
+        when(mockTopicDao.listTopics(TEST_APP_ID, true)).thenReturn(ImmutableList.of(MANUAL_TOPIC_1));
+
+        service.manageCriteriaBasedSubscriptions(TEST_APP_ID, EMPTY_CONTEXT, HEALTH_CODE);
+
+        verify(mockAsyncExecutor).execute(eq(AsyncLane.SUBSCRIPTION_RECONCILIATION), eq(TEST_APP_ID),
+                any(Runnable.class));
+    }
+
+    @Test
+    public void manageCriteriaBasedSubscriptions_QueuedUpdatesUseLatestContext() {
+        // Queue reconciliations without running them.
+        doNothing().when(mockAsyncExecutor).execute(any(AsyncLane.class), any(), any(Runnable.class));
+
+        when(mockTopicDao.listTopics(TEST_APP_ID, true)).thenReturn(ImmutableList.of(CRITERIA_TOPIC_1,
+                CRITERIA_TOPIC_2));
+        when(mockRegistrationDao.listRegistrations(HEALTH_CODE)).thenReturn(ImmutableList.of(PUSH_REGISTRATION));
+        when(mockSubscriptionDao.listSubscriptions(PUSH_REGISTRATION)).thenReturn(ImmutableList.of());
+
+        CriteriaContext context1 = new CriteriaContext.Builder().withContext(EMPTY_CONTEXT).withUserDataGroups(
+                ImmutableSet.of(CRITERIA_GROUP_1)).build();
+        CriteriaContext context2 = new CriteriaContext.Builder().withContext(EMPTY_CONTEXT).withUserDataGroups(
+                ImmutableSet.of(CRITERIA_GROUP_2)).build();
+        service.manageCriteriaBasedSubscriptions(TEST_APP_ID, context1, HEALTH_CODE);
+        service.manageCriteriaBasedSubscriptions(TEST_APP_ID, context2, HEALTH_CODE);
+
+        // Only one reconciliation is queued, and it uses the second context.
+        verify(mockAsyncExecutor).execute(eq(AsyncLane.SUBSCRIPTION_RECONCILIATION), eq(TEST_APP_ID),
+                runnableCaptor.capture());
+        runnableCaptor.getValue().run();
+
+        verify(mockSubscriptionDao).subscribe(PUSH_REGISTRATION, CRITERIA_TOPIC_2);
+        verify(mockSubscriptionDao, never()).subscribe(PUSH_REGISTRATION, CRITERIA_TOPIC_1);
+    }
+
+    @Test
+    public void manageCriteriaBasedSubscriptions_RetriesFailedSubscribe() {
+        when(mockTopicDao.listTopics(TEST_APP_ID, true)).thenReturn(ImmutableList.of(CRITERIA_TOPIC_1));
+        when(mockRegistrationDao.listRegistrations(HEALTH_CODE)).thenReturn(ImmutableList.of(PUSH_REGISTRATION));
+        when(mockSubscriptionDao.listSubscriptions(PUSH_REGISTRATION)).thenReturn(ImmutableList.of());
+        doThrow(new RuntimeException()).when(mockSubscriptionDao).subscribe(PUSH_REGISTRATION, CRITERIA_TOPIC_1);
+
+        CriteriaContext context = new CriteriaContext.Builder().withContext(EMPTY_CONTEXT).withUserDataGroups(
+                ImmutableSet.of(CRITERIA_GROUP_1)).build();
+        service.manageCriteriaBasedSubscriptions(TEST_APP_ID, context, HEALTH_CODE);
+
+        verify(mockSubscriptionDao, times(MAX_RECONCILIATION_ATTEMPTS)).subscribe(PUSH_REGISTRATION,
+                CRITERIA_TOPIC_1);
+        
+        // Retries are delayed, and the delay doubles each time.
+        verify(mockRetryTimer).schedule(any(Runnable.class), eq(RECONCILIATION_RETRY_DELAY_MILLIS),
+                eq(TimeUnit.MILLISECONDS));
+        verify(mockRetryTimer).schedule(any(Runnable.class), eq(RECONCILIATION_RETRY_DELAY_MILLIS * 2),
+                eq(TimeUnit.MILLISECONDS));
+        verify(mockAsyncExecutor, times(MAX_RECONCILIATION_ATTEMPTS)).execute(
+                eq(AsyncLane.SUBSCRIPTION_RECONCILIATION), eq(TEST_APP_ID), any(Runnable.class));
+    }
+
+    @Test
+    public void manageCriteriaBasedSubscriptions_RetriesAfterError() {
+        when(mockTopicDao.listTopics(TEST_APP_ID, true)).thenThrow(new RuntimeException())
+                .thenReturn(ImmutableList.of(CRITERIA_TOPIC_1));
+        when(mockRegistrationDao.listRegistrations(HEALTH_CODE)).thenReturn(ImmutableList.of(PUSH_REGISTRATION));
+        when(mockSubscriptionDao.listSubscriptions(PUSH_REGISTRATION)).thenReturn(ImmutableList.of());
+
+        CriteriaContext context = new CriteriaContext.Builder().withContext(EMPTY_CONTEXT).withUserDataGroups(
+                ImmutableSet.of(CRITERIA_GROUP_1)).build();
+        service.manageCriteriaBasedSubscriptions(TEST_APP_ID, context, HEALTH_CODE);
+
+        // The second attempt succeeds, so there's no third.
+        verify(mockTopicDao, times(2)).listTopics(TEST_APP_ID, true);
+        verify(mockSubscriptionDao).subscribe(PUSH_REGISTRATION, CRITERIA_TOPIC_1);
+    }
+
     @Test
     public void unsubscribeAll_NoSubscriptions() {
         // Mock dependencies.
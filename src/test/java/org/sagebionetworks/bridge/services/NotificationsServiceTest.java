@@ -8,8 +8,11 @@ import static org.sagebionetworks.bridge.TestUtils.getNotificationRegistration;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.fail;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.util.List;
@@ -25,6 +28,8 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.TestConstants;
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
 import org.sagebionetworks.bridge.dao.NotificationRegistrationDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.NotImplementedException;
@@ -74,6 +79,9 @@ public class NotificationsServiceTest {
     @Mock
     private App mockApp;
 
+    @Mock
+    private AsyncExecutor mockAsyncExecutor;
+
     @Captor
     private ArgumentCaptor<PublishRequest> requestCaptor;
 
@@ -89,6 +97,13 @@ public class NotificationsServiceTest {
         service.setAppService(mockAppService);
         service.setNotificationRegistrationDao(mockRegistrationDao);
         service.setSnsClient(mockSnsClient);
+        service.setAsyncExecutor(mockAsyncExecutor);
+
+        // Run publishes on the calling thread.
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(2).run();
+            return null;
+        }).when(mockAsyncExecutor).execute(any(AsyncLane.class), any(), any(Runnable.class));
 
         Map<String,String> map = Maps.newHashMap();
         map.put(OS_NAME, PLATFORM_ARN);
@@ -269,6 +284,30 @@ public class NotificationsServiceTest {
         assertEquals(request.getSubject(), message.getSubject());
         assertEquals(request.getMessage(), message.getMessage());
         assertEquals(request.getTargetArn(), "endpointARN");
+        
+        verify(mockAsyncExecutor).execute(eq(AsyncLane.SNS_PUBLISH), eq(TEST_APP_ID), any(Runnable.class));
+    }
+    
+    @Test
+    public void sendNotificationPublishesToEachRegistration() {
+        NotificationRegistration reg1 = getNotificationRegistration();
+        reg1.setEndpoint("endpointARN1");
+        NotificationRegistration reg2 = getNotificationRegistration();
+        reg2.setGuid("registrationGuid2");
+        reg2.setEndpoint("endpointARN2");
+        doReturn(Lists.newArrayList(reg1, reg2)).when(mockRegistrationDao).listRegistrations(HEALTH_CODE);
+        
+        doReturn(mockPublishResult).when(mockSnsClient).publish(any());
+        
+        Set<String> erroredNotifications = service.sendNotificationToUser(TEST_APP_ID, HEALTH_CODE,
+                getNotificationMessage());
+        assertEquals(erroredNotifications.size(), 0);
+        
+        verify(mockAsyncExecutor, times(2)).execute(eq(AsyncLane.SNS_PUBLISH), eq(TEST_APP_ID),
+                any(Runnable.class));
+        verify(mockSnsClient, times(2)).publish(requestCaptor.capture());
+        assertEquals(requestCaptor.getAllValues().get(0).getTargetArn(), "endpointARN1");
+        assertEquals(requestCaptor.getAllValues().get(1).getTargetArn(), "endpointARN2");
     }
     
     @Test
@@ -15,9 +15,13 @@ import java.util.List;
 
 import com.google.common.collect.ImmutableList;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.http.HttpVersion;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicStatusLine;
 import org.apache.http.util.EntityUtils;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -175,6 +179,29 @@ public class OAuthProviderServiceTest extends Mockito {
         return "{'errors':["+BridgeUtils.COMMA_JOINER.join(errors)+"],'success':false}";
     }
     
+    @Test
+    public void executeRequestUsesSharedClient() throws Exception {
+        CloseableHttpResponse mockResponse = mock(CloseableHttpResponse.class);
+        when(mockResponse.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, 200, "OK"));
+        when(mockResponse.getEntity()).thenReturn(new StringEntity(TestUtils.createJson(successJson())));
+        when(mockClient.execute(mockPost)).thenReturn(mockResponse);
+        
+        Response response = service.executeGrantRequest(mockPost);
+        
+        assertEquals(response.getStatusCode(), 200);
+        assertEquals(response.getBody().get("access_token").textValue(), ACCESS_TOKEN);
+        // The response is closed, returning the connection to the pool, but the client is not.
+        verify(mockResponse).close();
+        verify(mockClient, never()).close();
+    }
+    
+    @Test(expectedExceptions = BridgeServiceException.class)
+    public void executeRequestFails() throws Exception {
+        when(mockClient.execute(mockPost)).thenThrow(new IOException("Connection reset"));
+        
+        service.executeRefreshRequest(mockPost);
+    }
+    
     @Test
     public void makeAccessGrantCall() throws Exception {
         mockAccessGrantCall(200, successJson());
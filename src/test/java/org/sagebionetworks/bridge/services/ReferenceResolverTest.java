@@ -20,6 +20,7 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.cache.ReferenceResolutionCache;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.models.ClientInfo;
 import org.sagebionetworks.bridge.models.schedules.Activity;
@@ -95,6 +96,8 @@ public class ReferenceResolverTest {
     @Spy
     private HashMap<String,SchemaReference> schemaReferences;
     
+    private ReferenceResolutionCache referenceCache;
+    
     private ReferenceResolver resolver;
     
     private ScheduledActivity scheduledActivity;
@@ -106,8 +109,9 @@ public class ReferenceResolverTest {
         MockitoAnnotations.initMocks(this);
         
         // All the dependencies are mocks or mutable maps, and can be adjusted per test
+        referenceCache = new ReferenceResolutionCache(100, 60);
         resolver = new ReferenceResolver(compoundActivityDefinitionService, schemaService, surveyService,
-                surveyReferences, schemaReferences, CLIENT_INFO, TEST_APP_ID);
+                referenceCache, surveyReferences, schemaReferences, CLIENT_INFO, TEST_APP_ID);
         
         scheduledActivity = ScheduledActivity.create();
         
@@ -343,6 +347,45 @@ public class ReferenceResolverTest {
         verify(schemaService, times(1)).getLatestUploadSchemaRevisionForAppVersion(TEST_APP_ID, SCHEMA_ID, CLIENT_INFO);
     }
     
+    @Test
+    public void resolvedReferencesSharedWithOtherResolvers() {
+        when(compoundActivityDefinitionService.getCompoundActivityDefinition(TEST_APP_ID, TASK_ID))
+                .thenReturn(UNRESOLVED_COMPOUND_ACTIVITY_DEF);
+        when(surveyService.getSurveyMostRecentlyPublishedVersion(TEST_APP_ID, SURVEY_GUID, false)).thenReturn(SURVEY);
+        when(schemaService.getLatestUploadSchemaRevisionForAppVersion(TEST_APP_ID, SCHEMA_ID, CLIENT_INFO)).thenReturn(SCHEMA);
+        scheduledActivity.setActivity(activityBuilder.withCompoundActivity(COMPOUND_ACTIVITY_SKINNY_REF).build());
+        resolver.resolve(scheduledActivity);
+        
+        // A resolver for another request uses the references resolved by the first.
+        ReferenceResolver otherResolver = new ReferenceResolver(compoundActivityDefinitionService, schemaService,
+                surveyService, referenceCache, surveyReferences, schemaReferences, CLIENT_INFO, TEST_APP_ID);
+        ScheduledActivity otherActivity = ScheduledActivity.create();
+        otherActivity.setActivity(new Activity.Builder().withCompoundActivity(COMPOUND_ACTIVITY_SKINNY_REF).build());
+        otherResolver.resolve(otherActivity);
+        
+        CompoundActivity compoundActivity = otherActivity.getActivity().getCompoundActivity();
+        assertEquals(RESOLVED_SCHEMA_REF, compoundActivity.getSchemaList().get(0));
+        assertEquals(RESOLVED_SURVEY_REF, compoundActivity.getSurveyList().get(0));
+        verify(compoundActivityDefinitionService, times(1)).getCompoundActivityDefinition(TEST_APP_ID, TASK_ID);
+        verify(surveyService, times(1)).getSurveyMostRecentlyPublishedVersion(TEST_APP_ID, SURVEY_GUID, false);
+        verify(schemaService, times(1)).getLatestUploadSchemaRevisionForAppVersion(TEST_APP_ID, SCHEMA_ID, CLIENT_INFO);
+    }
+    
+    @Test
+    public void invalidatedSurveyResolvedAgain() {
+        scheduledActivity.setActivity(activityBuilder.withSurvey(UNRESOLVED_SURVEY_REF).build());
+        when(surveyService.getSurveyMostRecentlyPublishedVersion(TEST_APP_ID, SURVEY_GUID, false)).thenReturn(SURVEY);
+        resolver.resolve(scheduledActivity);
+        
+        referenceCache.invalidateSurvey(TEST_APP_ID, SURVEY_GUID);
+        
+        ScheduledActivity otherActivity = ScheduledActivity.create();
+        otherActivity.setActivity(new Activity.Builder().withSurvey(UNRESOLVED_SURVEY_REF).build());
+        resolver.resolve(otherActivity);
+        
+        verify(surveyService, times(2)).getSurveyMostRecentlyPublishedVersion(TEST_APP_ID, SURVEY_GUID, false);
+    }
+    
     @Test
     public void unresolvableSurveyReturnedAsIs() {
         scheduledActivity.setActivity(activityBuilder.withSurvey(UNRESOLVED_SURVEY_REF).build());
@@ -0,0 +1,196 @@
+package org.sagebionetworks.bridge.services;
+
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.sagebionetworks.bridge.TestConstants.USER_ID;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.joda.time.DateTime;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import org.sagebionetworks.bridge.dao.RequestInfoDao;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.sagebionetworks.bridge.models.RequestInfo;
+
+public class RequestInfoBufferTest extends Mockito {
+    private static final DateTime SIGNED_IN_ON = DateTime.parse("2020-10-10T10:10:10.000Z");
+    private static final DateTime UPLOADED_ON = SIGNED_IN_ON.plusHours(1);
+    private static final String OTHER_USER_ID = "otherUserId";
+
+    @Mock
+    RequestInfoDao mockRequestInfoDao;
+
+    @Captor
+    ArgumentCaptor<List<RequestInfo>> requestInfosCaptor;
+
+    RequestInfoBuffer buffer;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        MockitoAnnotations.initMocks(this);
+
+        buffer = new RequestInfoBuffer(1000, 5);
+        buffer.setRequestInfoDao(mockRequestInfoDao);
+    }
+
+    @Test
+    public void addMergesUpdatesForUser() {
+        buffer.add(info(USER_ID).withSignedInOn(SIGNED_IN_ON).build());
+        buffer.add(info(USER_ID).withUploadedOn(UPLOADED_ON).build());
+
+        RequestInfo buffered = buffer.get(USER_ID);
+        assertEquals(buffered.getSignedInOn(), SIGNED_IN_ON);
+        assertEquals(buffered.getUploadedOn(), UPLOADED_ON);
+        assertEquals(buffer.size(), 1);
+        verifyZeroInteractions(mockRequestInfoDao);
+    }
+
+    @Test
+    public void getNothingBuffered() {
+        assertNull(buffer.get(USER_ID));
+    }
+
+    @Test
+    public void flushWritesOneBatch() {
+        buffer.add(info(USER_ID).withSignedInOn(SIGNED_IN_ON).build());
+        buffer.add(info(USER_ID).withUploadedOn(UPLOADED_ON).build());
+        buffer.add(info(OTHER_USER_ID).withSignedInOn(SIGNED_IN_ON).build());
+
+        buffer.flush();
+
+        verify(mockRequestInfoDao).updateRequestInfos(requestInfosCaptor.capture());
+        List<RequestInfo> written = requestInfosCaptor.getValue();
+        assertEquals(written.size(), 2);
+        RequestInfo info = written.stream().filter(i -> i.getUserId().equals(USER_ID)).findFirst().get();
+        assertEquals(info.getSignedInOn(), SIGNED_IN_ON);
+        assertEquals(info.getUploadedOn(), UPLOADED_ON);
+
+        // Once written, the updates are no longer buffered.
+        assertEquals(buffer.size(), 0);
+        assertNull(buffer.get(USER_ID));
+    }
+
+    @Test
+    public void flushEmptyBuffer() {
+        buffer.flush();
+
+        verifyZeroInteractions(mockRequestInfoDao);
+    }
+
+    @Test
+    public void flushWritesInBatches() {
+        for (int i = 0; i < RequestInfoBuffer.BATCH_SIZE + 1; i++) {
+            buffer.add(info("user" + i).build());
+        }
+        buffer.flush();
+
+        verify(mockRequestInfoDao, times(2)).updateRequestInfos(requestInfosCaptor.capture());
+        assertEquals(requestInfosCaptor.getAllValues().get(0).size() + requestInfosCaptor.getAllValues().get(1).size(),
+                RequestInfoBuffer.BATCH_SIZE + 1);
+    }
+
+    @Test
+    public void failedBatchIsWrittenOneRowAtATime() {
+        RequestInfo info = info(USER_ID).build();
+        RequestInfo otherInfo = info(OTHER_USER_ID).build();
+        doThrow(new BridgeServiceException("Foreign key constraint")).when(mockRequestInfoDao)
+                .updateRequestInfos(argThat(list -> list.size() > 1 || list.contains(info)));
+        buffer.add(info);
+        buffer.add(otherInfo);
+
+        buffer.flush();
+
+        verify(mockRequestInfoDao).updateRequestInfos(ImmutableList.of(info));
+        verify(mockRequestInfoDao).updateRequestInfos(ImmutableList.of(otherInfo));
+        // The failed row is dropped.
+        assertEquals(buffer.size(), 0);
+    }
+
+    @Test
+    public void fullBufferIsFlushedOnTimerThread() throws Exception {
+        AtomicReference<String> writerThread = new AtomicReference<>();
+        CountDownLatch written = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writerThread.set(Thread.currentThread().getName());
+            written.countDown();
+            return null;
+        }).when(mockRequestInfoDao).updateRequestInfos(any());
+
+        buffer = new RequestInfoBuffer(2, 5);
+        buffer.setRequestInfoDao(mockRequestInfoDao);
+
+        buffer.add(info(USER_ID).build());
+        verifyZeroInteractions(mockRequestInfoDao);
+
+        buffer.add(info(OTHER_USER_ID).build());
+        verify(mockRequestInfoDao, timeout(5000)).updateRequestInfos(requestInfosCaptor.capture());
+        assertEquals(requestInfosCaptor.getValue().size(), 2);
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        assertEquals(writerThread.get(), "request-info-flush");
+        assertEquals(buffer.size(), 0);
+        buffer.stop();
+    }
+
+    @Test
+    public void removeDropsUpdates() {
+        buffer.add(info(USER_ID).build());
+        buffer.add(info(OTHER_USER_ID).build());
+
+        buffer.remove(USER_ID);
+        assertNull(buffer.get(USER_ID));
+
+        buffer.flush();
+        verify(mockRequestInfoDao).updateRequestInfos(requestInfosCaptor.capture());
+        assertEquals(requestInfosCaptor.getValue().size(), 1);
+        assertEquals(requestInfosCaptor.getValue().get(0).getUserId(), OTHER_USER_ID);
+    }
+
+    @Test
+    public void updatesAreReadableWhileBeingWritten() {
+        doAnswer(invocation -> {
+            // A read, and an update, arriving while the batch is written.
+            assertEquals(buffer.get(USER_ID).getSignedInOn(), SIGNED_IN_ON);
+            buffer.add(info(USER_ID).withUploadedOn(UPLOADED_ON).build());
+            RequestInfo merged = buffer.get(USER_ID);
+            assertEquals(merged.getSignedInOn(), SIGNED_IN_ON);
+            assertEquals(merged.getUploadedOn(), UPLOADED_ON);
+            return null;
+        }).when(mockRequestInfoDao).updateRequestInfos(any());
+        buffer.add(info(USER_ID).withSignedInOn(SIGNED_IN_ON).build());
+
+        buffer.flush();
+
+        // The update that arrived during the write is still buffered.
+        assertEquals(buffer.size(), 1);
+        assertEquals(buffer.get(USER_ID).getUploadedOn(), UPLOADED_ON);
+        assertNull(buffer.get(USER_ID).getSignedInOn());
+    }
+
+    @Test
+    public void stopFlushes() {
+        buffer.start();
+        buffer.add(info(USER_ID).build());
+
+        buffer.stop();
+
+        verify(mockRequestInfoDao).updateRequestInfos(ImmutableList.of(info(USER_ID).build()));
+    }
+
+    private static RequestInfo.Builder info(String userId) {
+        return new RequestInfo.Builder().withUserId(userId).withAppId(TEST_APP_ID);
+    }
+}
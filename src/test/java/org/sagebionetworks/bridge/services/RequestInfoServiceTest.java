@@ -1,9 +1,12 @@
 package org.sagebionetworks.bridge.services;
 
 import static org.sagebionetworks.bridge.TestConstants.USER_ID;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 
+import org.joda.time.DateTime;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -26,6 +29,9 @@ public class RequestInfoServiceTest extends Mockito {
     @Mock
     RequestInfoDao mockRequestInfoDao;
     
+    @Mock
+    RequestInfoBuffer mockRequestInfoBuffer;
+    
     @BeforeMethod
     public void beforeMethod() {
         MockitoAnnotations.initMocks(this);
@@ -36,7 +42,8 @@ public class RequestInfoServiceTest extends Mockito {
         RequestInfo info = new RequestInfo.Builder().build();
         service.updateRequestInfo(info);
         
-        verify(mockRequestInfoDao).updateRequestInfo(info);
+        verify(mockRequestInfoBuffer).add(info);
+        verifyZeroInteractions(mockRequestInfoDao);
     }
     
     @Test
@@ -49,7 +56,31 @@ public class RequestInfoServiceTest extends Mockito {
         
         // No need to execute this path
         verify(mockCacheProvider, never()).getRequestInfo(any());
-        verify(mockRequestInfoDao, never()).updateRequestInfo(any());
+        verify(mockRequestInfoBuffer, never()).add(any());
+    }
+    
+    @Test
+    public void getRequestInfoMergesBufferedUpdates() {
+        DateTime signedInOn = DateTime.now();
+        DateTime uploadedOn = signedInOn.minusDays(1);
+        RequestInfo info = new RequestInfo.Builder().withUserId(USER_ID).withSignedInOn(signedInOn.minusDays(2))
+                .withUploadedOn(uploadedOn).build();
+        RequestInfo buffered = new RequestInfo.Builder().withUserId(USER_ID).withSignedInOn(signedInOn).build();
+        when(mockRequestInfoDao.getRequestInfo(USER_ID)).thenReturn(info);
+        when(mockRequestInfoBuffer.get(USER_ID)).thenReturn(buffered);
+        
+        RequestInfo retrieved = service.getRequestInfo(USER_ID);
+        assertEquals(retrieved.getSignedInOn(), signedInOn);
+        assertEquals(retrieved.getUploadedOn(), uploadedOn);
+    }
+    
+    @Test
+    public void getRequestInfoOnlyBuffered() {
+        RequestInfo buffered = new RequestInfo.Builder().withUserId(USER_ID).withSignedInOn(DateTime.now()).build();
+        when(mockRequestInfoBuffer.get(USER_ID)).thenReturn(buffered);
+        
+        RequestInfo retrieved = service.getRequestInfo(USER_ID);
+        assertEquals(retrieved, buffered);
     }
     
     @Test
@@ -61,20 +92,24 @@ public class RequestInfoServiceTest extends Mockito {
         assertSame(retrieved, info);
         
         // And it was saved
-        verify(mockRequestInfoDao).updateRequestInfo(info);
+        verify(mockRequestInfoBuffer).add(info);
     }
     
     @Test
     public void getRequestInfoReturnsNothing() {
         RequestInfo retrieved = service.getRequestInfo(USER_ID);
         assertNull(retrieved);
-        verify(mockRequestInfoDao, never()).updateRequestInfo(any());
+        verify(mockRequestInfoBuffer, never()).add(any());
     }
     
     @Test
     public void removeRequestInfo() {
         service.removeRequestInfo(USER_ID);
-        verify(mockRequestInfoDao).removeRequestInfo(USER_ID);
+        
+        // Buffered updates are dropped before the row is deleted, so they can't recreate it.
+        InOrder inOrder = inOrder(mockRequestInfoBuffer, mockRequestInfoDao);
+        inOrder.verify(mockRequestInfoBuffer).remove(USER_ID);
+        inOrder.verify(mockRequestInfoDao).removeRequestInfo(USER_ID);
         verify(mockCacheProvider).removeRequestInfo(USER_ID);
     }
 }
@@ -4,6 +4,7 @@ import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyBoolean;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
@@ -23,6 +24,9 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.GeneratedScheduleCache;
+import org.sagebionetworks.bridge.cache.NearCache;
 import org.sagebionetworks.bridge.dao.SchedulePlanDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoSchedulePlan;
 import org.sagebionetworks.bridge.dynamodb.DynamoApp;
@@ -35,6 +39,7 @@ import org.sagebionetworks.bridge.models.schedules.CriteriaScheduleStrategy;
 import org.sagebionetworks.bridge.models.schedules.Schedule;
 import org.sagebionetworks.bridge.models.schedules.ScheduleCriteria;
 import org.sagebionetworks.bridge.models.schedules.SchedulePlan;
+import org.sagebionetworks.bridge.models.schedules.SchedulePlanSnapshot;
 import org.sagebionetworks.bridge.models.schedules.ScheduleType;
 import org.sagebionetworks.bridge.models.schedules.SimpleScheduleStrategy;
 import org.sagebionetworks.bridge.models.surveys.Survey;
@@ -54,6 +59,8 @@ public class SchedulePlanServiceMockTest {
     private SchedulePlanDao mockSchedulePlanDao;
     private SurveyService mockSurveyService;
     private StudyService mockStudyService;
+    private GeneratedScheduleCache mockGeneratedScheduleCache;
+    private NearCache mockNearCache;
     
     @BeforeMethod
     public void before() {
@@ -65,11 +72,15 @@ public class SchedulePlanServiceMockTest {
         mockSchedulePlanDao = mock(SchedulePlanDao.class);
         mockSurveyService = mock(SurveyService.class);
         mockStudyService = mock(StudyService.class);
+        mockGeneratedScheduleCache = mock(GeneratedScheduleCache.class);
+        mockNearCache = mock(NearCache.class);
         
         service = new SchedulePlanService();
         service.setSchedulePlanDao(mockSchedulePlanDao);
         service.setSurveyService(mockSurveyService);
         service.setStudyService(mockStudyService);
+        service.setGeneratedScheduleCache(mockGeneratedScheduleCache);
+        service.setNearCache(mockNearCache);
         
         Survey survey1 = new TestSurvey(SchedulePlanServiceMockTest.class, false);
         survey1.setIdentifier("identifier1");
@@ -113,6 +124,33 @@ public class SchedulePlanServiceMockTest {
         verify(mockSchedulePlanDao).getSchedulePlan(TEST_APP_ID, "oneGuid");
     }
     
+    @Test
+    public void getSchedulePlanSnapshotCompilesAndCachesPlans() {
+        SchedulePlan plan = constructSchedulePlan();
+        when(mockSchedulePlanDao.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false))
+                .thenReturn(Lists.newArrayList(plan));
+        when(mockNearCache.getVersion()).thenReturn(3L);
+        
+        SchedulePlanSnapshot snapshot = service.getSchedulePlanSnapshot(TEST_APP_ID);
+        assertEquals(snapshot.getPlans(), Lists.newArrayList(plan));
+        
+        Schedule schedule = plan.getStrategy().getAllPossibleSchedules().get(0);
+        assertSame(snapshot.getScheduler(schedule), snapshot.getScheduler(schedule));
+        
+        // The snapshot is only cached if no plan changed while it was loaded.
+        verify(mockNearCache).put(CacheKey.schedulePlanSnapshot(TEST_APP_ID), snapshot, 3L);
+    }
+    
+    @Test
+    public void getSchedulePlanSnapshotFromCache() {
+        SchedulePlanSnapshot snapshot = SchedulePlanSnapshot.compile(Lists.newArrayList());
+        when(mockNearCache.get(CacheKey.schedulePlanSnapshot(TEST_APP_ID))).thenReturn(snapshot);
+        
+        assertSame(service.getSchedulePlanSnapshot(TEST_APP_ID), snapshot);
+        
+        verify(mockSchedulePlanDao, never()).getSchedulePlans(any(), any(), anyBoolean());
+    }
+    
     @Test
     public void surveyReferenceIdentifierFilledOutOnCreate() {
         SchedulePlan plan = constructSchedulePlan();
@@ -123,6 +161,8 @@ public class SchedulePlanServiceMockTest {
         verify(mockSurveyService).getSurveyMostRecentlyPublishedVersion(any(), any(), anyBoolean());
         verify(mockSurveyService).getSurvey(eq(TEST_APP_ID), any(), eq(false), eq(true));
         verify(mockSchedulePlanDao).createSchedulePlan(any(), spCaptor.capture());
+        verify(mockGeneratedScheduleCache).invalidateApp(TEST_APP_ID);
+        verify(mockNearCache).invalidate(CacheKey.schedulePlanSnapshot(TEST_APP_ID));
         
         List<Activity> activities = spCaptor.getValue().getStrategy().getAllPossibleSchedules().get(0).getActivities();
         assertEquals(activities.get(0).getSurvey().getIdentifier(), "identifier1");
@@ -143,6 +183,8 @@ public class SchedulePlanServiceMockTest {
         verify(mockSurveyService).getSurvey(eq(TEST_APP_ID), any(), eq(false), eq(true));
         verify(mockSchedulePlanDao).getSchedulePlan(app.getIdentifier(), plan.getGuid());
         verify(mockSchedulePlanDao).updateSchedulePlan(any(), spCaptor.capture());
+        verify(mockGeneratedScheduleCache).invalidateApp(TEST_APP_ID);
+        verify(mockNearCache).invalidate(CacheKey.schedulePlanSnapshot(TEST_APP_ID));
         
         List<Activity> activities = spCaptor.getValue().getStrategy().getAllPossibleSchedules().get(0).getActivities();
         assertEquals(activities.get(0).getSurvey().getIdentifier(), "identifier1");
@@ -296,6 +338,8 @@ public class SchedulePlanServiceMockTest {
         service.deleteSchedulePlan(TEST_APP_ID, "planGuid");
         
         verify(mockSchedulePlanDao).deleteSchedulePlan(TEST_APP_ID, "planGuid");
+        verify(mockGeneratedScheduleCache).invalidateApp(TEST_APP_ID);
+        verify(mockNearCache).invalidate(CacheKey.schedulePlanSnapshot(TEST_APP_ID));
     }
     
     @Test
@@ -303,6 +347,8 @@ public class SchedulePlanServiceMockTest {
         service.deleteSchedulePlanPermanently(TEST_APP_ID, "planGuid");
         
         verify(mockSchedulePlanDao).deleteSchedulePlanPermanently(TEST_APP_ID, "planGuid");
+        verify(mockGeneratedScheduleCache).invalidateApp(TEST_APP_ID);
+        verify(mockNearCache).invalidate(CacheKey.schedulePlanSnapshot(TEST_APP_ID));
     }
     
     private SchedulePlan constructorInvalidSchedulePlan() {
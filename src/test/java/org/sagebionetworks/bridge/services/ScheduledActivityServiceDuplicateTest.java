@@ -24,6 +24,7 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.cache.ReferenceResolutionCache;
 import org.sagebionetworks.bridge.dao.ScheduledActivityDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoSchedulePlan;
 import org.sagebionetworks.bridge.dynamodb.DynamoScheduledActivity;
@@ -33,6 +34,7 @@ import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.schedules.Schedule;
 import org.sagebionetworks.bridge.models.schedules.ScheduleContext;
 import org.sagebionetworks.bridge.models.schedules.SchedulePlan;
+import org.sagebionetworks.bridge.models.schedules.SchedulePlanSnapshot;
 import org.sagebionetworks.bridge.models.schedules.ScheduleStrategy;
 import org.sagebionetworks.bridge.models.schedules.ScheduleType;
 import org.sagebionetworks.bridge.models.schedules.ScheduledActivity;
@@ -170,6 +172,7 @@ public class ScheduledActivityServiceDuplicateTest {
         service.setActivityEventService(activityEventService);
         service.setSchedulePlanService(schedulePlanService);
         service.setAppConfigService(appConfigService);
+        service.setReferenceResolutionCache(new ReferenceResolutionCache(100, 60));
         
         contextBuilder = new ScheduleContext.Builder()
                 .withClientInfo(ClientInfo.fromUserAgentCache("Lilly/25 (iPhone Simulator; iPhone OS/9.3) BridgeSDK/12"))
@@ -269,12 +272,12 @@ public class ScheduledActivityServiceDuplicateTest {
         doReturn(dbActivities).when(activityDao).getActivities(any(), any());
         
         // Correctly scheduled one-time tasks coming from scheduler
-        doReturn(makeSchedulePlans()).when(schedulePlanService).getSchedulePlans(any(), any(), eq(false));
+        doReturn(SchedulePlanSnapshot.compile(makeSchedulePlans())).when(schedulePlanService).getSchedulePlanSnapshot(any());
         
         List<ScheduledActivity> activities = service.getScheduledActivities(app, context);
         
         verify(activityDao).getActivities(any(), any());
-        verify(schedulePlanService).getSchedulePlans(any(), any(), eq(false));
+        verify(schedulePlanService).getSchedulePlanSnapshot(any());
         
         allWithinQueryWindow(activities, context);
         // With persisted tasks included, this finished task is not returned.
@@ -297,13 +300,13 @@ public class ScheduledActivityServiceDuplicateTest {
         doReturn(dbActivities).when(activityDao).getActivities(any(), any());
         
         // Correctly scheduled one-time tasks coming from scheduler
-        doReturn(makeSchedulePlans()).when(schedulePlanService).getSchedulePlans(any(), any(), eq(false));
+        doReturn(SchedulePlanSnapshot.compile(makeSchedulePlans())).when(schedulePlanService).getSchedulePlanSnapshot(any());
         
         List<ScheduledActivity> activities = service.getScheduledActivities(app, context);
         
         // There's only one of these and they are set to midnight UTC.
         verify(activityDao).getActivities(any(), any());
-        verify(schedulePlanService).getSchedulePlans(any(), any(), eq(false));
+        verify(schedulePlanService).getSchedulePlanSnapshot(any());
         
         allWithinQueryWindow(activities, context);
         assertEquals(filterByGuid(activities, "bea8fd5d-7622-451f-a727-f9e37f00e1be").size(), 0);
@@ -321,13 +324,13 @@ public class ScheduledActivityServiceDuplicateTest {
         schedule.setScheduleType(ScheduleType.ONCE);
         
         // Correctly scheduled one-time tasks coming from scheduler
-        doReturn(makeSchedulePlans()).when(schedulePlanService).getSchedulePlans(any(), any(), eq(false));
+        doReturn(SchedulePlanSnapshot.compile(makeSchedulePlans())).when(schedulePlanService).getSchedulePlanSnapshot(any());
         
         List<ScheduledActivity> activities = service.getScheduledActivities(app, context);
         
         // There's only one of these and they are set to midnight UTC.
         verify(activityDao).getActivities(any(), any());
-        verify(schedulePlanService).getSchedulePlans(any(), any(), eq(false));
+        verify(schedulePlanService).getSchedulePlanSnapshot(any());
         // This one is there...
         assertEquals(filterByGuid(activities, "bea8fd5d-7622-451f-a727-f9e37f00e1be").size(), 1);
         assertEquals(filterByGuid(activities, "6966c3d7-0949-43a8-804e-efc25d0f83e2").size(), 1);
@@ -345,13 +348,13 @@ public class ScheduledActivityServiceDuplicateTest {
         schedule.setScheduleType(ScheduleType.ONCE);
         
         // Correctly scheduled one-time tasks coming from scheduler
-        doReturn(makeSchedulePlans()).when(schedulePlanService).getSchedulePlans(any(), any(), eq(false));
+        doReturn(SchedulePlanSnapshot.compile(makeSchedulePlans())).when(schedulePlanService).getSchedulePlanSnapshot(any());
         
         List<ScheduledActivity> activities = service.getScheduledActivities(app, context);
         
         // There's only one of these and they are set to midnight UTC.
         verify(activityDao).getActivities(any(), any());
-        verify(schedulePlanService).getSchedulePlans(any(), any(), eq(false));
+        verify(schedulePlanService).getSchedulePlanSnapshot(any());
         assertEquals(filterByGuid(activities, "bea8fd5d-7622-451f-a727-f9e37f00e1be").size(), 1);
         assertEquals(filterByGuid(activities, "6966c3d7-0949-43a8-804e-efc25d0f83e2").size(), 1);
         assertEquals(filterByGuid(activities, "79cf1788-a087-4fa3-92e4-92e43d9699a7").size(), 1);
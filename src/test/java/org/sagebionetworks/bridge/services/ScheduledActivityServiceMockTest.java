@@ -2,23 +2,24 @@ package org.sagebionetworks.bridge.services;
 
 import static java.util.stream.Collectors.toSet;
 import static org.mockito.Mockito.any;
-import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
-import static org.sagebionetworks.bridge.BridgeConstants.API_MAXIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.services.ScheduledActivityService.V3_FILTER;
 import static org.sagebionetworks.bridge.validators.ScheduleContextValidator.MAX_DATE_RANGE_IN_DAYS;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 import java.util.Arrays;
@@ -40,9 +41,10 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-import org.sagebionetworks.bridge.BridgeConstants;
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.GeneratedScheduleCache;
+import org.sagebionetworks.bridge.cache.ReferenceResolutionCache;
 import org.sagebionetworks.bridge.dao.ScheduledActivityDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoSchedulePlan;
 import org.sagebionetworks.bridge.dynamodb.DynamoScheduledActivity;
@@ -51,13 +53,13 @@ import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.time.DateUtils;
 import org.sagebionetworks.bridge.models.ClientInfo;
-import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.schedules.Activity;
 import org.sagebionetworks.bridge.models.schedules.ActivityType;
 import org.sagebionetworks.bridge.models.schedules.Schedule;
 import org.sagebionetworks.bridge.models.schedules.ScheduleContext;
 import org.sagebionetworks.bridge.models.schedules.SchedulePlan;
+import org.sagebionetworks.bridge.models.schedules.SchedulePlanSnapshot;
 import org.sagebionetworks.bridge.models.schedules.ScheduleType;
 import org.sagebionetworks.bridge.models.schedules.ScheduledActivity;
 import org.sagebionetworks.bridge.models.schedules.ScheduledActivityStatus;
@@ -71,6 +73,7 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -132,8 +135,8 @@ public class ScheduledActivityServiceMockTest {
         
         service = new ScheduledActivityService();
         
-        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false))
-                .thenReturn(TestUtils.getSchedulePlans(TEST_APP_ID));
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID))
+                .thenReturn(SchedulePlanSnapshot.compile(TestUtils.getSchedulePlans(TEST_APP_ID)));
         
         Map<String,DateTime> map = ImmutableMap.of();
         when(activityEventService.getActivityEventMap(eq(TEST_APP_ID), anyString())).thenReturn(map);
@@ -157,6 +160,8 @@ public class ScheduledActivityServiceMockTest {
         service.setActivityEventService(activityEventService);
         service.setSurveyService(surveyService);
         service.setAppConfigService(appConfigService);
+        service.setGeneratedScheduleCache(new GeneratedScheduleCache(100, 60));
+        service.setReferenceResolutionCache(new ReferenceResolutionCache(100, 60));
     }
     
     @AfterMethod
@@ -192,6 +197,41 @@ public class ScheduledActivityServiceMockTest {
         verify(activityEventService).publishActivitiesRetrieved(eq(app), eq(HEALTH_CODE), any(DateTime.class));
     }
     
+    @Test
+    public void getScheduledActivitiesV4CachesGeneratedActivities() throws Exception {
+        List<SchedulePlan> plans = TestUtils.getSchedulePlans(TEST_APP_ID);
+        SchedulePlan spyPlan = spy(plans.get(0));
+        plans.set(0, spyPlan);
+        reset(schedulePlanService);
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID)).thenReturn(SchedulePlanSnapshot.compile(plans));
+        // Compiling the snapshot reads the strategy of each plan.
+        clearInvocations(spyPlan);
+        
+        ScheduleContext context = createScheduleContext(ENDS_ON).build();
+        List<ScheduledActivity> first = service.getScheduledActivitiesV4(app, context);
+        List<ScheduledActivity> second = service.getScheduledActivitiesV4(app, context);
+        
+        // The snapshot is retrieved each time, but the activities are only generated once.
+        verify(schedulePlanService, times(2)).getSchedulePlanSnapshot(TEST_APP_ID);
+        verify(spyPlan, times(1)).getStrategy();
+        assertEquals(toGuids(second), toGuids(first));
+        
+        // A new version of a plan generates the activities again.
+        spyPlan.setVersion(spyPlan.getVersion() == null ? 1L : spyPlan.getVersion() + 1L);
+        service.getScheduledActivitiesV4(app, context);
+        verify(spyPlan, times(2)).getStrategy();
+    }
+    
+    @Test
+    public void getScheduledActivitiesV4ReturnsCopiesOfCachedActivities() {
+        ScheduleContext context = createScheduleContext(ENDS_ON).build();
+        List<ScheduledActivity> first = service.getScheduledActivitiesV4(app, context);
+        first.get(0).setFinishedOn(NOW.getMillis());
+        
+        List<ScheduledActivity> second = service.getScheduledActivitiesV4(app, context);
+        assertNull(second.get(0).getFinishedOn());
+    }
+    
     @Test
     public void getScheduledActivitiesV4PublishesEvent() {
         ScheduleContext context = createScheduleContext(ENDS_ON).build();
@@ -426,7 +466,7 @@ public class ScheduledActivityServiceMockTest {
         SchedulePlan aaa = schedulePlan("AAA");
         SchedulePlan bbb = schedulePlan("BBB");
         
-        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(aaa,bbb));
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID)).thenReturn(SchedulePlanSnapshot.compile(Lists.newArrayList(aaa,bbb)));
         when(activityDao.getActivities(eq(TIME_ZONE), any())).thenReturn(createStartedActivities("BBB"+TIME_PORTION));
         
         List<ScheduledActivity> returnedActivities = service.getScheduledActivities(app, createScheduleContext(NOW).build());
@@ -442,11 +482,10 @@ public class ScheduledActivityServiceMockTest {
         SchedulePlan aaa = schedulePlan("AAA");
         SchedulePlan bbb = schedulePlan("BBB");
         
-        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(aaa,bbb));
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID)).thenReturn(SchedulePlanSnapshot.compile(Lists.newArrayList(aaa,bbb)));
         
-        ForwardCursorPagedResourceList<ScheduledActivity> list = new ForwardCursorPagedResourceList<>(createStartedActivities("BBB"+TIME_PORTION), null);
-        when(activityDao.getActivityHistoryV2(HEALTH_CODE, "BBB", NOW, NOW, null, API_MAXIMUM_PAGE_SIZE))
-                .thenReturn(list);        
+        when(activityDao.getPersistedActivities(eq(HEALTH_CODE), eq(NOW), eq(NOW), any()))
+                .thenReturn(createStartedActivities("BBB"+TIME_PORTION));
         
         List<ScheduledActivity> returnedActivities = service.getScheduledActivitiesV4(app, createScheduleContext(NOW).build());
         assertActivityGuids(returnedActivities, "AAA", "BBB");
@@ -460,7 +499,7 @@ public class ScheduledActivityServiceMockTest {
     public void persistedAndScheduledIncludedInResultsV3() {
         SchedulePlan ccc = schedulePlan("CCC");
         
-        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(ccc));
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID)).thenReturn(SchedulePlanSnapshot.compile(Lists.newArrayList(ccc)));
         when(activityDao.getActivities(eq(TIME_ZONE), any())).thenReturn(createStartedActivities("CCC"+TIME_PORTION));
         
         List<ScheduledActivity> returnedActivities = service.getScheduledActivities(app, createScheduleContext(NOW).build());
@@ -477,7 +516,7 @@ public class ScheduledActivityServiceMockTest {
         SchedulePlan aaa = schedulePlan("AAA");
         SchedulePlan bbb = schedulePlan("BBB");
         
-        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(aaa,bbb));
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID)).thenReturn(SchedulePlanSnapshot.compile(Lists.newArrayList(aaa,bbb)));
         when(activityDao.getActivities(eq(TIME_ZONE), any())).thenReturn(createExpiredActivities("AAA"+TIME_PORTION,"CCC"+TIME_PORTION));
         
         // Ask for activities in the past so they will be expired.
@@ -500,7 +539,7 @@ public class ScheduledActivityServiceMockTest {
         SchedulePlan bbb = schedulePlan("BBB");
         SchedulePlan ccc = schedulePlan("CCC");
         
-        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(aaa,bbb,ccc));
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID)).thenReturn(SchedulePlanSnapshot.compile(Lists.newArrayList(aaa,bbb,ccc)));
         when(activityDao.getActivities(eq(TIME_ZONE), any())).thenReturn(Lists.newArrayList(createFinishedActivities("AAA"+TIME_PORTION).get(0),
                 createStartedActivities("BBB"+TIME_PORTION).get(0)));
         
@@ -518,12 +557,11 @@ public class ScheduledActivityServiceMockTest {
         SchedulePlan bbb = schedulePlan("BBB");
         SchedulePlan ccc = schedulePlan("CCC");
         
-        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(aaa,bbb,ccc));
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID)).thenReturn(SchedulePlanSnapshot.compile(Lists.newArrayList(aaa,bbb,ccc)));
         
         List<ScheduledActivity> db = Lists.newArrayList(createExpiredActivities("AAA"+TIME_PORTION).get(0),
                 createFinishedActivities("BBB"+TIME_PORTION).get(0));
-        when(activityDao.getActivityHistoryV2(HEALTH_CODE, "BBB", NOW, NOW, null, API_MAXIMUM_PAGE_SIZE))
-                .thenReturn(new ForwardCursorPagedResourceList<>(db, null));
+        when(activityDao.getPersistedActivities(eq(HEALTH_CODE), eq(NOW), eq(NOW), any())).thenReturn(db);
         
         List<ScheduledActivity> returnedActivities = service.getScheduledActivitiesV4(app, createScheduleContext(NOW).build());
         assertActivityGuids(returnedActivities, "AAA", "BBB", "CCC");
@@ -539,7 +577,7 @@ public class ScheduledActivityServiceMockTest {
         SchedulePlan bbb = schedulePlan("BBB");
         SchedulePlan ccc = schedulePlan("CCC");
         
-        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(aaa,bbb,ccc));
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID)).thenReturn(SchedulePlanSnapshot.compile(Lists.newArrayList(aaa,bbb,ccc)));
         List<ScheduledActivity> db = Lists.newArrayList(createFinishedActivities("AAA"+TIME_PORTION).get(0),
                 createStartedActivities("BBB"+TIME_PORTION).get(0));
         when(activityDao.getActivities(eq(TIME_ZONE), any())).thenReturn(db);
@@ -562,11 +600,10 @@ public class ScheduledActivityServiceMockTest {
         SchedulePlan bbb = schedulePlan("BBB");
         SchedulePlan ccc = schedulePlan("CCC");
         
-        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(aaa,bbb,ccc));
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID)).thenReturn(SchedulePlanSnapshot.compile(Lists.newArrayList(aaa,bbb,ccc)));
         
         List<ScheduledActivity> db = createStartedActivities("AAA"+TIME_PORTION,"CCC"+TIME_PORTION);
-        when(activityDao.getActivityHistoryV2(HEALTH_CODE, "BBB", NOW, NOW, null, API_MAXIMUM_PAGE_SIZE))
-                .thenReturn(new ForwardCursorPagedResourceList<>(db, null));
+        when(activityDao.getPersistedActivities(eq(HEALTH_CODE), eq(NOW), eq(NOW), any())).thenReturn(db);
         
         List<ScheduledActivity> returnedActivities = service.getScheduledActivitiesV4(app, createScheduleContext(NOW).build());
         assertActivityGuids(returnedActivities, "AAA", "BBB", "CCC");
@@ -599,7 +636,7 @@ public class ScheduledActivityServiceMockTest {
         SchedulePlan ccc = schedulePlan(newActivity);
         
         // This is the schedule plan returned from the DB with the new Activity
-        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(ccc));
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID)).thenReturn(SchedulePlanSnapshot.compile(Lists.newArrayList(ccc)));
         
         // This is the persisted activity with the oldActivity
         Activity oldActivity = new Activity.Builder().withGuid("CCC")
@@ -627,7 +664,7 @@ public class ScheduledActivityServiceMockTest {
         SchedulePlan ccc = schedulePlan(newActivity);
         
         // This is the schedule plan returned from the DB with the new Activity
-        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(ccc));
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID)).thenReturn(SchedulePlanSnapshot.compile(Lists.newArrayList(ccc)));
         
         // This is the persisted activity with the oldActivity
         Activity oldActivity = new Activity.Builder().withGuid("CCC")
@@ -635,14 +672,13 @@ public class ScheduledActivityServiceMockTest {
         List<ScheduledActivity> db = createNewActivities("CCC"+TIME_PORTION);
         db.get(0).setActivity(oldActivity);
         
-        ForwardCursorPagedResourceList<ScheduledActivity> page = new ForwardCursorPagedResourceList<>(db, null);
-        when(activityDao.getActivityHistoryV2(any(), any(), any(), any(), any(), anyInt())).thenReturn(page);
+        when(activityDao.getPersistedActivities(any(), any(), any(), any())).thenReturn(db);
         
         List<ScheduledActivity> returnedActivities = service.getScheduledActivitiesV4(app, createScheduleContext(NOW).build());
         assertEquals(returnedActivities.size(), 1);
         assertEquals(returnedActivities.get(0).getActivity().getSurvey().getCreatedOn().getMillis(), 5678);
         
-        verify(activityDao).getActivityHistoryV2(any(), any(), any(), any(), any(), anyInt());
+        verify(activityDao).getPersistedActivities(any(), any(), any(), any());
     }
     
     @Test
@@ -657,7 +693,7 @@ public class ScheduledActivityServiceMockTest {
         SchedulePlan ccc = schedulePlan(newActivity);
         
         // This is the schedule plan returned from the DB with the new Activity
-        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(ccc));
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID)).thenReturn(SchedulePlanSnapshot.compile(Lists.newArrayList(ccc)));
         
         // This is the persisted activity with the oldActivity
         Activity oldActivity = new Activity.Builder().withGuid("CCC")
@@ -689,7 +725,7 @@ public class ScheduledActivityServiceMockTest {
         SchedulePlan ccc = schedulePlan(newActivity);
         
         // This is the schedule plan returned from the DB with the new Activity
-        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(ccc));
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID)).thenReturn(SchedulePlanSnapshot.compile(Lists.newArrayList(ccc)));
         
         // This is the persisted activity with the oldActivity
         Activity oldActivity = new Activity.Builder().withGuid("CCC")
@@ -700,15 +736,14 @@ public class ScheduledActivityServiceMockTest {
         }
         db.get(0).setActivity(oldActivity);
         
-        ForwardCursorPagedResourceList<ScheduledActivity> page = new ForwardCursorPagedResourceList<>(db, null);
-        when(activityDao.getActivityHistoryV2(any(), any(), any(), any(), any(), anyInt())).thenReturn(page);
+        when(activityDao.getPersistedActivities(any(), any(), any(), any())).thenReturn(db);
         
         List<ScheduledActivity> returnedActivities = service.getScheduledActivitiesV4(app, createScheduleContext(NOW).build());
         assertEquals(returnedActivities.size(), 1);
         assertEquals(returnedActivities.get(0).getActivity().getSurvey().getCreatedOn().getMillis(), 1234);
         assertNotNull(returnedActivities.get(0).getClientData());
         
-        verify(activityDao).getActivityHistoryV2(any(), any(), any(), any(), any(), anyInt());
+        verify(activityDao).getPersistedActivities(any(), any(), any(), any());
     }
     
     @Test
@@ -791,7 +826,7 @@ public class ScheduledActivityServiceMockTest {
         ((SimpleScheduleStrategy)plan.getStrategy()).setSchedule(schedule);
         
         reset(schedulePlanService);
-        when(schedulePlanService.getSchedulePlans(any(), any(), eq(false))).thenReturn(Lists.newArrayList(plan));
+        when(schedulePlanService.getSchedulePlanSnapshot(any())).thenReturn(SchedulePlanSnapshot.compile(Lists.newArrayList(plan)));
         
         // The time stamp is derived from the account creation timestamp because there are no events in the event
         // map. It's in the time zone that the scheduler is working in.
@@ -802,9 +837,7 @@ public class ScheduledActivityServiceMockTest {
         oneTimeActivity.setStartedOn(NOW.plusMinutes(5).getMillis());
         oneTimeActivity.setFinishedOn(NOW.plusMinutes(5).getMillis());
         
-        mockAllCallsForDbActivities(ImmutableList.of());
-        when(activityDao.getActivity(context.getStartsOn().getZone(), HEALTH_CODE, guid, false))
-                .thenReturn(oneTimeActivity);
+        mockAllCallsForDbActivities(ImmutableList.of(oneTimeActivity));
         
         List<ScheduledActivity> scheduledActivities = service.getScheduledActivitiesV4(app, context);
         assertEquals(scheduledActivities.size(), 1);
@@ -812,10 +845,10 @@ public class ScheduledActivityServiceMockTest {
         assertNotNull(scheduledActivities.get(0).getStartedOn());
         assertNotNull(scheduledActivities.get(0).getFinishedOn());
         
-        verify(activityDao, times(1)).getActivityHistoryV2(HEALTH_CODE, "guidForCCC", context.getStartsOn(), context.getEndsOn(),
-                null, BridgeConstants.API_MAXIMUM_PAGE_SIZE);
-        // Retrieve any remaining scheduled activity from the DB to ensure state is maintained. 
-        verify(activityDao, times(1)).getActivity(context.getStartsOn().getZone(), HEALTH_CODE, guid, false);
+        // The scheduled activity is passed to the DAO, which retrieves it from the DB to ensure state is maintained.
+        verify(activityDao, times(1)).getPersistedActivities(eq(HEALTH_CODE), eq(context.getStartsOn()),
+                eq(context.getEndsOn()), scheduledActivityListCaptor.capture());
+        assertEquals(toGuids(scheduledActivityListCaptor.getValue()), ImmutableSet.of(guid));
         
         verify(activityDao).saveActivities(scheduledActivityListCaptor.capture());
         
@@ -966,7 +999,7 @@ public class ScheduledActivityServiceMockTest {
         
         SchedulePlan voiceActivityPlan = BridgeObjectMapper.get().readValue(json, SchedulePlan.class);
         List<SchedulePlan> schedulePlans = Lists.newArrayList(voiceActivityPlan);
-        when(schedulePlanService.getSchedulePlans(info, TEST_APP_ID, false)).thenReturn(schedulePlans);
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID)).thenReturn(SchedulePlanSnapshot.compile(schedulePlans));
         
         ScheduleContext context = new ScheduleContext.Builder()
             .withClientInfo(info)
@@ -1026,7 +1059,7 @@ public class ScheduledActivityServiceMockTest {
         DynamoSchedulePlan plan2 = new DynamoSchedulePlan();
         plan2.setStrategy(strategy);
         
-        doReturn(Lists.newArrayList(plan1, plan2)).when(schedulePlanService).getSchedulePlans(any(), any(), eq(false));
+        doReturn(SchedulePlanSnapshot.compile(Lists.newArrayList(plan1, plan2))).when(schedulePlanService).getSchedulePlanSnapshot(any());
         
         List<ScheduledActivity> schActivities = service.getScheduledActivities(app, context);
         
@@ -1155,8 +1188,8 @@ public class ScheduledActivityServiceMockTest {
         List<ScheduledActivity> activities = service.getScheduledActivitiesV4(app, context);
         assertTrue(activities.size() > 0);
         
-        verify(activityDao, times(1)).getActivityHistoryV2(HEALTH_CODE, "AAA", context.getStartsOn(), context.getEndsOn(),
-                null, BridgeConstants.API_MAXIMUM_PAGE_SIZE);
+        verify(activityDao, times(1)).getPersistedActivities(eq(HEALTH_CODE), eq(context.getStartsOn()),
+                eq(context.getEndsOn()), any());
         
         verify(activityDao).saveActivities(scheduledActivityListCaptor.capture());
         List<ScheduledActivity> activitiesOnSave = scheduledActivityListCaptor.getValue();
@@ -1183,8 +1216,8 @@ public class ScheduledActivityServiceMockTest {
         SchedulePlan plan2 = BridgeObjectMapper.get().readValue(json2, SchedulePlan.class);
         schedulePlans.add(plan2);
         reset(schedulePlanService);
-        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false))
-            .thenReturn(schedulePlans);        
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID))
+            .thenReturn(SchedulePlanSnapshot.compile(schedulePlans));        
         
         ScheduleContext context = createScheduleContext(ENDS_ON).build();
         List<ScheduledActivity> activities = service.getScheduledActivitiesV4(app, context);
@@ -1282,32 +1315,18 @@ public class ScheduledActivityServiceMockTest {
         dbActivity.setLocalScheduledOn(LocalDateTime.parse("2017-02-23T13:00:00.000"));
         // This is the critical line. Without this, the service fails. Also tested in DAO code.
         dbActivity.setTimeZone(context.getStartsOn().getZone());
-        when(mockedActivityDao.getActivity(context.getStartsOn().getZone(), HEALTH_CODE, "AAA:2017-02-23T13:00:00.000", false)).thenReturn(dbActivity);
+        when(mockedActivityDao.getPersistedActivities(eq(HEALTH_CODE), eq(context.getStartsOn()),
+                eq(context.getEndsOn()), any())).thenReturn(ImmutableList.of(dbActivity));
         
         service.getScheduledActivitiesV4(app, context);
-        verify(mockedActivityDao).getActivity(context.getStartsOn().getZone(), HEALTH_CODE, "AAA:2017-02-23T13:00:00.000", false);
+        verify(mockedActivityDao).getPersistedActivities(eq(HEALTH_CODE), eq(context.getStartsOn()),
+                eq(context.getEndsOn()), any());
     }
     
     private void mockAllCallsForDbActivities(List<ScheduledActivity> dbActivities) {
         reset(activityDao);
-        Map<String,List<ScheduledActivity>> map = Maps.newHashMap();
-        for (ScheduledActivity oneActivity : dbActivities) {
-            String guid = oneActivity.getGuid().split(":")[0];
-            if (!map.containsKey(guid)) {
-                map.put(guid, Lists.newArrayList());
-            }
-            map.get(guid).add(oneActivity);
-        }
-        for (String guid : map.keySet()) {
-            mockGetActivitiesV2(guid, map.get(guid));
-        }
-    }
-    
-    private void mockGetActivitiesV2(String activityGuid, List<ScheduledActivity> activities) {
-        ForwardCursorPagedResourceList<ScheduledActivity> list = new ForwardCursorPagedResourceList<>(activities, null);
-
-        when(activityDao.getActivityHistoryV2(eq(HEALTH_CODE), eq(activityGuid), any(), any(), 
-                eq(null), eq(BridgeConstants.API_MAXIMUM_PAGE_SIZE))).thenReturn(list);
+        when(activityDao.getPersistedActivities(eq(HEALTH_CODE), any(), any(), any()))
+                .thenReturn(ImmutableList.copyOf(dbActivities));
     }
     
     private String firstTimeStampFor(int initialTZOffset, int requestTZOffset, Schedule schedule) {
@@ -1329,7 +1348,7 @@ public class ScheduledActivityServiceMockTest {
         SimpleScheduleStrategy strategy = new SimpleScheduleStrategy();
         strategy.setSchedule(schedule);
         plan.setStrategy(strategy);
-        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(plan));
+        when(schedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID)).thenReturn(SchedulePlanSnapshot.compile(Lists.newArrayList(plan)));
         
         ScheduleContext context = new ScheduleContext.Builder()
                 .withAppId(TEST_APP_ID)
@@ -1343,7 +1362,7 @@ public class ScheduledActivityServiceMockTest {
         List<ScheduledActivity> activities = service.getScheduledActivities(app, context);
         
         verify(activityEventService).getActivityEventMap(TEST_APP_ID, "healthCode");
-        verify(schedulePlanService).getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false);
+        verify(schedulePlanService).getSchedulePlanSnapshot(TEST_APP_ID);
         
         return activities.get(0).getScheduledOn().toString();
     }
@@ -23,6 +23,7 @@ import org.joda.time.DateTime;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.cache.ReferenceResolutionCache;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.models.ClientInfo;
 import org.sagebionetworks.bridge.models.appconfig.AppConfig;
@@ -33,6 +34,7 @@ import org.sagebionetworks.bridge.models.schedules.CompoundActivityDefinition;
 import org.sagebionetworks.bridge.models.schedules.Schedule;
 import org.sagebionetworks.bridge.models.schedules.ScheduleContext;
 import org.sagebionetworks.bridge.models.schedules.SchedulePlan;
+import org.sagebionetworks.bridge.models.schedules.SchedulePlanSnapshot;
 import org.sagebionetworks.bridge.models.schedules.ScheduledActivity;
 import org.sagebionetworks.bridge.models.schedules.SchemaReference;
 import org.sagebionetworks.bridge.models.schedules.SimpleScheduleStrategy;
@@ -112,6 +114,7 @@ public class ScheduledActivityServiceResolveLinksTest {
         scheduledActivityService.setSchemaService(mockSchemaService);
         scheduledActivityService.setSurveyService(mockSurveyService);
         scheduledActivityService.setAppConfigService(appConfigService);
+        scheduledActivityService.setReferenceResolutionCache(new ReferenceResolutionCache(100, 60));
     }
 
     private void setupSchedulePlanServiceWithActivity(Activity activity) {
@@ -154,8 +157,8 @@ public class ScheduledActivityServiceResolveLinksTest {
         plan.setStrategy(strategy);
 
         // And the schedule plan service returns the schedule plan.
-        when(mockSchedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false))
-                .thenReturn(ImmutableList.of(plan));
+        when(mockSchedulePlanService.getSchedulePlanSnapshot(TEST_APP_ID))
+                .thenReturn(SchedulePlanSnapshot.compile(ImmutableList.of(plan)));
     }
 
     @Test
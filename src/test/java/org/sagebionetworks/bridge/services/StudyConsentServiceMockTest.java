@@ -12,6 +12,7 @@ import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 import org.apache.commons.io.IOUtils;
 import org.joda.time.DateTime;
@@ -28,6 +29,7 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.cache.ConsentTemplateCache;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.StudyConsentDao;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
@@ -86,6 +88,7 @@ public class StudyConsentServiceMockTest extends Mockito {
         StudyConsentValidator validator = new StudyConsentValidator();
         validator.setConsentBodyTemplate(new ByteArrayResource("<p>This is the template</p>".getBytes()));
         service.setValidator(validator);
+        service.setConsentTemplateCache(new ConsentTemplateCache(100, 60));
     }
     
     @AfterMethod
@@ -267,6 +270,50 @@ public class StudyConsentServiceMockTest extends Mockito {
         service.publishConsent(app, subpop, CREATED_ON);
     }
 
+    @Test
+    public void getActiveConsentTemplateCompilesOnce() throws Exception {
+        Subpopulation subpop = mockActiveConsent();
+        
+        ConsentTemplate template = service.getActiveConsentTemplate(subpop);
+        assertSame(service.getActiveConsentTemplate(subpop), template);
+        assertEquals(template.resolve(ImmutableMap.of("participant.name", "Name")),
+                "<doc>" + DOCUMENT + SIGNATURE_BLOCK.replace("${participant.name}", "Name") + "</doc>");
+        
+        verify(mockS3Helper, times(1)).readS3FileAsString(any(), any());
+    }
+    
+    @Test
+    public void publishConsentCompilesTemplate() throws Exception {
+        Subpopulation subpop = mockActiveConsent();
+        
+        service.publishConsent(App.create(), subpop, CREATED_ON);
+        service.getActiveConsentTemplate(subpop);
+        
+        // The document was only read to publish it.
+        verify(mockS3Helper, times(1)).readS3FileAsString(any(), any());
+    }
+    
+    @Test
+    public void deleteAllDropsCompiledTemplates() throws Exception {
+        Subpopulation subpop = mockActiveConsent();
+        when(mockDao.getConsents(SUBPOP_GUID)).thenReturn(ImmutableList.of());
+        
+        service.getActiveConsentTemplate(subpop);
+        service.deleteAllConsentsPermanently(SUBPOP_GUID);
+        service.getActiveConsentTemplate(subpop);
+        
+        verify(mockS3Helper, times(2)).readS3FileAsString(any(), any());
+    }
+    
+    @Test(expectedExceptions = EntityNotFoundException.class)
+    public void getActiveConsentTemplateNotFound() {
+        Subpopulation subpop = Subpopulation.create();
+        subpop.setGuid(SUBPOP_GUID);
+        subpop.setPublishedConsentCreatedOn(CREATED_ON);
+        
+        service.getActiveConsentTemplate(subpop);
+    }
+    
     @Test
     public void deleteAll() {
         // Mock dao. We only care about the storage path.
@@ -333,6 +380,20 @@ public class StudyConsentServiceMockTest extends Mockito {
         service.publishConsent(app, subpop, CREATED_ON);
     }
     
+    private Subpopulation mockActiveConsent() throws Exception {
+        StudyConsent consent = StudyConsent.create();
+        consent.setCreatedOn(CREATED_ON);
+        consent.setSubpopulationGuid(SUBPOP_GUID.getGuid());
+        when(mockDao.getConsent(SUBPOP_GUID, CREATED_ON)).thenReturn(consent);
+        when(mockS3Helper.readS3FileAsString(CONSENT_BUCKET, consent.getStoragePath())).thenReturn(DOCUMENT);
+        service.setConsentTemplate(new ByteArrayResource("<doc>${consent.body}</doc>".getBytes()));
+        
+        Subpopulation subpop = Subpopulation.create();
+        subpop.setGuid(SUBPOP_GUID);
+        subpop.setPublishedConsentCreatedOn(CREATED_ON);
+        return subpop;
+    }
+    
     @Test
     public void invalidMarkupIsFixed() {
         StudyConsent consent = StudyConsent.create();
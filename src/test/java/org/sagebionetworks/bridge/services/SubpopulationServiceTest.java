@@ -14,6 +14,8 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -31,6 +33,7 @@ import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.TestUtils;
 import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.NearCache;
 import org.sagebionetworks.bridge.dao.StudyConsentDao;
 import org.sagebionetworks.bridge.dao.SubpopulationDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoApp;
@@ -41,6 +44,7 @@ import org.sagebionetworks.bridge.exceptions.InvalidEntityException;
 import org.sagebionetworks.bridge.models.ClientInfo;
 import org.sagebionetworks.bridge.models.Criteria;
 import org.sagebionetworks.bridge.models.CriteriaContext;
+import org.sagebionetworks.bridge.models.CriteriaMatcher;
 import org.sagebionetworks.bridge.models.OperatingSystem;
 import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.subpopulations.StudyConsent;
@@ -49,10 +53,14 @@ import org.sagebionetworks.bridge.models.subpopulations.StudyConsentView;
 import org.sagebionetworks.bridge.models.subpopulations.Subpopulation;
 import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
 public class SubpopulationServiceTest {
     
     private static final String SUBPOP_1 = "Subpop 1";
@@ -94,6 +102,14 @@ public class SubpopulationServiceTest {
     @Mock
     CacheProvider cacheProvider;
     
+    @Mock
+    JedisPool jedisPool;
+    
+    @Mock
+    Jedis jedis;
+    
+    NearCache nearCache;
+    
     Subpopulation subpop;
     
     @BeforeMethod
@@ -108,6 +124,12 @@ public class SubpopulationServiceTest {
         service.setStudyService(studyService);
         service.setCacheProvider(cacheProvider);
         
+        // The matcher is held in a real near cache. Invalidations are published to the mock pool.
+        when(jedisPool.getResource()).thenReturn(jedis);
+        nearCache = new NearCache(100, 60);
+        nearCache.setJedisPool(jedisPool);
+        service.setNearCache(nearCache);
+        
         subpop = Subpopulation.create();
         subpop.setGuidString(BridgeUtils.generateGuid());
         
@@ -364,6 +386,37 @@ public class SubpopulationServiceTest {
         assertEquals(Sets.newHashSet(results), ImmutableSet.of(subpop1, subpop2, subpop3, subpop4));
     }
     
+    @Test
+    public void getSubpopulationsForUserReusesMatcher() {
+        Subpopulation subpop1 = createSubpop(SUBPOP_1, null, null, null);
+        when(subpopDao.getSubpopulations(TEST_APP_ID, true, false)).thenReturn(ImmutableList.of(subpop1));
+        
+        CriteriaMatcher<Subpopulation> matcher = service.getSubpopulationMatcher(TEST_APP_ID);
+        assertEquals(service.getSubpopulationsForUser(criteriaContext(12, null)), ImmutableList.of(subpop1));
+        assertEquals(service.getSubpopulationsForUser(criteriaContext(4, "group1")), ImmutableList.of(subpop1));
+        
+        // The list is loaded and compiled once.
+        assertSame(service.getSubpopulationMatcher(TEST_APP_ID), matcher);
+        verify(cacheProvider).getObject(eq(CacheKey.subpopList(TEST_APP_ID)), any(TypeReference.class));
+        verify(subpopDao).getSubpopulations(TEST_APP_ID, true, false);
+    }
+    
+    @Test
+    public void getSubpopulationsForUserMatchesChangedList() {
+        Subpopulation subpop1 = createSubpop(SUBPOP_1, null, null, "group1");
+        Subpopulation subpop2 = createSubpop(SUBPOP_2, null, null, null);
+        when(subpopDao.getSubpopulations(TEST_APP_ID, true, false)).thenReturn(ImmutableList.of(subpop1, subpop2),
+                ImmutableList.of(subpop1));
+        
+        CriteriaMatcher<Subpopulation> matcher = service.getSubpopulationMatcher(TEST_APP_ID);
+        assertEquals(service.getSubpopulationsForUser(criteriaContext(12, null)), ImmutableList.of(subpop2));
+        
+        // Deleting a subpopulation drops the matcher, and the new list is compiled.
+        service.deleteSubpopulation(TEST_APP_ID, subpop2.getGuid());
+        assertNotSame(service.getSubpopulationMatcher(TEST_APP_ID), matcher);
+        assertEquals(service.getSubpopulationsForUser(criteriaContext(12, null)), ImmutableList.of());
+    }
+    
     @Test
     public void getSubpopulationsForUserReturnsSubpopulations() {
         Subpopulation subpop1 = createSubpop(SUBPOP_1, null, null, null);
@@ -35,6 +35,8 @@ import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.ReferenceResolutionCache;
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache;
 import org.sagebionetworks.bridge.dao.SurveyDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoSchedulePlan;
 import org.sagebionetworks.bridge.dynamodb.DynamoSurvey;
@@ -90,6 +92,12 @@ public class SurveyServiceMockTest {
     @Mock
     AppService mockAppService;
     
+    @Mock
+    ReferenceResolutionCache mockReferenceResolutionCache;
+    
+    @Mock
+    UploadDefinitionCache mockUploadDefinitionCache;
+    
     @Captor
     ArgumentCaptor<GuidCreatedOnVersionHolder> keysCaptor;
     
@@ -122,6 +130,8 @@ public class SurveyServiceMockTest {
         service.setSchedulePlanService(mockSchedulePlanService);
         service.setSharedModuleMetadataService(mockSharedModuleMetadataService);
         service.setPublishValidator(mockSurveyPublishValidator);
+        service.setReferenceResolutionCache(mockReferenceResolutionCache);
+        service.setUploadDefinitionCache(mockUploadDefinitionCache);
     }
 
     @Test
@@ -261,6 +271,8 @@ public class SurveyServiceMockTest {
         // execute and validate
         Survey retval = service.publishSurvey(TEST_APP_ID, SURVEY_KEYS, true);
         assertSame(retval, survey);
+        verify(mockReferenceResolutionCache).invalidateSurvey(TEST_APP_ID, SURVEY_GUID);
+        verify(mockUploadDefinitionCache).invalidateSurvey(TEST_APP_ID, SURVEY_GUID);
     }
     
     @Test(expectedExceptions = EntityNotFoundException.class)
@@ -306,6 +318,8 @@ public class SurveyServiceMockTest {
         
         verify(mockSurveyDao).deleteSurvey(surveyCaptor.capture());
         assertEquals(surveyCaptor.getValue(), survey);
+        verify(mockReferenceResolutionCache).invalidateSurvey(TEST_APP_ID, survey.getGuid());
+        verify(mockUploadDefinitionCache).invalidateSurvey(TEST_APP_ID, survey.getGuid());
     }
     
     @Test
@@ -334,6 +348,8 @@ public class SurveyServiceMockTest {
         
         verify(mockSurveyDao).deleteSurveyPermanently(eq(TEST_APP_ID), keysCaptor.capture());
         assertEquals(keysCaptor.getValue(), survey);
+        verify(mockReferenceResolutionCache).invalidateSurvey(TEST_APP_ID, survey.getGuid());
+        verify(mockUploadDefinitionCache).invalidateSurvey(TEST_APP_ID, survey.getGuid());
     }
 
     @Test(expectedExceptions = BadRequestException.class)
@@ -625,6 +641,8 @@ public class SurveyServiceMockTest {
         
         verify(mockSurveyDao).updateSurvey(eq(TEST_APP_ID), surveyCaptor.capture());
         assertFalse(surveyCaptor.getValue().isDeleted());
+        verify(mockReferenceResolutionCache).invalidateSurvey(TEST_APP_ID, SURVEY_GUID);
+        verify(mockUploadDefinitionCache).invalidateSurvey(TEST_APP_ID, SURVEY_GUID);
     }
     
     @Test
@@ -29,7 +29,9 @@ import static org.testng.Assert.assertTrue;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -107,9 +109,22 @@ public class TemplateServiceTest extends Mockito {
     
     App app;
     
+    Map<String, Criteria> savedCriteria;
+    
     @BeforeMethod
     public void beforeMethod() throws Exception {
         MockitoAnnotations.initMocks(this);
+        savedCriteria = new HashMap<>();
+        when(mockCriteriaDao.getCriteria(eq(TEST_APP_ID), anySet())).thenAnswer(invocation -> {
+            Set<String> keys = invocation.getArgument(1);
+            Map<String, Criteria> results = new HashMap<>();
+            for (String key : keys) {
+                if (savedCriteria.containsKey(key)) {
+                    results.put(key, savedCriteria.get(key));
+                }
+            }
+            return results;
+        });
         service.setDefaultEmailVerificationTemplate(res(EMAIL_VERIFY_EMAIL));
         service.setDefaultEmailVerificationTemplateSubject(res(EMAIL_VERIFY_EMAIL));
         service.setDefaultPasswordTemplate(res(EMAIL_RESET_PASSWORD));
@@ -158,7 +173,8 @@ public class TemplateServiceTest extends Mockito {
         criteria.setNoneOfGroups(ImmutableSet.of());
         criteria.setAllOfStudyIds(ImmutableSet.of());
         criteria.setNoneOfStudyIds(ImmutableSet.of());
-        when(mockCriteriaDao.getCriteria("template:"+guid)).thenReturn(criteria);
+        when(mockCriteriaDao.getCriteria(TEST_APP_ID, "template:"+guid)).thenReturn(criteria);
+        savedCriteria.put("template:"+guid, criteria);
         return criteria;
     }
     
@@ -285,7 +301,8 @@ public class TemplateServiceTest extends Mockito {
         doReturn(resourceList).when(mockTemplateDao).getTemplates(TEST_APP_ID, EMAIL_RESET_PASSWORD, 5, 50, true);
         
         Criteria criteria = Criteria.create();
-        when(mockCriteriaDao.getCriteria(any())).thenReturn(criteria);
+        savedCriteria.put("template:guidOne", criteria);
+        savedCriteria.put("template:guidTwo", criteria);
         
         PagedResourceList<? extends Template> results = service.getTemplatesForType(TEST_APP_ID, EMAIL_RESET_PASSWORD, 5, 50, true);
         assertSame(results, resourceList);
@@ -294,8 +311,7 @@ public class TemplateServiceTest extends Mockito {
             assertNotNull(template.getCriteria());
         }
         verify(mockTemplateDao).getTemplates(TEST_APP_ID, EMAIL_RESET_PASSWORD, 5, 50, true);
-        verify(mockCriteriaDao).getCriteria("template:guidOne");
-        verify(mockCriteriaDao).getCriteria("template:guidTwo");
+        verify(mockCriteriaDao).getCriteria(TEST_APP_ID, ImmutableSet.of("template:guidOne", "template:guidTwo"));
     }
     
     @Test
@@ -356,7 +372,7 @@ public class TemplateServiceTest extends Mockito {
     public void getTemplate() {
         Criteria criteria = Criteria.create();
         criteria.setKey("template:"+GUID1); // this is persisted as part of criteria, not set on load
-        when(mockCriteriaDao.getCriteria("template:"+GUID1)).thenReturn(criteria);
+        when(mockCriteriaDao.getCriteria(TEST_APP_ID, "template:"+GUID1)).thenReturn(criteria);
 
         Template template = Template.create();
         template.setGuid(GUID1);
@@ -384,8 +400,8 @@ public class TemplateServiceTest extends Mockito {
     @Test
     public void createTemplate() {
         doAnswer(answer -> {
-            return answer.getArgument(0);
-        }).when(mockCriteriaDao).createOrUpdateCriteria(any());
+            return answer.getArgument(1);
+        }).when(mockCriteriaDao).createOrUpdateCriteria(any(), any());
         doAnswer(answer -> {
             Template captured = answer.getArgument(0);
             captured.setVersion(10);
@@ -416,7 +432,7 @@ public class TemplateServiceTest extends Mockito {
         assertEquals(template.getPublishedCreatedOn(), TIMESTAMP);
         
         verify(mockTemplateRevisionDao).createTemplateRevision(revisionCaptor.capture());
-        verify(mockCriteriaDao).createOrUpdateCriteria(criteria);
+        verify(mockCriteriaDao).createOrUpdateCriteria(TEST_APP_ID, criteria);
         verify(mockTemplateDao).createTemplate(eq(template), any());
         
         TemplateRevision revision = revisionCaptor.getValue();
@@ -438,7 +454,7 @@ public class TemplateServiceTest extends Mockito {
         
         service.createTemplate(app, template);
         
-        verify(mockCriteriaDao).createOrUpdateCriteria(any(Criteria.class));
+        verify(mockCriteriaDao).createOrUpdateCriteria(eq(TEST_APP_ID), any(Criteria.class));
     }
     
     @Test(expectedExceptions = InvalidEntityException.class)
@@ -485,7 +501,7 @@ public class TemplateServiceTest extends Mockito {
         assertEquals(template.getModifiedOn(), TIMESTAMP);
         assertEquals(template.getCriteria().getKey(), "template:"+GUID1);
         
-        verify(mockCriteriaDao).createOrUpdateCriteria(criteria);
+        verify(mockCriteriaDao).createOrUpdateCriteria(TEST_APP_ID, criteria);
         verify(mockTemplateDao).updateTemplate(template);
     }
     
@@ -513,7 +529,7 @@ public class TemplateServiceTest extends Mockito {
         
         service.updateTemplate(TEST_APP_ID, template);
         
-        verify(mockCriteriaDao).createOrUpdateCriteria(template.getCriteria());
+        verify(mockCriteriaDao).createOrUpdateCriteria(TEST_APP_ID, template.getCriteria());
         verify(mockTemplateDao).updateTemplate(template);        
     }
     
@@ -586,7 +602,7 @@ public class TemplateServiceTest extends Mockito {
 
         service.deleteTemplatePermanently(TEST_APP_ID, GUID1);
 
-        verify(mockCriteriaDao).deleteCriteria("template:"+GUID1);
+        verify(mockCriteriaDao).deleteCriteria(TEST_APP_ID, "template:"+GUID1);
         verify(mockTemplateDao).deleteTemplatePermanently(TEST_APP_ID, GUID1);
     }
     
@@ -15,6 +15,8 @@ import org.mockito.ArgumentCaptor;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.cache.ReferenceResolutionCache;
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache;
 import org.sagebionetworks.bridge.dao.UploadSchemaDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.models.surveys.DataType;
@@ -45,6 +47,8 @@ public class UploadSchemaServiceFromSurveyTest {
         dao = mock(UploadSchemaDao.class);
         svc = new UploadSchemaService();
         svc.setUploadSchemaDao(dao);
+        svc.setReferenceResolutionCache(mock(ReferenceResolutionCache.class));
+        svc.setUploadDefinitionCache(mock(UploadDefinitionCache.class));
     }
 
     @Test
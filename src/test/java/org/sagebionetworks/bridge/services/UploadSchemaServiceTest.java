@@ -6,6 +6,7 @@ import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
@@ -29,6 +30,8 @@ import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.cache.ReferenceResolutionCache;
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache;
 import org.sagebionetworks.bridge.dao.UploadSchemaDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
@@ -53,6 +56,8 @@ public class UploadSchemaServiceTest {
     private UploadSchemaDao dao;
     private UploadSchemaService svc;
     private SharedModuleMetadataService mockSharedModuleMetadataService;
+    private ReferenceResolutionCache mockReferenceResolutionCache;
+    private UploadDefinitionCache mockUploadDefinitionCache;
 
     @Captor
     ArgumentCaptor<String> queryCaptor;
@@ -67,9 +72,13 @@ public class UploadSchemaServiceTest {
         svcInputSchema = makeSimpleSchema();
         dao = mock(UploadSchemaDao.class);
         mockSharedModuleMetadataService = mock(SharedModuleMetadataService.class);
+        mockReferenceResolutionCache = mock(ReferenceResolutionCache.class);
+        mockUploadDefinitionCache = mock(UploadDefinitionCache.class);
         svc = new UploadSchemaService();
         svc.setUploadSchemaDao(dao);
         svc.setSharedModuleMetadataService(mockSharedModuleMetadataService);
+        svc.setReferenceResolutionCache(mockReferenceResolutionCache);
+        svc.setUploadDefinitionCache(mockUploadDefinitionCache);
     }
 
     @Test(expectedExceptions = BadRequestException.class)
@@ -113,6 +122,10 @@ public class UploadSchemaServiceTest {
 
         // old schema rev 1, create with rev 3
         createV4TestHelper(3, 3, 1);
+
+        // Resolved references to the schema are dropped each time.
+        verify(mockReferenceResolutionCache, times(4)).invalidateSchema(TEST_APP_ID, SCHEMA_ID);
+        verify(mockUploadDefinitionCache, times(4)).invalidateSchema(TEST_APP_ID, SCHEMA_ID);
     }
 
     private void createV4TestHelper(int expectedRev, int inputRev, Integer oldRev) {
@@ -294,6 +307,8 @@ public class UploadSchemaServiceTest {
         // execute and verify delete call
         svc.deleteUploadSchemaById(TEST_APP_ID, SCHEMA_ID);
         verify(dao).deleteUploadSchemas(schemaListToDelete);
+        verify(mockReferenceResolutionCache).invalidateSchema(TEST_APP_ID, SCHEMA_ID);
+        verify(mockUploadDefinitionCache).invalidateSchema(TEST_APP_ID, SCHEMA_ID);
 
         // verify query args
         verify(mockSharedModuleMetadataService).queryAllMetadata(eq(false), eq(false), queryCaptor.capture(),
@@ -315,6 +330,8 @@ public class UploadSchemaServiceTest {
         // execute and verify delete call
         svc.deleteUploadSchemaByIdPermanently(TEST_APP_ID, SCHEMA_ID);
         verify(dao).deleteUploadSchemasPermanently(schemaListToDelete);
+        verify(mockReferenceResolutionCache).invalidateSchema(TEST_APP_ID, SCHEMA_ID);
+        verify(mockUploadDefinitionCache).invalidateSchema(TEST_APP_ID, SCHEMA_ID);
 
         // verify query args
         verify(mockSharedModuleMetadataService).queryAllMetadata(eq(false), eq(false), queryCaptor.capture(),
@@ -438,6 +455,8 @@ public class UploadSchemaServiceTest {
         // execute and verify delete call
         svc.deleteUploadSchemaByIdAndRevision(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
         verify(dao).deleteUploadSchemas(ImmutableList.of(schemaToDelete));
+        verify(mockReferenceResolutionCache).invalidateSchema(TEST_APP_ID, SCHEMA_ID);
+        verify(mockUploadDefinitionCache).invalidateSchema(TEST_APP_ID, SCHEMA_ID);
 
         // verify query args
         verify(mockSharedModuleMetadataService).queryAllMetadata(eq(false), eq(false), queryCaptor.capture(),
@@ -459,6 +478,8 @@ public class UploadSchemaServiceTest {
         // execute and verify delete call
         svc.deleteUploadSchemaByIdAndRevisionPermanently(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
         verify(dao).deleteUploadSchemasPermanently(ImmutableList.of(schemaToDelete));
+        verify(mockReferenceResolutionCache).invalidateSchema(TEST_APP_ID, SCHEMA_ID);
+        verify(mockUploadDefinitionCache).invalidateSchema(TEST_APP_ID, SCHEMA_ID);
 
         // verify query args
         verify(mockSharedModuleMetadataService).queryAllMetadata(eq(false), eq(false), queryCaptor.capture(),
@@ -981,6 +1002,8 @@ public class UploadSchemaServiceTest {
 
         // Validate DAO input is also svcOutput.
         assertSame(svcOutputSchema, daoOutputSchema);
+        verify(mockReferenceResolutionCache).invalidateSchema(TEST_APP_ID, SCHEMA_ID);
+        verify(mockUploadDefinitionCache).invalidateSchema(TEST_APP_ID, SCHEMA_ID);
     }
 
     private static UploadSchema makeSimpleSchema() {
@@ -3,6 +3,7 @@ package org.sagebionetworks.bridge.services;
 import static com.amazonaws.services.s3.Headers.SERVER_SIDE_ENCRYPTION;
 import static com.amazonaws.services.s3.model.ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
@@ -22,11 +23,14 @@ import static org.sagebionetworks.bridge.models.upload.UploadStatus.VALIDATION_I
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.net.URL;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import com.amazonaws.HttpMethod;
 import com.amazonaws.auth.BasicSessionCredentials;
@@ -64,6 +68,7 @@ import org.sagebionetworks.bridge.models.upload.UploadSession;
 import org.sagebionetworks.bridge.models.upload.UploadStatus;
 import org.sagebionetworks.bridge.models.upload.UploadValidationStatus;
 import org.sagebionetworks.bridge.models.upload.UploadView;
+import org.sagebionetworks.bridge.upload.UploadCompletionNotifier;
 import org.sagebionetworks.bridge.validators.UploadValidator;
 
 @SuppressWarnings("ConstantConditions")
@@ -115,6 +120,9 @@ public class UploadServiceMockTest {
     @Mock
     BridgeConfig mockConfig;
     
+    @Mock
+    UploadCompletionNotifier mockUploadCompletionNotifier;
+    
     @Captor
     ArgumentCaptor<GeneratePresignedUrlRequest> requestCaptor;
     
@@ -131,6 +139,8 @@ public class UploadServiceMockTest {
         
         when(mockConfig.getProperty(UploadService.CONFIG_KEY_UPLOAD_BUCKET)).thenReturn(UPLOAD_BUCKET_NAME);
         svc.setConfig(mockConfig);
+        svc.setUploadCompletionNotifier(mockUploadCompletionNotifier);
+        when(mockUploadCompletionNotifier.awaitCompletion(any(), anyLong())).thenReturn(new CompletableFuture<>());
     }
     
     @AfterMethod
@@ -536,7 +546,7 @@ public class UploadServiceMockTest {
         when(mockUploadDao.getUpload(ORIGINAL_UPLOAD_ID)).thenReturn(upload);
         when(mockHealthDataService.getRecordById(RECORD_ID)).thenReturn(mockRecord);
         
-        UploadValidationStatus result = svc.pollUploadValidationStatusUntilComplete(ORIGINAL_UPLOAD_ID);
+        UploadValidationStatus result = svc.getUploadValidationStatusWhenComplete(ORIGINAL_UPLOAD_ID).get();
         assertEquals(result.getId(), upload.getUploadId());
         assertEquals(result.getRecord(), mockRecord);
         assertEquals(result.getStatus(), SUCCEEDED);
@@ -544,8 +554,7 @@ public class UploadServiceMockTest {
         assertEquals(result.getMessageList().get(0), "One validation error");
     }
     
-    @Test(expectedExceptions = BridgeServiceException.class, 
-            expectedExceptionsMessageRegExp = "Timeout polling validation status for upload anOriginalUploadId")
+    @Test
     public void pollUploadValidationStatusInProgress() throws Exception {
         UploadRequest uploadRequest = constructUploadRequest();
         DynamoUpload2 upload = new DynamoUpload2(uploadRequest, HEALTH_CODE);
@@ -557,8 +566,15 @@ public class UploadServiceMockTest {
         when(mockUploadDao.getUpload(ORIGINAL_UPLOAD_ID)).thenReturn(upload);
         when(mockHealthDataService.getRecordById(RECORD_ID)).thenReturn(mockRecord);
         
-        svc.setPollValidationStatusSleepMillis(10); // speed this up
-        svc.pollUploadValidationStatusUntilComplete(ORIGINAL_UPLOAD_ID);
+        svc.setValidationStatusTimeoutMillis(0); // time out right away
+        try {
+            svc.getUploadValidationStatusWhenComplete(ORIGINAL_UPLOAD_ID).get();
+            fail("expected exception");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof BridgeServiceException);
+            assertEquals(ex.getCause().getMessage(),
+                    "Timeout polling validation status for upload anOriginalUploadId");
+        }
     }
     
     @Test
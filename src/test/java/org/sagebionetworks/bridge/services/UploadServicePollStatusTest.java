@@ -1,69 +1,170 @@
 package org.sagebionetworks.bridge.services;
 
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
 import com.google.common.collect.ImmutableList;
 
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.sagebionetworks.bridge.exceptions.NotFoundException;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
 import org.sagebionetworks.bridge.models.upload.UploadStatus;
 import org.sagebionetworks.bridge.models.upload.UploadValidationStatus;
+import org.sagebionetworks.bridge.upload.UploadCompletionNotifier;
 
 public class UploadServicePollStatusTest {
     private static final String UPLOAD_ID = "test-upload";
 
     private UploadService svc;
+    private UploadCompletionNotifier notifier;
+    private AsyncExecutor mockAsyncExecutor;
 
     @BeforeMethod
     public void setup() {
+        // Real notifier, so validation finishing wakes the waiting call. Publishing goes to a mock Redis.
+        JedisPool mockJedisPool = mock(JedisPool.class);
+        when(mockJedisPool.getResource()).thenReturn(mock(Jedis.class));
+        notifier = new UploadCompletionNotifier();
+        notifier.setJedisPool(mockJedisPool);
+
+        // Run the status reads inline.
+        mockAsyncExecutor = mock(AsyncExecutor.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(mockAsyncExecutor).execute(eq(AsyncLane.INTERACTIVE), any(Runnable.class));
+
         // Spy service, so we can mock a call to getValidationStatus() instead of tightly coupling to that logic.
         svc = spy(new UploadService());
+        svc.setUploadCompletionNotifier(notifier);
+        svc.setAsyncExecutor(mockAsyncExecutor);
 
-        // Set sleep time to 10ms and max iterations to 2, so we don't have to wait that long.
-        svc.setPollValidationStatusMaxIterations(2);
-        svc.setPollValidationStatusSleepMillis(10);
+        // Set the timeout to 10 seconds, so a test that fails doesn't hang.
+        svc.setValidationStatusTimeoutMillis(10000);
+    }
+
+    @AfterMethod
+    public void after() {
+        notifier.shutdown();
     }
 
     @Test
-    public void firstTry() {
+    public void firstTry() throws Exception {
         doReturn(makeValidationStatus(UploadStatus.SUCCEEDED)).when(svc).getUploadValidationStatus(UPLOAD_ID);
-        UploadValidationStatus validationStatus = svc.pollUploadValidationStatusUntilComplete(UPLOAD_ID);
-        assertEquals(validationStatus.getStatus(), UploadStatus.SUCCEEDED);
+        CompletableFuture<UploadValidationStatus> future = svc.getUploadValidationStatusWhenComplete(UPLOAD_ID);
+        assertTrue(future.isDone());
+        assertEquals(future.get().getStatus(), UploadStatus.SUCCEEDED);
         verify(svc, times(1)).getUploadValidationStatus(UPLOAD_ID);
     }
 
     @Test
-    public void secondTry() {
+    public void completedWhenValidationSignals() throws Exception {
         UploadValidationStatus inProgressStatus = makeValidationStatus(UploadStatus.VALIDATION_IN_PROGRESS);
         UploadValidationStatus succeededStatus = makeValidationStatus(UploadStatus.SUCCEEDED);
 
         doReturn(inProgressStatus).doReturn(succeededStatus).when(svc).getUploadValidationStatus(UPLOAD_ID);
-        UploadValidationStatus validationStatus = svc.pollUploadValidationStatusUntilComplete(UPLOAD_ID);
-        assertEquals(validationStatus.getStatus(), UploadStatus.SUCCEEDED);
+        CompletableFuture<UploadValidationStatus> future = svc.getUploadValidationStatusWhenComplete(UPLOAD_ID);
+
+        // Nothing happens until validation finishes.
+        assertFalse(future.isDone());
+        verify(svc, times(1)).getUploadValidationStatus(UPLOAD_ID);
+
+        notifier.notifyCompleted(UPLOAD_ID);
+
+        assertEquals(future.get(1, TimeUnit.SECONDS).getStatus(), UploadStatus.SUCCEEDED);
         verify(svc, times(2)).getUploadValidationStatus(UPLOAD_ID);
+        verify(mockAsyncExecutor).execute(eq(AsyncLane.INTERACTIVE), any(Runnable.class));
+    }
+
+    @Test
+    public void failsWhenLaneIsFull() throws Exception {
+        doThrow(new RejectedExecutionException()).when(mockAsyncExecutor).execute(eq(AsyncLane.INTERACTIVE),
+                any(Runnable.class));
+        doReturn(makeValidationStatus(UploadStatus.VALIDATION_IN_PROGRESS)).when(svc).getUploadValidationStatus(
+                UPLOAD_ID);
+        CompletableFuture<UploadValidationStatus> future = svc.getUploadValidationStatusWhenComplete(UPLOAD_ID);
+
+        notifier.notifyCompleted(UPLOAD_ID);
+
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("expected exception");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof ServiceUnavailableException);
+            assertEquals(ex.getCause().getMessage(), UploadService.STATUS_READ_OVERLOADED_MESSAGE);
+        }
+        // The status is not read again on the signalling thread.
+        verify(svc, times(1)).getUploadValidationStatus(UPLOAD_ID);
+    }
+
+    @Test
+    public void signalForOtherUploadIgnored() throws Exception {
+        doReturn(makeValidationStatus(UploadStatus.VALIDATION_IN_PROGRESS)).when(svc).getUploadValidationStatus(
+                UPLOAD_ID);
+        CompletableFuture<UploadValidationStatus> future = svc.getUploadValidationStatusWhenComplete(UPLOAD_ID);
+
+        notifier.notifyCompleted("other-upload");
+
+        assertFalse(future.isDone());
+        verify(svc, times(1)).getUploadValidationStatus(UPLOAD_ID);
     }
 
     @Test
-    public void timeout() {
+    public void timeout() throws Exception {
+        svc.setValidationStatusTimeoutMillis(10);
         doReturn(makeValidationStatus(UploadStatus.VALIDATION_IN_PROGRESS)).when(svc).getUploadValidationStatus(
                 UPLOAD_ID);
 
         try {
-            svc.pollUploadValidationStatusUntilComplete(UPLOAD_ID);
+            svc.getUploadValidationStatusWhenComplete(UPLOAD_ID).get(1, TimeUnit.SECONDS);
             fail("expected exception");
-        } catch (BridgeServiceException ex) {
-            assertEquals(ex.getMessage(), "Timeout polling validation status for upload " + UPLOAD_ID);
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof BridgeServiceException);
+            assertEquals(ex.getCause().getMessage(), "Timeout polling validation status for upload " + UPLOAD_ID);
         }
+        // Read once at the start, and once when the wait timed out.
         verify(svc, times(2)).getUploadValidationStatus(UPLOAD_ID);
     }
 
+    @Test
+    public void errorReadingStatus() throws Exception {
+        doThrow(new NotFoundException("Upload not found")).when(svc).getUploadValidationStatus(UPLOAD_ID);
+
+        CompletableFuture<UploadValidationStatus> future = svc.getUploadValidationStatusWhenComplete(UPLOAD_ID);
+        try {
+            future.get();
+            fail("expected exception");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof NotFoundException);
+        }
+    }
+
     private UploadValidationStatus makeValidationStatus(UploadStatus uploadStatus) {
         return new UploadValidationStatus.Builder().withId(UPLOAD_ID).withMessageList(ImmutableList.of())
                 .withStatus(uploadStatus).build();
@@ -4,11 +4,11 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.util.concurrent.ExecutorService;
-
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
 import org.sagebionetworks.bridge.dynamodb.DynamoUpload2;
 import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.upload.Upload;
@@ -32,18 +32,18 @@ public class UploadValidationServiceTest {
         UploadValidationTaskFactory mockTaskFactory = mock(UploadValidationTaskFactory.class);
         when(mockTaskFactory.newTask(app.getIdentifier(), upload)).thenReturn(mockTask);
 
-        // mock async thread pool
-        ExecutorService mockExecutor = mock(ExecutorService.class);
+        // mock async executor
+        AsyncExecutor mockExecutor = mock(AsyncExecutor.class);
 
         // set up service
         UploadValidationService svc = new UploadValidationService();
-        svc.setAsyncExecutorService(mockExecutor);
+        svc.setAsyncExecutor(mockExecutor);
         svc.setTaskFactory(mockTaskFactory);
 
         // execute
         svc.validateUpload(app.getIdentifier(), upload);
 
         // validate
-        verify(mockExecutor).execute(mockTask);
+        verify(mockExecutor).execute(AsyncLane.UPLOAD_VALIDATION, app.getIdentifier(), mockTask);
     }
 }
@@ -10,11 +10,13 @@ import static org.sagebionetworks.bridge.TestUtils.assertDelete;
 import static org.sagebionetworks.bridge.TestUtils.assertGet;
 import static org.testng.Assert.assertEquals;
 
+import java.util.Map;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
 import org.mockito.InjectMocks;
@@ -25,6 +27,7 @@ import org.mockito.Spy;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.cache.NearCache.NamespaceStats;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
 import org.sagebionetworks.bridge.models.StatusMessage;
 import org.sagebionetworks.bridge.models.accounts.Account;
@@ -75,6 +78,7 @@ public class CacheAdminControllerTest extends Mockito {
     public void verifyAnnotations() throws Exception {
         assertCrossOrigin(CacheAdminController.class);
         assertGet(CacheAdminController.class, "listItems");
+        assertGet(CacheAdminController.class, "getNearCacheStats");
         assertDelete(CacheAdminController.class, "removeItem");
     }    
     
@@ -105,6 +109,22 @@ public class CacheAdminControllerTest extends Mockito {
         controller.listItems();
     }
     
+    @Test
+    public void getNearCacheStats() throws Exception {
+        Map<String, NamespaceStats> stats = ImmutableMap.of();
+        when(mockCacheAdminService.getNearCacheStats()).thenReturn(stats);
+        
+        assertEquals(controller.getNearCacheStats(), stats);
+    }
+    
+    @Test(expectedExceptions = UnauthorizedException.class)
+    public void getNearCacheStatsRejectsAppAdmin() throws Exception {
+        session.setParticipant(new StudyParticipant.Builder()
+                .withRoles(ImmutableSet.of(ADMIN)).withId(USER_ID).build());
+        
+        controller.getNearCacheStats();
+    }
+    
     @Test
     public void removeItem() throws Exception {
         session.setAppId(TEST_APP_ID);
@@ -0,0 +1,144 @@
+package org.sagebionetworks.bridge.spring.controllers;
+
+import static org.sagebionetworks.bridge.Roles.ADMIN;
+import static org.sagebionetworks.bridge.Roles.SUPERADMIN;
+import static org.sagebionetworks.bridge.TestConstants.USER_ID;
+import static org.sagebionetworks.bridge.TestUtils.assertCrossOrigin;
+import static org.sagebionetworks.bridge.TestUtils.assertGet;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import org.apache.http.pool.PoolStats;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncExecutor.LaneStats;
+import org.sagebionetworks.bridge.async.AsyncLane;
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache;
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache.Type;
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache.TypeStats;
+import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
+import org.sagebionetworks.bridge.http.OutboundHttpClient;
+import org.sagebionetworks.bridge.http.OutboundHttpClient.HostStats;
+import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+import org.sagebionetworks.bridge.upload.UploadValidationMetrics;
+import org.sagebionetworks.bridge.upload.UploadValidationMetrics.HandlerStats;
+import org.sagebionetworks.bridge.upload.UploadValidationMetrics.UploadStats;
+
+public class ServerMetricsControllerTest extends Mockito {
+    
+    @Mock
+    private AsyncExecutor mockAsyncExecutor;
+    
+    @Mock
+    private UploadValidationMetrics mockUploadValidationMetrics;
+    
+    @Mock
+    private UploadDefinitionCache mockUploadDefinitionCache;
+    
+    @Mock
+    private OutboundHttpClient mockOutboundHttpClient;
+    
+    @InjectMocks
+    @Spy
+    private ServerMetricsController controller = new ServerMetricsController();
+    
+    private UserSession session;
+    
+    @BeforeMethod
+    private void before() {
+        MockitoAnnotations.initMocks(this);
+        
+        session = new UserSession();
+        session.setParticipant(new StudyParticipant.Builder()
+                .withRoles(ImmutableSet.of(SUPERADMIN)).withId(USER_ID).build());
+        doAnswer(answer -> {
+            if (session.isInRole(SUPERADMIN)) {
+                return session;
+            }
+            throw new UnauthorizedException("Nope");
+        }).when(controller).getAuthenticatedSession(any());
+    }
+    
+    @Test
+    public void verifyAnnotations() throws Exception {
+        assertCrossOrigin(ServerMetricsController.class);
+        assertGet(ServerMetricsController.class, "getAsyncExecutorStats");
+        assertGet(ServerMetricsController.class, "getUploadValidationStats");
+        assertGet(ServerMetricsController.class, "getOutboundHttpStats");
+    }
+    
+    @Test
+    public void getAsyncExecutorStats() {
+        Map<AsyncLane, LaneStats> stats = ImmutableMap.of();
+        when(mockAsyncExecutor.getStats()).thenReturn(stats);
+        
+        assertEquals(controller.getAsyncExecutorStats(), stats);
+    }
+    
+    @Test(expectedExceptions = UnauthorizedException.class)
+    public void getAsyncExecutorStatsRejectsAppAdmin() {
+        session.setParticipant(new StudyParticipant.Builder()
+                .withRoles(ImmutableSet.of(ADMIN)).withId(USER_ID).build());
+        
+        controller.getAsyncExecutorStats();
+    }
+    
+    @Test
+    public void getUploadValidationStats() {
+        Map<String, Map<String, HandlerStats>> handlerStats = ImmutableMap.of();
+        Map<String, UploadStats> uploadStats = ImmutableMap.of();
+        when(mockUploadValidationMetrics.getHandlerStats()).thenReturn(handlerStats);
+        when(mockUploadValidationMetrics.getUploadStats()).thenReturn(uploadStats);
+        Map<Type, TypeStats> definitionCacheStats = ImmutableMap.of();
+        when(mockUploadDefinitionCache.getStats()).thenReturn(definitionCacheStats);
+        
+        Map<String, Object> result = controller.getUploadValidationStats();
+        assertSame(result.get("handlers"), handlerStats);
+        assertSame(result.get("uploads"), uploadStats);
+        assertSame(result.get("definitionCache"), definitionCacheStats);
+    }
+    
+    @Test(expectedExceptions = UnauthorizedException.class)
+    public void getUploadValidationStatsRejectsAppAdmin() {
+        session.setParticipant(new StudyParticipant.Builder()
+                .withRoles(ImmutableSet.of(ADMIN)).withId(USER_ID).build());
+        
+        controller.getUploadValidationStats();
+    }
+    
+    @Test
+    public void getOutboundHttpStats() {
+        Map<String, HostStats> hostStats = ImmutableMap.of();
+        Map<String, PoolStats> poolStats = ImmutableMap.of();
+        PoolStats totalPoolStats = new PoolStats(1, 0, 2, 100);
+        when(mockOutboundHttpClient.getHostStats()).thenReturn(hostStats);
+        when(mockOutboundHttpClient.getPoolStats()).thenReturn(poolStats);
+        when(mockOutboundHttpClient.getTotalPoolStats()).thenReturn(totalPoolStats);
+        
+        Map<String, Object> result = controller.getOutboundHttpStats();
+        assertSame(result.get("hosts"), hostStats);
+        assertSame(result.get("pools"), poolStats);
+        assertSame(result.get("totalPool"), totalPoolStats);
+    }
+    
+    @Test(expectedExceptions = UnauthorizedException.class)
+    public void getOutboundHttpStatsRejectsAppAdmin() {
+        session.setParticipant(new StudyParticipant.Builder()
+                .withRoles(ImmutableSet.of(ADMIN)).withId(USER_ID).build());
+        
+        controller.getOutboundHttpStats();
+    }
+}
@@ -17,6 +17,7 @@ import static org.testng.Assert.fail;
 
 import java.net.URL;
 import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -137,7 +138,8 @@ public class UploadControllerTest extends Mockito {
                 .withStatus(UploadStatus.VALIDATION_FAILED).build();
 
         doReturn(status).when(mockUploadService).getUploadValidationStatus(UPLOAD_ID);
-        doReturn(status).when(mockUploadService).pollUploadValidationStatusUntilComplete(UPLOAD_ID);
+        doReturn(CompletableFuture.completedFuture(status)).when(mockUploadService)
+                .getUploadValidationStatusWhenComplete(UPLOAD_ID);
 
         // mock metrics
         doReturn(mockMetrics).when(controller).getMetrics();
@@ -182,7 +184,7 @@ public class UploadControllerTest extends Mockito {
         doReturn(mockWorkerSession).when(controller).getAuthenticatedSession();
 
         // execute and validate
-        String result = controller.uploadComplete(UPLOAD_ID, false, false);
+        String result = controller.uploadComplete(UPLOAD_ID, false, false).get();
         validateValidationStatus(result);
 
         // verify back-end calls
@@ -192,7 +194,7 @@ public class UploadControllerTest extends Mockito {
         assertEquals(upload.getHealthCode(), "consented-user-health-code");
 
         verify(mockUploadService).getUploadValidationStatus(UPLOAD_ID);
-        verify(mockUploadService, never()).pollUploadValidationStatusUntilComplete(any());
+        verify(mockUploadService, never()).getUploadValidationStatusWhenComplete(any());
     }
     
     @Test
@@ -204,7 +206,7 @@ public class UploadControllerTest extends Mockito {
         doReturn(TEST_APP_ID).when(mockHealthCodeDao).getAppId(HEALTH_CODE);
 
         // execute and validate
-        String result = controller.uploadComplete(UPLOAD_ID, false, false);
+        String result = controller.uploadComplete(UPLOAD_ID, false, false).get();
         validateValidationStatus(result);
 
         // verify back-end calls
@@ -215,7 +217,7 @@ public class UploadControllerTest extends Mockito {
         assertEquals(upload.getHealthCode(), HEALTH_CODE);
 
         verify(mockUploadService).getUploadValidationStatus(UPLOAD_ID);
-        verify(mockUploadService, never()).pollUploadValidationStatusUntilComplete(any());
+        verify(mockUploadService, never()).getUploadValidationStatusWhenComplete(any());
     }
 
     @Test
@@ -225,7 +227,7 @@ public class UploadControllerTest extends Mockito {
         doReturn(mockConsentedUserSession).when(controller).getAuthenticatedAndConsentedSession();
 
         // execute and validate
-        String result = controller.uploadComplete(UPLOAD_ID, false, false);
+        String result = controller.uploadComplete(UPLOAD_ID, false, false).get();
         validateValidationStatus(result);
 
         // verify back-end calls
@@ -235,7 +237,7 @@ public class UploadControllerTest extends Mockito {
         assertEquals("consented-user-health-code", upload.getHealthCode());
 
         verify(mockUploadService).getUploadValidationStatus(UPLOAD_ID);
-        verify(mockUploadService, never()).pollUploadValidationStatusUntilComplete(any());
+        verify(mockUploadService, never()).getUploadValidationStatusWhenComplete(any());
     }
     
     @Test
@@ -249,7 +251,7 @@ public class UploadControllerTest extends Mockito {
 
         // execute and catch exception
         try {
-            controller.uploadComplete(UPLOAD_ID, false, false);
+            controller.uploadComplete(UPLOAD_ID, false, false).get();
             fail("Should have thrown exception");
         } catch(UnauthorizedException e) {
             // expected exception
@@ -258,7 +260,7 @@ public class UploadControllerTest extends Mockito {
         // verify back-end calls
         verify(mockUploadService, never()).uploadComplete(any(), any(), any(), anyBoolean());
         verify(mockUploadService, never()).getUploadValidationStatus(any());
-        verify(mockUploadService, never()).pollUploadValidationStatusUntilComplete(any());
+        verify(mockUploadService, never()).getUploadValidationStatusWhenComplete(any());
     }
 
     @Test
@@ -268,13 +270,13 @@ public class UploadControllerTest extends Mockito {
         doReturn(mockConsentedUserSession).when(controller).getAuthenticatedAndConsentedSession();
 
         // execute and validate
-        String result = controller.uploadComplete(UPLOAD_ID, true, false);
+        String result = controller.uploadComplete(UPLOAD_ID, true, false).get();
         validateValidationStatus(result);
 
         // verify back-end calls
         verify(mockUploadService).uploadComplete(eq("consented-user-app-id"),
                 eq(UploadCompletionClient.APP), any(), eq(false));
-        verify(mockUploadService).pollUploadValidationStatusUntilComplete(UPLOAD_ID);
+        verify(mockUploadService).getUploadValidationStatusWhenComplete(UPLOAD_ID);
         verify(mockUploadService, never()).getUploadValidationStatus(any());
     }
 
@@ -285,14 +287,14 @@ public class UploadControllerTest extends Mockito {
         doReturn(mockConsentedUserSession).when(controller).getAuthenticatedAndConsentedSession();
 
         // execute and validate
-        String result = controller.uploadComplete(UPLOAD_ID, false, true);
+        String result = controller.uploadComplete(UPLOAD_ID, false, true).get();
         validateValidationStatus(result);
 
         // verify back-end calls
         verify(mockUploadService).uploadComplete(eq("consented-user-app-id"),
                 eq(UploadCompletionClient.APP), any(), eq(true));
         verify(mockUploadService).getUploadValidationStatus(UPLOAD_ID);
-        verify(mockUploadService, never()).pollUploadValidationStatusUntilComplete(any());
+        verify(mockUploadService, never()).getUploadValidationStatusWhenComplete(any());
     }
 
     @Test
@@ -6,8 +6,12 @@ import static org.sagebionetworks.bridge.BridgeConstants.X_REQUEST_ID_HEADER;
 import static org.sagebionetworks.bridge.TestConstants.TIMESTAMP;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.FilterChain;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -15,6 +19,7 @@ import javax.servlet.http.HttpServletResponse;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import org.joda.time.DateTimeUtils;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -41,6 +46,9 @@ public class MetricsFilterTest extends Mockito {
     @Mock
     private FilterChain mockFilterChain;
     
+    @Mock
+    private AsyncContext mockAsyncContext;
+    
     @InjectMocks
     private MetricsFilter filter = new MetricsFilter();
 
@@ -124,4 +132,24 @@ public class MetricsFilterTest extends Mockito {
         
         assertEquals("5.6.7.8", node.get("remote_address").textValue());
     }
+
+    @Test
+    public void metricsLoggedWhenAsyncRequestCompletes() throws Exception {
+        when(mockRequest.isAsyncStarted()).thenReturn(true);
+        when(mockRequest.getAsyncContext()).thenReturn(mockAsyncContext);
+        when(mockResponse.getStatus()).thenReturn(200);
+        
+        filter.doFilter(mockRequest, mockResponse, mockFilterChain);
+        
+        Metrics metrics = BridgeUtils.getRequestContext().getMetrics();
+        assertNull(metrics.getJson().get("status"));
+        assertNull(metrics.getJson().get("end"));
+        
+        ArgumentCaptor<AsyncListener> listenerCaptor = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(mockAsyncContext).addListener(listenerCaptor.capture());
+        listenerCaptor.getValue().onComplete(new AsyncEvent(mockAsyncContext));
+        
+        assertEquals(metrics.getJson().get("status").intValue(), 200);
+        assertEquals(metrics.getJson().get("end").textValue(), TIMESTAMP.toString());
+    }
 }
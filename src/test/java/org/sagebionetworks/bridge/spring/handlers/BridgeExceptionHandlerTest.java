@@ -42,6 +42,7 @@ import org.sagebionetworks.bridge.dynamodb.DynamoApp;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.ConsentRequiredException;
 import org.sagebionetworks.bridge.exceptions.InvalidEntityException;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
 import org.sagebionetworks.bridge.models.accounts.SharingScope;
 import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
 import org.sagebionetworks.bridge.models.accounts.UserSession;
@@ -264,4 +265,26 @@ public class BridgeExceptionHandlerTest extends Mockito {
         assertEquals(node.get("message").textValue(), "Required request parameter 'myParam' is missing");
         assertEquals(node.get("type").textValue(), "BadRequestException");
     }
+    
+    @Test
+    public void serviceUnavailableWithRetryAfter() throws Throwable {
+        ServiceUnavailableException ex = new ServiceUnavailableException("Try again later", 5);
+        
+        ResponseEntity<String> response = handler.handleException(mockRequest, ex);
+        HttpUtilTest.assertErrorResponse(response, HttpStatus.SERVICE_UNAVAILABLE, "ServiceUnavailableException",
+                "Try again later");
+        assertEquals(response.getHeaders().getFirst("Retry-After"), "5");
+        
+        JsonNode node = new ObjectMapper().readTree(response.getBody());
+        assertFalse(node.has("retryAfterSeconds"));
+    }
+    
+    @Test
+    public void serviceUnavailableWithoutRetryAfter() throws Throwable {
+        ServiceUnavailableException ex = new ServiceUnavailableException("Unavailable");
+        
+        ResponseEntity<String> response = handler.handleException(mockRequest, ex);
+        assertEquals(response.getStatusCodeValue(), 503);
+        assertFalse(response.getHeaders().containsKey("Retry-After"));
+    }
 }
@@ -0,0 +1,126 @@
+package org.sagebionetworks.bridge.upload;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class AttachmentWriteBatchTest {
+    private List<Runnable> queuedTaskList;
+    private Executor queueingExecutor;
+    private AtomicInteger writeCount;
+
+    @BeforeMethod
+    public void before() {
+        // Executor that holds tasks until the test runs them.
+        queuedTaskList = new ArrayList<>();
+        queueingExecutor = queuedTaskList::add;
+        writeCount = new AtomicInteger();
+    }
+
+    @Test
+    public void defaultWritesOnCallingThread() throws Exception {
+        AttachmentWriteBatch attachmentWrites = new AttachmentWriteBatch();
+        attachmentWrites.submit("error", writeCount::incrementAndGet);
+        assertEquals(writeCount.get(), 1);
+
+        attachmentWrites.join();
+        assertEquals(attachmentWrites.getPendingWriteCount(), 0);
+    }
+
+    @Test
+    public void writesRunOnExecutor() throws Exception {
+        AttachmentWriteBatch attachmentWrites = new AttachmentWriteBatch(queueingExecutor, 2);
+        attachmentWrites.submit("error", writeCount::incrementAndGet);
+        attachmentWrites.submit("error", writeCount::incrementAndGet);
+        assertEquals(writeCount.get(), 0);
+        assertEquals(attachmentWrites.getPendingWriteCount(), 2);
+
+        queuedTaskList.forEach(Runnable::run);
+        attachmentWrites.join();
+        assertEquals(writeCount.get(), 2);
+        assertEquals(attachmentWrites.getPendingWriteCount(), 0);
+    }
+
+    @Test
+    public void submitWaitsForPermit() throws Exception {
+        AttachmentWriteBatch attachmentWrites = new AttachmentWriteBatch(queueingExecutor, 1);
+        attachmentWrites.submit("error", writeCount::incrementAndGet);
+
+        // The second write can't start until the first finishes.
+        CompletableFuture<Void> secondSubmit = CompletableFuture.runAsync(() -> {
+            try {
+                attachmentWrites.submit("error", writeCount::incrementAndGet);
+            } catch (UploadValidationException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        try {
+            secondSubmit.get(100, TimeUnit.MILLISECONDS);
+            fail("expected exception");
+        } catch (TimeoutException ex) {
+            // expected exception
+        }
+        assertFalse(secondSubmit.isDone());
+
+        queuedTaskList.get(0).run();
+        secondSubmit.get(1, TimeUnit.SECONDS);
+        assertEquals(queuedTaskList.size(), 2);
+    }
+
+    @Test
+    public void joinThrowsFirstErrorAfterAllWritesFinish() throws Exception {
+        AttachmentWriteBatch attachmentWrites = new AttachmentWriteBatch(queueingExecutor, 3);
+        attachmentWrites.submit("first error", () -> {
+            throw new IOException("first");
+        });
+        attachmentWrites.submit("second error", () -> {
+            throw new IOException("second");
+        });
+        attachmentWrites.submit("no error", writeCount::incrementAndGet);
+        queuedTaskList.forEach(Runnable::run);
+
+        try {
+            attachmentWrites.join();
+            fail("expected exception");
+        } catch (UploadValidationException ex) {
+            assertEquals(ex.getMessage(), "first error");
+            assertTrue(ex.getCause() instanceof IOException);
+        }
+        assertEquals(writeCount.get(), 1);
+        assertEquals(attachmentWrites.getPendingWriteCount(), 0);
+    }
+
+    @Test
+    public void rejectedWriteFailsOnJoin() throws Exception {
+        AttachmentWriteBatch attachmentWrites = new AttachmentWriteBatch(task -> {
+            throw new RejectedExecutionException();
+        }, 1);
+        attachmentWrites.submit("rejected", writeCount::incrementAndGet);
+
+        // The permit was given back, so this doesn't block.
+        attachmentWrites.submit("rejected again", writeCount::incrementAndGet);
+
+        try {
+            attachmentWrites.join();
+            fail("expected exception");
+        } catch (UploadValidationException ex) {
+            assertEquals(ex.getMessage(), "rejected");
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(writeCount.get(), 0);
+    }
+}
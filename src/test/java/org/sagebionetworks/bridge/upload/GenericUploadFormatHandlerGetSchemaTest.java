@@ -11,6 +11,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.time.DateUtils;
 import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolderImpl;
@@ -41,6 +42,8 @@ public class GenericUploadFormatHandlerGetSchemaTest {
         mockSurveyService = mock(SurveyService.class);
 
         handler = new GenericUploadFormatHandler();
+
+        handler.setUploadDefinitionCache(new UploadDefinitionCache(100, 60));
         handler.setSurveyService(mockSurveyService);
         handler.setUploadSchemaService(mockSchemaService);
     }
@@ -14,6 +14,7 @@ import com.google.common.collect.ImmutableMap;
 import org.joda.time.DateTime;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache;
 import org.sagebionetworks.bridge.dynamodb.DynamoSurvey;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolderImpl;
@@ -49,6 +50,7 @@ public class IosSchemaValidationHandler2GetSchemaTest {
 
         // set up test handler
         IosSchemaValidationHandler2 handler = new IosSchemaValidationHandler2();
+        handler.setUploadDefinitionCache(new UploadDefinitionCache(100, 60));
         handler.setDefaultSchemaRevisionMap(DEFAULT_SCHEMA_REV_MAP);
         handler.setSurveyService(mockSurveyService);
         handler.setUploadSchemaService(mockSchemaSvc);
@@ -76,6 +78,7 @@ public class IosSchemaValidationHandler2GetSchemaTest {
 
         // set up test handler
         IosSchemaValidationHandler2 handler = new IosSchemaValidationHandler2();
+        handler.setUploadDefinitionCache(new UploadDefinitionCache(100, 60));
         handler.setDefaultSchemaRevisionMap(DEFAULT_SCHEMA_REV_MAP);
         handler.setSurveyService(mockSurveyService);
 
@@ -102,6 +105,7 @@ public class IosSchemaValidationHandler2GetSchemaTest {
 
         // set up test handler
         IosSchemaValidationHandler2 handler = new IosSchemaValidationHandler2();
+        handler.setUploadDefinitionCache(new UploadDefinitionCache(100, 60));
         handler.setDefaultSchemaRevisionMap(DEFAULT_SCHEMA_REV_MAP);
         handler.setSurveyService(mockSurveyService);
 
@@ -129,6 +133,7 @@ public class IosSchemaValidationHandler2GetSchemaTest {
 
         // Set up test handler
         IosSchemaValidationHandler2 handler = new IosSchemaValidationHandler2();
+        handler.setUploadDefinitionCache(new UploadDefinitionCache(100, 60));
         handler.setDefaultSchemaRevisionMap(DEFAULT_SCHEMA_REV_MAP);
         handler.setSurveyService(mockSurveyService);
         handler.setUploadSchemaService(mock(UploadSchemaService.class));
@@ -153,6 +158,7 @@ public class IosSchemaValidationHandler2GetSchemaTest {
 
         // set up test handler
         IosSchemaValidationHandler2 handler = new IosSchemaValidationHandler2();
+        handler.setUploadDefinitionCache(new UploadDefinitionCache(100, 60));
         handler.setDefaultSchemaRevisionMap(DEFAULT_SCHEMA_REV_MAP);
         handler.setUploadSchemaService(mockSchemaSvc);
 
@@ -175,6 +181,7 @@ public class IosSchemaValidationHandler2GetSchemaTest {
 
         // set up test handler
         IosSchemaValidationHandler2 handler = new IosSchemaValidationHandler2();
+        handler.setUploadDefinitionCache(new UploadDefinitionCache(100, 60));
         handler.setDefaultSchemaRevisionMap(DEFAULT_SCHEMA_REV_MAP);
         handler.setUploadSchemaService(mockSchemaSvc);
 
@@ -197,6 +204,7 @@ public class IosSchemaValidationHandler2GetSchemaTest {
 
         // set up test handler
         IosSchemaValidationHandler2 handler = new IosSchemaValidationHandler2();
+        handler.setUploadDefinitionCache(new UploadDefinitionCache(100, 60));
         handler.setDefaultSchemaRevisionMap(DEFAULT_SCHEMA_REV_MAP);
         handler.setUploadSchemaService(mockSchemaSvc);
 
@@ -220,6 +228,7 @@ public class IosSchemaValidationHandler2GetSchemaTest {
 
         // set up test handler
         IosSchemaValidationHandler2 handler = new IosSchemaValidationHandler2();
+        handler.setUploadDefinitionCache(new UploadDefinitionCache(100, 60));
         handler.setDefaultSchemaRevisionMap(DEFAULT_SCHEMA_REV_MAP);
         handler.setUploadSchemaService(mockSchemaSvc);
 
@@ -236,6 +245,7 @@ public class IosSchemaValidationHandler2GetSchemaTest {
     public void schemaNotFound() {
         // Set up test handler.
         IosSchemaValidationHandler2 handler = new IosSchemaValidationHandler2();
+        handler.setUploadDefinitionCache(new UploadDefinitionCache(100, 60));
         handler.setDefaultSchemaRevisionMap(DEFAULT_SCHEMA_REV_MAP);
         handler.setUploadSchemaService(mock(UploadSchemaService.class));
 
@@ -0,0 +1,124 @@
+package org.sagebionetworks.bridge.upload;
+
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.Map;
+
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.S3Object;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.config.BridgeConfigFactory;
+import org.sagebionetworks.bridge.file.InMemoryFileHelper;
+import org.sagebionetworks.bridge.models.upload.Upload;
+import org.sagebionetworks.bridge.services.UploadArchiveService;
+
+public class StreamingUnpackHandlerTest {
+    private static final String UPLOAD_BUCKET = BridgeConfigFactory.getConfig().getProperty("upload.bucket");
+    private static final String UPLOAD_ID = "test-upload";
+    private static final byte[] ENCRYPTED_CONTENT = "encrypted test data".getBytes(Charsets.UTF_8);
+    private static final Map<String, byte[]> ENTRY_MAP = ImmutableMap.of(
+            "foo", "foo data".getBytes(Charsets.UTF_8),
+            "bar", "bar data".getBytes(Charsets.UTF_8));
+
+    private UploadValidationContext ctx;
+    private InMemoryFileHelper fileHelper;
+    private UploadArchiveService svc;
+    private Upload upload;
+    private StreamingUnpackHandler handler;
+
+    @Mock
+    private AmazonS3Client mockS3Client;
+
+    @BeforeMethod
+    public void before() {
+        MockitoAnnotations.initMocks(this);
+
+        fileHelper = new InMemoryFileHelper();
+
+        // Real zip and unzip. Decryption is mocked, since it needs the app's encryption materials.
+        svc = spy(new UploadArchiveService());
+        svc.setMaxNumZipEntries(100);
+        svc.setMaxZipEntrySize(1000);
+
+        handler = new StreamingUnpackHandler();
+        handler.setFileHelper(fileHelper);
+        handler.setS3Client(mockS3Client);
+        handler.setUploadArchiveService(svc);
+
+        upload = Upload.create();
+        upload.setUploadId(UPLOAD_ID);
+        upload.setFilename("test.zip");
+
+        ctx = new UploadValidationContext();
+        ctx.setAppId(TEST_APP_ID);
+        ctx.setUpload(upload);
+        ctx.setTempDir(fileHelper.createTempDir());
+    }
+
+    @Test
+    public void encryptedAndZipped() throws Exception {
+        byte[] zippedContent = svc.zip(ENTRY_MAP);
+        mockS3Object(ENCRYPTED_CONTENT);
+        doReturn(new ByteArrayInputStream(zippedContent)).when(svc).decrypt(eq(TEST_APP_ID), any(InputStream.class));
+
+        handler.handle(ctx);
+
+        // The entire decrypted archive is saved, including the parts the unzipper doesn't read.
+        assertEquals(fileHelper.getBytes(ctx.getDecryptedDataFile()), zippedContent);
+
+        Map<String, File> unzippedFileMap = ctx.getUnzippedDataFileMap();
+        assertEquals(unzippedFileMap.size(), ENTRY_MAP.size());
+        for (Map.Entry<String, byte[]> entry : ENTRY_MAP.entrySet()) {
+            assertEquals(fileHelper.getBytes(unzippedFileMap.get(entry.getKey())), entry.getValue());
+        }
+
+        // The encrypted upload is never written to a file.
+        assertEquals(ctx.getDataFile(), null);
+
+        // Each stage is timed under the name of the handler that does it on its own.
+        assertEquals(ctx.getStageElapsedMillis().keySet(), ImmutableSet.of("S3DownloadHandler", "DecryptHandler",
+                "UnzipHandler"));
+    }
+
+    @Test
+    public void notEncryptedNotZipped() throws Exception {
+        upload.setEncrypted(false);
+        upload.setZipped(false);
+        byte[] content = "plain test data".getBytes(Charsets.UTF_8);
+        mockS3Object(content);
+
+        handler.handle(ctx);
+
+        assertEquals(fileHelper.getBytes(ctx.getDecryptedDataFile()), content);
+        Map<String, File> unzippedFileMap = ctx.getUnzippedDataFileMap();
+        assertEquals(unzippedFileMap.size(), 1);
+        assertSame(unzippedFileMap.get("test.zip"), ctx.getDecryptedDataFile());
+        verify(svc, never()).decrypt(any(), any(InputStream.class));
+        assertEquals(ctx.getStageElapsedMillis().keySet(), ImmutableSet.of("S3DownloadHandler"));
+    }
+
+    private void mockS3Object(byte[] content) {
+        S3Object s3Object = new S3Object();
+        s3Object.setObjectContent(new ByteArrayInputStream(content));
+        when(mockS3Client.getObject(UPLOAD_BUCKET, UPLOAD_ID)).thenReturn(s3Object);
+    }
+}
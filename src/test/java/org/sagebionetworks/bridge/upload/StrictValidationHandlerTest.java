@@ -22,6 +22,7 @@ import com.google.common.collect.ImmutableMap;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache;
 import org.sagebionetworks.bridge.dynamodb.DynamoApp;
 import org.sagebionetworks.bridge.dynamodb.DynamoUpload2;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
@@ -43,6 +44,7 @@ public class StrictValidationHandlerTest {
     @BeforeMethod
     public void setup() {
         handler = new StrictValidationHandler();
+        handler.setUploadDefinitionCache(new UploadDefinitionCache(100, 60));
 
         // Set up common context attributes.
         context = new UploadValidationContext();
@@ -2,11 +2,16 @@ package org.sagebionetworks.bridge.upload;
 
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
 
 import org.mockito.ArgumentCaptor;
 import org.testng.annotations.BeforeMethod;
@@ -35,12 +40,12 @@ public class UploadArtifactsHandlerTest {
     }
 
     @Test
-    public void createNewRecord() {
+    public void createNewRecord() throws Exception {
         test();
     }
 
     @Test
-    public void updateExistingRecord() {
+    public void updateExistingRecord() throws Exception {
         // Mock health data service to return existing record. The only values that matter are version.
         HealthDataRecord existingRecord = HealthDataRecord.create();
         existingRecord.setId(TEST_UPLOAD_ID);
@@ -59,7 +64,32 @@ public class UploadArtifactsHandlerTest {
         assertEquals(createdRecord.getVersion().longValue(), 42L);
     }
 
-    private void test() {
+    @Test
+    public void attachmentWriteFailed() throws Exception {
+        DynamoUpload2 upload = new DynamoUpload2();
+        upload.setUploadId(TEST_UPLOAD_ID);
+
+        UploadValidationContext context = new UploadValidationContext();
+        context.setHealthDataRecord(HealthDataRecord.create());
+        context.setUpload(upload);
+        context.getAttachmentWrites().submit("Error writing attachment", () -> {
+            throw new IOException("S3 is down");
+        });
+
+        // execute
+        try {
+            handler.handle(context);
+            fail("expected exception");
+        } catch (UploadValidationException ex) {
+            assertEquals(ex.getMessage(), "Error writing attachment");
+        }
+
+        // The record refers to an attachment that doesn't exist, so it must not be saved.
+        verify(mockHealthDataService, never()).createOrUpdateRecord(any());
+        assertNull(context.getRecordId());
+    }
+
+    private void test() throws Exception {
         // Make record. This test handles records almost entirely opaquely, so for the purposes of this test, a blank
         // record will suffice.
         HealthDataRecord record = HealthDataRecord.create();
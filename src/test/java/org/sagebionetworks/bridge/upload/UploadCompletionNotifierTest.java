@@ -0,0 +1,120 @@
+package org.sagebionetworks.bridge.upload;
+
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+public class UploadCompletionNotifierTest {
+    private static final String UPLOAD_ID = "upload-id";
+    private static final long TIMEOUT_MILLIS = 10000L;
+
+    private JedisPool mockJedisPool;
+    private Jedis mockJedis;
+    private UploadCompletionNotifier notifier;
+
+    @BeforeMethod
+    public void before() {
+        mockJedis = mock(Jedis.class);
+        mockJedisPool = mock(JedisPool.class);
+        when(mockJedisPool.getResource()).thenReturn(mockJedis);
+
+        notifier = new UploadCompletionNotifier();
+        notifier.setJedisPool(mockJedisPool);
+    }
+
+    @AfterMethod
+    public void after() {
+        notifier.shutdown();
+    }
+
+    @Test
+    public void notifyCompletesAllWaitersForUpload() {
+        CompletableFuture<Void> first = notifier.awaitCompletion(UPLOAD_ID, TIMEOUT_MILLIS);
+        CompletableFuture<Void> second = notifier.awaitCompletion(UPLOAD_ID, TIMEOUT_MILLIS);
+        CompletableFuture<Void> other = notifier.awaitCompletion("other-upload", TIMEOUT_MILLIS);
+        assertEquals(notifier.getWaitingUploadCount(), 2);
+
+        notifier.notifyCompleted(UPLOAD_ID);
+
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertFalse(other.isDone());
+        assertEquals(notifier.getWaitingUploadCount(), 1);
+    }
+
+    @Test
+    public void notifyPublishesToOtherNodes() {
+        notifier.notifyCompleted(UPLOAD_ID);
+
+        ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
+        verify(mockJedis).publish(eq(UploadCompletionNotifier.COMPLETION_CHANNEL),
+                messageCaptor.capture());
+        assertTrue(messageCaptor.getValue().endsWith("|" + UPLOAD_ID));
+    }
+
+    @Test
+    public void notifyWithoutRedisStillCompletesLocally() {
+        when(mockJedisPool.getResource()).thenThrow(new RuntimeException("Redis is down"));
+        CompletableFuture<Void> waiter = notifier.awaitCompletion(UPLOAD_ID, TIMEOUT_MILLIS);
+
+        notifier.notifyCompleted(UPLOAD_ID);
+
+        assertTrue(waiter.isDone());
+    }
+
+    @Test
+    public void completionFromOtherNodeCompletesWaiters() {
+        CompletableFuture<Void> waiter = notifier.awaitCompletion(UPLOAD_ID, TIMEOUT_MILLIS);
+
+        notifier.completeLocally(UPLOAD_ID);
+
+        assertTrue(waiter.isDone());
+    }
+
+    @Test
+    public void lostMessagesCompleteAllWaiters() {
+        CompletableFuture<Void> first = notifier.awaitCompletion(UPLOAD_ID, TIMEOUT_MILLIS);
+        CompletableFuture<Void> second = notifier.awaitCompletion("other-upload", TIMEOUT_MILLIS);
+
+        notifier.completeAllLocally();
+
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertEquals(notifier.getWaitingUploadCount(), 0);
+    }
+
+    @Test
+    public void waitTimesOut() throws Exception {
+        CompletableFuture<Void> waiter = notifier.awaitCompletion(UPLOAD_ID, 10L);
+
+        waiter.get(1, TimeUnit.SECONDS);
+        assertEquals(notifier.getWaitingUploadCount(), 0);
+    }
+
+    @Test
+    public void cancelledWaiterRemoved() {
+        CompletableFuture<Void> waiter = notifier.awaitCompletion(UPLOAD_ID, TIMEOUT_MILLIS);
+        CompletableFuture<Void> other = notifier.awaitCompletion(UPLOAD_ID, TIMEOUT_MILLIS);
+
+        waiter.cancel(false);
+        assertEquals(notifier.getWaitingUploadCount(), 1);
+
+        other.cancel(false);
+        assertEquals(notifier.getWaitingUploadCount(), 0);
+    }
+}
@@ -1,6 +1,7 @@
 package org.sagebionetworks.bridge.upload;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -10,8 +11,10 @@ import static org.mockito.Mockito.when;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.fail;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -40,6 +43,7 @@ public class UploadFileHelperFindValueTest {
     private File tmpDir;
     private UploadFileHelper uploadFileHelper;
     private ArgumentCaptor<ObjectMetadata> metadataCaptor;
+    private AttachmentWriteBatch attachmentWrites;
 
     @BeforeMethod
     public void before() throws Exception {
@@ -62,6 +66,9 @@ public class UploadFileHelperFindValueTest {
         uploadFileHelper.setFileHelper(inMemoryFileHelper);
         uploadFileHelper.setMd5DigestUtils(mockMd5DigestUtils);
         uploadFileHelper.setS3Helper(mockS3Helper);
+
+        // Write attachments on the test thread.
+        attachmentWrites = new AttachmentWriteBatch();
     }
 
     @Test
@@ -76,7 +83,8 @@ public class UploadFileHelperFindValueTest {
 
         // Execute
         String expectedAttachmentFilename = UPLOAD_ID + '-' + FIELD_NAME_FILE;
-        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>());
+        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>(),
+                attachmentWrites);
         assertEquals(result.textValue(), expectedAttachmentFilename);
 
         // Verify uploaded file
@@ -89,6 +97,31 @@ public class UploadFileHelperFindValueTest {
         assertEquals(metadata.getSSEAlgorithm(), ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
     }
 
+    @Test
+    public void attachmentFileWriteFailsOnJoin() throws Exception {
+        doThrow(IOException.class).when(mockS3Helper).writeFileToS3(any(), any(), any(File.class), any());
+
+        // Make field def.
+        UploadFieldDefinition fieldDef = new UploadFieldDefinition.Builder().withName(FIELD_NAME_FILE)
+                .withType(UploadFieldType.ATTACHMENT_V2).build();
+
+        // Make file map.
+        File recordJsonFile = makeFileWithContent(FIELD_NAME_FILE, "dummy content");
+        Map<String, File> fileMap = ImmutableMap.of(FIELD_NAME_FILE, recordJsonFile);
+
+        // The attachment ID is returned before the write finishes. The error is thrown when we join the writes.
+        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>(),
+                attachmentWrites);
+        assertEquals(result.textValue(), UPLOAD_ID + '-' + FIELD_NAME_FILE);
+        try {
+            attachmentWrites.join();
+            fail("expected exception");
+        } catch (UploadValidationException ex) {
+            assertEquals(ex.getMessage(), "Error uploading file as attachment, uploadId=" + UPLOAD_ID +
+                    ", fieldName=" + FIELD_NAME_FILE);
+        }
+    }
+
     @Test
     public void attachmentFileEmpty() throws Exception {
         // Make field def.
@@ -100,7 +133,8 @@ public class UploadFileHelperFindValueTest {
         Map<String, File> fileMap = ImmutableMap.of(FIELD_NAME_FILE, recordJsonFile);
 
         // Execute
-        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>());
+        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>(),
+                attachmentWrites);
         assertNull(result);
 
         // Verify no uploaded files
@@ -118,7 +152,8 @@ public class UploadFileHelperFindValueTest {
         Map<String, File> fileMap = ImmutableMap.of(FIELD_NAME_FILE, recordJsonFile);
 
         // Execute
-        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>());
+        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>(),
+                attachmentWrites);
         assertEquals(result.textValue(), "dummy content");
 
         // Verify no uploaded files
@@ -140,7 +175,8 @@ public class UploadFileHelperFindValueTest {
         Map<String, File> fileMap = ImmutableMap.of(FIELD_NAME_FILE, recordJsonFile);
 
         // Execute
-        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>());
+        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>(),
+                attachmentWrites);
         assertNull(result);
 
         // Verify no uploaded files
@@ -160,7 +196,8 @@ public class UploadFileHelperFindValueTest {
                 .put(FIELD_NAME_FILE, recordJsonFile).build();
 
         // Execute
-        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>());
+        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>(),
+                attachmentWrites);
         assertNull(result);
 
         // Verify no uploaded files
@@ -181,7 +218,8 @@ public class UploadFileHelperFindValueTest {
 
         // Execute
         String expectedAttachmentFilename = UPLOAD_ID + '-' + FIELD_NAME_JSON_KEY;
-        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>());
+        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>(),
+                attachmentWrites);
         assertEquals(result.textValue(), expectedAttachmentFilename);
 
         // Verify uploaded file
@@ -207,7 +245,8 @@ public class UploadFileHelperFindValueTest {
                 .put(FIELD_NAME_FILE, recordJsonFile).build();
 
         // Execute
-        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>());
+        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>(),
+                attachmentWrites);
         assertEquals(result.textValue(), "record-value");
 
         // Verify no uploaded files
@@ -230,7 +269,8 @@ public class UploadFileHelperFindValueTest {
         Map<String, File> fileMap = ImmutableMap.<String, File>builder().put(FIELD_NAME_FILE, recordJsonFile).build();
 
         // Execute - The file is too large. Skip.
-        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>());
+        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>(),
+                attachmentWrites);
         assertEquals(result.textValue(), "Long but not too long");
 
         // Verify no uploaded files
@@ -253,7 +293,8 @@ public class UploadFileHelperFindValueTest {
         Map<String, File> fileMap = ImmutableMap.<String, File>builder().put(FIELD_NAME_FILE, recordJsonFile).build();
 
         // Execute - The file is long enough to warn, but not long enough to skip.
-        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>());
+        JsonNode result = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fieldDef, new HashMap<>(),
+                attachmentWrites);
         assertNull(result);
 
         // Verify no uploaded files
@@ -279,10 +320,12 @@ public class UploadFileHelperFindValueTest {
         // Execute
         Map<String, Map<String, JsonNode>> cache = new HashMap<>();
 
-        JsonNode fooResult = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fooFieldDef, cache);
+        JsonNode fooResult = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, fooFieldDef, cache,
+                attachmentWrites);
         assertEquals(fooResult.textValue(), "foo-value");
 
-        JsonNode barResult = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, barFieldDef, cache);
+        JsonNode barResult = uploadFileHelper.findValueForField(UPLOAD_ID, fileMap, barFieldDef, cache,
+                attachmentWrites);
         assertEquals(barResult.textValue(), "bar-value");
 
         // Verify no uploaded files
@@ -4,13 +4,21 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 
 import java.io.File;
+import java.util.List;
 
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.Upload;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
@@ -20,18 +28,30 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.TestConstants;
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
+import org.sagebionetworks.bridge.file.FileHelper;
 import org.sagebionetworks.bridge.s3.S3Helper;
 
 public class UploadFileHelperTest {
     private static final byte[] CONTENT = "Hello world!".getBytes();
     private static final String FILENAME = "file.txt";
 
+    @Mock
+    AsyncExecutor mockAsyncExecutor;
+
+    @Mock
+    FileHelper mockFileHelper;
+
     @Mock
     DigestUtils mockMd5DigestUtils;
 
     @Mock
     S3Helper mockS3Helper;
 
+    @Mock
+    TransferManager mockTransferManager;
+
     @InjectMocks
     UploadFileHelper helper;
 
@@ -73,4 +93,56 @@ public class UploadFileHelperTest {
                 TestConstants.MOCK_MD5_HEX_ENCODED);
         assertEquals(metadata.getSSEAlgorithm(), ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
     }
+
+    @Test
+    public void uploadLargeFileAsMultipart() throws Exception {
+        File mockFile = mock(File.class);
+        when(mockFileHelper.fileSize(mockFile)).thenReturn(100L);
+        helper.setMultipartThresholdBytes(100L);
+
+        Upload mockUpload = mock(Upload.class);
+        when(mockTransferManager.upload(any(PutObjectRequest.class))).thenReturn(mockUpload);
+
+        // Execute.
+        helper.uploadFileAsAttachment(FILENAME, mockFile);
+
+        // Verify.
+        ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(mockTransferManager).upload(requestCaptor.capture());
+        verify(mockUpload).waitForCompletion();
+        verify(mockS3Helper, never()).writeFileToS3(any(), any(), any(File.class), any());
+
+        PutObjectRequest request = requestCaptor.getValue();
+        assertEquals(request.getBucketName(), UploadFileHelper.ATTACHMENT_BUCKET);
+        assertEquals(request.getKey(), FILENAME);
+        assertSame(request.getFile(), mockFile);
+        assertEquals(request.getMetadata().getUserMetaDataOf(UploadFileHelper.KEY_CUSTOM_CONTENT_MD5),
+                TestConstants.MOCK_MD5_HEX_ENCODED);
+        assertEquals(request.getMetadata().getSSEAlgorithm(), ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
+    }
+
+    @Test
+    public void newAttachmentWriteBatch() throws Exception {
+        helper.setMaxConcurrentWritesPerUpload(2);
+
+        // Execute.
+        AttachmentWriteBatch attachmentWrites = helper.newAttachmentWriteBatch(TEST_APP_ID);
+        attachmentWrites.submit("error", () -> helper.uploadBytesAsAttachment(FILENAME, CONTENT));
+        attachmentWrites.submit("error", () -> helper.uploadBytesAsAttachment("other-" + FILENAME, CONTENT));
+
+        // Writes are queued in the attachment write lane, with the app as the fairness key.
+        ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(mockAsyncExecutor, times(2)).execute(eq(AsyncLane.ATTACHMENT_WRITE), eq(TEST_APP_ID),
+                taskCaptor.capture());
+        verify(mockS3Helper, never()).writeBytesToS3(any(), any(), any(byte[].class), any());
+
+        List<Runnable> taskList = taskCaptor.getAllValues();
+        taskList.forEach(Runnable::run);
+        attachmentWrites.join();
+
+        verify(mockS3Helper).writeBytesToS3(eq(UploadFileHelper.ATTACHMENT_BUCKET), eq(FILENAME), eq(CONTENT),
+                any());
+        verify(mockS3Helper).writeBytesToS3(eq(UploadFileHelper.ATTACHMENT_BUCKET), eq("other-" + FILENAME),
+                eq(CONTENT), any());
+    }
 }
@@ -35,6 +35,9 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.TestConstants;
+import org.sagebionetworks.bridge.async.AsyncExecutor;
+import org.sagebionetworks.bridge.async.AsyncLane;
+import org.sagebionetworks.bridge.cache.UploadDefinitionCache;
 import org.sagebionetworks.bridge.dao.UploadDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoApp;
 import org.sagebionetworks.bridge.dynamodb.DynamoSurvey;
@@ -208,6 +211,14 @@ public class UploadHandlersEndToEndTest {
         uploadFileHelper.setMd5DigestUtils(mockMd5DigestUtils);
         uploadFileHelper.setS3Helper(mockS3UploadHelper);
 
+        // Write attachments on the test thread.
+        AsyncExecutor mockAsyncExecutor = mock(AsyncExecutor.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(2).run();
+            return null;
+        }).when(mockAsyncExecutor).execute(eq(AsyncLane.ATTACHMENT_WRITE), any(), any());
+        uploadFileHelper.setAsyncExecutor(mockAsyncExecutor);
+
         // set up S3DownloadHandler - mock S3 Helper
         // "S3" returns file unencrypted for simplicity of testing
         S3Helper mockS3DownloadHelper = mock(S3Helper.class);
@@ -258,11 +269,14 @@ public class UploadHandlersEndToEndTest {
                             .thenReturn(survey);
         }
 
+        UploadDefinitionCache uploadDefinitionCache = new UploadDefinitionCache(100, 60);
+
         // set up IosSchemaValidationHandler
         IosSchemaValidationHandler2 iosSchemaValidationHandler = new IosSchemaValidationHandler2();
         iosSchemaValidationHandler.setFileHelper(inMemoryFileHelper);
         iosSchemaValidationHandler.setUploadFileHelper(uploadFileHelper);
         iosSchemaValidationHandler.setUploadSchemaService(mockUploadSchemaService);
+        iosSchemaValidationHandler.setUploadDefinitionCache(uploadDefinitionCache);
         iosSchemaValidationHandler.setSurveyService(mockSurveyService);
 
         // set up GenericUploadFormatHandler
@@ -270,6 +284,7 @@ public class UploadHandlersEndToEndTest {
         genericUploadFormatHandler.setFileHelper(inMemoryFileHelper);
         genericUploadFormatHandler.setUploadFileHelper(uploadFileHelper);
         genericUploadFormatHandler.setUploadSchemaService(mockUploadSchemaService);
+        genericUploadFormatHandler.setUploadDefinitionCache(uploadDefinitionCache);
         genericUploadFormatHandler.setSurveyService(mockSurveyService);
 
         // set up UploadFormatHandler
@@ -280,6 +295,7 @@ public class UploadHandlersEndToEndTest {
         // set up StrictValidationHandler
         StrictValidationHandler strictValidationHandler = new StrictValidationHandler();
         strictValidationHandler.setUploadSchemaService(mockUploadSchemaService);
+        strictValidationHandler.setUploadDefinitionCache(uploadDefinitionCache);
 
         AppService mockAppService = mock(AppService.class);
         when(mockAppService.getApp(TEST_APP_ID)).thenReturn(APP);
@@ -321,6 +337,9 @@ public class UploadHandlersEndToEndTest {
         taskFactory.setHandlerList(handlerList);
         taskFactory.setUploadDao(mockUploadDao);
         taskFactory.setHealthDataService(mockHealthDataService);
+        taskFactory.setUploadValidationMetrics(new UploadValidationMetrics());
+        taskFactory.setUploadCompletionNotifier(mock(UploadCompletionNotifier.class));
+        taskFactory.setUploadFileHelper(uploadFileHelper);
 
         // create task, execute
         UploadValidationTask task = taskFactory.newTask(TEST_APP_ID, upload);
@@ -72,7 +72,8 @@ public class UploadRawZipHandlerTest {
         doThrow(IOException.class).when(mockUploadFileHelper).uploadFileAsAttachment(EXPECTED_RAW_DATA_ZIP_FILENAME,
                 mockDecryptedFile);
 
-        // Execute (throws exception).
+        // Execute. The write fails when the upload's attachment writes are joined.
         handler.handle(context);
+        context.getAttachmentWrites().join();
     }
 }
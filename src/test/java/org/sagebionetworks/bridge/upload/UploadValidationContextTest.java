@@ -50,6 +50,7 @@ public class UploadValidationContextTest {
                 .put("bar", mock(File.class)).put("baz", mock(File.class)).build();
         JsonNode infoJsonNode = BridgeObjectMapper.get().createObjectNode();
         HealthDataRecord record = HealthDataRecord.create();
+        AttachmentWriteBatch attachmentWrites = new AttachmentWriteBatch();
 
         // create original
         UploadValidationContext original = new UploadValidationContext();
@@ -65,6 +66,7 @@ public class UploadValidationContextTest {
         original.setInfoJsonNode(infoJsonNode);
         original.setHealthDataRecord(record);
         original.setRecordId("test-record");
+        original.setAttachmentWrites(attachmentWrites);
 
         // copy and validate
         UploadValidationContext copy = original.shallowCopy();
@@ -79,6 +81,7 @@ public class UploadValidationContextTest {
         assertSame(copy.getInfoJsonNode(), infoJsonNode);
         assertSame(copy.getHealthDataRecord(), record);
         assertEquals(copy.getRecordId(), "test-record");
+        assertSame(copy.getAttachmentWrites(), attachmentWrites);
 
         assertEquals(copy.getMessageList().size(), 1);
         assertEquals(copy.getMessageList().get(0), "common message");
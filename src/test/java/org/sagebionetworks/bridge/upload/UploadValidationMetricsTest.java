@@ -0,0 +1,66 @@
+package org.sagebionetworks.bridge.upload;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.upload.UploadValidationMetrics.HandlerStats;
+import org.sagebionetworks.bridge.upload.UploadValidationMetrics.UploadStats;
+
+public class UploadValidationMetricsTest {
+    private static final String APP_A = "app-a";
+    private static final String APP_B = "app-b";
+
+    @Test
+    public void empty() {
+        UploadValidationMetrics metrics = new UploadValidationMetrics();
+        assertTrue(metrics.getHandlerStats().isEmpty());
+        assertTrue(metrics.getUploadStats().isEmpty());
+    }
+
+    @Test
+    public void handlerStatsKeyedByHandlerAndApp() {
+        UploadValidationMetrics metrics = new UploadValidationMetrics();
+        metrics.recordHandler("DecryptHandler", APP_A, 10L, true);
+        metrics.recordHandler("DecryptHandler", APP_A, 30L, false);
+        metrics.recordHandler("DecryptHandler", APP_B, 5L, true);
+        metrics.recordHandler("UnzipHandler", APP_A, 7L, true);
+
+        Map<String, Map<String, HandlerStats>> stats = metrics.getHandlerStats();
+        assertEquals(stats.size(), 2);
+
+        HandlerStats decryptA = stats.get("DecryptHandler").get(APP_A);
+        assertEquals(decryptA.getSucceeded(), 1L);
+        assertEquals(decryptA.getFailed(), 1L);
+        assertEquals(decryptA.getLatency().getCount(), 2L);
+        assertEquals(decryptA.getLatency().getMaxMillis(), 30L);
+
+        HandlerStats decryptB = stats.get("DecryptHandler").get(APP_B);
+        assertEquals(decryptB.getSucceeded(), 1L);
+        assertEquals(decryptB.getFailed(), 0L);
+
+        assertEquals(stats.get("UnzipHandler").size(), 1);
+        assertEquals(stats.get("UnzipHandler").get(APP_A).getLatency().getMaxMillis(), 7L);
+    }
+
+    @Test
+    public void uploadStatsKeyedByApp() {
+        UploadValidationMetrics metrics = new UploadValidationMetrics();
+        metrics.recordUpload(APP_A, true, 100L, 400L);
+        metrics.recordUpload(APP_A, false, 50L, 0L);
+        metrics.recordUpload(APP_B, true, 10L, 20L);
+
+        UploadStats statsA = metrics.getUploadStats().get(APP_A);
+        assertEquals(statsA.getSucceeded(), 1L);
+        assertEquals(statsA.getFailed(), 1L);
+        assertEquals(statsA.getBytesDownloaded(), 150L);
+        assertEquals(statsA.getBytesUnzipped(), 400L);
+
+        UploadStats statsB = metrics.getUploadStats().get(APP_B);
+        assertEquals(statsB.getSucceeded(), 1L);
+        assertEquals(statsB.getBytesUnzipped(), 20L);
+    }
+}
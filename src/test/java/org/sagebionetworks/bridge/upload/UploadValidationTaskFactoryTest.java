@@ -1,14 +1,18 @@
 package org.sagebionetworks.bridge.upload;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertSame;
 
 import java.util.Collections;
 import java.util.List;
 
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.TestUtils;
 import org.sagebionetworks.bridge.dao.UploadDao;
 import org.sagebionetworks.bridge.file.FileHelper;
@@ -18,6 +22,12 @@ import org.sagebionetworks.bridge.services.HealthDataService;
 
 public class UploadValidationTaskFactoryTest {
     private static final String HEALTH_CODE = "health-code";
+    private static final String REQUEST_ID = "request-id";
+
+    @AfterMethod
+    public void after() {
+        BridgeUtils.setRequestContext(null);
+    }
 
     @Test
     public void test() {
@@ -26,6 +36,11 @@ public class UploadValidationTaskFactoryTest {
         UploadDao dao = mock(UploadDao.class);
         FileHelper fileHelper = new FileHelper();
         HealthDataService healthDataService = new HealthDataService();
+        UploadValidationMetrics metrics = new UploadValidationMetrics();
+        UploadCompletionNotifier notifier = new UploadCompletionNotifier();
+        UploadFileHelper mockUploadFileHelper = mock(UploadFileHelper.class);
+        AttachmentWriteBatch attachmentWrites = new AttachmentWriteBatch();
+        BridgeUtils.setRequestContext(new RequestContext.Builder().withRequestId(REQUEST_ID).build());
 
         // set up task factory
         UploadValidationTaskFactory taskFactory = new UploadValidationTaskFactory();
@@ -33,9 +48,13 @@ public class UploadValidationTaskFactoryTest {
         taskFactory.setHandlerList(handlerList);
         taskFactory.setUploadDao(dao);
         taskFactory.setHealthDataService(healthDataService);
+        taskFactory.setUploadValidationMetrics(metrics);
+        taskFactory.setUploadCompletionNotifier(notifier);
+        taskFactory.setUploadFileHelper(mockUploadFileHelper);
 
         // inputs
         App app = TestUtils.getValidApp(UploadValidationTaskFactoryTest.class);
+        when(mockUploadFileHelper.newAttachmentWriteBatch(app.getIdentifier())).thenReturn(attachmentWrites);
         Upload upload = Upload.create();
         upload.setHealthCode(HEALTH_CODE);
 
@@ -44,10 +63,14 @@ public class UploadValidationTaskFactoryTest {
         assertEquals(task.getContext().getHealthCode(), HEALTH_CODE);
         assertSame(task.getContext().getAppId(), app.getIdentifier());
         assertSame(task.getContext().getUpload(), upload);
+        assertSame(task.getContext().getAttachmentWrites(), attachmentWrites);
 
         assertSame(task.getFileHelper(), fileHelper);
         assertSame(task.getHandlerList(), handlerList);
         assertSame(task.getUploadDao(), dao);
         assertSame(task.getHealthDataService(), healthDataService);
+        assertSame(task.getUploadValidationMetrics(), metrics);
+        assertSame(task.getUploadCompletionNotifier(), notifier);
+        assertEquals(task.getRequestId(), REQUEST_ID);
     }
 }
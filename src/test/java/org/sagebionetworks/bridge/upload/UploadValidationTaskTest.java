@@ -15,11 +15,20 @@ import static org.mockito.Mockito.eq;
 
 import javax.annotation.Nonnull;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import org.joda.time.LocalDate;
 import org.testng.annotations.BeforeMethod;
@@ -36,6 +45,8 @@ import org.sagebionetworks.bridge.models.healthdata.HealthDataRecord;
 import org.sagebionetworks.bridge.models.upload.Upload;
 import org.sagebionetworks.bridge.models.upload.UploadStatus;
 import org.sagebionetworks.bridge.services.HealthDataService;
+import org.sagebionetworks.bridge.upload.UploadValidationMetrics.HandlerStats;
+import org.sagebionetworks.bridge.upload.UploadValidationMetrics.UploadStats;
 
 public class UploadValidationTaskTest {
     private static final long CREATED_ON = 1424136378727L;
@@ -58,6 +69,8 @@ public class UploadValidationTaskTest {
     private InMemoryFileHelper inMemoryFileHelper;
     private UploadDao mockDao;
     private UploadValidationTask task;
+    private UploadValidationMetrics metrics;
+    private UploadCompletionNotifier mockNotifier;
     private Upload upload;
 
     @BeforeMethod
@@ -87,6 +100,12 @@ public class UploadValidationTaskTest {
         task.setHandlerList(handlerList);
         task.setHealthDataService(healthDataService);
         task.setUploadDao(mockDao);
+
+        metrics = new UploadValidationMetrics();
+        task.setUploadValidationMetrics(metrics);
+
+        mockNotifier = mock(UploadCompletionNotifier.class);
+        task.setUploadCompletionNotifier(mockNotifier);
     }
 
     @Test
@@ -103,6 +122,43 @@ public class UploadValidationTaskTest {
         assertEquals(messageList.get(0), "foo was here");
         assertEquals(messageList.get(1), "bar was here");
         assertEquals(messageList.get(2), "kilroy was here");
+
+        // validate handler timings were recorded for each handler
+        Map<String, Map<String, HandlerStats>> handlerStats = metrics.getHandlerStats();
+        assertEquals(handlerStats.get("MessageHandler").get(ctx.getAppId()).getSucceeded(), 3L);
+        assertEquals(handlerStats.get("MessageHandler").get(ctx.getAppId()).getLatency().getCount(), 3L);
+        assertEquals(handlerStats.get("RecordIdHandler").get(ctx.getAppId()).getSucceeded(), 1L);
+        assertEquals(metrics.getUploadStats().get(ctx.getAppId()).getSucceeded(), 1L);
+    }
+
+    @Test
+    public void unzippedSizeRecorded() {
+        List<UploadValidationHandler> handlerList = ImmutableList.of(context -> {
+            File file = inMemoryFileHelper.newFile(context.getTempDir(), "data.json");
+            inMemoryFileHelper.writeBytes(file, DATA_TEXT.getBytes(Charsets.UTF_8));
+            context.setUnzippedDataFileMap(ImmutableMap.of("data.json", file));
+        });
+
+        testHelper(handlerList, UploadStatus.SUCCEEDED, null);
+
+        UploadStats stats = metrics.getUploadStats().get(ctx.getAppId());
+        assertEquals(stats.getBytesUnzipped(), DATA_TEXT.length());
+    }
+
+    @Test
+    public void stageTimingsRecorded() {
+        List<UploadValidationHandler> handlerList = ImmutableList.of(context -> {
+            context.setStageElapsedMillis("S3DownloadHandler", 5L);
+            context.setStageElapsedMillis("UnzipHandler", 7L);
+        }, new RecordIdHandler(RECORD_ID));
+
+        testHelper(handlerList, UploadStatus.SUCCEEDED, RECORD_ID);
+
+        // Stages are recorded as if their handlers had run, then cleared.
+        Map<String, Map<String, HandlerStats>> handlerStats = metrics.getHandlerStats();
+        assertEquals(handlerStats.get("S3DownloadHandler").get(ctx.getAppId()).getSucceeded(), 1L);
+        assertEquals(handlerStats.get("UnzipHandler").get(ctx.getAppId()).getSucceeded(), 1L);
+        assertTrue(ctx.getStageElapsedMillis().isEmpty());
     }
 
     @Test
@@ -146,6 +202,51 @@ public class UploadValidationTaskTest {
         assertEquals(messageList.size(), 2);
         assertEquals(messageList.get(0), "foo succeeded");
         assertFalse(Strings.isNullOrEmpty(messageList.get(1)));
+
+        // Validate the failing handler was recorded as a failure, and the handler after it wasn't recorded.
+        Map<String, Map<String, HandlerStats>> handlerStats = metrics.getHandlerStats();
+        assertEquals(handlerStats.get("MessageHandler").get(ctx.getAppId()).getSucceeded(), 1L);
+        assertEquals(handlerStats.get(barHandler.getClass().getSimpleName()).get(ctx.getAppId()).getFailed(), 1L);
+        assertFalse(handlerStats.containsKey("RecordIdHandler"));
+        assertEquals(metrics.getUploadStats().get(ctx.getAppId()).getFailed(), 1L);
+    }
+
+    @Test
+    public void pendingAttachmentWritesFinishBeforeTempDirIsDeleted() throws Exception {
+        ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+        ctx.setAttachmentWrites(new AttachmentWriteBatch(writeExecutor, 1));
+        AtomicBoolean written = new AtomicBoolean();
+        UploadValidationHandler writeHandler = context -> {
+            File file = inMemoryFileHelper.newFile(context.getTempDir(), "attachment.json");
+            inMemoryFileHelper.writeBytes(file, DATA_TEXT.getBytes(Charsets.UTF_8));
+            context.getAttachmentWrites().submit("Error writing attachment", () -> {
+                Uninterruptibles.sleepUninterruptibly(200, TimeUnit.MILLISECONDS);
+                assertEquals(inMemoryFileHelper.getBytes(file), DATA_TEXT.getBytes(Charsets.UTF_8));
+                written.set(true);
+            });
+        };
+        UploadValidationHandler failingHandler = mock(UploadValidationHandler.class);
+        doThrow(UploadValidationException.class).when(failingHandler).handle(notNull());
+
+        try {
+            testHelper(ImmutableList.of(writeHandler, failingHandler), UploadStatus.VALIDATION_FAILED, null);
+        } finally {
+            writeExecutor.shutdown();
+        }
+        assertTrue(written.get());
+    }
+
+    @Test
+    public void failedAttachmentWriteFailsUpload() throws Exception {
+        UploadValidationHandler writeHandler = context -> context.getAttachmentWrites().submit(
+                "Error writing attachment", () -> {
+                    throw new IOException("S3 is down");
+                });
+
+        testHelper(ImmutableList.of(writeHandler), UploadStatus.VALIDATION_FAILED, null);
+        assertFalse(ctx.getSuccess());
+        assertEquals(ctx.getMessageList().size(), 1);
+        assertTrue(ctx.getMessageList().get(0).contains("Error writing attachment"));
     }
 
     // helper test method, encapsulating core setup and validation
@@ -162,6 +263,9 @@ public class UploadValidationTaskTest {
         // validate the upload dao write validation status call
         verify(mockDao).writeValidationStatus(upload, expectedStatus, ctx.getMessageList(), expectedRecordId);
 
+        // validate that callers waiting on this upload are woken
+        verify(mockNotifier).notifyCompleted("test-upload");
+
         // Validate that we clean up the temp directory.
         assertTrue(inMemoryFileHelper.isEmpty());
     }
@@ -184,6 +288,9 @@ public class UploadValidationTaskTest {
 
         // verify log helper was called
         verify(task).logWriteValidationStatusException(UploadStatus.SUCCEEDED, toThrow);
+
+        // Waiting callers are still woken, so they can read the status themselves.
+        verify(mockNotifier).notifyCompleted("test-upload");
     }
 
     // Test handler that makes its presence known only by writing a message to the validation context.
@@ -0,0 +1,62 @@
+package org.sagebionetworks.bridge.util;
+
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.Test;
+
+public class LatencyHistogramTest {
+    @Test
+    public void empty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(histogram.getCount(), 0L);
+        assertEquals(histogram.getAverageMillis(), 0L);
+        assertEquals(histogram.getMaxMillis(), 0L);
+        assertEquals(histogram.getP50Millis(), 0L);
+        assertEquals(histogram.getP99Millis(), 0L);
+    }
+
+    @Test
+    public void percentilesAreBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 90 fast samples, 9 medium samples, and 1 slow sample.
+        for (int i = 0; i < 90; i++) {
+            histogram.record(3L);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(150L);
+        }
+        histogram.record(1500L);
+
+        assertEquals(histogram.getCount(), 100L);
+        assertEquals(histogram.getMaxMillis(), 1500L);
+        assertEquals(histogram.getAverageMillis(), (90L * 3L + 9L * 150L + 1500L) / 100L);
+        assertEquals(histogram.getP50Millis(), 5L);
+        assertEquals(histogram.getP90Millis(), 5L);
+        assertEquals(histogram.getP99Millis(), 200L);
+        assertEquals(histogram.getPercentileMillis(100), 1500L);
+    }
+
+    @Test
+    public void percentileCappedAtMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(12L);
+        // Bucket upper bound is 20, but nothing took longer than 12.
+        assertEquals(histogram.getP50Millis(), 12L);
+    }
+
+    @Test
+    public void overflowBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(600000L);
+        assertEquals(histogram.getP99Millis(), 600000L);
+    }
+
+    @Test
+    public void negativeTimesCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5L);
+        assertEquals(histogram.getCount(), 1L);
+        assertEquals(histogram.getMaxMillis(), 0L);
+        assertEquals(histogram.getP50Millis(), 0L);
+    }
+}